@@ -0,0 +1,162 @@
+/*
+ * This file is a part of Turbo Gherkin Parser.
+ *
+ * Copyright © 2020-2020
+ * Valery Maximov <maximovvalery@gmail.com>, 1c-syntax team <www.github.com/1c-syntax>, BIA Technologies team <www.bia-tech.ru> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * Turbo Gherkin Parser is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * Turbo Gherkin Parser is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Turbo Gherkin Parser.
+ */
+package com.github._1c_syntax.turbo.gherkin.parser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Набор входных данных для бенчмарков, построенный из корпуса src/test/resources/correct
+ */
+final class BenchmarkCorpus {
+
+  /**
+   * Системное свойство с путем к каталогу корпуса
+   */
+  static final String CORPUS_PROPERTY = "turbo.gherkin.corpus";
+
+  /**
+   * Минимальный размер синтетического файла
+   */
+  static final int SYNTHETIC_SIZE = 4 * 1024 * 1024;
+
+  private static final Pattern SCENARIO_START = Pattern.compile("(?m)^[ \\t]*(Сценарий|Scenario):");
+
+  private BenchmarkCorpus() {
+    // utils
+  }
+
+  /**
+   * Возвращает содержимое файла по имени набора
+   *
+   * @param name имя набора: small, large или synthetic
+   * @return содержимое фиче-файла
+   */
+  static String load(String name) {
+    switch (name) {
+      case "small":
+        return files().get(0);
+      case "large":
+        return files().get(files().size() - 1);
+      case "synthetic":
+        return synthetic(SYNTHETIC_SIZE);
+      default:
+        throw new IllegalArgumentException("Unknown input: " + name);
+    }
+  }
+
+  /**
+   * Строит синтетический фиче-файл, многократно повторяя сценарии самого большого файла корпуса
+   *
+   * @param minSize минимальный размер в символах
+   * @return содержимое фиче-файла
+   */
+  static String synthetic(int minSize) {
+    var largest = files().get(files().size() - 1);
+    var matcher = SCENARIO_START.matcher(largest);
+    if (!matcher.find()) {
+      throw new IllegalStateException("Corpus has no scenarios");
+    }
+    var scenarios = largest.substring(matcher.start());
+    var builder = new StringBuilder(minSize + largest.length()).append(largest);
+    while (builder.length() < minSize) {
+      builder.append("\n\n").append(scenarios);
+    }
+    return builder.toString();
+  }
+
+  /**
+   * Тот же синтетический фиче-файл, что {@link #synthetic(int)}, но генерируемый по мере чтения,
+   * не держа его в памяти целиком
+   *
+   * @param minSize минимальный размер в символах
+   * @return источник содержимого фиче-файла
+   */
+  static Reader syntheticReader(int minSize) {
+    var largest = files().get(files().size() - 1);
+    var matcher = SCENARIO_START.matcher(largest);
+    if (!matcher.find()) {
+      throw new IllegalStateException("Corpus has no scenarios");
+    }
+    var scenarios = "\n\n" + largest.substring(matcher.start());
+    return new Reader() {
+      private String chunk = largest;
+      private int position;
+      private long size;
+
+      @Override
+      public int read(char[] buffer, int offset, int length) {
+        if (position == chunk.length()) {
+          if (size >= minSize) {
+            return -1;
+          }
+          chunk = scenarios;
+          position = 0;
+        }
+        var count = Math.min(length, chunk.length() - position);
+        chunk.getChars(position, position + count, buffer, offset);
+        position += count;
+        size += count;
+        return count;
+      }
+
+      @Override
+      public void close() {
+        // нечего закрывать
+      }
+    };
+  }
+
+  /**
+   * Файлы корпуса, упорядоченные по размеру
+   */
+  private static List<String> files() {
+    Path root = Paths.get(System.getProperty(CORPUS_PROPERTY, "src/test/resources/correct"));
+    try (Stream<Path> paths = Files.walk(root)) {
+      return paths
+        .filter(path -> path.toString().endsWith(".feature"))
+        .map(BenchmarkCorpus::read)
+        .sorted(Comparator.comparingInt(String::length))
+        .collect(Collectors.toList());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static String read(Path path) {
+    try {
+      return Files.readString(path, StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -0,0 +1,110 @@
+/*
+ * This file is a part of Turbo Gherkin Parser.
+ *
+ * Copyright © 2020-2020
+ * Valery Maximov <maximovvalery@gmail.com>, 1c-syntax team <www.github.com/1c-syntax>, BIA Technologies team <www.bia-tech.ru> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * Turbo Gherkin Parser is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * Turbo Gherkin Parser is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Turbo Gherkin Parser.
+ */
+package com.github._1c_syntax.turbo.gherkin.parser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Время правки {@link GherkinDocument} в зависимости от размера файла и места правки.
+ * Токены за правкой сдвигаются вместе с сегментами, поэтому время правки в первом и последнем
+ * сценарии различается стоимостью разбора самих блоков, а не числом последующих токенов.
+ * Запуск: gradlew jmh -Pjmh.include=GherkinDocumentBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GherkinDocumentBenchmark {
+
+  private static final Pattern SCENARIO_START = Pattern.compile("(?m)^[ \\t]*(Сценарий|Scenario):");
+
+  /**
+   * Набор входных данных, см. {@link BenchmarkCorpus#load(String)}
+   */
+  @Param({"small", "large", "synthetic"})
+  public String input;
+
+  /**
+   * Сценарий, в имени которого выполняется правка: first или last
+   */
+  @Param({"first", "last"})
+  public String position;
+
+  private String content;
+  private GherkinDocument document;
+  private int offset;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    content = GherkinCharStreams.stripBOM(BenchmarkCorpus.load(input));
+    var matcher = SCENARIO_START.matcher(content);
+    var nameStart = -1;
+    while (matcher.find()) {
+      nameStart = matcher.end();
+      if ("first".equals(position)) {
+        break;
+      }
+    }
+    if (nameStart < 0) {
+      throw new IllegalStateException("Input has no scenarios");
+    }
+    var lineEnd = content.indexOf('\n', nameStart);
+    offset = lineEnd < 0 ? content.length() : lineEnd;
+    if (offset > nameStart && content.charAt(offset - 1) == '\r') {
+      offset--;
+    }
+    document = new GherkinDocument(content);
+  }
+
+  /**
+   * Вставка и удаление символа в конце имени сценария, обе правки разбираются инкрементально
+   */
+  @Benchmark
+  public TurboGherkinParser.FeatureContext edit() {
+    document.applyEdit(offset, 0, "x");
+    return document.applyEdit(offset, 1, "");
+  }
+
+  /**
+   * Полный разбор того же текста для сравнения
+   */
+  @Benchmark
+  public TurboGherkinParser.FeatureContext open() {
+    return new GherkinDocument(content).getAst();
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * This file is a part of Turbo Gherkin Parser.
+ *
+ * Copyright © 2020-2020
+ * Valery Maximov <maximovvalery@gmail.com>, 1c-syntax team <www.github.com/1c-syntax>, BIA Technologies team <www.bia-tech.ru> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * Turbo Gherkin Parser is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * Turbo Gherkin Parser is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Turbo Gherkin Parser.
+ */
+package com.github._1c_syntax.turbo.gherkin.parser;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+/**
+ * Занимаемая в куче память результатов разбора одного файла, измеряется JOL.
+ * <p>
+ * Размер считается как разница графов объектов двух независимо построенных копий и одной копии:
+ * общие для всех разборов объекты (ATN, кэш DFA, интернированные строки) в нее не входят.
+ * Результат - вторичный счетчик retainedBytes, время операции включает обход графа и не показательно.
+ * JMH суммирует счетчик по итерациям измерения, поэтому итерация одна.
+ * Запуск: gradlew jmh -Pjmh.include=GherkinFootprintBenchmark
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GherkinFootprintBenchmark {
+
+  /**
+   * Набор входных данных, см. {@link BenchmarkCorpus#load(String)}
+   */
+  @Param({"small", "large"})
+  public String input;
+
+  /**
+   * Что хранится после разбора: tree - токенайзер с токенами и деревом разбора,
+   * model - модель {@link Feature} без интернирования строк, internedModel - модель с {@link String#intern()}
+   */
+  @Param({"tree", "model", "internedModel"})
+  public String structure;
+
+  private String content;
+
+  /**
+   * Занимаемая одной копией память в байтах
+   */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class Footprint {
+    public long retainedBytes;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      retainedBytes = 0;
+    }
+  }
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    content = BenchmarkCorpus.load(input);
+  }
+
+  @Benchmark
+  public Object retained(Footprint footprint) {
+    var first = build();
+    var second = build();
+    footprint.retainedBytes = GraphLayout.parseInstance(first, second).totalSize()
+      - GraphLayout.parseInstance(first).totalSize();
+    return second;
+  }
+
+  private Object build() {
+    switch (structure) {
+      case "tree":
+        var tokenizer = new GherkinTokenizer(content);
+        tokenizer.getAst();
+        return tokenizer;
+      case "model":
+        return new GherkinModelBuilder(UnaryOperator.identity()).build(new GherkinTokenizer(content).getAst());
+      case "internedModel":
+        return new GherkinModelBuilder().build(new GherkinTokenizer(content).getAst());
+      default:
+        throw new IllegalArgumentException("Unknown structure: " + structure);
+    }
+  }
+}
@@ -0,0 +1,172 @@
+/*
+ * This file is a part of Turbo Gherkin Parser.
+ *
+ * Copyright © 2020-2020
+ * Valery Maximov <maximovvalery@gmail.com>, 1c-syntax team <www.github.com/1c-syntax>, BIA Technologies team <www.bia-tech.ru> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * Turbo Gherkin Parser is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * Turbo Gherkin Parser is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Turbo Gherkin Parser.
+ */
+package com.github._1c_syntax.turbo.gherkin.parser;
+
+import com.github._1c_syntax.bsl.parser.CaseChangingCharStream;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ConsoleErrorListener;
+import org.antlr.v4.runtime.ListTokenSource;
+import org.antlr.v4.runtime.Token;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарки лексера, парсера и токенайзера.
+ * Запуск: gradlew jmh, с фильтром: gradlew jmh -Pjmh.include=GherkinParserBenchmark.lexer
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GherkinParserBenchmark {
+
+  /**
+   * Набор входных данных, см. {@link BenchmarkCorpus#load(String)}
+   */
+  @Param({"small", "large", "synthetic"})
+  public String input;
+
+  private String content;
+  private char[] chars;
+  private int contentBytes;
+  private List<? extends Token> tokens;
+  private GherkinTokenizerPool pool;
+
+  /**
+   * Счетчик обработанных байт, JMH выводит его как bytes/s
+   */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  public static class Bytes {
+    public long bytes;
+  }
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    content = BenchmarkCorpus.load(input);
+    chars = content.toCharArray();
+    contentBytes = content.getBytes(StandardCharsets.UTF_8).length;
+    tokens = lex(content).getTokens();
+    pool = new GherkinTokenizerPool();
+  }
+
+  @Benchmark
+  public int lexer(Bytes counter) {
+    var size = lex(content).size();
+    counter.bytes += contentBytes;
+    return size;
+  }
+
+  @Benchmark
+  public int fastLexer(Bytes counter) {
+    var tokenStream = new CommonTokenStream(new GherkinFastLexer(content));
+    tokenStream.fill();
+    counter.bytes += contentBytes;
+    return tokenStream.size();
+  }
+
+  @Benchmark
+  public TurboGherkinParser.FeatureContext parser(Bytes counter) {
+    var parser = new TurboGherkinParser(new CommonTokenStream(new ListTokenSource(tokens)));
+    parser.removeErrorListener(ConsoleErrorListener.INSTANCE);
+    var feature = parser.feature();
+    counter.bytes += contentBytes;
+    return feature;
+  }
+
+  @Benchmark
+  public TurboGherkinParser.FeatureContext tokenizer(Bytes counter) {
+    var feature = new GherkinTokenizer(content).getAst();
+    counter.bytes += contentBytes;
+    return feature;
+  }
+
+  @Benchmark
+  public TurboGherkinParser.FeatureContext tokenizerSllThenLl(Bytes counter) {
+    var feature = new GherkinTokenizer(content, ParseStrategy.SLL_THEN_LL).getAst();
+    counter.bytes += contentBytes;
+    return feature;
+  }
+
+  @Benchmark
+  public TurboGherkinParser.FeatureContext tokenizerWords(Bytes counter) {
+    var feature = new GherkinTokenizer(content, ParseStrategy.LL, true).getAst();
+    counter.bytes += contentBytes;
+    return feature;
+  }
+
+  @Benchmark
+  public TurboGherkinParser.FeatureContext fastLexerWordsParser(Bytes counter) {
+    var parser = new TurboGherkinParser(new CommonTokenStream(new GherkinFastLexer(content, true)));
+    parser.removeErrorListener(ConsoleErrorListener.INSTANCE);
+    var feature = parser.feature();
+    counter.bytes += contentBytes;
+    return feature;
+  }
+
+  @Benchmark
+  public TurboGherkinParser.FeatureContext pool(Bytes counter) {
+    var feature = pool.parse(content);
+    counter.bytes += contentBytes;
+    return feature;
+  }
+
+  @Benchmark
+  public Feature model(Bytes counter) {
+    var feature = new GherkinModelBuilder().build(new GherkinTokenizer(content).getAst());
+    counter.bytes += contentBytes;
+    return feature;
+  }
+
+  @Benchmark
+  public Feature lineScanner(Bytes counter) {
+    var feature = new GherkinLineScanner().parse(chars, chars.length);
+    counter.bytes += contentBytes;
+    return feature;
+  }
+
+  private static CommonTokenStream lex(String content) {
+    var lexer = new TurboGherkinLexer(new CaseChangingCharStream(CharStreams.fromString(content)), true);
+    lexer.removeErrorListener(ConsoleErrorListener.INSTANCE);
+    var tokenStream = new CommonTokenStream(lexer);
+    tokenStream.fill();
+    return tokenStream;
+  }
+}
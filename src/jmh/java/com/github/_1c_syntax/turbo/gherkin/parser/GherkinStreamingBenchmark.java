@@ -0,0 +1,84 @@
+/*
+ * This file is a part of Turbo Gherkin Parser.
+ *
+ * Copyright © 2020-2020
+ * Valery Maximov <maximovvalery@gmail.com>, 1c-syntax team <www.github.com/1c-syntax>, BIA Technologies team <www.bia-tech.ru> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * Turbo Gherkin Parser is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * Turbo Gherkin Parser is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Turbo Gherkin Parser.
+ */
+package com.github._1c_syntax.turbo.gherkin.parser;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Потоковый разбор {@link GherkinStreamingParser} синтетического файла в куче 24 МБ.
+ * Файл генерируется по мере чтения и в куче целиком не помещается, поэтому успешный запуск
+ * подтверждает, что память разбора не зависит от размера файла. Переполнение кучи прерывает бенчмарк.
+ * Запуск: gradlew jmh -Pjmh.include=GherkinStreamingBenchmark
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx24m")
+@State(Scope.Benchmark)
+public class GherkinStreamingBenchmark {
+
+  /**
+   * Размер синтетического файла в символах
+   */
+  @Param({"9000000"})
+  public int size;
+
+  /**
+   * Число событий шагов, JMH суммирует его по итерациям измерения, поэтому итерация одна
+   */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class Steps implements GherkinEventHandler {
+    public long steps;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      steps = 0;
+    }
+
+    @Override
+    public void step(String keyword, String name, int line) {
+      steps++;
+    }
+  }
+
+  @Benchmark
+  public long parse(Steps handler) {
+    new GherkinStreamingParser().parse(BenchmarkCorpus.syntheticReader(size), handler);
+    return handler.steps;
+  }
+}
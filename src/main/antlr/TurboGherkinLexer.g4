@@ -1,11 +1,76 @@
 lexer grammar TurboGherkinLexer;
 
+// WORD выдается только в режиме слов, см. setWordTokens
+tokens { WORD }
+
 @members {
+private boolean wordTokens;
+// токен, прочитанный после окончания слова, и его первый символ
+private Token pendingToken;
+private int pendingFirstChar;
+
 public TurboGherkinLexer(CharStream input, boolean crAwareCostructor) {
   super(input);
   _interp = new CRAwareLexerATNSimulatorWrapper(this, _ATN);
   validateInputStream(_ATN, input);
 }
+
+/**
+ * Включает режим слов: каждая последовательность символов ANYSYMBOL выдается одним токеном WORD.
+ * Одиночный \r, переводящий строку, остается ANYSYMBOL. Слово заканчивается перед любым другим токеном,
+ * в том числе перед ключевым словом внутри слова, поэтому границы остальных токенов не меняются
+ *
+ * @param wordTokens true для выдачи токенов WORD
+ */
+public void setWordTokens(boolean wordTokens) {
+  this.wordTokens = wordTokens;
+  pendingToken = null;
+}
+
+public boolean isWordTokens() {
+  return wordTokens;
+}
+
+@Override
+public void reset() {
+  super.reset();
+  pendingToken = null;
+}
+
+@Override
+public Token nextToken() {
+  if (!wordTokens) {
+    return super.nextToken();
+  }
+
+  Token token;
+  int firstChar;
+  if (pendingToken == null) {
+    firstChar = _input.LA(1);
+    token = super.nextToken();
+  } else {
+    token = pendingToken;
+    firstChar = pendingFirstChar;
+    pendingToken = null;
+  }
+  if (token.getType() != ANYSYMBOL || firstChar == '\r') {
+    return token;
+  }
+
+  int stop = token.getStopIndex();
+  while (true) {
+    int nextFirstChar = _input.LA(1);
+    Token next = super.nextToken();
+    if (next.getType() != ANYSYMBOL || nextFirstChar == '\r') {
+      pendingToken = next;
+      pendingFirstChar = nextFirstChar;
+      break;
+    }
+    stop = next.getStopIndex();
+  }
+  return _factory.create(_tokenFactorySourcePair, WORD, null, DEFAULT_TOKEN_CHANNEL,
+    token.getStartIndex(), stop, token.getLine(), token.getCharPositionInLine());
+}
 }
 
 // COMMON
@@ -53,9 +53,10 @@ name:
 parameter: DECIMAL | FLOAT | STRING | (LABRACKET ~(EOL | LABRACKET | RABRACKET)+ RABRACKET);
 partName: ~(EOL | DECIMAL | STRING | LABRACKET | SPACE | TAB)+;
 
+// строка из одного слова в режиме слов лексера состоит из одного токена WORD
 description:
     (white
-        (~(GIVEN_KEYWORD | WHEN_KEYWORD | THEN_KEYWORD | AND_KEYWORD | BUT_KEYWORD | EOL | SPACE)) (~EOL)+ EOL
+        (WORD | (~(GIVEN_KEYWORD | WHEN_KEYWORD | THEN_KEYWORD | AND_KEYWORD | BUT_KEYWORD | EOL | SPACE)) (~EOL)+) EOL
     )*;
 
 // таблица Gherkin
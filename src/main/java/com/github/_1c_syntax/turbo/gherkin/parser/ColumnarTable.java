@@ -0,0 +1,458 @@
+/*
+ * This file is a part of Turbo Gherkin Parser.
+ *
+ * Copyright © 2020-2020
+ * Valery Maximov <maximovvalery@gmail.com>, 1c-syntax team <www.github.com/1c-syntax>, BIA Technologies team <www.bia-tech.ru> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * Turbo Gherkin Parser is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * Turbo Gherkin Parser is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Turbo Gherkin Parser.
+ */
+package com.github._1c_syntax.turbo.gherkin.parser;
+
+import org.antlr.v4.runtime.ParserRuleContext;
+
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * Таблица Gherkin в виде столбцов над исходным текстом без копирования значений.
+ * <p>
+ * Значение ячейки хранится как смещение и длина в массиве символов, поэтому на ячейку приходится
+ * два int вместо узлов tableCell, tableCellValue и токена на каждый символ. Строки обходятся курсором
+ * {@link Cursor} без создания объектов. Границы ячеек ищутся тем же {@link TokenScanner}, что и в
+ * {@link GherkinFastLexer}: черта внутри строки в кавычках не разделяет ячейки, комментарий завершает строку.
+ * Как и в {@link GherkinModelBuilder}, значения обрезаются по краям, имена столбцов интернируются.
+ * Строки с меньшим числом ячеек, чем столбцов, дополняются отсутствующими значениями.
+ * <p>
+ * Таблица ссылается на массив символов, изменять его после создания таблицы нельзя.
+ * Несколько таблиц одного текста строятся через {@link Source}: смещения узлов и модели считаются
+ * в кодовых точках, и источник пересчитывает их в индексы символов от предыдущей таблицы, а не от начала текста.
+ * <pre>
+ * var table = ColumnarTable.of(text, tableContext);
+ * var column = table.getColumnIndex("Имя");
+ * var cursor = table.cursor();
+ * while (cursor.next()) {
+ *   var value = cursor.getValue(column);
+ * }
+ * </pre>
+ */
+public final class ColumnarTable {
+
+  private static final char BOM = '\uFEFF';
+
+  private final char[] text;
+  private final List<String> headers;
+  private final int rowCount;
+  // значения по столбцам: ячейка строки row столбца column находится в column * rowCount + row
+  private final int[] offsets;
+  private final int[] lengths;
+
+  private ColumnarTable(char[] text, List<String> headers, int rowCount, int[] offsets, int[] lengths) {
+    this.text = text;
+    this.headers = headers;
+    this.rowCount = rowCount;
+    this.offsets = offsets;
+    this.lengths = lengths;
+  }
+
+  /**
+   * Строит таблицу по узлу дерева разбора, в том числе по отложенному узлу {@link GherkinLazyParser},
+   * не разбирая его строки
+   *
+   * @param text    содержимое фиче-файла, из которого построено дерево
+   * @param context узел table
+   * @return таблица
+   */
+  public static ColumnarTable of(char[] text, ParserRuleContext context) {
+    return new Source(text).of(context);
+  }
+
+  /**
+   * Строит таблицу по элементу компактной модели
+   *
+   * @param text  содержимое фиче-файла, из которого построена модель
+   * @param table таблица модели
+   * @return таблица
+   */
+  public static ColumnarTable of(char[] text, Table table) {
+    return new Source(text).of(table);
+  }
+
+  /**
+   * Строит таблицу по строкам фрагмента текста. Разбор заканчивается на первой строке,
+   * которая не пуста, не комментарий и не начинается с черты
+   *
+   * @param text     массив символов
+   * @param start    индекс первого символа фрагмента в символах UTF-16
+   * @param end      индекс символа, следующего за фрагментом
+   * @param interner функция интернирования имен столбцов, вызывается один раз для каждого столбца,
+   *                 в том числе с пустой строкой для столбца без заголовка. Строки, полученные
+   *                 из {@link GherkinStringTable}, освобождаются {@link GherkinStringTable#release(ColumnarTable)}
+   * @return таблица, первая строка фрагмента - заголовок
+   */
+  public static ColumnarTable of(char[] text, int start, int end, UnaryOperator<String> interner) {
+    if (start < 0 || end > text.length || start > end) {
+      throw new IndexOutOfBoundsException("Range [" + start + ", " + end + ") is out of text bounds [0, "
+        + text.length + ")");
+    }
+    return new Builder(text, end).build(start, interner);
+  }
+
+  /**
+   * @return имена столбцов - значения ячеек первой строки
+   */
+  public List<String> getHeaders() {
+    return headers;
+  }
+
+  /**
+   * @param header имя столбца
+   * @return номер столбца или -1, если столбца нет
+   */
+  public int getColumnIndex(String header) {
+    return headers.indexOf(header);
+  }
+
+  public int getColumnCount() {
+    return headers.size();
+  }
+
+  /**
+   * @return количество строк без заголовка
+   */
+  public int getRowCount() {
+    return rowCount;
+  }
+
+  /**
+   * @param row    номер строки без заголовка, начиная с 0
+   * @param column номер столбца
+   * @return индекс первого символа значения в массиве символов или -1, если в строке нет ячейки
+   */
+  public int getOffset(int row, int column) {
+    return offsets[index(row, column)];
+  }
+
+  /**
+   * @param row    номер строки без заголовка, начиная с 0
+   * @param column номер столбца
+   * @return длина значения или -1, если в строке нет ячейки
+   */
+  public int getLength(int row, int column) {
+    return lengths[index(row, column)];
+  }
+
+  /**
+   * @param row    номер строки без заголовка, начиная с 0
+   * @param column номер столбца
+   * @return представление значения над массивом символов без копирования или null, если в строке нет ячейки
+   */
+  public CharSequence getValue(int row, int column) {
+    var index = index(row, column);
+    return lengths[index] < 0 ? null : CharBuffer.wrap(text, offsets[index], lengths[index]);
+  }
+
+  /**
+   * @param row    номер строки без заголовка, начиная с 0
+   * @param column номер столбца
+   * @return копия значения или null, если в строке нет ячейки
+   */
+  public String getString(int row, int column) {
+    var index = index(row, column);
+    return lengths[index] < 0 ? null : new String(text, offsets[index], lengths[index]);
+  }
+
+  /**
+   * @return новый курсор, установленный перед первой строкой
+   */
+  public Cursor cursor() {
+    return new Cursor();
+  }
+
+  private int index(int row, int column) {
+    if (row < 0 || row >= rowCount || column < 0 || column >= headers.size()) {
+      throw new IndexOutOfBoundsException("Cell [" + row + ", " + column + "] is out of table bounds ["
+        + rowCount + ", " + headers.size() + "]");
+    }
+    return column * rowCount + row;
+  }
+
+  /**
+   * Построение таблиц одного текста по узлам дерева разбора или элементам модели.
+   * <p>
+   * Смещение в кодовых точках пересчитывается в индекс символа от последней пересчитанной позиции,
+   * поэтому обход таблиц файла по порядку проходит текст один раз, а не от начала для каждой таблицы.
+   * Объект не потокобезопасен.
+   * <pre>
+   * var source = new ColumnarTable.Source(text);
+   * for (var table : tables) {
+   *   var columnar = source.of(table);
+   * }
+   * </pre>
+   */
+  public static final class Source {
+    private final char[] text;
+    // последняя пересчитанная позиция: смещение в кодовых точках от начала текста без BOM и индекс символа
+    private int codePoint;
+    private int index;
+
+    /**
+     * @param text содержимое фиче-файла
+     */
+    public Source(char[] text) {
+      this.text = text;
+      this.index = text.length > 0 && text[0] == BOM ? 1 : 0;
+    }
+
+    /**
+     * @param context узел table, в том числе отложенный узел {@link GherkinLazyParser}
+     * @return таблица
+     * @see ColumnarTable#of(char[], ParserRuleContext)
+     */
+    public ColumnarTable of(ParserRuleContext context) {
+      var start = charIndex(context.getStart().getStartIndex());
+      var end = charIndex(context.getStop().getStopIndex() + 1);
+      return ColumnarTable.of(text, start, end, String::intern);
+    }
+
+    /**
+     * @param table таблица модели
+     * @return таблица
+     * @see ColumnarTable#of(char[], Table)
+     */
+    public ColumnarTable of(Table table) {
+      var start = charIndex(table.getOffset());
+      var end = charIndex(table.getEndOffset());
+      return ColumnarTable.of(text, start, end, String::intern);
+    }
+
+    /**
+     * Индекс в массиве символов по смещению в кодовых точках от начала текста без BOM
+     */
+    private int charIndex(int codePointOffset) {
+      var start = text.length > 0 && text[0] == BOM ? 1 : 0;
+      while (codePoint < codePointOffset && index < text.length) {
+        index += Character.isHighSurrogate(text[index]) && index + 1 < text.length
+          && Character.isLowSurrogate(text[index + 1]) ? 2 : 1;
+        codePoint++;
+      }
+      while (codePoint > codePointOffset && index > start) {
+        index -= index - 2 >= start && Character.isLowSurrogate(text[index - 1])
+          && Character.isHighSurrogate(text[index - 2]) ? 2 : 1;
+        codePoint--;
+      }
+      return index;
+    }
+  }
+
+  /**
+   * Курсор по строкам таблицы без заголовка. Один объект на весь обход
+   */
+  public final class Cursor {
+    private int row = -1;
+
+    private Cursor() {
+    }
+
+    /**
+     * Переходит к следующей строке
+     *
+     * @return false, если строк больше нет
+     */
+    public boolean next() {
+      if (row < rowCount) {
+        row++;
+      }
+      return row < rowCount;
+    }
+
+    /**
+     * @return номер текущей строки без заголовка, начиная с 0
+     */
+    public int getRow() {
+      return row;
+    }
+
+    public int getOffset(int column) {
+      return ColumnarTable.this.getOffset(row, column);
+    }
+
+    public int getLength(int column) {
+      return ColumnarTable.this.getLength(row, column);
+    }
+
+    public CharSequence getValue(int column) {
+      return ColumnarTable.this.getValue(row, column);
+    }
+
+    public String getString(int column) {
+      return ColumnarTable.this.getString(row, column);
+    }
+
+    /**
+     * Сравнивает значение ячейки со строкой без создания объектов
+     *
+     * @param column номер столбца
+     * @param value  строка
+     * @return true, если ячейка есть и ее значение совпадает со строкой
+     */
+    public boolean contentEquals(int column, CharSequence value) {
+      var index = index(row, column);
+      var length = lengths[index];
+      if (length != value.length()) {
+        return false;
+      }
+      var offset = offsets[index];
+      for (var i = 0; i < length; i++) {
+        if (text[offset + i] != value.charAt(i)) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Разбор строк таблицы в массивы ячеек по строкам
+   */
+  private static final class Builder {
+    private final char[] text;
+    private final int end;
+    private final TokenScanner tokens;
+    private int[] cellOffsets = new int[64];
+    private int[] cellLengths = new int[64];
+    private int cellCount;
+    // индекс первой ячейки каждой строки, последний элемент - общее число ячеек
+    private int[] rowStarts = new int[16];
+    private int rows;
+
+    Builder(char[] text, int end) {
+      this.text = text;
+      this.end = end;
+      this.tokens = new TokenScanner(text, end);
+    }
+
+    ColumnarTable build(int start, UnaryOperator<String> interner) {
+      var lineStart = start;
+      while (lineStart < end) {
+        var lineEnd = lineStart;
+        while (lineEnd < end && text[lineEnd] != '\n' && text[lineEnd] != '\r') {
+          lineEnd++;
+        }
+        if (!row(lineStart, lineEnd)) {
+          break;
+        }
+        lineStart = lineEnd;
+        while (lineStart < end && (text[lineStart] == '\n' || text[lineStart] == '\r')) {
+          lineStart++;
+        }
+      }
+      rowStarts = grow(rowStarts, rows + 1);
+      rowStarts[rows] = cellCount;
+
+      var columns = 0;
+      for (var row = 0; row < rows; row++) {
+        columns = Math.max(columns, rowStarts[row + 1] - rowStarts[row]);
+      }
+      List<String> headers = new ArrayList<>(columns);
+      for (var column = 0; column < columns; column++) {
+        var cell = rows > 0 && column < rowStarts[1] ? column : -1;
+        headers.add(interner.apply(cell < 0 ? "" : new String(text, cellOffsets[cell], cellLengths[cell])));
+      }
+
+      var rowCount = Math.max(0, rows - 1);
+      var offsets = new int[columns * rowCount];
+      var lengths = new int[columns * rowCount];
+      Arrays.fill(offsets, -1);
+      Arrays.fill(lengths, -1);
+      for (var row = 1; row < rows; row++) {
+        for (var cell = rowStarts[row]; cell < rowStarts[row + 1]; cell++) {
+          var index = (cell - rowStarts[row]) * rowCount + row - 1;
+          offsets[index] = cellOffsets[cell];
+          lengths[index] = cellLengths[cell];
+        }
+      }
+      return new ColumnarTable(text, List.copyOf(headers), rowCount, offsets, lengths);
+    }
+
+    /**
+     * Разбирает строку таблицы
+     *
+     * @return false, если строка не пуста, не комментарий и не начинается с черты
+     */
+    private boolean row(int lineStart, int lineEnd) {
+      var i = skipSpaces(lineStart, lineEnd);
+      if (i == lineEnd) {
+        return true;
+      }
+      var next = tokens.scan(i);
+      if (TokenScanner.isHidden(tokens.type)) {
+        return true;
+      }
+      if (tokens.type != TurboGherkinLexer.BAR) {
+        return false;
+      }
+
+      rowStarts = grow(rowStarts, rows + 1);
+      rowStarts[rows++] = cellCount;
+      var cellStart = next;
+      i = next;
+      while (i < lineEnd) {
+        next = tokens.scan(i);
+        if (TokenScanner.isHidden(tokens.type)) {
+          break;
+        }
+        if (tokens.type == TurboGherkinLexer.BAR) {
+          cell(cellStart, i);
+          cellStart = next;
+        }
+        i = next;
+      }
+      return true;
+    }
+
+    private void cell(int from, int to) {
+      // как String.trim
+      var start = from;
+      var stop = to;
+      while (start < stop && text[start] <= ' ') {
+        start++;
+      }
+      while (stop > start && text[stop - 1] <= ' ') {
+        stop--;
+      }
+      cellOffsets = grow(cellOffsets, cellCount + 1);
+      cellLengths = grow(cellLengths, cellCount + 1);
+      cellOffsets[cellCount] = start;
+      cellLengths[cellCount] = stop - start;
+      cellCount++;
+    }
+
+    private int skipSpaces(int from, int to) {
+      var i = from;
+      while (i < to && (text[i] == ' ' || text[i] == '\t')) {
+        i++;
+      }
+      return i;
+    }
+
+    private static int[] grow(int[] array, int size) {
+      return size <= array.length ? array : Arrays.copyOf(array, Math.max(size, array.length * 2));
+    }
+  }
+}
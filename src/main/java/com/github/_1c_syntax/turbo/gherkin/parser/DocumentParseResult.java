@@ -0,0 +1,80 @@
+/*
+ * This file is a part of Turbo Gherkin Parser.
+ *
+ * Copyright © 2020-2020
+ * Valery Maximov <maximovvalery@gmail.com>, 1c-syntax team <www.github.com/1c-syntax>, BIA Technologies team <www.bia-tech.ru> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * Turbo Gherkin Parser is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * Turbo Gherkin Parser is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Turbo Gherkin Parser.
+ */
+package com.github._1c_syntax.turbo.gherkin.parser;
+
+import org.antlr.v4.runtime.Token;
+
+import java.util.List;
+
+/**
+ * Результат разбора версии открытого документа в {@link GherkinParsingService}
+ */
+public final class DocumentParseResult {
+  private final String uri;
+  private final int version;
+  private final GherkinTokenizer tokenizer;
+  private final List<GherkinSyntaxError> syntaxErrors;
+
+  DocumentParseResult(String uri, int version, GherkinTokenizer tokenizer, List<GherkinSyntaxError> syntaxErrors) {
+    this.uri = uri;
+    this.version = version;
+    this.tokenizer = tokenizer;
+    this.syntaxErrors = syntaxErrors;
+  }
+
+  public String getUri() {
+    return uri;
+  }
+
+  /**
+   * @return версия документа, по которой построен результат
+   */
+  public int getVersion() {
+    return version;
+  }
+
+  /**
+   * @return корень дерева разбора
+   */
+  public TurboGherkinParser.FeatureContext getFeature() {
+    return tokenizer.getAst();
+  }
+
+  /**
+   * @return токены всех каналов
+   */
+  public List<Token> getTokens() {
+    return tokenizer.getTokens();
+  }
+
+  /**
+   * @return синтаксические ошибки разбора
+   */
+  public List<GherkinSyntaxError> getSyntaxErrors() {
+    return syntaxErrors;
+  }
+
+  @Override
+  public String toString() {
+    return "DocumentParseResult{" + uri + ", version=" + version + ", errors=" + syntaxErrors.size() + "}";
+  }
+}
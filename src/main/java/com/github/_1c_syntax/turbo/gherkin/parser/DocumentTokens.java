@@ -0,0 +1,375 @@
+/*
+ * This file is a part of Turbo Gherkin Parser.
+ *
+ * Copyright © 2020-2020
+ * Valery Maximov <maximovvalery@gmail.com>, 1c-syntax team <www.github.com/1c-syntax>, BIA Technologies team <www.bia-tech.ru> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * Turbo Gherkin Parser is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * Turbo Gherkin Parser is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Turbo Gherkin Parser.
+ */
+package com.github._1c_syntax.turbo.gherkin.parser;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CommonToken;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenFactory;
+import org.antlr.v4.runtime.TokenSource;
+import org.antlr.v4.runtime.misc.Interval;
+import org.antlr.v4.runtime.misc.Tuple2;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Токены {@link GherkinDocument}, разбитые на сегменты по началам блоков.
+ * <p>
+ * Токен хранит смещения, номер строки и индекс относительно своего сегмента, а сдвиги сегментов
+ * накапливаются в деревьях Фенвика. Правка блока перестраивает только сегменты блока и добавляет сдвиг
+ * к последующим сегментам за логарифмическое время, токены за правкой не изменяются.
+ * Абсолютные значения вычисляются при чтении, базы сегмента кэшируются до следующей правки.
+ * Токены должны быть созданы фабрикой {@link #FACTORY}
+ */
+final class DocumentTokens extends AbstractList<Token> {
+
+  /**
+   * Фабрика токенов лексера документа
+   */
+  static final TokenFactory FACTORY = new TokenFactory() {
+    @Override
+    public Token create(Tuple2<? extends TokenSource, CharStream> source, int type, String text, int channel,
+                        int start, int stop, int line, int charPositionInLine) {
+      var token = new SegmentToken(source, type, channel, start, stop);
+      token.setLine(line);
+      token.setCharPositionInLine(charPositionInLine);
+      if (text != null) {
+        token.setText(text);
+      }
+      return token;
+    }
+
+    @Override
+    public Token create(int type, String text) {
+      return new SegmentToken(type, text);
+    }
+  };
+
+  private Segment[] segments = new Segment[0];
+  // деревья Фенвика: сдвиг смещений и строк, вносимый сегментом в последующие, и число токенов сегмента
+  private int[] charShifts = new int[1];
+  private int[] lineShifts = new int[1];
+  private int[] sizes = new int[1];
+  private int size;
+  private int version;
+
+  /**
+   * Заменяет все токены
+   *
+   * @param tokens токены документа с абсолютными позициями
+   * @param starts индексы токенов, с которых начинаются сегменты, по возрастанию
+   */
+  void reset(List<? extends Token> tokens, List<Integer> starts) {
+    var count = starts.size() + 1;
+    segments = new Segment[count];
+    charShifts = new int[count + 1];
+    lineShifts = new int[count + 1];
+    sizes = new int[count + 1];
+    size = tokens.size();
+    version++;
+    var from = 0;
+    for (var i = 0; i < count; i++) {
+      var to = i < starts.size() ? starts.get(i) : tokens.size();
+      segments[i] = new Segment(i);
+      fill(segments[i], new ArrayList<>(tokens.subList(from, to)));
+      add(sizes, i, to - from);
+      from = to;
+    }
+  }
+
+  /**
+   * Заменяет токены блока новыми и сдвигает последующие токены.
+   * Токены сегментов блока до и после него сохраняются, сегменты блока заново делятся по началам вложенных блоков
+   *
+   * @param first       индекс первого токена блока
+   * @param last        индекс последнего токена блока
+   * @param region      новые токены блока с абсолютными позициями
+   * @param blockStarts первые токены нового блока и вложенных в него блоков
+   * @param charDelta   изменение длины текста
+   * @param lineDelta   изменение числа строк
+   * @param columnDelta сдвиг позиций в строке токенов, оставшихся на строке за блоком
+   */
+  void replace(int first, int last, List<Token> region, Set<Token> blockStarts,
+               int charDelta, int lineDelta, int columnDelta) {
+    var firstSegment = segmentAt(first);
+    var lastSegment = segmentAt(last);
+    var firstTokens = segments[firstSegment].tokens;
+    var lastTokens = segments[lastSegment].tokens;
+
+    List<Token> combined = new ArrayList<>(firstTokens.subList(0, first - indexBase(firstSegment)));
+    combined.forEach(token -> ((SegmentToken) token).detach());
+    for (var token : region) {
+      ((SegmentToken) token).detach();
+      combined.add(token);
+    }
+    var nextLine = last + 1 < size ? get(last + 1).getLine() : -1;
+    var tail = lastTokens.subList(last + 1 - indexBase(lastSegment), lastTokens.size());
+    for (var token : tail) {
+      var segmentToken = (SegmentToken) token;
+      segmentToken.detach();
+      segmentToken.shift(charDelta, segmentToken.getLine() == nextLine ? columnDelta : 0, lineDelta);
+      combined.add(token);
+    }
+    if (columnDelta != 0) {
+      // токены следующих сегментов на той же строке
+      for (var index = last + 1 + tail.size(); index < size && get(index).getLine() == nextLine; index++) {
+        ((SegmentToken) get(index)).shift(0, columnDelta, 0);
+      }
+    }
+    add(charShifts, lastSegment, charDelta);
+    add(lineShifts, lastSegment, lineDelta);
+
+    var from = 0;
+    for (var i = firstSegment; i <= lastSegment; i++) {
+      var to = i == lastSegment ? combined.size() : nextStart(combined, from, blockStarts);
+      var segment = segments[i];
+      add(sizes, i, (to - from) - segment.tokens.size());
+      fill(segment, new ArrayList<>(combined.subList(from, to)));
+      from = to;
+    }
+    size += region.size() - (last - first + 1);
+    version++;
+  }
+
+  /**
+   * @return позиция следующего начала блока после from или конец списка
+   */
+  private static int nextStart(List<Token> tokens, int from, Set<Token> blockStarts) {
+    for (var i = from + 1; i < tokens.size(); i++) {
+      if (blockStarts.contains(tokens.get(i))) {
+        return i;
+      }
+    }
+    return tokens.size();
+  }
+
+  private void fill(Segment segment, List<Token> tokens) {
+    segment.tokens = tokens;
+    for (var i = 0; i < tokens.size(); i++) {
+      ((SegmentToken) tokens.get(i)).attach(segment, i);
+    }
+  }
+
+  @Override
+  public Token get(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index " + index + " is out of bounds [0, " + size + ")");
+    }
+    var segment = segmentAt(index);
+    return segments[segment].tokens.get(index - indexBase(segment));
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @return номер сегмента, содержащего токен с индексом
+   */
+  private int segmentAt(int index) {
+    // спуск по дереву Фенвика: наибольший префикс сегментов, в котором не больше index токенов
+    var position = 0;
+    var remaining = index;
+    for (var step = Integer.highestOneBit(segments.length); step > 0; step >>= 1) {
+      var next = position + step;
+      if (next <= segments.length && sizes[next] <= remaining) {
+        position = next;
+        remaining -= sizes[next];
+      }
+    }
+    return position;
+  }
+
+  private int indexBase(int segment) {
+    return sum(sizes, segment);
+  }
+
+  /**
+   * Прибавляет значение сегмента, оно входит в суммы всех последующих сегментов
+   */
+  private static void add(int[] tree, int segment, int value) {
+    for (var i = segment + 1; i < tree.length; i += i & -i) {
+      tree[i] += value;
+    }
+  }
+
+  /**
+   * @return сумма значений сегментов до указанного
+   */
+  private static int sum(int[] tree, int segment) {
+    var result = 0;
+    for (var i = segment; i > 0; i -= i & -i) {
+      result += tree[i];
+    }
+    return result;
+  }
+
+  /**
+   * Непрерывный участок токенов. Позиции его токенов отсчитываются от баз сегмента
+   */
+  private final class Segment {
+    private final int number;
+    private List<Token> tokens = List.of();
+    private int cachedVersion = -1;
+    private int charBase;
+    private int lineBase;
+    private int indexBase;
+
+    Segment(int number) {
+      this.number = number;
+    }
+
+    private void update() {
+      if (cachedVersion != version) {
+        charBase = sum(charShifts, number);
+        lineBase = sum(lineShifts, number);
+        indexBase = sum(sizes, number);
+        cachedVersion = version;
+      }
+    }
+
+    int charBase() {
+      update();
+      return charBase;
+    }
+
+    int lineBase() {
+      update();
+      return lineBase;
+    }
+
+    int indexBase() {
+      update();
+      return indexBase;
+    }
+  }
+
+  /**
+   * Токен с позицией относительно сегмента. Вне сегмента позиции абсолютные
+   */
+  static final class SegmentToken extends CommonToken {
+    private static final long serialVersionUID = 2969185745153390624L;
+
+    private transient Segment segment;
+
+    SegmentToken(Tuple2<? extends TokenSource, CharStream> source, int type, int channel, int start, int stop) {
+      super(source, type, channel, start, stop);
+    }
+
+    SegmentToken(int type, String text) {
+      super(type, text);
+    }
+
+    @Override
+    public int getStartIndex() {
+      return segment == null ? start : start + segment.charBase();
+    }
+
+    @Override
+    public void setStartIndex(int start) {
+      this.start = segment == null ? start : start - segment.charBase();
+    }
+
+    @Override
+    public int getStopIndex() {
+      return segment == null ? stop : stop + segment.charBase();
+    }
+
+    @Override
+    public void setStopIndex(int stop) {
+      this.stop = segment == null ? stop : stop - segment.charBase();
+    }
+
+    @Override
+    public int getLine() {
+      return segment == null ? line : line + segment.lineBase();
+    }
+
+    @Override
+    public void setLine(int line) {
+      this.line = segment == null ? line : line - segment.lineBase();
+    }
+
+    @Override
+    public int getTokenIndex() {
+      return segment == null ? index : index + segment.indexBase();
+    }
+
+    @Override
+    public void setTokenIndex(int index) {
+      this.index = segment == null ? index : index - segment.indexBase();
+    }
+
+    @Override
+    public String getText() {
+      if (text != null) {
+        return text;
+      }
+      var input = getInputStream();
+      if (input == null) {
+        return null;
+      }
+      var start = getStartIndex();
+      var stop = getStopIndex();
+      return start < input.size() && stop < input.size() ? input.getText(Interval.of(start, stop)) : "<EOF>";
+    }
+
+    @Override
+    public String toString() {
+      return new CommonToken(this).toString();
+    }
+
+    /**
+     * Переводит позиции в абсолютные и отвязывает токен от сегмента
+     */
+    private void detach() {
+      if (segment != null) {
+        start = getStartIndex();
+        stop = getStopIndex();
+        line = getLine();
+        segment = null;
+      }
+    }
+
+    private void shift(int chars, int columns, int lines) {
+      start += chars;
+      stop += chars;
+      charPositionInLine += columns;
+      line += lines;
+    }
+
+    /**
+     * Привязывает токен с абсолютными позициями к сегменту
+     */
+    private void attach(Segment segment, int index) {
+      this.segment = segment;
+      start -= segment.charBase();
+      stop -= segment.charBase();
+      line -= segment.lineBase();
+      this.index = index;
+    }
+  }
+}
@@ -0,0 +1,178 @@
+/*
+ * This file is a part of Turbo Gherkin Parser.
+ *
+ * Copyright © 2020-2020
+ * Valery Maximov <maximovvalery@gmail.com>, 1c-syntax team <www.github.com/1c-syntax>, BIA Technologies team <www.bia-tech.ru> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * Turbo Gherkin Parser is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * Turbo Gherkin Parser is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Turbo Gherkin Parser.
+ */
+package com.github._1c_syntax.turbo.gherkin.parser;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.IntStream;
+import org.antlr.v4.runtime.misc.Interval;
+
+/**
+ * Изменяемый поток символов документа.
+ * <p>
+ * Токены читают свой текст из потока по смещениям, поэтому после правки
+ * токенам за ее пределами достаточно сдвинуть смещения.
+ * Текст хранится в буфере с разрывом: разрыв переносится к месту правки, поэтому правка копирует
+ * только символы между ней и предыдущей правкой, а не весь хвост документа.
+ * Смещения считаются в UTF-16 символах, как в редакторах, а не в кодовых точках.
+ * Как и {@link com.github._1c_syntax.bsl.parser.CaseChangingCharStream}, отдает лексеру символы в верхнем регистре
+ */
+class EditableCharStream implements CharStream {
+  private static final int MIN_GAP = 64;
+
+  private char[] data;
+  // свободный участок буфера [gapStart, gapEnd)
+  private int gapStart;
+  private int gapEnd;
+  private int position;
+
+  EditableCharStream(String content) {
+    data = new char[content.length() + MIN_GAP];
+    content.getChars(0, content.length(), data, 0);
+    gapStart = content.length();
+    gapEnd = data.length;
+  }
+
+  /**
+   * Заменяет фрагмент текста
+   *
+   * @param offset      начало заменяемого фрагмента
+   * @param length      длина заменяемого фрагмента
+   * @param replacement новый текст
+   */
+  void replace(int offset, int length, String replacement) {
+    moveGap(offset);
+    gapEnd += length;
+    if (gapEnd - gapStart < replacement.length()) {
+      grow(replacement.length());
+    }
+    replacement.getChars(0, replacement.length(), data, gapStart);
+    gapStart += replacement.length();
+    position = 0;
+  }
+
+  private void moveGap(int offset) {
+    if (offset < gapStart) {
+      var count = gapStart - offset;
+      System.arraycopy(data, offset, data, gapEnd - count, count);
+      gapStart = offset;
+      gapEnd -= count;
+    } else if (offset > gapStart) {
+      var count = offset - gapStart;
+      System.arraycopy(data, gapEnd, data, gapStart, count);
+      gapStart = offset;
+      gapEnd += count;
+    }
+  }
+
+  private void grow(int minGap) {
+    var size = size();
+    var newData = new char[Math.max(size + minGap, size + (size >> 1)) + MIN_GAP];
+    var tail = data.length - gapEnd;
+    System.arraycopy(data, 0, newData, 0, gapStart);
+    System.arraycopy(data, gapEnd, newData, newData.length - tail, tail);
+    gapEnd = newData.length - tail;
+    data = newData;
+  }
+
+  private char charAt(int index) {
+    return data[index < gapStart ? index : index + gapEnd - gapStart];
+  }
+
+  @Override
+  public String getText(Interval interval) {
+    var start = Math.min(interval.a, size());
+    var stop = Math.min(interval.b, size() - 1);
+    if (stop < start) {
+      return "";
+    }
+    return text(start, stop + 1);
+  }
+
+  @Override
+  public void consume() {
+    if (position >= size()) {
+      throw new IllegalStateException("cannot consume EOF");
+    }
+    position++;
+  }
+
+  @Override
+  public int LA(int i) {
+    if (i == 0) {
+      return 0;
+    }
+    var index = i > 0 ? position + i - 1 : position + i;
+    if (index < 0 || index >= size()) {
+      return IntStream.EOF;
+    }
+    return Character.toUpperCase(charAt(index));
+  }
+
+  @Override
+  public int mark() {
+    return -1;
+  }
+
+  @Override
+  public void release(int marker) {
+    // весь текст в памяти
+  }
+
+  @Override
+  public int index() {
+    return position;
+  }
+
+  @Override
+  public void seek(int index) {
+    position = Math.min(index, size());
+  }
+
+  @Override
+  public int size() {
+    return data.length - gapEnd + gapStart;
+  }
+
+  @Override
+  public String getSourceName() {
+    return IntStream.UNKNOWN_SOURCE_NAME;
+  }
+
+  @Override
+  public String toString() {
+    return text(0, size());
+  }
+
+  private String text(int start, int end) {
+    if (end <= gapStart) {
+      return new String(data, start, end - start);
+    }
+    var gap = gapEnd - gapStart;
+    if (start >= gapStart) {
+      return new String(data, start + gap, end - start);
+    }
+    var chars = new char[end - start];
+    System.arraycopy(data, start, chars, 0, gapStart - start);
+    System.arraycopy(data, gapEnd, chars, gapStart - start, end - gapStart);
+    return new String(chars);
+  }
+}
@@ -0,0 +1,47 @@
+/*
+ * This file is a part of Turbo Gherkin Parser.
+ *
+ * Copyright © 2020-2020
+ * Valery Maximov <maximovvalery@gmail.com>, 1c-syntax team <www.github.com/1c-syntax>, BIA Technologies team <www.bia-tech.ru> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * Turbo Gherkin Parser is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * Turbo Gherkin Parser is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Turbo Gherkin Parser.
+ */
+package com.github._1c_syntax.turbo.gherkin.parser;
+
+/**
+ * Примеры структуры сценария
+ */
+public final class Examples extends GherkinElement {
+  private final String keyword;
+  private final Table table;
+
+  Examples(int line, int offset, int endOffset, String keyword, Table table) {
+    super(line, offset, endOffset);
+    this.keyword = keyword;
+    this.table = table;
+  }
+
+  public String getKeyword() {
+    return keyword;
+  }
+
+  /**
+   * @return таблица примеров, первая строка - заголовок с именами параметров
+   */
+  public Table getTable() {
+    return table;
+  }
+}
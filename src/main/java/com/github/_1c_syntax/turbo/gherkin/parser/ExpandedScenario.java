@@ -0,0 +1,94 @@
+/*
+ * This file is a part of Turbo Gherkin Parser.
+ *
+ * Copyright © 2020-2020
+ * Valery Maximov <maximovvalery@gmail.com>, 1c-syntax team <www.github.com/1c-syntax>, BIA Technologies team <www.bia-tech.ru> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * Turbo Gherkin Parser is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * Turbo Gherkin Parser is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Turbo Gherkin Parser.
+ */
+package com.github._1c_syntax.turbo.gherkin.parser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Сценарий структуры сценария для одной строки примеров.
+ * Хранит ссылки на шаблон и строку примеров, тексты подставляются при обращении
+ */
+public final class ExpandedScenario {
+  private final OutlineTemplate template;
+  private final int index;
+  private final TableRow row;
+
+  ExpandedScenario(OutlineTemplate template, int index, TableRow row) {
+    this.template = template;
+    this.index = index;
+    this.row = row;
+  }
+
+  public ScenarioOutline getOutline() {
+    return template.getOutline();
+  }
+
+  /**
+   * @return номер строки примеров без заголовка, начиная с 0
+   */
+  public int getIndex() {
+    return index;
+  }
+
+  /**
+   * @return строка примеров, значения которой подставляются в шаги
+   */
+  public TableRow getRow() {
+    return row;
+  }
+
+  /**
+   * @return номер строки файла со строкой примеров, начиная с 1
+   */
+  public int getLine() {
+    return row.getLine();
+  }
+
+  public String getKeyword() {
+    return template.getOutline().getKeyword();
+  }
+
+  /**
+   * @return имя структуры сценария с подставленными значениями
+   */
+  public String getName() {
+    return template.getName().apply(row.getCells());
+  }
+
+  /**
+   * @return шаги с подставленными значениями
+   */
+  public List<ExpandedStep> getSteps() {
+    var steps = template.getSteps();
+    List<ExpandedStep> expanded = new ArrayList<>(steps.size());
+    for (var step : steps) {
+      expanded.add(new ExpandedStep(step, row.getCells()));
+    }
+    return expanded;
+  }
+
+  @Override
+  public String toString() {
+    return getKeyword() + " " + getName() + " #" + index;
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ * This file is a part of Turbo Gherkin Parser.
+ *
+ * Copyright © 2020-2020
+ * Valery Maximov <maximovvalery@gmail.com>, 1c-syntax team <www.github.com/1c-syntax>, BIA Technologies team <www.bia-tech.ru> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * Turbo Gherkin Parser is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * Turbo Gherkin Parser is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Turbo Gherkin Parser.
+ */
+package com.github._1c_syntax.turbo.gherkin.parser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Шаг сценария, полученного из структуры сценария. Тексты подставляются при каждом обращении
+ */
+public final class ExpandedStep {
+  private final OutlineTemplate.StepTemplate template;
+  private final List<String> values;
+
+  ExpandedStep(OutlineTemplate.StepTemplate template, List<String> values) {
+    this.template = template;
+    this.values = values;
+  }
+
+  /**
+   * @return шаг структуры сценария
+   */
+  public Step getStep() {
+    return template.getStep();
+  }
+
+  public String getKeyword() {
+    return template.getStep().getKeyword();
+  }
+
+  /**
+   * @return текст шага с подставленными значениями
+   */
+  public String getText() {
+    return template.getText().apply(values);
+  }
+
+  /**
+   * @return ячейки таблицы шага с подставленными значениями
+   */
+  public Optional<List<List<String>>> getTable() {
+    var table = template.getTable();
+    if (table == null) {
+      return Optional.empty();
+    }
+    List<List<String>> rows = new ArrayList<>(table.size());
+    for (var row : table) {
+      List<String> cells = new ArrayList<>(row.size());
+      for (var cell : row) {
+        cells.add(cell.apply(values));
+      }
+      rows.add(cells);
+    }
+    return Optional.of(rows);
+  }
+
+  /**
+   * @return многострочный аргумент шага с подставленными значениями
+   */
+  public Optional<String> getDocString() {
+    var docString = template.getDocString();
+    return docString == null ? Optional.empty() : Optional.of(docString.apply(values));
+  }
+
+  @Override
+  public String toString() {
+    return getKeyword() + " " + getText();
+  }
+}
@@ -0,0 +1,88 @@
+/*
+ * This file is a part of Turbo Gherkin Parser.
+ *
+ * Copyright © 2020-2020
+ * Valery Maximov <maximovvalery@gmail.com>, 1c-syntax team <www.github.com/1c-syntax>, BIA Technologies team <www.bia-tech.ru> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * Turbo Gherkin Parser is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * Turbo Gherkin Parser is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Turbo Gherkin Parser.
+ */
+package com.github._1c_syntax.turbo.gherkin.parser;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Корень компактной неизменяемой модели фиче-файла.
+ * Строится из дерева разбора {@link GherkinModelBuilder} и не ссылается ни на дерево, ни на токены
+ */
+public final class Feature extends GherkinElement {
+  private final List<String> tags;
+  private final String keyword;
+  private final String name;
+  private final String description;
+  private final Background background;
+  private final List<Rule> rules;
+  private final List<ScenarioDefinition> scenarios;
+
+  Feature(int line, int offset, int endOffset, List<String> tags, String keyword, String name,
+          String description, Background background, List<Rule> rules, List<ScenarioDefinition> scenarios) {
+    super(line, offset, endOffset);
+    this.tags = List.copyOf(tags);
+    this.keyword = keyword;
+    this.name = name;
+    this.description = description;
+    this.background = background;
+    this.rules = List.copyOf(rules);
+    this.scenarios = List.copyOf(scenarios);
+  }
+
+  /**
+   * @return теги фичи вместе с символом @
+   */
+  public List<String> getTags() {
+    return tags;
+  }
+
+  public String getKeyword() {
+    return keyword;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public String getDescription() {
+    return description;
+  }
+
+  public Optional<Background> getBackground() {
+    return Optional.ofNullable(background);
+  }
+
+  /**
+   * @return бизнес-правила, пусто если сценарии описаны без правил
+   */
+  public List<Rule> getRules() {
+    return rules;
+  }
+
+  /**
+   * @return сценарии и структуры сценариев фичи без правил в порядке следования
+   */
+  public List<ScenarioDefinition> getScenarios() {
+    return scenarios;
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ * This file is a part of Turbo Gherkin Parser.
+ *
+ * Copyright © 2020-2020
+ * Valery Maximov <maximovvalery@gmail.com>, 1c-syntax team <www.github.com/1c-syntax>, BIA Technologies team <www.bia-tech.ru> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * Turbo Gherkin Parser is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * Turbo Gherkin Parser is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Turbo Gherkin Parser.
+ */
+package com.github._1c_syntax.turbo.gherkin.parser;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Результат разбора одного фиче-файла при пакетном разборе
+ */
+public final class FeatureParseResult {
+  private final Path path;
+  private final TurboGherkinParser.FeatureContext feature;
+  private final List<GherkinSyntaxError> syntaxErrors;
+  private final Exception exception;
+
+  FeatureParseResult(Path path,
+                     TurboGherkinParser.FeatureContext feature,
+                     List<GherkinSyntaxError> syntaxErrors,
+                     Exception exception) {
+    this.path = path;
+    this.feature = feature;
+    this.syntaxErrors = syntaxErrors;
+    this.exception = exception;
+  }
+
+  public Path getPath() {
+    return path;
+  }
+
+  /**
+   * @return корень дерева разбора, пусто если файл не удалось прочитать или разобрать
+   */
+  public Optional<TurboGherkinParser.FeatureContext> getFeature() {
+    return Optional.ofNullable(feature);
+  }
+
+  /**
+   * @return синтаксические ошибки разбора
+   */
+  public List<GherkinSyntaxError> getSyntaxErrors() {
+    return syntaxErrors;
+  }
+
+  /**
+   * @return исключение чтения или разбора файла
+   */
+  public Optional<Exception> getException() {
+    return Optional.ofNullable(exception);
+  }
+
+  /**
+   * @return признак разбора без ошибок
+   */
+  public boolean isSuccessful() {
+    return feature != null && syntaxErrors.isEmpty() && exception == null;
+  }
+
+  @Override
+  public String toString() {
+    return "FeatureParseResult{" + path + ", errors=" + syntaxErrors.size()
+      + (exception == null ? "" : ", exception=" + exception) + "}";
+  }
+}
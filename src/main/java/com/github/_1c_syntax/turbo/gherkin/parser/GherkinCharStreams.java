@@ -0,0 +1,176 @@
+/*
+ * This file is a part of Turbo Gherkin Parser.
+ *
+ * Copyright © 2020-2020
+ * Valery Maximov <maximovvalery@gmail.com>, 1c-syntax team <www.github.com/1c-syntax>, BIA Technologies team <www.bia-tech.ru> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * Turbo Gherkin Parser is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * Turbo Gherkin Parser is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Turbo Gherkin Parser.
+ */
+package com.github._1c_syntax.turbo.gherkin.parser;
+
+import com.github._1c_syntax.bsl.parser.CaseChangingCharStream;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Фабрика входных потоков символов для лексера.
+ * Потоки подготавливаются так же, как в {@link com.github._1c_syntax.bsl.parser.Tokenizer}:
+ * без BOM и с {@link CaseChangingCharStream}
+ */
+public final class GherkinCharStreams {
+
+  private static final char BOM = '\uFEFF';
+  private static final int DECODE_BUFFER_SIZE = 8192;
+  /**
+   * Файлы от этого размера отображаются в память, меньшие читаются целиком
+   */
+  static final long MAPPED_THRESHOLD = 1L << 20;
+
+  private GherkinCharStreams() {
+    // utils
+  }
+
+  /**
+   * Создает поток символов из строки без промежуточного перекодирования в байты
+   *
+   * @param content содержимое фиче-файла
+   * @return поток символов для лексера
+   */
+  public static CharStream fromString(String content) {
+    return new CaseChangingCharStream(CharStreams.fromString(stripBOM(content)));
+  }
+
+  /**
+   * @param content содержимое фиче-файла
+   * @return содержимое без BOM в начале
+   */
+  static String stripBOM(String content) {
+    return !content.isEmpty() && content.charAt(0) == BOM ? content.substring(1) : content;
+  }
+
+  /**
+   * Создает поток символов из файла в кодировке UTF-8.
+   * Байты декодируются сразу в кодовые точки без промежуточной строки,
+   * большие файлы ({@value #MAPPED_THRESHOLD} байт и больше) отображаются в память
+   *
+   * @param path путь к фиче-файлу
+   * @return поток символов для лексера
+   * @throws IOException ошибка чтения файла
+   */
+  public static CharStream fromPath(Path path) throws IOException {
+    try (var channel = FileChannel.open(path)) {
+      var size = channel.size();
+      ByteBuffer bytes;
+      if (size >= MAPPED_THRESHOLD) {
+        bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      } else {
+        bytes = ByteBuffer.wrap(Files.readAllBytes(path));
+      }
+      return fromByteBuffer(bytes, path.toString());
+    }
+  }
+
+  /**
+   * Создает поток символов из байтов в кодировке UTF-8. Позиция буфера не изменяется
+   *
+   * @param bytes содержимое фиче-файла
+   * @return поток символов для лексера
+   */
+  public static CharStream fromByteBuffer(ByteBuffer bytes) {
+    return fromByteBuffer(bytes, CharStream.UNKNOWN_SOURCE_NAME);
+  }
+
+  private static CharStream fromByteBuffer(ByteBuffer bytes, String sourceName) {
+    var input = bytes.duplicate();
+    skipBOM(input);
+    try {
+      // некорректные последовательности заменяются, как при чтении через InputStreamReader
+      return new CaseChangingCharStream(CharStreams.fromChannel(new ByteBufferChannel(input), StandardCharsets.UTF_8,
+        DECODE_BUFFER_SIZE, CodingErrorAction.REPLACE, sourceName, input.remaining()));
+    } catch (IOException e) {
+      // чтение из буфера не выбрасывает исключений
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Пропускает метку порядка байтов так же, как {@link com.github._1c_syntax.bsl.parser.UnicodeBOMInputStream}:
+   * распознаются метки UTF-32, UTF-8 и UTF-16, содержимое затем читается как UTF-8
+   */
+  static void skipBOM(ByteBuffer bytes) {
+    var position = bytes.position();
+    var remaining = bytes.remaining();
+    var b0 = remaining > 0 ? bytes.get(position) & 0xFF : -1;
+    var b1 = remaining > 1 ? bytes.get(position + 1) & 0xFF : -1;
+    var b2 = remaining > 2 ? bytes.get(position + 2) & 0xFF : -1;
+    var b3 = remaining > 3 ? bytes.get(position + 3) & 0xFF : -1;
+
+    var length = 0;
+    if (b0 == 0xFF && b1 == 0xFE && b2 == 0x00 && b3 == 0x00) {
+      length = 4;
+    } else if (b0 == 0x00 && b1 == 0x00 && b2 == 0xFE && b3 == 0xFF) {
+      length = 4;
+    } else if (b0 == 0xEF && b1 == 0xBB && b2 == 0xBF) {
+      length = 3;
+    } else if ((b0 == 0xFF && b1 == 0xFE) || (b0 == 0xFE && b1 == 0xFF)) {
+      length = 2;
+    }
+    bytes.position(position + length);
+  }
+
+  /**
+   * Канал для чтения байтов из буфера порциями, без копирования буфера целиком
+   */
+  private static final class ByteBufferChannel implements ReadableByteChannel {
+    private final ByteBuffer source;
+
+    private ByteBufferChannel(ByteBuffer source) {
+      this.source = source;
+    }
+
+    @Override
+    public int read(ByteBuffer dst) {
+      if (!source.hasRemaining()) {
+        return -1;
+      }
+      var count = Math.min(dst.remaining(), source.remaining());
+      var chunk = source.duplicate();
+      chunk.limit(chunk.position() + count);
+      dst.put(chunk);
+      source.position(source.position() + count);
+      return count;
+    }
+
+    @Override
+    public boolean isOpen() {
+      return true;
+    }
+
+    @Override
+    public void close() {
+      // буфером владеет вызывающий
+    }
+  }
+}
@@ -0,0 +1,131 @@
+/*
+ * This file is a part of Turbo Gherkin Parser.
+ *
+ * Copyright © 2020-2020
+ * Valery Maximov <maximovvalery@gmail.com>, 1c-syntax team <www.github.com/1c-syntax>, BIA Technologies team <www.bia-tech.ru> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * Turbo Gherkin Parser is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * Turbo Gherkin Parser is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Turbo Gherkin Parser.
+ */
+package com.github._1c_syntax.turbo.gherkin.parser;
+
+import org.antlr.v4.runtime.atn.ATN;
+import org.antlr.v4.runtime.dfa.DFA;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * Общий для всего процесса кэш DFA лексера и парсера.
+ * <p>
+ * DFA хранятся в статических ATN сгенерированных {@link TurboGherkinLexer} и {@link TurboGherkinParser},
+ * поэтому разделяются всеми экземплярами {@link GherkinTokenizer} и безопасны для многопоточного использования.
+ * Класс позволяет заранее наполнить кэш разбором встроенного корпуса примеров,
+ * чтобы первый разбор после старта был таким же быстрым, как последующие.
+ */
+public final class GherkinDFACache {
+
+  /**
+   * Встроенный корпус примеров для прогрева
+   */
+  private static final List<String> WARM_UP_CORPUS = List.of(
+    "warmup/scenarios.feature",
+    "warmup/rules.feature"
+  );
+
+  private static volatile boolean warmedUp;
+
+  private GherkinDFACache() {
+    // utils
+  }
+
+  /**
+   * Наполняет кэш разбором встроенного корпуса примеров.
+   * Повторные вызовы после успешного прогрева ничего не делают.
+   */
+  public static void warmUp() {
+    if (warmedUp) {
+      return;
+    }
+    synchronized (GherkinDFACache.class) {
+      if (!warmedUp) {
+        WARM_UP_CORPUS.forEach(name -> warmUp(readResource(name)));
+        warmedUp = true;
+      }
+    }
+  }
+
+  /**
+   * Наполняет кэш разбором переданного текста, например, характерных для проекта фиче-файлов
+   *
+   * @param content содержимое фиче-файла
+   */
+  public static void warmUp(String content) {
+    new GherkinTokenizer(content).getAst();
+  }
+
+  /**
+   * @return признак выполненного прогрева встроенным корпусом
+   */
+  public static boolean isWarmedUp() {
+    return warmedUp;
+  }
+
+  /**
+   * Очищает кэш DFA лексера и парсера, например, для освобождения памяти.
+   * <p>
+   * Кэш общий для всего процесса, а разбор его не блокирует. Метод нельзя вызывать, пока в других
+   * потоках идет разбор: их предсказание может смешать состояния старого и нового DFA.
+   * Вызывающий должен сам дождаться окончания всех разборов, после очистки первые разборы
+   * снова медленные, пока кэш не наполнится, см. {@link #warmUp()}
+   */
+  public static void clear() {
+    synchronized (GherkinDFACache.class) {
+      TurboGherkinLexer._ATN.clearDFA();
+      TurboGherkinParser._ATN.clearDFA();
+      warmedUp = false;
+    }
+  }
+
+  /**
+   * @return количество состояний DFA в кэше лексера и парсера
+   */
+  public static int size() {
+    return size(TurboGherkinLexer._ATN) + size(TurboGherkinParser._ATN);
+  }
+
+  private static int size(ATN atn) {
+    return Stream.of(atn.modeToDFA, atn.decisionToDFA)
+      .filter(Objects::nonNull)
+      .flatMap(Arrays::stream)
+      .mapToInt((DFA dfa) -> dfa.states.size())
+      .sum();
+  }
+
+  private static String readResource(String name) {
+    try (InputStream inputStream = GherkinDFACache.class.getResourceAsStream(name)) {
+      Objects.requireNonNull(inputStream, name);
+      return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
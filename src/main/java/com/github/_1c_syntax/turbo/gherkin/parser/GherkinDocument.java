@@ -0,0 +1,436 @@
+/*
+ * This file is a part of Turbo Gherkin Parser.
+ *
+ * Copyright © 2020-2020
+ * Valery Maximov <maximovvalery@gmail.com>, 1c-syntax team <www.github.com/1c-syntax>, BIA Technologies team <www.bia-tech.ru> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * Turbo Gherkin Parser is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * Turbo Gherkin Parser is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Turbo Gherkin Parser.
+ */
+package com.github._1c_syntax.turbo.gherkin.parser;
+
+import org.antlr.v4.runtime.CommonToken;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ConsoleErrorListener;
+import org.antlr.v4.runtime.ListTokenSource;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.WritableToken;
+import org.antlr.v4.runtime.atn.ATNState;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.TerminalNode;
+
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Документ с инкрементальным разбором для интеграции с редактором.
+ * <p>
+ * <b>Смещения правок и токенов документа считаются в UTF-16 символах текста без BOM, как в редакторах.</b>
+ * Модель ({@link GherkinModelBuilder}, {@link GherkinLineScanner}) и потоки {@link GherkinCharStreams}
+ * считают смещения в кодовых точках, для текста с символами вне BMP они не совпадают.
+ * <p>
+ * При правке текста заново лексически анализируется и разбирается только охватывающий правку
+ * блок: сценарий, структура сценария, контекст или бизнес-правило. Новое поддерево
+ * заменяет старое в исходном дереве. Токены за правкой не изменяются: их позиции отсчитываются
+ * от сегментов, а сдвиг сегментов за блоком обновляется за логарифмическое время, см. {@link DocumentTokens}.
+ * Текст при этом не копируется, см. {@link EditableCharStream}. Поэтому время правки определяется
+ * размером блока, а не размером файла, что проверяет {@code GherkinDocumentBenchmark}.
+ * Если правка выходит за пределы блока или меняет его границы, документ разбирается полностью.
+ * <p>
+ * Класс не потокобезопасен.
+ */
+public class GherkinDocument {
+
+  private static final Set<Integer> BLOCK_RULES = Set.of(
+    TurboGherkinParser.RULE_scenario,
+    TurboGherkinParser.RULE_scenarioOutline,
+    TurboGherkinParser.RULE_background,
+    TurboGherkinParser.RULE_businessRule
+  );
+
+
+  private final EditableCharStream input;
+  private final TurboGherkinLexer lexer;
+  private final TurboGherkinParser parser;
+  private final DocumentTokens tokens = new DocumentTokens();
+  private TurboGherkinParser.FeatureContext ast;
+  private ParserRuleContext lastReparsed;
+
+  public GherkinDocument(String content) {
+    input = new EditableCharStream(GherkinCharStreams.stripBOM(content));
+    lexer = new TurboGherkinLexer(input, true);
+    lexer.setTokenFactory(DocumentTokens.FACTORY);
+    lexer.removeErrorListener(ConsoleErrorListener.INSTANCE);
+    parser = new TurboGherkinParser(new CommonTokenStream(lexer));
+    parser.removeErrorListener(ConsoleErrorListener.INSTANCE);
+    parseAll();
+  }
+
+  /**
+   * @return корень дерева разбора, при инкрементальных правках остается тем же объектом
+   */
+  public TurboGherkinParser.FeatureContext getAst() {
+    return ast;
+  }
+
+  /**
+   * @return все токены документа, включая скрытые
+   */
+  public List<Token> getTokens() {
+    return Collections.unmodifiableList(tokens);
+  }
+
+  /**
+   * @return текущий текст документа
+   */
+  public String getText() {
+    return input.toString();
+  }
+
+  /**
+   * @return узел, разобранный при последней правке: блок при инкрементальном разборе, иначе корень
+   */
+  public ParserRuleContext getLastReparsed() {
+    return lastReparsed;
+  }
+
+  /**
+   * Применяет правку текста и обновляет дерево разбора
+   *
+   * @param offset      начало заменяемого фрагмента в UTF-16 символах, не в кодовых точках
+   * @param length      длина заменяемого фрагмента в UTF-16 символах
+   * @param replacement новый текст
+   * @return корень дерева разбора
+   */
+  public TurboGherkinParser.FeatureContext applyEdit(int offset, int length, String replacement) {
+    if (offset < 0 || length < 0 || offset + length > input.size()) {
+      throw new IndexOutOfBoundsException("Edit [" + offset + ", " + (offset + length)
+        + ") is out of document bounds [0, " + input.size() + ")");
+    }
+
+    var block = findBlock(ast, offset, offset + length);
+    input.replace(offset, length, replacement);
+    if (block == null || !reparseBlock(block, replacement.length() - length)) {
+      parseAll();
+    }
+    return ast;
+  }
+
+  private void parseAll() {
+    input.seek(0);
+    lexer.setInputStream(input);
+    var tokenStream = new CommonTokenStream(lexer);
+    tokenStream.fill();
+
+    parser.setInputStream(tokenStream);
+    ast = parser.feature();
+    lastReparsed = ast;
+
+    // каждый блок начинает сегмент токенов
+    Set<Integer> starts = new TreeSet<>();
+    for (var start : blockStarts(ast)) {
+      if (start.getTokenIndex() > 0) {
+        starts.add(start.getTokenIndex());
+      }
+    }
+    tokens.reset(tokenStream.getTokens(), new ArrayList<>(starts));
+  }
+
+  /**
+   * @return первые токены узла и вложенных в него блоков
+   */
+  private static Set<Token> blockStarts(ParserRuleContext node) {
+    Set<Token> result = new HashSet<>();
+    var stack = new ArrayDeque<ParserRuleContext>();
+    stack.push(node);
+    while (!stack.isEmpty()) {
+      var context = stack.pop();
+      if (context.start != null && (context == node || BLOCK_RULES.contains(context.getRuleIndex()))) {
+        result.add(context.start);
+      }
+      if (context.children != null) {
+        for (ParseTree child : context.children) {
+          if (child instanceof ParserRuleContext) {
+            stack.push((ParserRuleContext) child);
+          }
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Ищет самый вложенный блок, строго содержащий правку.
+   * Дети узла не пересекаются, правку может содержать только последний из начинающихся до нее
+   */
+  private static ParserRuleContext findBlock(ParserRuleContext node, int start, int end) {
+    if (node.children == null) {
+      return null;
+    }
+    var low = 0;
+    var high = node.children.size() - 1;
+    ParseTree candidate = null;
+    while (low <= high) {
+      var middle = (low + high) >>> 1;
+      var child = node.children.get(middle);
+      if (startIndex(child) < start) {
+        candidate = child;
+        low = middle + 1;
+      } else {
+        high = middle - 1;
+      }
+    }
+    if (!(candidate instanceof ParserRuleContext) || !containsEdit((ParserRuleContext) candidate, start, end)) {
+      return null;
+    }
+    var context = (ParserRuleContext) candidate;
+    var inner = findBlock(context, start, end);
+    if (inner != null) {
+      return inner;
+    }
+    if (BLOCK_RULES.contains(context.getRuleIndex()) && afterKeyword(context, start)) {
+      return context;
+    }
+    return null;
+  }
+
+  private static int startIndex(ParseTree node) {
+    if (node instanceof TerminalNode) {
+      return ((TerminalNode) node).getSymbol().getStartIndex();
+    }
+    var start = ((ParserRuleContext) node).start;
+    return start == null ? Integer.MAX_VALUE : start.getStartIndex();
+  }
+
+  /**
+   * Правка ключевого слова блока или пробелов перед ним может изменить разбор соседних блоков
+   */
+  private static boolean afterKeyword(ParserRuleContext block, int start) {
+    for (ParseTree child : block.children) {
+      if (child instanceof TerminalNode) {
+        return ((TerminalNode) child).getSymbol().getStopIndex() < start;
+      }
+    }
+    return false;
+  }
+
+  private static boolean containsEdit(ParserRuleContext context, int start, int end) {
+    if (context.start == null || context.stop == null || context.exception != null) {
+      return false;
+    }
+    var blockStart = context.start.getStartIndex();
+    var blockEnd = context.stop.getStopIndex() + 1;
+    if (context.stop.getType() == Token.EOF) {
+      // блок до конца файла может расти дописыванием в конец
+      return blockStart < start && end <= blockEnd;
+    }
+    return blockStart < start && end < blockEnd;
+  }
+
+  /**
+   * Разбирает блок заново по измененному тексту и заменяет его в дереве
+   *
+   * @return false, если блок нельзя разобрать изолированно и нужен полный разбор
+   */
+  private boolean reparseBlock(ParserRuleContext block, int delta) {
+    var firstIndex = block.start.getTokenIndex();
+    var lastIndex = block.stop.getTokenIndex();
+    var toEof = block.stop.getType() == Token.EOF;
+    var regionEnd = block.stop.getStopIndex() + 1 + delta;
+
+    var regionTokens = lexRegion(block.start, regionEnd, toEof);
+    if (regionTokens == null || regionTokens.size() < 2) {
+      return false;
+    }
+
+    var nextToken = toEof ? null : tokens.get(lastIndex + 1);
+    var lineDelta = toEof ? 0 : lexer.getLine() - nextToken.getLine();
+    var columnDelta = toEof ? 0 : lexer.getCharPositionInLine() - nextToken.getCharPositionInLine();
+    var following = tokens.subList(lastIndex + 1, tokens.size());
+    reuseBoundaryTokens(block, regionTokens);
+
+    var newBlock = parseRegion(block, regionTokens, following, lastIndex + 1);
+    if (newBlock == null) {
+      return false;
+    }
+
+    // новые токены вместо старых, последующие сдвигаются вместе с сегментами
+    tokens.replace(firstIndex, lastIndex, regionTokens, blockStarts(newBlock), delta, lineDelta, columnDelta);
+    splice(block, newBlock);
+    lastReparsed = newBlock;
+    return true;
+  }
+
+  /**
+   * Лексический анализ измененного фрагмента с позиции первого токена блока
+   *
+   * @return токены фрагмента или null, если границы токенов не совпали с границей фрагмента
+   */
+  private List<Token> lexRegion(Token first, int regionEnd, boolean toEof) {
+    input.seek(0);
+    lexer.setInputStream(input);
+    input.seek(first.getStartIndex());
+    lexer.setLine(first.getLine());
+    lexer.setCharPositionInLine(first.getCharPositionInLine());
+
+    List<Token> result = new ArrayList<>();
+    while (true) {
+      var token = lexer.nextToken();
+      result.add(token);
+      if (token.getType() == Token.EOF) {
+        return toEof ? result : null;
+      }
+      if (!toEof && token.getStopIndex() >= regionEnd - 1) {
+        return token.getStopIndex() == regionEnd - 1 ? result : null;
+      }
+    }
+  }
+
+  /**
+   * Переносит позиции первого и последнего токенов фрагмента в старые граничные токены блока
+   * и подставляет их вместо новых: на них ссылаются пустые узлы соседних блоков и корень
+   */
+  private static void reuseBoundaryTokens(ParserRuleContext block, List<Token> regionTokens) {
+    regionTokens.set(0, transplant(regionTokens.get(0), (CommonToken) block.start));
+    var last = regionTokens.size() - 1;
+    regionTokens.set(last, transplant(regionTokens.get(last), (CommonToken) block.stop));
+  }
+
+  private static Token transplant(Token from, CommonToken to) {
+    to.setType(from.getType());
+    to.setChannel(from.getChannel());
+    to.setStartIndex(from.getStartIndex());
+    to.setStopIndex(from.getStopIndex());
+    to.setLine(from.getLine());
+    to.setCharPositionInLine(from.getCharPositionInLine());
+    return to;
+  }
+
+  /**
+   * Разбор фрагмента правилом блока в контексте его родителя.
+   * Грамматика неоднозначна, поэтому предсказание должно видеть те же стек правил
+   * и токены за фрагментом, что и при полном разборе
+   *
+   * @return новый узел блока или null при ошибках или неполном разборе фрагмента
+   */
+  private ParserRuleContext parseRegion(ParserRuleContext block, List<Token> regionTokens, List<Token> following,
+                                        int followingIndex) {
+    var tokenStream = new CommonTokenStream(new ListTokenSource(new ConcatList(regionTokens, following)));
+    var parent = block.getParent();
+    var childCount = parent.getChildCount();
+    parser.setInputStream(tokenStream);
+    parser.setContext(parent);
+    parser.setState(block.invokingState);
+
+    ParserRuleContext result;
+    try {
+      result = invokeRule(block.getRuleIndex());
+    } finally {
+      // парсер добавляет узел в конец детей родителя, его место определяет splice
+      while (parent.getChildCount() > childCount) {
+        parent.removeLastChild();
+      }
+      parser.setContext(null);
+      parser.setState(ATNState.INVALID_STATE_NUMBER);
+      // поток разбора пронумеровал прочитанные токены за фрагментом по-своему
+      for (var i = 0; i < tokenStream.size() - regionTokens.size(); i++) {
+        ((WritableToken) following.get(i)).setTokenIndex(followingIndex + i);
+      }
+    }
+
+    if (parser.getNumberOfSyntaxErrors() > 0 || result.start == null || result.exception != null
+      || tokenStream.LT(1) != firstOnChannel(following, regionTokens)) {
+      return null;
+    }
+    return result;
+  }
+
+  /**
+   * @return первый токен основного канала за фрагментом, на котором должен остановиться разбор блока
+   */
+  private static Token firstOnChannel(List<Token> following, List<Token> regionTokens) {
+    for (var token : following) {
+      if (token.getChannel() == Token.DEFAULT_CHANNEL) {
+        return token;
+      }
+    }
+    return regionTokens.get(regionTokens.size() - 1);
+  }
+
+  private ParserRuleContext invokeRule(int ruleIndex) {
+    switch (ruleIndex) {
+      case TurboGherkinParser.RULE_scenario:
+        return parser.scenario();
+      case TurboGherkinParser.RULE_scenarioOutline:
+        return parser.scenarioOutline();
+      case TurboGherkinParser.RULE_background:
+        return parser.background();
+      case TurboGherkinParser.RULE_businessRule:
+        return parser.businessRule();
+      default:
+        throw new IllegalArgumentException("Unsupported rule: " + ruleIndex);
+    }
+  }
+
+  /**
+   * Заменяет узел в родителе. Границы предков ссылаются на те же граничные токены,
+   * обновить нужно только конец тех, что заканчивались на EOF, если новый блок его не включает
+   */
+  private static void splice(ParserRuleContext oldBlock, ParserRuleContext newBlock) {
+    var parent = oldBlock.getParent();
+    parent.children.set(parent.children.indexOf(oldBlock), newBlock);
+    newBlock.parent = parent;
+    newBlock.invokingState = oldBlock.invokingState;
+
+    ParserRuleContext child = newBlock;
+    for (var ancestor = parent; ancestor != null; ancestor = ancestor.getParent()) {
+      if (ancestor.getChild(ancestor.getChildCount() - 1) != child || ancestor.stop != oldBlock.stop) {
+        break;
+      }
+      ancestor.stop = newBlock.stop;
+      child = ancestor;
+    }
+  }
+
+  /**
+   * Представление двух списков как одного без копирования
+   */
+  private static class ConcatList extends AbstractList<Token> {
+    private final List<Token> head;
+    private final List<Token> tail;
+
+    ConcatList(List<Token> head, List<Token> tail) {
+      this.head = head;
+      this.tail = tail;
+    }
+
+    @Override
+    public Token get(int index) {
+      return index < head.size() ? head.get(index) : tail.get(index - head.size());
+    }
+
+    @Override
+    public int size() {
+      return head.size() + tail.size();
+    }
+  }
+}
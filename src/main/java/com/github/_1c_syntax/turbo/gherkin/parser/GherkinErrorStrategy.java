@@ -0,0 +1,212 @@
+/*
+ * This file is a part of Turbo Gherkin Parser.
+ *
+ * Copyright © 2020-2020
+ * Valery Maximov <maximovvalery@gmail.com>, 1c-syntax team <www.github.com/1c-syntax>, BIA Technologies team <www.bia-tech.ru> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * Turbo Gherkin Parser is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * Turbo Gherkin Parser is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Turbo Gherkin Parser.
+ */
+package com.github._1c_syntax.turbo.gherkin.parser;
+
+import org.antlr.v4.runtime.DefaultErrorStrategy;
+import org.antlr.v4.runtime.Parser;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenStream;
+import org.antlr.v4.runtime.misc.IntervalSet;
+
+/**
+ * Стратегия восстановления после ошибок, учитывающая строчную структуру Gherkin.
+ * <p>
+ * Вместо поиска по множествам следования ANTLR разбор пропускает токены до ближайшей строки,
+ * начинающейся с ключевого слова шага или секции (сценарий, структура сценария, контекст, примеры, правило).
+ * Посторонние строки между шагами пропускаются внутри списка шагов, поэтому узлы ошибок остаются
+ * в сломанном сценарии, а следующие сценарии разбираются как обычно. Каждый токен пропускается не более
+ * одного раза, время разбора линейно по размеру файла.
+ * <p>
+ * После достижения предела числа ошибок остаток файла пропускается целиком, дерево остается частичным.
+ * Экземпляр хранит состояние разбора и используется одним парсером.
+ * <pre>
+ * var tokenizer = new GherkinTokenizer(content);
+ * tokenizer.setErrorStrategy(new GherkinErrorStrategy());
+ * </pre>
+ */
+public class GherkinErrorStrategy extends DefaultErrorStrategy {
+  /**
+   * Предел числа ошибок по умолчанию
+   */
+  public static final int DEFAULT_MAX_ERRORS = 100;
+
+  private final int maxErrors;
+  private int errors;
+
+  public GherkinErrorStrategy() {
+    this(DEFAULT_MAX_ERRORS);
+  }
+
+  /**
+   * @param maxErrors число сообщаемых ошибок, после превышения которого остаток файла не разбирается
+   */
+  public GherkinErrorStrategy(int maxErrors) {
+    if (maxErrors < 1) {
+      throw new IllegalArgumentException("maxErrors must be positive: " + maxErrors);
+    }
+    this.maxErrors = maxErrors;
+  }
+
+  /**
+   * @return число ошибок, сообщенных с начала разбора
+   */
+  public int getErrorCount() {
+    return errors;
+  }
+
+  @Override
+  public void reset(Parser recognizer) {
+    super.reset(recognizer);
+    errors = 0;
+  }
+
+  @Override
+  protected void beginErrorCondition(Parser recognizer) {
+    super.beginErrorCondition(recognizer);
+    errors++;
+  }
+
+  @Override
+  public void recover(Parser recognizer, RecognitionException e) {
+    var tokens = recognizer.getInputStream();
+    // повторная ошибка в том же состоянии на том же токене: токен нужно пропустить, иначе разбор зациклится
+    if (lastErrorIndex == tokens.index()
+      && lastErrorStates != null
+      && lastErrorStates.contains(recognizer.getState())) {
+      recognizer.consume();
+    }
+    lastErrorIndex = tokens.index();
+    if (lastErrorStates == null) {
+      lastErrorStates = new IntervalSet();
+    }
+    lastErrorStates.add(recognizer.getState());
+
+    // на уровне фичи продолжать разбор некому
+    if (errors > maxErrors || recognizer.getContext() instanceof TurboGherkinParser.FeatureContext) {
+      skipToEnd(recognizer);
+    } else {
+      skipToLine(recognizer);
+    }
+  }
+
+  /**
+   * Перед каждой итерацией списка шагов пропускает строки, не являющиеся шагом или секцией.
+   * В остальных правилах ошибка обрабатывается в {@link #recover}
+   */
+  @Override
+  public void sync(Parser recognizer) {
+    if (!(recognizer.getContext() instanceof TurboGherkinParser.StepsContext)) {
+      return;
+    }
+
+    var tokens = recognizer.getInputStream();
+    var i = 1;
+    while (isWhite(tokens.LA(i))) {
+      i++;
+    }
+    var type = tokens.LA(i);
+    if (type == Token.EOF || isStepKeyword(type) || isSectionKeyword(type)) {
+      return;
+    }
+
+    if (!inErrorRecoveryMode(recognizer)) {
+      beginErrorCondition(recognizer);
+      var token = tokens.LT(i);
+      recognizer.notifyErrorListeners(token, "extraneous input " + getTokenErrorDisplay(token)
+        + " expecting " + getExpectedTokens(recognizer).toString(recognizer.getVocabulary()), null);
+    }
+    if (errors > maxErrors) {
+      skipToEnd(recognizer);
+    } else {
+      skipToLine(recognizer);
+    }
+  }
+
+  /**
+   * Пропускает токены до ключевого слова шага или секции в начале строки
+   */
+  private static void skipToLine(Parser recognizer) {
+    var tokens = recognizer.getInputStream();
+    var lineStart = isLineStart(tokens);
+    var type = tokens.LA(1);
+    while (type != Token.EOF && !(lineStart && (isStepKeyword(type) || isSectionKeyword(type)))) {
+      if (type == TurboGherkinParser.EOL) {
+        lineStart = true;
+      } else if (type != TurboGherkinParser.SPACE && type != TurboGherkinParser.TAB) {
+        lineStart = false;
+      }
+      recognizer.consume();
+      type = tokens.LA(1);
+    }
+  }
+
+  private static void skipToEnd(Parser recognizer) {
+    var tokens = recognizer.getInputStream();
+    while (tokens.LA(1) != Token.EOF) {
+      recognizer.consume();
+    }
+  }
+
+  /**
+   * Проверяет, что перед текущим токеном в строке только пробелы и скрытые токены
+   */
+  private static boolean isLineStart(TokenStream tokens) {
+    for (var i = tokens.index() - 1; i >= 0; i--) {
+      var token = tokens.get(i);
+      if (token.getChannel() != Token.DEFAULT_CHANNEL) {
+        continue;
+      }
+      var type = token.getType();
+      if (type == TurboGherkinParser.EOL) {
+        return true;
+      } else if (type != TurboGherkinParser.SPACE && type != TurboGherkinParser.TAB) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isWhite(int type) {
+    return type == TurboGherkinParser.SPACE
+      || type == TurboGherkinParser.TAB
+      || type == TurboGherkinParser.EOL;
+  }
+
+  private static boolean isStepKeyword(int type) {
+    return type == TurboGherkinParser.GIVEN_KEYWORD
+      || type == TurboGherkinParser.WHEN_KEYWORD
+      || type == TurboGherkinParser.THEN_KEYWORD
+      || type == TurboGherkinParser.AND_KEYWORD
+      || type == TurboGherkinParser.BUT_KEYWORD;
+  }
+
+  private static boolean isSectionKeyword(int type) {
+    return type == TurboGherkinParser.SCENARIO_KEYWORD
+      || type == TurboGherkinParser.SCENARIO_OUTLINE_KEYWORD
+      || type == TurboGherkinParser.EXAMPLE_KEYWORD
+      || type == TurboGherkinParser.BACKGROUND_KEYWORD
+      || type == TurboGherkinParser.EXAMPLES_KEYWORD
+      || type == TurboGherkinParser.SCENARIOS_KEYWORD
+      || type == TurboGherkinParser.RULE_KEYWORD;
+  }
+}
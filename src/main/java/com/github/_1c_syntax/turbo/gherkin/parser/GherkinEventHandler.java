@@ -0,0 +1,98 @@
+/*
+ * This file is a part of Turbo Gherkin Parser.
+ *
+ * Copyright © 2020-2020
+ * Valery Maximov <maximovvalery@gmail.com>, 1c-syntax team <www.github.com/1c-syntax>, BIA Technologies team <www.bia-tech.ru> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * Turbo Gherkin Parser is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * Turbo Gherkin Parser is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Turbo Gherkin Parser.
+ */
+package com.github._1c_syntax.turbo.gherkin.parser;
+
+import java.util.List;
+
+/**
+ * Обработчик событий потокового разбора {@link GherkinStreamingParser}.
+ * <p>
+ * События приходят в порядке следования элементов в файле, каждому start соответствует end.
+ * Все методы по умолчанию ничего не делают, достаточно переопределить нужные
+ */
+public interface GherkinEventHandler {
+
+  /**
+   * @param tag  тег фичи вместе с символом @
+   * @param line номер строки
+   */
+  default void tag(String tag, int line) {
+  }
+
+  default void startFeature(String keyword, String name, int line) {
+  }
+
+  default void endFeature() {
+  }
+
+  default void startRule(String keyword, String name, int line) {
+  }
+
+  default void endRule() {
+  }
+
+  default void startBackground(String keyword, int line) {
+  }
+
+  default void endBackground() {
+  }
+
+  default void startScenario(String keyword, String name, int line) {
+  }
+
+  default void endScenario() {
+  }
+
+  default void startScenarioOutline(String keyword, String name, int line) {
+  }
+
+  default void endScenarioOutline() {
+  }
+
+  default void startExamples(String keyword, int line) {
+  }
+
+  default void endExamples() {
+  }
+
+  default void step(String keyword, String name, int line) {
+  }
+
+  /**
+   * Строка таблицы шага или примеров, включая заголовок
+   *
+   * @param cells значения ячеек без окружающих пробелов
+   * @param line  номер строки
+   */
+  default void tableRow(List<String> cells, int line) {
+  }
+
+  /**
+   * @param content содержимое многострочного аргумента шага без ограничителей
+   * @param line    номер строки открывающего ограничителя
+   */
+  default void docString(String content, int line) {
+  }
+
+  default void syntaxError(GherkinSyntaxError error) {
+  }
+}
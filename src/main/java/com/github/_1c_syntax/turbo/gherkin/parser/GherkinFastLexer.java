@@ -0,0 +1,160 @@
+/*
+ * This file is a part of Turbo Gherkin Parser.
+ *
+ * Copyright © 2020-2020
+ * Valery Maximov <maximovvalery@gmail.com>, 1c-syntax team <www.github.com/1c-syntax>, BIA Technologies team <www.bia-tech.ru> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * Turbo Gherkin Parser is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * Turbo Gherkin Parser is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Turbo Gherkin Parser.
+ */
+package com.github._1c_syntax.turbo.gherkin.parser;
+
+import com.github._1c_syntax.bsl.parser.CaseChangingCharStream;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenFactory;
+import org.antlr.v4.runtime.Lexer;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenFactory;
+import org.antlr.v4.runtime.TokenSource;
+import org.antlr.v4.runtime.misc.Tuple;
+import org.antlr.v4.runtime.misc.Tuple2;
+
+/**
+ * Лексер с быстрым распознаванием ключевых слов, выдающий те же токены, что и {@link TurboGherkinLexer}.
+ * <p>
+ * В лексере ANTLR каждая буква текста проходит через DFA, построенный из длинных альтернатив
+ * регистронезависимых фрагментов ключевых слов. Здесь ключевые слова ищутся в префиксном дереве
+ * {@link KeywordTrie} по символам в верхнем регистре, остальные правила грамматики разбираются вручную в {@link TokenScanner}.
+ * Сохраняются правила ANTLR: выбирается самое длинное совпадение, при равной длине - правило, объявленное раньше.
+ * Ключевые слова, как и в грамматике, распознаются в любой позиции, в том числе внутри слов.
+ * Номера строк и позиции считаются так же, как в {@link CRAwareLexerATNSimulatorWrapper}.
+ * В режиме слов, как и {@link TurboGherkinLexer#setWordTokens(boolean)}, выдает токены WORD.
+ * <pre>
+ * var tokens = new CommonTokenStream(new GherkinFastLexer(content));
+ * var parser = new TurboGherkinParser(tokens);
+ * </pre>
+ */
+public class GherkinFastLexer implements TokenSource {
+
+  private final char[] text;
+  private final TokenScanner scanner;
+  private final CharStream input;
+  private final boolean wordTokens;
+  private final Tuple2<TokenSource, CharStream> source;
+  private TokenFactory factory = CommonTokenFactory.DEFAULT;
+
+  // позиция в символах UTF-16 и в кодовых точках, индексы токенов считаются в кодовых точках
+  private int position;
+  private int index;
+  private int line = 1;
+  private int charPositionInLine;
+
+  /**
+   * @param content содержимое фиче-файла
+   */
+  public GherkinFastLexer(String content) {
+    this(content, false);
+  }
+
+  /**
+   * @param content    содержимое фиче-файла
+   * @param wordTokens true для выдачи последовательностей ANYSYMBOL одним токеном WORD
+   */
+  public GherkinFastLexer(String content, boolean wordTokens) {
+    var stripped = GherkinCharStreams.stripBOM(content);
+    this.text = stripped.toCharArray();
+    this.scanner = new TokenScanner(text, text.length);
+    // BOM уже отрезан, второй в начале текста остается символом
+    this.input = new CaseChangingCharStream(CharStreams.fromString(stripped));
+    this.wordTokens = wordTokens;
+    this.source = Tuple.create(this, input);
+  }
+
+  @Override
+  public Token nextToken() {
+    if (position >= text.length) {
+      return factory.create(source, Token.EOF, null, Token.DEFAULT_CHANNEL, index, index - 1,
+        line, charPositionInLine);
+    }
+
+    var end = scanner.scan(position);
+    var type = scanner.type;
+    if (wordTokens && type == TurboGherkinLexer.ANYSYMBOL && text[position] != '\r') {
+      end = wordEnd(end);
+      type = TurboGherkinLexer.WORD;
+    }
+    var codePoints = end - position == 1 ? 1 : Character.codePointCount(text, position, end - position);
+    var channel = TokenScanner.isHidden(type) ? Lexer.HIDDEN : Token.DEFAULT_CHANNEL;
+    var token = factory.create(source, type, null, channel, index, index + codePoints - 1,
+      line, charPositionInLine);
+
+    // одиночный \r, как и \n, переводит строку, \r\n целиком входит в EOL
+    if (type == TurboGherkinLexer.EOL || (type == TurboGherkinLexer.ANYSYMBOL && text[position] == '\r')) {
+      line++;
+      charPositionInLine = 0;
+    } else {
+      charPositionInLine += codePoints;
+    }
+    position = end;
+    index += codePoints;
+    return token;
+  }
+
+  /**
+   * Продолжает слово, пока следующий токен - ANYSYMBOL, кроме одиночного \r
+   */
+  private int wordEnd(int from) {
+    var end = from;
+    while (end < text.length && text[end] != '\r') {
+      var next = scanner.scan(end);
+      if (scanner.type != TurboGherkinLexer.ANYSYMBOL) {
+        break;
+      }
+      end = next;
+    }
+    return end;
+  }
+
+  @Override
+  public int getLine() {
+    return line;
+  }
+
+  @Override
+  public int getCharPositionInLine() {
+    return charPositionInLine;
+  }
+
+  @Override
+  public CharStream getInputStream() {
+    return input;
+  }
+
+  @Override
+  public String getSourceName() {
+    return input.getSourceName();
+  }
+
+  @Override
+  public void setTokenFactory(TokenFactory factory) {
+    this.factory = factory;
+  }
+
+  @Override
+  public TokenFactory getTokenFactory() {
+    return factory;
+  }
+}
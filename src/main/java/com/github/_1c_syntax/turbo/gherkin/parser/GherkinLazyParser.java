@@ -0,0 +1,678 @@
+/*
+ * This file is a part of Turbo Gherkin Parser.
+ *
+ * Copyright © 2020-2020
+ * Valery Maximov <maximovvalery@gmail.com>, 1c-syntax team <www.github.com/1c-syntax>, BIA Technologies team <www.bia-tech.ru> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * Turbo Gherkin Parser is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * Turbo Gherkin Parser is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Turbo Gherkin Parser.
+ */
+package com.github._1c_syntax.turbo.gherkin.parser;
+
+import org.antlr.v4.runtime.BufferedTokenStream;
+import org.antlr.v4.runtime.ConsoleErrorListener;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
+import org.antlr.v4.runtime.Parser;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.RuleContext;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenStream;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.TerminalNode;
+import org.antlr.v4.runtime.tree.TerminalNodeImpl;
+
+import java.util.List;
+
+/**
+ * Парсер с отложенным разбором шагов, таблиц и многострочных аргументов.
+ * <p>
+ * Поддеревья правил steps, table и docStrings запоминаются только как диапазоны токенов
+ * и разбираются при первом обращении к детям узла, например к {@link StepsContext#step()}.
+ * Потребители, которым нужны только теги, имена фич и сценариев, не платят за разбор тел шагов и таблиц.
+ * <p>
+ * Методы правил сгенерированного парсера финальные, поэтому блок пропускается при входе в правило:
+ * {@link #enterOuterAlt} находит границы блока просмотром токенов по правилам грамматики и прерывает правило,
+ * а собственная стратегия ошибок переставляет поток за блок и заменяет узел правила отложенным узлом.
+ * Замена стратегии ошибок через {@link #setErrorHandler} отключает отложенный разбор.
+ * <p>
+ * Если блок записан необычно или с ошибкой, он разбирается сразу, как в {@link TurboGherkinParser}, поэтому итоговое
+ * дерево совпадает с деревом обычного разбора. Отложенный блок разбирается в контексте родителя по тому же потоку
+ * токенов, поток должен быть буферизованным, например {@link org.antlr.v4.runtime.CommonTokenStream}.
+ * Слушатели разбора не получают событий отложенных правил.
+ * <p>
+ * Разбор отложенного узла изменяет дерево и не синхронизирован: пока в дереве есть отложенные узлы,
+ * его нельзя читать из нескольких потоков. Для передачи в другие потоки дерево нужно сначала обойти целиком
+ * или разобрать {@link GherkinParallelParser}.
+ * <pre>
+ * var parser = new GherkinLazyParser(new CommonTokenStream(new GherkinFastLexer(content)));
+ * var feature = parser.feature();
+ * </pre>
+ */
+public class GherkinLazyParser extends TurboGherkinParser {
+
+  private final Deferral deferral = new Deferral(this);
+  // правило, которое следующий вызов должен разобрать сразу: разбор отложенного блока
+  private int eagerRule = -1;
+  private BufferedTokenStream tokens;
+  private int deferredEnd;
+
+  public GherkinLazyParser(TokenStream input) {
+    super(input);
+    setErrorHandler(new DeferringErrorStrategy());
+  }
+
+  @Override
+  public void enterOuterAlt(ParserRuleContext localctx, int altNum) {
+    super.enterOuterAlt(localctx, altNum);
+    var ruleIndex = localctx.getRuleIndex();
+    if (ruleIndex == eagerRule) {
+      eagerRule = -1;
+      return;
+    }
+    if (!isDeferrable(ruleIndex) || localctx.getParent() == null || !getBuildParseTree() || !prepare()) {
+      return;
+    }
+    var end = skip(ruleIndex, next(_input.index()));
+    if (end >= 0) {
+      deferredEnd = end;
+      throw deferral;
+    }
+  }
+
+  /**
+   * @return true, если поток токенов буферизован и заполнен до конца
+   */
+  private boolean prepare() {
+    if (!(_input instanceof BufferedTokenStream)) {
+      return false;
+    }
+    tokens = (BufferedTokenStream) _input;
+    tokens.fill();
+    return true;
+  }
+
+  private static boolean isDeferrable(int ruleIndex) {
+    return ruleIndex == RULE_steps || ruleIndex == RULE_table || ruleIndex == RULE_docStrings;
+  }
+
+  /**
+   * @return индекс токена за блоком правила или -1, если блок нужно разобрать сразу
+   */
+  private int skip(int ruleIndex, int from) {
+    switch (ruleIndex) {
+      case RULE_steps:
+        return skipSteps(from);
+      case RULE_table:
+        return skipTable(from);
+      default:
+        return skipDocStrings(skipSpaces(from));
+    }
+  }
+
+  /**
+   * Заменяет прерванный узел правила отложенным узлом с теми же границами и переставляет поток за блок.
+   * Сгенерированный метод правила затем закрывает узел, как после обычного разбора
+   */
+  private void defer() {
+    var context = _ctx;
+    var parent = context.getParent();
+    ParserRuleContext deferred;
+    switch (context.getRuleIndex()) {
+      case RULE_steps:
+        deferred = new DeferredStepsContext(parent, context.invokingState, tokens);
+        break;
+      case RULE_table:
+        deferred = new DeferredTableContext(parent, context.invokingState, tokens);
+        break;
+      default:
+        deferred = new DeferredDocStringsContext(parent, context.invokingState, tokens);
+        break;
+    }
+    deferred.start = context.start;
+    parent.children.set(parent.children.size() - 1, deferred);
+    _ctx = deferred;
+    tokens.seek(deferredEnd);
+  }
+
+  /**
+   * Разбирает отложенный блок правилом грамматики в контексте родителя, как {@link GherkinDocument}
+   * разбирает измененный блок, и переносит детей в узел блока.
+   * Обычный {@link TurboGherkinParser} разбирает блок полностью, {@link GherkinLazyParser} снова откладывает
+   * вложенные таблицы и многострочные аргументы. Уже разобранный узел не меняется
+   *
+   * @param context отложенный узел
+   * @param parser  парсер, настроенный на поток с теми же токенами
+   */
+  static void materialize(GherkinParserRuleContext context, TurboGherkinParser parser) {
+    if (context instanceof Deferred && ((Deferred) context).take() != null) {
+      build(context, parser);
+    }
+  }
+
+  private static void materialize(ParserRuleContext context, BufferedTokenStream stream) {
+    var parser = new GherkinLazyParser(stream);
+    parser.removeErrorListener(ConsoleErrorListener.INSTANCE);
+    parser.eagerRule = context.getRuleIndex();
+    build(context, parser);
+  }
+
+  private static void build(ParserRuleContext context, TurboGherkinParser parser) {
+    parser.reset();
+    parser.getInputStream().seek(context.getStart().getTokenIndex());
+
+    var parent = context.getParent();
+    var childCount = parent.getChildCount();
+    parser.setContext(parent);
+    parser.setState(context.invokingState);
+    ParserRuleContext parsed;
+    try {
+      parsed = invokeRule(parser, context.getRuleIndex());
+    } finally {
+      // парсер добавляет новый узел в конец детей родителя
+      while (parent.getChildCount() > childCount) {
+        parent.removeLastChild();
+      }
+      parser.setContext(null);
+    }
+
+    context.children = parsed.children;
+    if (context.children != null) {
+      for (ParseTree child : context.children) {
+        if (child instanceof RuleContext) {
+          ((RuleContext) child).parent = context;
+        } else if (child instanceof TerminalNodeImpl) {
+          ((TerminalNodeImpl) child).parent = context;
+        }
+      }
+    }
+  }
+
+  private static ParserRuleContext invokeRule(TurboGherkinParser parser, int ruleIndex) {
+    switch (ruleIndex) {
+      case RULE_steps:
+        return parser.steps();
+      case RULE_table:
+        return parser.table();
+      case RULE_docStrings:
+        return parser.docStrings();
+      default:
+        throw new IllegalArgumentException("Unsupported rule: " + ruleIndex);
+    }
+  }
+
+  /**
+   * steps: step*
+   * <p>
+   * Блок шагов заканчивается перед строкой, первый значимый токен которой не ключевое слово шага.
+   * Принимается только конец блока, после которого грамматика не может продолжить шаги
+   *
+   * @return индекс токена за блоком или -1, если блок нужно разобрать сразу
+   */
+  private int skipSteps(int from) {
+    var end = -1;
+    var i = from;
+    while (true) {
+      var next = skipWhite(i);
+      if (!isStepKeyword(type(next))) {
+        return end >= 0 && isStepsFollow(type(next)) ? end : -1;
+      }
+      i = skipStep(next);
+      if (i < 0) {
+        return -1;
+      }
+      end = i;
+    }
+  }
+
+  /**
+   * step: white stepKeyword SPACE name (EOL+ | EOF) (docStrings | table)?
+   */
+  private int skipStep(int keyword) {
+    var i = next(keyword + 1);
+    if (type(i) != SPACE) {
+      return -1;
+    }
+    i = skipName(next(i + 1));
+    if (i < 0) {
+      return -1;
+    }
+    i = skipLineEnd(i);
+    if (i < 0 || type(i) == EOF) {
+      return i;
+    }
+
+    var argument = skipSpaces(i);
+    if (type(argument) == DOC_STRINGS) {
+      return skipDocStrings(argument);
+    }
+    if (type(skipWhite(i)) == BAR) {
+      return skipTable(i);
+    }
+    return i;
+  }
+
+  /**
+   * name: (parameter | partName | space+)+, каждая угловая скобка открывает непустой параметр
+   */
+  private int skipName(int from) {
+    var i = from;
+    while (type(i) != EOL && type(i) != EOF) {
+      if (type(i) == LABRACKET) {
+        var parameter = next(i + 1);
+        i = parameter;
+        while (type(i) != EOL && type(i) != EOF && type(i) != LABRACKET && type(i) != RABRACKET) {
+          i = next(i + 1);
+        }
+        if (i == parameter || type(i) != RABRACKET) {
+          return -1;
+        }
+      }
+      i = next(i + 1);
+    }
+    return i == from ? -1 : i;
+  }
+
+  /**
+   * docStrings: space* DOC_STRINGS space* EOL docStringsValue space* DOC_STRINGS space* (EOL+ | EOF)
+   */
+  private int skipDocStrings(int open) {
+    if (type(open) != DOC_STRINGS) {
+      return -1;
+    }
+    var i = skipSpaces(next(open + 1));
+    if (type(i) != EOL) {
+      return -1;
+    }
+    do {
+      i = next(i + 1);
+      if (type(i) == EOF) {
+        return -1;
+      }
+    } while (type(i) != DOC_STRINGS);
+    return skipLineEnd(skipSpaces(next(i + 1)));
+  }
+
+  /**
+   * table: white tableHead tableRows, строка таблицы: space* BAR tableCell+ space* (EOL+ | EOF)
+   */
+  private int skipTable(int from) {
+    var i = skipWhite(from);
+    var rows = 0;
+    while (true) {
+      var bar = skipSpaces(i);
+      if (type(bar) != BAR) {
+        break;
+      }
+      var lastBar = bar;
+      var j = next(bar + 1);
+      while (type(j) != EOL && type(j) != EOF) {
+        if (type(j) == BAR) {
+          lastBar = j;
+        }
+        j = next(j + 1);
+      }
+      // после последней черты допускаются только пробелы
+      if (lastBar == bar || skipSpaces(next(lastBar + 1)) != j) {
+        return -1;
+      }
+      rows++;
+      i = skipLineEnd(j);
+      if (type(i) == EOF) {
+        break;
+      }
+    }
+    return rows < 2 ? -1 : i;
+  }
+
+  /**
+   * (EOL+ | EOF)
+   */
+  private int skipLineEnd(int from) {
+    if (from < 0 || type(from) == EOF) {
+      return from;
+    }
+    if (type(from) != EOL) {
+      return -1;
+    }
+    var i = from;
+    while (type(i) == EOL) {
+      i = next(i + 1);
+    }
+    return i;
+  }
+
+  private int skipWhite(int from) {
+    var i = from;
+    while (type(i) == SPACE || type(i) == TAB || type(i) == EOL) {
+      i = next(i + 1);
+    }
+    return i;
+  }
+
+  private int skipSpaces(int from) {
+    var i = from;
+    while (type(i) == SPACE || type(i) == TAB) {
+      i = next(i + 1);
+    }
+    return i;
+  }
+
+  /**
+   * @return индекс первого токена основного канала, начиная с указанного
+   */
+  private int next(int from) {
+    var i = from;
+    var last = tokens.size() - 1;
+    while (i < last && tokens.get(i).getChannel() != Token.DEFAULT_CHANNEL) {
+      i++;
+    }
+    return Math.min(i, last);
+  }
+
+  private int type(int index) {
+    return tokens.get(index).getType();
+  }
+
+  private static boolean isStepKeyword(int type) {
+    return type == GIVEN_KEYWORD
+      || type == WHEN_KEYWORD
+      || type == THEN_KEYWORD
+      || type == AND_KEYWORD
+      || type == BUT_KEYWORD;
+  }
+
+  /**
+   * Токены, с которых начинается продолжение дерева после шагов: следующий блок, примеры или конец файла
+   */
+  private static boolean isStepsFollow(int type) {
+    return type == EOF
+      || type == SCENARIO_KEYWORD
+      || type == EXAMPLE_KEYWORD
+      || type == SCENARIO_OUTLINE_KEYWORD
+      || type == RULE_KEYWORD
+      || type == EXAMPLES_KEYWORD
+      || type == SCENARIOS_KEYWORD;
+  }
+
+  /**
+   * Прерывает правило отложенного блока. Один экземпляр на парсер, без стека вызовов
+   */
+  private static final class Deferral extends RecognitionException {
+    private static final long serialVersionUID = -3036409562404432522L;
+
+    Deferral(Parser parser) {
+      super(parser, parser.getInputStream(), null);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+      return this;
+    }
+  }
+
+  /**
+   * Стратегия ошибок, которая не сообщает о прерывании отложенного блока и вместо восстановления
+   * оставляет в дереве отложенный узел
+   */
+  private final class DeferringErrorStrategy extends DefaultErrorStrategy {
+    @Override
+    public void reportError(Parser recognizer, RecognitionException e) {
+      if (e != deferral) {
+        super.reportError(recognizer, e);
+      }
+    }
+
+    @Override
+    public void recover(Parser recognizer, RecognitionException e) {
+      if (e == deferral) {
+        defer();
+      } else {
+        super.recover(recognizer, e);
+      }
+    }
+  }
+
+  /**
+   * Отложенный узел
+   */
+  private interface Deferred {
+    /**
+     * Снимает с узла отметку отложенного разбора
+     *
+     * @return поток токенов блока или null, если узел уже разобран
+     */
+    BufferedTokenStream take();
+  }
+
+  /**
+   * Отложенный узел steps: дети строятся при первом обращении к ним через методы доступа
+   */
+  private static final class DeferredStepsContext extends StepsContext implements Deferred {
+    private BufferedTokenStream stream;
+
+    DeferredStepsContext(ParserRuleContext parent, int invokingState, BufferedTokenStream stream) {
+      super(parent, invokingState);
+      this.stream = stream;
+    }
+
+    @Override
+    public boolean isDeferred() {
+      return stream != null;
+    }
+
+    @Override
+    public BufferedTokenStream take() {
+      var result = stream;
+      stream = null;
+      return result;
+    }
+
+    @Override
+    public ParseTree getChild(int i) {
+      materialize();
+      return super.getChild(i);
+    }
+
+    @Override
+    public int getChildCount() {
+      materialize();
+      return super.getChildCount();
+    }
+
+    @Override
+    public <T extends ParseTree> T getChild(Class<? extends T> ctxType, int i) {
+      materialize();
+      return super.getChild(ctxType, i);
+    }
+
+    @Override
+    public TerminalNode getToken(int ttype, int i) {
+      materialize();
+      return super.getToken(ttype, i);
+    }
+
+    @Override
+    public List<? extends TerminalNode> getTokens(int ttype) {
+      materialize();
+      return super.getTokens(ttype);
+    }
+
+    @Override
+    public <T extends ParserRuleContext> T getRuleContext(Class<? extends T> ctxType, int i) {
+      materialize();
+      return super.getRuleContext(ctxType, i);
+    }
+
+    @Override
+    public <T extends ParserRuleContext> List<? extends T> getRuleContexts(Class<? extends T> ctxType) {
+      materialize();
+      return super.getRuleContexts(ctxType);
+    }
+
+    private void materialize() {
+      var tokens = take();
+      if (tokens != null) {
+        GherkinLazyParser.materialize(this, tokens);
+      }
+    }
+  }
+
+  /**
+   * Отложенный узел table: дети строятся при первом обращении к ним через методы доступа
+   */
+  private static final class DeferredTableContext extends TableContext implements Deferred {
+    private BufferedTokenStream stream;
+
+    DeferredTableContext(ParserRuleContext parent, int invokingState, BufferedTokenStream stream) {
+      super(parent, invokingState);
+      this.stream = stream;
+    }
+
+    @Override
+    public boolean isDeferred() {
+      return stream != null;
+    }
+
+    @Override
+    public BufferedTokenStream take() {
+      var result = stream;
+      stream = null;
+      return result;
+    }
+
+    @Override
+    public ParseTree getChild(int i) {
+      materialize();
+      return super.getChild(i);
+    }
+
+    @Override
+    public int getChildCount() {
+      materialize();
+      return super.getChildCount();
+    }
+
+    @Override
+    public <T extends ParseTree> T getChild(Class<? extends T> ctxType, int i) {
+      materialize();
+      return super.getChild(ctxType, i);
+    }
+
+    @Override
+    public TerminalNode getToken(int ttype, int i) {
+      materialize();
+      return super.getToken(ttype, i);
+    }
+
+    @Override
+    public List<? extends TerminalNode> getTokens(int ttype) {
+      materialize();
+      return super.getTokens(ttype);
+    }
+
+    @Override
+    public <T extends ParserRuleContext> T getRuleContext(Class<? extends T> ctxType, int i) {
+      materialize();
+      return super.getRuleContext(ctxType, i);
+    }
+
+    @Override
+    public <T extends ParserRuleContext> List<? extends T> getRuleContexts(Class<? extends T> ctxType) {
+      materialize();
+      return super.getRuleContexts(ctxType);
+    }
+
+    private void materialize() {
+      var tokens = take();
+      if (tokens != null) {
+        GherkinLazyParser.materialize(this, tokens);
+      }
+    }
+  }
+
+  /**
+   * Отложенный узел docStrings: дети строятся при первом обращении к ним через методы доступа
+   */
+  private static final class DeferredDocStringsContext extends DocStringsContext implements Deferred {
+    private BufferedTokenStream stream;
+
+    DeferredDocStringsContext(ParserRuleContext parent, int invokingState, BufferedTokenStream stream) {
+      super(parent, invokingState);
+      this.stream = stream;
+    }
+
+    @Override
+    public boolean isDeferred() {
+      return stream != null;
+    }
+
+    @Override
+    public BufferedTokenStream take() {
+      var result = stream;
+      stream = null;
+      return result;
+    }
+
+    @Override
+    public ParseTree getChild(int i) {
+      materialize();
+      return super.getChild(i);
+    }
+
+    @Override
+    public int getChildCount() {
+      materialize();
+      return super.getChildCount();
+    }
+
+    @Override
+    public <T extends ParseTree> T getChild(Class<? extends T> ctxType, int i) {
+      materialize();
+      return super.getChild(ctxType, i);
+    }
+
+    @Override
+    public TerminalNode getToken(int ttype, int i) {
+      materialize();
+      return super.getToken(ttype, i);
+    }
+
+    @Override
+    public List<? extends TerminalNode> getTokens(int ttype) {
+      materialize();
+      return super.getTokens(ttype);
+    }
+
+    @Override
+    public <T extends ParserRuleContext> T getRuleContext(Class<? extends T> ctxType, int i) {
+      materialize();
+      return super.getRuleContext(ctxType, i);
+    }
+
+    @Override
+    public <T extends ParserRuleContext> List<? extends T> getRuleContexts(Class<? extends T> ctxType) {
+      materialize();
+      return super.getRuleContexts(ctxType);
+    }
+
+    private void materialize() {
+      var tokens = take();
+      if (tokens != null) {
+        GherkinLazyParser.materialize(this, tokens);
+      }
+    }
+  }
+}
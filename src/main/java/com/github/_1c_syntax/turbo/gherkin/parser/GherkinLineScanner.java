@@ -0,0 +1,887 @@
+/*
+ * This file is a part of Turbo Gherkin Parser.
+ *
+ * Copyright © 2020-2020
+ * Valery Maximov <maximovvalery@gmail.com>, 1c-syntax team <www.github.com/1c-syntax>, BIA Technologies team <www.bia-tech.ru> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * Turbo Gherkin Parser is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * Turbo Gherkin Parser is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Turbo Gherkin Parser.
+ */
+package com.github._1c_syntax.turbo.gherkin.parser;
+
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ConsoleErrorListener;
+import org.antlr.v4.runtime.ListTokenSource;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.atn.ATNState;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.atn.RuleTransition;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * Построчный разбор фиче-файла в модель {@link Feature} без лексера и парсера ANTLR.
+ * <p>
+ * Большая часть фиче-файлов - строки шагов, заголовки блоков, строки таблиц и комментарии.
+ * Тип строки определяется по первому токену, который ищется тем же {@link TokenScanner}, что и в
+ * {@link GherkinFastLexer}, поэтому ключевые слова, строки в кавычках и комментарии распознаются как в грамматике.
+ * Классификация строк не создает объектов, строки выделяются только для значений модели.
+ * <p>
+ * Сканер принимает только файлы, разбор которых грамматикой однозначен и проходит без ошибок,
+ * и строит модель, совпадающую с {@link GherkinModelBuilder}. Сценарий или структура сценария,
+ * которые нельзя разобрать построчно (например, с описанием), разбираются грамматикой отдельно:
+ * лексер и парсер ANTLR получают только строки блока до заголовка следующего блока. Такой блок принимается,
+ * если он разобран без ошибок и не может продолжиться за своей последней строкой: у сценария должен быть
+ * хотя бы один шаг, иначе грамматика может принять следующий заголовок за строку описания.
+ * Во всех остальных случаях (описание функционала с ключевыми словами, ошибки в заголовках и контекстах,
+ * одиночный \r и т.п.) весь файл разбирается {@link GherkinTokenizer}.
+ * <pre>
+ * var feature = new GherkinLineScanner().parse(content);
+ * </pre>
+ */
+public class GherkinLineScanner {
+
+  private static final char BOM = '\uFEFF';
+
+  private final UnaryOperator<String> interner;
+  private final Consumer<String> release;
+
+  /**
+   * Создает сканер, интернирующий строки через {@link String#intern()}
+   */
+  public GherkinLineScanner() {
+    this(String::intern);
+  }
+
+  /**
+   * @param interner функция интернирования повторяющихся строк
+   */
+  public GherkinLineScanner(UnaryOperator<String> interner) {
+    this(interner, value -> {
+    });
+  }
+
+  /**
+   * Создает сканер, возвращающий в таблицу проекта строки файлов, которые разбираются {@link GherkinTokenizer}
+   *
+   * @param strings таблица строк проекта
+   */
+  public GherkinLineScanner(GherkinStringTable strings) {
+    this(strings, strings::release);
+  }
+
+  /**
+   * @param interner функция интернирования повторяющихся строк
+   * @param release  функция освобождения строки, полученной от interner, вызывается для всех строк,
+   *                 интернированных до отказа от построчного разбора
+   */
+  public GherkinLineScanner(UnaryOperator<String> interner, Consumer<String> release) {
+    this.interner = interner;
+    this.release = release;
+  }
+
+  /**
+   * Разбирает фиче-файл, при необходимости через {@link GherkinTokenizer}
+   *
+   * @param content содержимое фиче-файла
+   * @return корень модели
+   */
+  public Feature parse(String content) {
+    return scan(content.toCharArray(), content.length())
+      .orElseGet(() -> fallback(content));
+  }
+
+  /**
+   * Разбирает фиче-файл, при необходимости через {@link GherkinTokenizer}
+   *
+   * @param content буфер с содержимым фиче-файла
+   * @param length  длина содержимого в буфере
+   * @return корень модели
+   */
+  public Feature parse(char[] content, int length) {
+    return scan(content, length)
+      .orElseGet(() -> fallback(new String(content, 0, length)));
+  }
+
+  /**
+   * Разбирает фиче-файл только построчно
+   *
+   * @param content буфер с содержимым фиче-файла
+   * @param length  длина содержимого в буфере
+   * @return корень модели или пустое значение, если файл нужно разбирать {@link GherkinTokenizer}
+   */
+  public Optional<Feature> scan(char[] content, int length) {
+    var lines = new Lines(content, length, interner, release);
+    try {
+      return Optional.of(lines.feature());
+    } catch (Unsupported e) {
+      // при разборе GherkinTokenizer строки будут интернированы повторно
+      lines.release(0);
+      return Optional.empty();
+    }
+  }
+
+  private Feature fallback(String content) {
+    return new GherkinModelBuilder(interner).build(new GherkinTokenizer(content).getAst());
+  }
+
+  /**
+   * Строка не разбирается построчно. Исключение без стека создается один раз
+   */
+  private static final class Unsupported extends RuntimeException {
+    private static final long serialVersionUID = 4511094815616417231L;
+    private static final Unsupported INSTANCE = new Unsupported();
+
+    private Unsupported() {
+      super(null, null, false, false);
+    }
+  }
+
+  /**
+   * Состояние разбора одного файла. Текущая строка - первая еще не разобранная
+   */
+  private static final class Lines {
+
+    private static final int FEATURE_BODY_STATE
+      = invokingState(TurboGherkinParser.RULE_feature, TurboGherkinParser.RULE_featureBody);
+    private static final int SCENARIOS_STATE
+      = invokingState(TurboGherkinParser.RULE_featureBody, TurboGherkinParser.RULE_scenarios);
+    private static final int BUSINESS_RULES_STATE
+      = invokingState(TurboGherkinParser.RULE_featureBody, TurboGherkinParser.RULE_businessRules);
+    private static final int BUSINESS_RULE_STATE
+      = invokingState(TurboGherkinParser.RULE_businessRules, TurboGherkinParser.RULE_businessRule);
+    private static final int RULE_SCENARIOS_STATE
+      = invokingState(TurboGherkinParser.RULE_businessRule, TurboGherkinParser.RULE_scenarios);
+    private static final int SCENARIO_STATE
+      = invokingState(TurboGherkinParser.RULE_scenarios, TurboGherkinParser.RULE_scenario);
+    private static final int SCENARIO_OUTLINE_STATE
+      = invokingState(TurboGherkinParser.RULE_scenarios, TurboGherkinParser.RULE_scenarioOutline);
+
+    // видимых токенов нет, кроме перевода строки: пустая строка или комментарий с первой позиции
+    private static final int EMPTY = 0;
+    // только пробелы и табуляции, возможно перед комментарием
+    private static final int WHITESPACE = 1;
+    private static final int CONTENT = 2;
+
+    private final char[] text;
+    private final int length;
+    private final TokenScanner tokens;
+    private final UnaryOperator<String> interner;
+    private final Consumer<String> release;
+    // строки, полученные от interner, в порядке интернирования
+    private final List<String> interned = new ArrayList<>();
+    // лексер всего текста для блоков, разбираемых грамматикой, создается при первом таком блоке
+    private TurboGherkinLexer lexer;
+
+    private int lineStart;
+    private int contentEnd;
+    private int lineEnd;
+    private int lineNumber;
+    // смещение начала строки в кодовых точках и число суррогатных пар в строке
+    private int codePointStart;
+    private int surrogatePairs;
+    private int kind;
+    // первый значимый токен строки
+    private int first;
+    private int firstEnd;
+    private int firstType;
+    // между последней разобранной значимой строкой и текущей были строки из одних пробелов
+    private boolean whitespaceBefore;
+    // конец последнего значимого токена, найденного разбором имени
+    private int significantEnd;
+
+    Lines(char[] text, int length, UnaryOperator<String> interner, Consumer<String> release) {
+      this.text = text;
+      this.length = length;
+      this.tokens = new TokenScanner(text, length);
+      this.interner = value -> {
+        var result = interner.apply(value);
+        interned.add(result);
+        return result;
+      };
+      this.release = release;
+    }
+
+    /**
+     * Освобождает строки, интернированные начиная с указанной по порядку
+     */
+    void release(int from) {
+      var tail = interned.subList(from, interned.size());
+      tail.forEach(release);
+      tail.clear();
+    }
+
+    Feature feature() {
+      // индексы токенов считаются от текста без BOM
+      readLine(textStart(), 1, 0);
+      List<String> tags = new ArrayList<>();
+      skipBlank();
+      while (isContent(TurboGherkinLexer.AT)) {
+        tags(tags);
+        next();
+        skipBlank();
+      }
+      if (!isContent(TurboGherkinLexer.FEATURE_KEYWORD)) {
+        throw Unsupported.INSTANCE;
+      }
+      var line = lineNumber;
+      var offset = offset(first);
+      var keywordEnd = offset(firstEnd);
+      var keyword = intern(first, firstEnd);
+      var name = new String(text, firstEnd, visibleEnd(firstEnd) - firstEnd).trim();
+      next();
+      var description = featureDescription();
+
+      Background background = null;
+      if (isContent(TurboGherkinLexer.BACKGROUND_KEYWORD)) {
+        background = background();
+      }
+      List<Rule> rules = new ArrayList<>();
+      List<ScenarioDefinition> scenarios = new ArrayList<>();
+      if (isContent(TurboGherkinLexer.RULE_KEYWORD)) {
+        while (isContent(TurboGherkinLexer.RULE_KEYWORD)) {
+          rules.add(rule());
+        }
+      } else {
+        scenarios(scenarios, false);
+      }
+
+      // после тела допускаются только пустые строки и комментарии с первой позиции
+      skipBlank();
+      if (!atEnd() || whitespaceBefore || (rules.isEmpty() && scenarios.isEmpty())) {
+        throw Unsupported.INSTANCE;
+      }
+      var last = rules.isEmpty()
+        ? scenarios.get(scenarios.size() - 1).getEndOffset()
+        : rules.get(rules.size() - 1).getEndOffset();
+      return new Feature(line, offset, Math.max(last, keywordEnd), tags, keyword, interner.apply(name),
+        description, background, rules, scenarios);
+    }
+
+    /**
+     * Теги строки: AT и хотя бы один токен до пробела, табуляции или конца строки
+     */
+    private void tags(List<String> tags) {
+      var i = lineStart;
+      while (true) {
+        i = skipSpaces(i);
+        if (i == contentEnd) {
+          return;
+        }
+        var end = tokens.scan(i);
+        if (TokenScanner.isHidden(tokens.type)) {
+          return;
+        }
+        if (tokens.type != TurboGherkinLexer.AT) {
+          throw Unsupported.INSTANCE;
+        }
+        var start = i;
+        i = end;
+        while (i < contentEnd && text[i] != ' ' && text[i] != '\t') {
+          end = tokens.scan(i);
+          if (TokenScanner.isHidden(tokens.type)) {
+            break;
+          }
+          if (tokens.type == TurboGherkinLexer.AT) {
+            throw Unsupported.INSTANCE;
+          }
+          i = end;
+        }
+        if (i == start + 1) {
+          throw Unsupported.INSTANCE;
+        }
+        tags.add(intern(start, i));
+        if (i < contentEnd && text[i] != ' ' && text[i] != '\t') {
+          return;
+        }
+      }
+    }
+
+    /**
+     * Описание функционала - строки без ключевых слов блоков вплоть до первого блока.
+     * Как и getText() правила, текст собирается без комментариев, но с переводами строк
+     */
+    private String featureDescription() {
+      StringBuilder description = null;
+      while (!isContent(TurboGherkinLexer.BACKGROUND_KEYWORD)
+        && !isContent(TurboGherkinLexer.RULE_KEYWORD)
+        && !isContent(TurboGherkinLexer.SCENARIO_OUTLINE_KEYWORD)
+        && !isScenario()) {
+        if (atEnd()) {
+          throw Unsupported.INSTANCE;
+        }
+        if (kind == CONTENT) {
+          checkDescriptionLine();
+          if (description == null) {
+            description = new StringBuilder();
+          }
+        }
+        if (description != null) {
+          description.append(text, lineStart, visibleEnd(lineStart) - lineStart)
+            .append(text, contentEnd, lineEnd - contentEnd);
+        }
+        next();
+      }
+      return description == null ? "" : description.toString().trim();
+    }
+
+    private void checkDescriptionLine() {
+      var i = first;
+      while (i < contentEnd) {
+        var end = tokens.scan(i);
+        switch (tokens.type) {
+          case TurboGherkinLexer.SCENARIO_OUTLINE_KEYWORD:
+          case TurboGherkinLexer.SCENARIO_KEYWORD:
+          case TurboGherkinLexer.BACKGROUND_KEYWORD:
+          case TurboGherkinLexer.EXAMPLE_KEYWORD:
+          case TurboGherkinLexer.RULE_KEYWORD:
+            throw Unsupported.INSTANCE;
+          default:
+            i = end;
+        }
+      }
+      // описание должно заканчиваться переводом строки
+      if (lineEnd == contentEnd) {
+        throw Unsupported.INSTANCE;
+      }
+    }
+
+    private Rule rule() {
+      var line = lineNumber;
+      var offset = offset(first);
+      var keywordEnd = offset(firstEnd);
+      var keyword = intern(first, firstEnd);
+      var name = name(firstEnd);
+      next();
+      skipBlank();
+      // строки описания правила грамматика может спутать со сценарием без шагов
+      Background background = null;
+      if (isContent(TurboGherkinLexer.BACKGROUND_KEYWORD)) {
+        background = background();
+      }
+      List<ScenarioDefinition> scenarios = new ArrayList<>();
+      scenarios(scenarios, true);
+      if (scenarios.isEmpty()) {
+        throw Unsupported.INSTANCE;
+      }
+      var end = Math.max(scenarios.get(scenarios.size() - 1).getEndOffset(), keywordEnd);
+      return new Rule(line, offset, end, keyword, name, "", background, scenarios);
+    }
+
+    private Background background() {
+      var line = lineNumber;
+      var offset = offset(first);
+      var keyword = intern(first, firstEnd);
+      if (significantAfter(firstEnd)) {
+        throw Unsupported.INSTANCE;
+      }
+      next();
+      var steps = steps();
+      return new Background(line, offset, steps.get(steps.size() - 1).getEndOffset(), keyword, "", steps);
+    }
+
+    private void scenarios(List<ScenarioDefinition> scenarios, boolean inRule) {
+      while (true) {
+        skipBlank();
+        if (!isScenario() && !isContent(TurboGherkinLexer.SCENARIO_OUTLINE_KEYWORD)) {
+          return;
+        }
+        var start = lineStart;
+        var number = lineNumber;
+        var codePoint = codePointStart;
+        var whitespace = whitespaceBefore;
+        var mark = interned.size();
+        try {
+          scenarios.add(isScenario() ? scenario() : scenarioOutline());
+        } catch (Unsupported e) {
+          release(mark);
+          readLine(start, number, codePoint);
+          whitespaceBefore = whitespace;
+          scenarios.add(parseBlock(inRule));
+        }
+      }
+    }
+
+    /**
+     * Разбирает грамматикой сценарий или структуру сценария с текущей строки до заголовка следующего блока
+     * или конца файла и переходит к этому заголовку
+     *
+     * @param inRule блок находится в бизнес-правиле
+     */
+    private ScenarioDefinition parseBlock(boolean inRule) {
+      var outline = isContent(TurboGherkinLexer.SCENARIO_OUTLINE_KEYWORD);
+      var start = codePointStart;
+      var line = lineNumber;
+      do {
+        next();
+      } while (!atEnd() && !isBlockHeader());
+      var end = atEnd() ? Integer.MAX_VALUE : codePointStart;
+
+      if (lexer == null) {
+        lexer = new TurboGherkinLexer(GherkinCharStreams.fromString(new String(text, 0, length)), true);
+        lexer.removeErrorListener(ConsoleErrorListener.INSTANCE);
+      }
+      var input = lexer.getInputStream();
+      input.seek(0);
+      lexer.setInputStream(input);
+      input.seek(start);
+      lexer.setLine(line);
+      lexer.setCharPositionInLine(0);
+      List<Token> blockTokens = new ArrayList<>();
+      while (true) {
+        var token = lexer.nextToken();
+        if (token.getType() == Token.EOF || token.getStartIndex() >= end) {
+          break;
+        }
+        if (token.getStopIndex() >= end) {
+          throw Unsupported.INSTANCE;
+        }
+        blockTokens.add(token);
+      }
+
+      // ListTokenSource завершает блок токеном EOF
+      var tokenStream = new CommonTokenStream(new ListTokenSource(blockTokens));
+      var parser = new TurboGherkinParser(tokenStream);
+      parser.removeErrorListener(ConsoleErrorListener.INSTANCE);
+      parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+      // грамматика неоднозначна: предсказание должно видеть тот же стек правил, что и при разборе файла
+      parser.setContext(scenariosContext(inRule));
+      ParserRuleContext block;
+      if (outline) {
+        parser.setState(SCENARIO_OUTLINE_STATE);
+        block = parser.scenarioOutline();
+      } else {
+        parser.setState(SCENARIO_STATE);
+        block = parser.scenario();
+      }
+      if (parser.getNumberOfSyntaxErrors() > 0 || block.exception != null
+        || !outline && ((TurboGherkinParser.ScenarioContext) block).steps().step().isEmpty()) {
+        throw Unsupported.INSTANCE;
+      }
+      // пробелы за блоком при полном разборе относятся к следующему блоку
+      while (tokenStream.LA(1) != Token.EOF) {
+        var type = tokenStream.LA(1);
+        if (type != TurboGherkinLexer.SPACE && type != TurboGherkinLexer.TAB && type != TurboGherkinLexer.EOL) {
+          throw Unsupported.INSTANCE;
+        }
+        tokenStream.consume();
+      }
+      return new GherkinModelBuilder(interner).scenarioDefinition(block);
+    }
+
+    /**
+     * Цепочка узлов от корня до scenarios с состояниями вызова правил, как при разборе файла
+     */
+    private static ParserRuleContext scenariosContext(boolean inRule) {
+      var feature = new TurboGherkinParser.FeatureContext(null, ATNState.INVALID_STATE_NUMBER);
+      var body = new TurboGherkinParser.FeatureBodyContext(feature, FEATURE_BODY_STATE);
+      if (!inRule) {
+        return new TurboGherkinParser.ScenariosContext(body, SCENARIOS_STATE);
+      }
+      var rules = new TurboGherkinParser.BusinessRulesContext(body, BUSINESS_RULES_STATE);
+      var rule = new TurboGherkinParser.BusinessRuleContext(rules, BUSINESS_RULE_STATE);
+      return new TurboGherkinParser.ScenariosContext(rule, RULE_SCENARIOS_STATE);
+    }
+
+    /**
+     * @return номер состояния ATN, из которого правило parent вызывает правило rule
+     */
+    private static int invokingState(int parent, int rule) {
+      for (var state : TurboGherkinParser._ATN.states) {
+        if (state == null || state.ruleIndex != parent) {
+          continue;
+        }
+        for (var i = 0; i < state.getNumberOfTransitions(); i++) {
+          var transition = state.transition(i);
+          if (transition instanceof RuleTransition && transition.target.ruleIndex == rule) {
+            return state.stateNumber;
+          }
+        }
+      }
+      throw new IllegalStateException("Rule " + parent + " does not invoke rule " + rule);
+    }
+
+    private boolean isBlockHeader() {
+      return isScenario()
+        || isContent(TurboGherkinLexer.SCENARIO_OUTLINE_KEYWORD)
+        || isContent(TurboGherkinLexer.RULE_KEYWORD);
+    }
+
+    private Scenario scenario() {
+      var line = lineNumber;
+      var offset = offset(first);
+      var keyword = intern(first, firstEnd);
+      var name = name(firstEnd);
+      next();
+      var steps = steps();
+      return new Scenario(line, offset, steps.get(steps.size() - 1).getEndOffset(), keyword, name, "", steps);
+    }
+
+    private ScenarioOutline scenarioOutline() {
+      var line = lineNumber;
+      var offset = offset(first);
+      var keyword = intern(first, firstEnd);
+      var name = name(firstEnd);
+      next();
+      var steps = steps();
+      var examples = examples();
+      return new ScenarioOutline(line, offset, examples.getEndOffset(), keyword, name, "", steps, examples);
+    }
+
+    private Examples examples() {
+      skipBlank();
+      if (!isContent(TurboGherkinLexer.EXAMPLES_KEYWORD) && !isContent(TurboGherkinLexer.SCENARIOS_KEYWORD)
+        || significantAfter(firstEnd) || lineEnd == contentEnd) {
+        throw Unsupported.INSTANCE;
+      }
+      var line = lineNumber;
+      var offset = offset(first);
+      var keyword = intern(first, firstEnd);
+      next();
+      skipBlank();
+      if (!isContent(TurboGherkinLexer.BAR)) {
+        throw Unsupported.INSTANCE;
+      }
+      var table = table();
+      return new Examples(line, offset, table.getEndOffset(), keyword, table);
+    }
+
+    /**
+     * Шаги блока. Блок без шагов не принимается: следующий заголовок грамматика
+     * может разобрать как строку его описания
+     */
+    private List<Step> steps() {
+      List<Step> steps = new ArrayList<>();
+      while (true) {
+        skipBlank();
+        if (kind != CONTENT || !isStepKeyword(firstType)) {
+          break;
+        }
+        steps.add(step());
+      }
+      if (steps.isEmpty()) {
+        throw Unsupported.INSTANCE;
+      }
+      return steps;
+    }
+
+    private Step step() {
+      var line = lineNumber;
+      var offset = offset(first);
+      var keyword = intern(first, firstEnd);
+      if (firstEnd == contentEnd || text[firstEnd] != ' ') {
+        throw Unsupported.INSTANCE;
+      }
+      var name = name(firstEnd + 1);
+      var end = offset(significantEnd < 0 ? firstEnd : significantEnd);
+      next();
+
+      GherkinElement argument = null;
+      skipBlank();
+      if (isContent(TurboGherkinLexer.DOC_STRINGS)) {
+        // перед открывающим ограничителем допускаются только переводы строк шага
+        if (whitespaceBefore) {
+          throw Unsupported.INSTANCE;
+        }
+        argument = docString();
+      } else if (isContent(TurboGherkinLexer.BAR)) {
+        argument = table();
+      }
+      if (argument != null) {
+        end = argument.getEndOffset();
+      }
+      return new Step(line, offset, end, keyword, name, argument);
+    }
+
+    private Table table() {
+      List<TableRow> rows = new ArrayList<>();
+      do {
+        rows.add(tableRow());
+        next();
+        skipBlank();
+        // строка из одних пробелов завершает таблицу
+      } while (isContent(TurboGherkinLexer.BAR) && !whitespaceBefore);
+      if (rows.size() < 2) {
+        throw Unsupported.INSTANCE;
+      }
+      return new Table(rows.get(0).getLine(), rows.get(0).getOffset(),
+        rows.get(rows.size() - 1).getEndOffset(), rows);
+    }
+
+    private TableRow tableRow() {
+      List<String> cells = new ArrayList<>();
+      var cellStart = firstEnd;
+      var lastBar = firstEnd;
+      var i = firstEnd;
+      while (i < contentEnd) {
+        var end = tokens.scan(i);
+        if (TokenScanner.isHidden(tokens.type)) {
+          break;
+        }
+        if (tokens.type == TurboGherkinLexer.BAR) {
+          cells.add(interner.apply(new String(text, cellStart, i - cellStart).trim()));
+          cellStart = end;
+          lastBar = end;
+        }
+        i = end;
+      }
+      // после последней черты допускаются только пробелы
+      if (cells.isEmpty() || skipSpaces(lastBar) < i) {
+        throw Unsupported.INSTANCE;
+      }
+      return new TableRow(lineNumber, offset(first), offset(lastBar), cells);
+    }
+
+    /**
+     * Многострочный аргумент. Как и в {@link GherkinModelBuilder}, значение берется из исходного текста
+     * от первого до последнего токена основного канала, затем отрезается отступ закрывающего ограничителя
+     */
+    private DocString docString() {
+      var line = lineNumber;
+      var offset = offset(first);
+      if (significantAfter(firstEnd) || lineEnd == contentEnd) {
+        throw Unsupported.INSTANCE;
+      }
+      next();
+      var valueStart = -1;
+      var valueEnd = -1;
+      while (kind != CONTENT || firstType != TurboGherkinLexer.DOC_STRINGS) {
+        if (atEnd()) {
+          throw Unsupported.INSTANCE;
+        }
+        var i = lineStart;
+        while (i < contentEnd) {
+          var end = tokens.scan(i);
+          if (tokens.type == TurboGherkinLexer.DOC_STRINGS) {
+            throw Unsupported.INSTANCE;
+          }
+          if (!TokenScanner.isHidden(tokens.type)) {
+            valueStart = valueStart < 0 ? i : valueStart;
+            valueEnd = end;
+          }
+          i = end;
+        }
+        if (lineEnd > contentEnd) {
+          valueStart = valueStart < 0 ? contentEnd : valueStart;
+          valueEnd = lineEnd;
+        }
+        next();
+      }
+      // отступ закрывающего ограничителя входит в значение
+      if (first > lineStart) {
+        valueStart = valueStart < 0 ? lineStart : valueStart;
+        valueEnd = first;
+      }
+      var content = valueStart < 0 ? "" : stripClosingIndent(valueStart, valueEnd);
+      var end = offset(firstEnd);
+      if (significantAfter(firstEnd)) {
+        throw Unsupported.INSTANCE;
+      }
+      next();
+      return new DocString(line, offset, end, content);
+    }
+
+    private String stripClosingIndent(int start, int end) {
+      while (end > start && (text[end - 1] == ' ' || text[end - 1] == '\t')) {
+        end--;
+      }
+      if (end > start && text[end - 1] == '\n') {
+        end--;
+        if (end > start && text[end - 1] == '\r') {
+          end--;
+        }
+      }
+      return new String(text, start, end - start);
+    }
+
+    /**
+     * Имя блока или шага: хотя бы один токен до конца строки,
+     * каждая угловая скобка открывает непустой параметр, закрытый в той же строке
+     *
+     * @param from начало имени
+     * @return имя без пробелов по краям; конец последнего значимого токена сохраняется в {@link #significantEnd}
+     */
+    private String name(int from) {
+      significantEnd = -1;
+      var i = from;
+      while (i < contentEnd) {
+        var end = tokens.scan(i);
+        var type = tokens.type;
+        if (TokenScanner.isHidden(type)) {
+          break;
+        }
+        if (type == TurboGherkinLexer.LABRACKET) {
+          end = parameterEnd(end);
+        }
+        if (type != TurboGherkinLexer.SPACE && type != TurboGherkinLexer.TAB) {
+          significantEnd = end;
+        }
+        i = end;
+      }
+      if (i == from) {
+        throw Unsupported.INSTANCE;
+      }
+      return interner.apply(new String(text, from, i - from).trim());
+    }
+
+    private int parameterEnd(int from) {
+      var i = from;
+      while (i < contentEnd) {
+        var end = tokens.scan(i);
+        var type = tokens.type;
+        if (type == TurboGherkinLexer.RABRACKET && i > from) {
+          return end;
+        }
+        if (type == TurboGherkinLexer.RABRACKET || type == TurboGherkinLexer.LABRACKET
+          || TokenScanner.isHidden(type)) {
+          break;
+        }
+        i = end;
+      }
+      throw Unsupported.INSTANCE;
+    }
+
+    /**
+     * @return true, если после позиции в строке есть токены основного канала, кроме пробелов
+     */
+    private boolean significantAfter(int from) {
+      var i = skipSpaces(from);
+      if (i == contentEnd) {
+        return false;
+      }
+      tokens.scan(i);
+      return !TokenScanner.isHidden(tokens.type);
+    }
+
+    /**
+     * @return конец текста строки без комментария, который всегда продолжается до конца строки
+     */
+    private int visibleEnd(int from) {
+      var i = from;
+      while (i < contentEnd) {
+        var end = tokens.scan(i);
+        if (TokenScanner.isHidden(tokens.type)) {
+          return i;
+        }
+        i = end;
+      }
+      return i;
+    }
+
+    private int skipSpaces(int from) {
+      var i = from;
+      while (i < contentEnd && (text[i] == ' ' || text[i] == '\t')) {
+        i++;
+      }
+      return i;
+    }
+
+    private boolean isContent(int type) {
+      return kind == CONTENT && firstType == type;
+    }
+
+    private boolean isScenario() {
+      return isContent(TurboGherkinLexer.SCENARIO_KEYWORD) || isContent(TurboGherkinLexer.EXAMPLE_KEYWORD);
+    }
+
+    private static boolean isStepKeyword(int type) {
+      return type == TurboGherkinLexer.GIVEN_KEYWORD
+        || type == TurboGherkinLexer.WHEN_KEYWORD
+        || type == TurboGherkinLexer.THEN_KEYWORD
+        || type == TurboGherkinLexer.AND_KEYWORD
+        || type == TurboGherkinLexer.BUT_KEYWORD;
+    }
+
+    private boolean atEnd() {
+      return lineStart >= length;
+    }
+
+    private void skipBlank() {
+      while (!atEnd() && kind != CONTENT) {
+        next();
+      }
+    }
+
+    private void next() {
+      whitespaceBefore = kind == WHITESPACE || (kind != CONTENT && whitespaceBefore);
+      readLine(lineEnd, lineNumber + 1, codePointStart + (lineEnd - lineStart) - surrogatePairs);
+    }
+
+    /**
+     * Находит границы строки и ее первый значимый токен
+     */
+    private void readLine(int start, int number, int codePoint) {
+      lineStart = start;
+      lineNumber = number;
+      codePointStart = codePoint;
+      surrogatePairs = 0;
+      var i = start;
+      while (i < length && text[i] != '\n') {
+        var c = text[i];
+        // одиночный \r лексер считает переводом строки
+        if (c == '\r' && (i + 1 >= length || text[i + 1] != '\n')) {
+          throw Unsupported.INSTANCE;
+        }
+        if (Character.isLowSurrogate(c) && i > start && Character.isHighSurrogate(text[i - 1])) {
+          surrogatePairs++;
+        }
+        i++;
+      }
+      lineEnd = i < length ? i + 1 : i;
+      contentEnd = i > start && i < length && text[i - 1] == '\r' ? i - 1 : i;
+
+      first = skipSpaces(start);
+      if (first == contentEnd) {
+        kind = first > start ? WHITESPACE : EMPTY;
+        return;
+      }
+      firstEnd = tokens.scan(first);
+      firstType = tokens.type;
+      if (TokenScanner.isHidden(firstType)) {
+        kind = first > start ? WHITESPACE : EMPTY;
+      } else {
+        kind = CONTENT;
+      }
+    }
+
+    /**
+     * @return смещение символа текущей строки в кодовых точках, как индексы токенов ANTLR
+     */
+    private int offset(int index) {
+      var result = codePointStart + (index - lineStart);
+      if (surrogatePairs > 0) {
+        for (var i = lineStart + 1; i < index; i++) {
+          if (Character.isLowSurrogate(text[i]) && Character.isHighSurrogate(text[i - 1])) {
+            result--;
+          }
+        }
+      }
+      return result;
+    }
+
+    private int textStart() {
+      return length > 0 && text[0] == BOM ? 1 : 0;
+    }
+
+    private String intern(int start, int end) {
+      return interner.apply(new String(text, start, end - start));
+    }
+  }
+}
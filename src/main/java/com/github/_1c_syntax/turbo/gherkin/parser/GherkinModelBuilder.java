@@ -0,0 +1,319 @@
+/*
+ * This file is a part of Turbo Gherkin Parser.
+ *
+ * Copyright © 2020-2020
+ * Valery Maximov <maximovvalery@gmail.com>, 1c-syntax team <www.github.com/1c-syntax>, BIA Technologies team <www.bia-tech.ru> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * Turbo Gherkin Parser is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * Turbo Gherkin Parser is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Turbo Gherkin Parser.
+ */
+package com.github._1c_syntax.turbo.gherkin.parser;
+
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.misc.Interval;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.TerminalNode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * Строит компактную неизменяемую модель {@link Feature} из дерева разбора.
+ * <p>
+ * Модель хранит только значимый текст (ключевые слова, имена, шаги, ячейки, описания)
+ * и смещения элементов в исходном тексте, без пробельных токенов, токенов и ссылок на родителей,
+ * поэтому после построения дерево разбора и поток токенов можно отпустить.
+ * Ключевые слова, имена, тексты шагов, теги и значения ячеек интернируются:
+ * в проекте они многократно повторяются.
+ * <pre>
+ * var feature = new GherkinModelBuilder().build(new GherkinTokenizer(content).getAst());
+ * </pre>
+ */
+public class GherkinModelBuilder {
+
+  private final UnaryOperator<String> interner;
+
+  /**
+   * Создает построитель, интернирующий строки через {@link String#intern()}
+   */
+  public GherkinModelBuilder() {
+    this(String::intern);
+  }
+
+  /**
+   * @param interner функция интернирования повторяющихся строк
+   */
+  public GherkinModelBuilder(UnaryOperator<String> interner) {
+    this.interner = interner;
+  }
+
+  /**
+   * Строит модель по дереву разбора. Дерево с синтаксическими ошибками допускается,
+   * неразобранные элементы в модель не попадают
+   *
+   * @param ctx корень дерева разбора
+   * @return корень модели
+   */
+  public Feature build(TurboGherkinParser.FeatureContext ctx) {
+    List<String> tags = new ArrayList<>();
+    if (ctx.tags() != null) {
+      for (var tag : ctx.tags().tag()) {
+        tags.add(intern(tag.getText()));
+      }
+    }
+
+    Background background = null;
+    List<Rule> rules = new ArrayList<>();
+    List<ScenarioDefinition> scenarios = new ArrayList<>();
+    var body = ctx.featureBody();
+    if (body != null) {
+      background = background(body.background());
+      if (body.businessRules() != null) {
+        for (var rule : body.businessRules().businessRule()) {
+          rules.add(rule(rule));
+        }
+      }
+      scenarios(body.scenarios(), scenarios);
+    }
+
+    var keyword = keyword(ctx);
+    return new Feature(keyword.getLine(), keyword.getStartIndex(), endOffset(ctx, keyword),
+      tags, intern(keyword.getText()), name(ctx.featureName()), description(ctx.featureDescription()),
+      background, rules, scenarios);
+  }
+
+  /**
+   * Строит модель сценария или структуры сценария, разобранных отдельно от файла
+   *
+   * @param ctx узел scenario или scenarioOutline
+   * @return модель блока
+   */
+  ScenarioDefinition scenarioDefinition(ParserRuleContext ctx) {
+    if (ctx instanceof TurboGherkinParser.ScenarioOutlineContext) {
+      return scenarioOutline((TurboGherkinParser.ScenarioOutlineContext) ctx);
+    }
+    return scenario((TurboGherkinParser.ScenarioContext) ctx);
+  }
+
+  private Rule rule(TurboGherkinParser.BusinessRuleContext ctx) {
+    List<ScenarioDefinition> scenarios = new ArrayList<>();
+    scenarios(ctx.scenarios(), scenarios);
+    var keyword = keyword(ctx);
+    return new Rule(keyword.getLine(), keyword.getStartIndex(), endOffset(ctx, keyword),
+      intern(keyword.getText()), name(ctx.name()), description(ctx.description()),
+      background(ctx.background()), scenarios);
+  }
+
+  private Background background(TurboGherkinParser.BackgroundContext ctx) {
+    if (ctx == null) {
+      return null;
+    }
+    var keyword = keyword(ctx);
+    return new Background(keyword.getLine(), keyword.getStartIndex(), endOffset(ctx, keyword),
+      intern(keyword.getText()), description(ctx.description()), steps(ctx.steps()));
+  }
+
+  private void scenarios(TurboGherkinParser.ScenariosContext ctx, List<ScenarioDefinition> scenarios) {
+    if (ctx == null || ctx.children == null) {
+      return;
+    }
+    // сценарии и структуры идут вперемешку, порядок сохраняется только в children
+    for (var child : ctx.children) {
+      if (child instanceof TurboGherkinParser.ScenarioContext) {
+        scenarios.add(scenario((TurboGherkinParser.ScenarioContext) child));
+      } else if (child instanceof TurboGherkinParser.ScenarioOutlineContext) {
+        scenarios.add(scenarioOutline((TurboGherkinParser.ScenarioOutlineContext) child));
+      }
+    }
+  }
+
+  private Scenario scenario(TurboGherkinParser.ScenarioContext ctx) {
+    var keyword = keyword(ctx);
+    return new Scenario(keyword.getLine(), keyword.getStartIndex(), endOffset(ctx, keyword),
+      intern(keyword.getText()), name(ctx.name()), description(ctx.description()), steps(ctx.steps()));
+  }
+
+  private ScenarioOutline scenarioOutline(TurboGherkinParser.ScenarioOutlineContext ctx) {
+    var keyword = keyword(ctx);
+    return new ScenarioOutline(keyword.getLine(), keyword.getStartIndex(), endOffset(ctx, keyword),
+      intern(keyword.getText()), name(ctx.name()), description(ctx.description()), steps(ctx.steps()),
+      examples(ctx.examples()));
+  }
+
+  private Examples examples(TurboGherkinParser.ExamplesContext ctx) {
+    if (ctx == null || ctx.table() == null) {
+      return null;
+    }
+    var keyword = keyword(ctx);
+    return new Examples(keyword.getLine(), keyword.getStartIndex(), endOffset(ctx, keyword),
+      intern(keyword.getText()), table(ctx.table()));
+  }
+
+  private List<Step> steps(TurboGherkinParser.StepsContext ctx) {
+    if (ctx == null) {
+      return List.of();
+    }
+    List<Step> steps = new ArrayList<>();
+    for (var step : ctx.step()) {
+      if (step.stepKeyword() == null) {
+        continue;
+      }
+      var keyword = step.stepKeyword().getStart();
+      GherkinElement argument = null;
+      if (step.table() != null) {
+        argument = table(step.table());
+      } else if (step.docStrings() != null) {
+        argument = docString(step.docStrings());
+      }
+      steps.add(new Step(keyword.getLine(), keyword.getStartIndex(), endOffset(step, keyword),
+        intern(keyword.getText()), name(step.name()), argument));
+    }
+    return steps;
+  }
+
+  private Table table(TurboGherkinParser.TableContext ctx) {
+    List<TableRow> rows = new ArrayList<>();
+    if (ctx.tableHead() != null) {
+      rows.add(tableRow(ctx.tableHead(), ctx.tableHead().tableCell()));
+    }
+    if (ctx.tableRows() != null) {
+      for (var row : ctx.tableRows().tableRow()) {
+        rows.add(tableRow(row, row.tableCell()));
+      }
+    }
+    if (rows.isEmpty()) {
+      var start = ctx.getStart();
+      return new Table(start.getLine(), start.getStartIndex(), start.getStartIndex(), rows);
+    }
+    var first = rows.get(0);
+    return new Table(first.getLine(), first.getOffset(), rows.get(rows.size() - 1).getEndOffset(), rows);
+  }
+
+  private TableRow tableRow(ParserRuleContext ctx, List<? extends TurboGherkinParser.TableCellContext> tableCells) {
+    List<String> cells = new ArrayList<>(tableCells.size());
+    for (var cell : tableCells) {
+      cells.add(intern(cell.tableCellValue().getText().trim()));
+    }
+    var bar = firstToken(ctx, TurboGherkinParser.BAR);
+    return new TableRow(bar.getLine(), bar.getStartIndex(), endOffset(ctx, bar), cells);
+  }
+
+  private static DocString docString(TurboGherkinParser.DocStringsContext ctx) {
+    var open = firstToken(ctx, TurboGherkinParser.DOC_STRINGS);
+    var value = ctx.docStringsValue();
+    var content = "";
+    if (value != null && value.getStop() != null && value.getStop().getStopIndex() >= value.getStart().getStartIndex()) {
+      content = stripClosingIndent(sourceText(value));
+    }
+    return new DocString(open.getLine(), open.getStartIndex(), endOffset(ctx, open), content);
+  }
+
+  /**
+   * Текст из исходника вместе со скрытыми токенами: внутри многострочного аргумента
+   * # и // не являются комментариями
+   */
+  private static String sourceText(ParserRuleContext ctx) {
+    var input = ctx.getStart().getInputStream();
+    if (input == null) {
+      return ctx.getText();
+    }
+    return input.getText(Interval.of(ctx.getStart().getStartIndex(), ctx.getStop().getStopIndex()));
+  }
+
+  /**
+   * Отрезает перенос строки и отступ перед закрывающим ограничителем
+   */
+  private static String stripClosingIndent(String text) {
+    var end = text.length();
+    while (end > 0 && (text.charAt(end - 1) == ' ' || text.charAt(end - 1) == '\t')) {
+      end--;
+    }
+    if (end > 0 && text.charAt(end - 1) == '\n') {
+      end--;
+      if (end > 0 && text.charAt(end - 1) == '\r') {
+        end--;
+      }
+    }
+    return text.substring(0, end);
+  }
+
+  private String name(ParserRuleContext ctx) {
+    return intern(ctx == null ? "" : ctx.getText().trim());
+  }
+
+  private static String description(ParserRuleContext ctx) {
+    return ctx == null ? "" : ctx.getText().trim();
+  }
+
+  private String intern(String value) {
+    return interner.apply(value);
+  }
+
+  /**
+   * Ключевое слово блока - первый токен среди непосредственных потомков,
+   * все предшествующие пробелы входят в правило white
+   */
+  private static Token keyword(ParserRuleContext ctx) {
+    for (var i = 0; i < ctx.getChildCount(); i++) {
+      var child = ctx.getChild(i);
+      if (child instanceof TerminalNode && ((TerminalNode) child).getSymbol().getStartIndex() >= 0) {
+        return ((TerminalNode) child).getSymbol();
+      }
+    }
+    return ctx.getStart();
+  }
+
+  private static Token firstToken(ParserRuleContext ctx, int type) {
+    // обход через getChild разбирает отложенное поддерево GherkinLazyParser
+    for (var i = 0; i < ctx.getChildCount(); i++) {
+      var child = ctx.getChild(i);
+      if (child instanceof TerminalNode && ((TerminalNode) child).getSymbol().getType() == type) {
+        return ((TerminalNode) child).getSymbol();
+      }
+    }
+    return ctx.getStart();
+  }
+
+  /**
+   * Конец элемента без завершающих пробелов и переводов строк
+   */
+  private static int endOffset(ParserRuleContext ctx, Token start) {
+    return Math.max(lastSignificantEnd(ctx), start.getStopIndex() + 1);
+  }
+
+  private static int lastSignificantEnd(ParseTree tree) {
+    if (tree instanceof TerminalNode) {
+      var token = ((TerminalNode) tree).getSymbol();
+      switch (token.getType()) {
+        case TurboGherkinParser.EOL:
+        case TurboGherkinParser.SPACE:
+        case TurboGherkinParser.TAB:
+        case Token.EOF:
+          return -1;
+        default:
+          return token.getStartIndex() < 0 ? -1 : token.getStopIndex() + 1;
+      }
+    }
+    for (var i = tree.getChildCount() - 1; i >= 0; i--) {
+      var end = lastSignificantEnd(tree.getChild(i));
+      if (end >= 0) {
+        return end;
+      }
+    }
+    return -1;
+  }
+}
@@ -0,0 +1,166 @@
+/*
+ * This file is a part of Turbo Gherkin Parser.
+ *
+ * Copyright © 2020-2020
+ * Valery Maximov <maximovvalery@gmail.com>, 1c-syntax team <www.github.com/1c-syntax>, BIA Technologies team <www.bia-tech.ru> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * Turbo Gherkin Parser is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * Turbo Gherkin Parser is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Turbo Gherkin Parser.
+ */
+package com.github._1c_syntax.turbo.gherkin.parser;
+
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ConsoleErrorListener;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenSource;
+import org.antlr.v4.runtime.tree.ParseTree;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Параллельный разбор одного большого фиче-файла.
+ * <p>
+ * Сначала {@link GherkinLazyParser} в вызывающем потоке разбирает каркас файла: заголовки, теги и описания
+ * функционала, правил, контекстов и сценариев. Шаги сценариев и контекстов и таблицы примеров,
+ * составляющие основной объем файла, при этом только размечаются. Затем отложенные блоки,
+ * сгруппированные в задачи примерно равного размера, разбираются на исполнителе.
+ * Результат - полное дерево {@link TurboGherkinParser.FeatureContext}, совпадающее с деревом обычного разбора.
+ * <p>
+ * Каждая задача разбирает блоки своим парсером по собственному потоку над общим списком токенов
+ * и изменяет только узлы своих блоков, DFA грамматики потокобезопасен. Для небольших файлов
+ * выигрыша нет, выгоднее {@link GherkinTokenizer} или {@link GherkinProjectParser}.
+ * <pre>
+ * var feature = new GherkinParallelParser().parse(content);
+ * </pre>
+ */
+public class GherkinParallelParser {
+
+  private final Executor executor;
+  private final int parallelism;
+
+  public GherkinParallelParser() {
+    this(ForkJoinPool.commonPool(), ForkJoinPool.getCommonPoolParallelism());
+  }
+
+  /**
+   * @param executor    исполнитель задач разбора блоков
+   * @param parallelism количество потоков исполнителя, определяет число задач
+   */
+  public GherkinParallelParser(Executor executor, int parallelism) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+    }
+    this.executor = executor;
+    this.parallelism = parallelism;
+  }
+
+  /**
+   * Разбирает фиче-файл
+   *
+   * @param content содержимое фиче-файла
+   * @return корень дерева разбора
+   */
+  public TurboGherkinParser.FeatureContext parse(String content) {
+    var lexer = new GherkinFastLexer(content);
+    var tokenStream = new CommonTokenStream(lexer);
+    tokenStream.fill();
+    var parser = new GherkinLazyParser(tokenStream);
+    parser.removeErrorListener(ConsoleErrorListener.INSTANCE);
+    var feature = parser.feature();
+
+    var blocks = deferredBlocks(feature);
+    if (blocks.isEmpty()) {
+      return feature;
+    }
+    var tokens = tokenStream.getTokens();
+    var tasks = new ArrayList<CompletableFuture<Void>>();
+    for (var chunk : split(blocks, tokens.size())) {
+      tasks.add(CompletableFuture.runAsync(() -> materialize(lexer, tokens, chunk), executor));
+    }
+    CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0])).join();
+    return feature;
+  }
+
+  private static void materialize(TokenSource source, List<Token> tokens, List<GherkinParserRuleContext> chunk) {
+    var parser = new TurboGherkinParser(new SharedTokenStream(source, tokens));
+    parser.removeErrorListener(ConsoleErrorListener.INSTANCE);
+    for (var block : chunk) {
+      GherkinLazyParser.materialize(block, parser);
+    }
+  }
+
+  /**
+   * Отложенные узлы в порядке следования в файле. Обход идет по полю children,
+   * чтобы не разбирать отложенные блоки
+   */
+  private static List<GherkinParserRuleContext> deferredBlocks(ParserRuleContext root) {
+    List<GherkinParserRuleContext> blocks = new ArrayList<>();
+    var stack = new ArrayDeque<ParseTree>();
+    stack.push(root);
+    while (!stack.isEmpty()) {
+      var node = stack.pop();
+      if (node instanceof GherkinParserRuleContext && ((GherkinParserRuleContext) node).isDeferred()) {
+        blocks.add((GherkinParserRuleContext) node);
+      } else if (node instanceof ParserRuleContext && ((ParserRuleContext) node).children != null) {
+        var children = ((ParserRuleContext) node).children;
+        for (var i = children.size() - 1; i >= 0; i--) {
+          stack.push(children.get(i));
+        }
+      }
+    }
+    return blocks;
+  }
+
+  /**
+   * Делит блоки на последовательные группы примерно равного числа токенов,
+   * по несколько групп на поток для выравнивания нагрузки
+   */
+  private List<List<GherkinParserRuleContext>> split(List<GherkinParserRuleContext> blocks, int tokenCount) {
+    var chunkSize = Math.max(1, tokenCount / (parallelism * 4));
+    List<List<GherkinParserRuleContext>> chunks = new ArrayList<>();
+    List<GherkinParserRuleContext> chunk = new ArrayList<>();
+    var size = 0;
+    for (var block : blocks) {
+      chunk.add(block);
+      size += block.getStop().getTokenIndex() - block.getStart().getTokenIndex() + 1;
+      if (size >= chunkSize) {
+        chunks.add(chunk);
+        chunk = new ArrayList<>();
+        size = 0;
+      }
+    }
+    if (!chunk.isEmpty()) {
+      chunks.add(chunk);
+    }
+    return chunks;
+  }
+
+  /**
+   * Поток над заполненным списком токенов без копирования, у каждой задачи своя позиция
+   */
+  private static final class SharedTokenStream extends CommonTokenStream {
+    SharedTokenStream(TokenSource source, List<Token> tokens) {
+      super(source);
+      this.tokens = tokens;
+      this.fetchedEOF = true;
+    }
+  }
+}
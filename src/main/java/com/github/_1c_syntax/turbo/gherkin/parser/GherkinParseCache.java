@@ -0,0 +1,331 @@
+/*
+ * This file is a part of Turbo Gherkin Parser.
+ *
+ * Copyright © 2020-2020
+ * Valery Maximov <maximovvalery@gmail.com>, 1c-syntax team <www.github.com/1c-syntax>, BIA Technologies team <www.bia-tech.ru> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * Turbo Gherkin Parser is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * Turbo Gherkin Parser is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Turbo Gherkin Parser.
+ */
+package com.github._1c_syntax.turbo.gherkin.parser;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+import java.util.regex.Pattern;
+
+/**
+ * Дисковый кэш результатов разбора, ключ - хеш содержимого файла.
+ * <p>
+ * При попадании токены и модель {@link Feature} читаются с диска без лексического и синтаксического анализа.
+ * Записи хранятся в подкаталоге, имя которого - версия кэша: хеш сериализованных ATN лексера и парсера
+ * и версии формата. При изменении грамматики кэш создается заново, каталоги прежних версий удаляются.
+ * Удаляются только каталоги с файлом-меткой кэша, поэтому чужие каталоги в корне кэша не затрагиваются.
+ * Размер кэша ограничен, при превышении удаляются давно не использованные записи.
+ * Время использования хранится в дате изменения файла и переживает перезапуск.
+ * <p>
+ * Ошибки чтения и записи кэша не прерывают разбор: поврежденная запись удаляется,
+ * результат разбирается заново.
+ */
+public class GherkinParseCache {
+
+  private static final String VERSION = computeVersion();
+  private static final Pattern VERSION_PATTERN = Pattern.compile("[0-9a-f]{16}");
+  private static final String ENTRY_SUFFIX = ".bin";
+  private static final String TEMP_SUFFIX = ".tmp";
+  private static final String MARKER = "turbo-gherkin-parse-cache";
+
+  private final Path directory;
+  private final long maxBytes;
+  private final GherkinModelBuilder modelBuilder;
+  private final UnaryOperator<String> interner;
+
+  // порядок доступа: первой идет давно не использованная запись
+  private final Map<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+  private long size;
+
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  /**
+   * @param root     каталог кэша
+   * @param maxBytes максимальный размер записей кэша в байтах
+   * @throws IOException ошибка создания каталога кэша
+   */
+  public GherkinParseCache(Path root, long maxBytes) throws IOException {
+    this(root, maxBytes, String::intern);
+  }
+
+  /**
+   * @param root     каталог кэша
+   * @param maxBytes максимальный размер записей кэша в байтах
+   * @param interner функция интернирования строк модели
+   * @throws IOException ошибка создания каталога кэша
+   */
+  public GherkinParseCache(Path root, long maxBytes, UnaryOperator<String> interner) throws IOException {
+    if (maxBytes < 0) {
+      throw new IllegalArgumentException("maxBytes must not be negative: " + maxBytes);
+    }
+    this.directory = root.resolve(VERSION);
+    this.maxBytes = maxBytes;
+    this.interner = interner;
+    this.modelBuilder = new GherkinModelBuilder(interner);
+    Files.createDirectories(directory);
+    try {
+      Files.createFile(directory.resolve(MARKER));
+    } catch (FileAlreadyExistsException e) {
+      // каталог уже помечен
+    }
+    removeOutdatedVersions(root);
+    loadIndex();
+  }
+
+  /**
+   * Возвращает результат разбора из кэша, при промахе разбирает содержимое и сохраняет результат
+   *
+   * @param content содержимое фиче-файла
+   * @return токены и модель фичи
+   */
+  public ParsedFeature parse(String content) {
+    var key = key(content);
+    var cached = read(key, content);
+    if (cached.isPresent()) {
+      hits.incrementAndGet();
+      return cached.get();
+    }
+    misses.incrementAndGet();
+    var tokenizer = new GherkinTokenizer(content);
+    var parsed = new ParsedFeature(tokenizer.getTokens(), modelBuilder.build(tokenizer.getAst()));
+    write(key, content, parsed);
+    return parsed;
+  }
+
+  /**
+   * @param content содержимое фиче-файла
+   * @return результат разбора из кэша, пусто при промахе
+   */
+  public Optional<ParsedFeature> get(String content) {
+    return read(key(content), content);
+  }
+
+  /**
+   * Удаляет все записи кэша
+   */
+  public synchronized void clear() {
+    for (var key : new ArrayList<>(entries.keySet())) {
+      remove(key);
+    }
+  }
+
+  /**
+   * @return суммарный размер записей в байтах
+   */
+  public synchronized long getSize() {
+    return size;
+  }
+
+  public synchronized int getEntryCount() {
+    return entries.size();
+  }
+
+  public long getHitCount() {
+    return hits.get();
+  }
+
+  public long getMissCount() {
+    return misses.get();
+  }
+
+  /**
+   * @return версия кэша, меняется вместе с грамматикой и форматом записей
+   */
+  public static String getVersion() {
+    return VERSION;
+  }
+
+  private Optional<ParsedFeature> read(String key, String content) {
+    synchronized (this) {
+      if (entries.get(key) == null) {
+        return Optional.empty();
+      }
+    }
+    var path = entryPath(key);
+    try {
+      var bytes = Files.readAllBytes(path);
+      var in = new DataInputStream(new ByteArrayInputStream(bytes));
+      var parsed = ParsedFeatureCodec.read(in, bytes.length, content, interner);
+      Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+      return Optional.of(parsed);
+    } catch (IOException | RuntimeException e) {
+      synchronized (this) {
+        remove(key);
+      }
+      return Optional.empty();
+    }
+  }
+
+  private void write(String key, String content, ParsedFeature parsed) {
+    var path = entryPath(key);
+    Path temp = null;
+    try {
+      temp = Files.createTempFile(directory, key, TEMP_SUFFIX);
+      try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+        ParsedFeatureCodec.write(out, parsed);
+      }
+      var entrySize = Files.size(temp);
+      Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      synchronized (this) {
+        var previous = entries.put(key, entrySize);
+        size += entrySize - (previous == null ? 0 : previous);
+        evict();
+      }
+    } catch (IOException e) {
+      deleteQuietly(temp);
+    }
+  }
+
+  private void evict() {
+    var iterator = entries.entrySet().iterator();
+    while (size > maxBytes && iterator.hasNext()) {
+      var eldest = iterator.next();
+      iterator.remove();
+      size -= eldest.getValue();
+      deleteQuietly(entryPath(eldest.getKey()));
+    }
+  }
+
+  private void remove(String key) {
+    var entrySize = entries.remove(key);
+    if (entrySize != null) {
+      size -= entrySize;
+    }
+    deleteQuietly(entryPath(key));
+  }
+
+  private synchronized void loadIndex() throws IOException {
+    List<Path> files = new ArrayList<>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+      for (var path : stream) {
+        var name = path.getFileName().toString();
+        if (name.endsWith(ENTRY_SUFFIX)) {
+          files.add(path);
+        } else if (name.endsWith(TEMP_SUFFIX)) {
+          // остаток прерванной записи
+          deleteQuietly(path);
+        }
+      }
+    }
+    files.sort(Comparator.comparing(GherkinParseCache::lastModified));
+    for (var path : files) {
+      var name = path.getFileName().toString();
+      var entrySize = Files.size(path);
+      entries.put(name.substring(0, name.length() - ENTRY_SUFFIX.length()), entrySize);
+      size += entrySize;
+    }
+    evict();
+  }
+
+  private void removeOutdatedVersions(Path root) throws IOException {
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(root, Files::isDirectory)) {
+      for (var path : stream) {
+        var name = path.getFileName().toString();
+        if (!name.equals(VERSION) && VERSION_PATTERN.matcher(name).matches()
+          && Files.exists(path.resolve(MARKER))) {
+          deleteDirectory(path);
+        }
+      }
+    }
+  }
+
+  private Path entryPath(String key) {
+    return directory.resolve(key + ENTRY_SUFFIX);
+  }
+
+  private static FileTime lastModified(Path path) {
+    try {
+      return Files.getLastModifiedTime(path);
+    } catch (IOException e) {
+      return FileTime.fromMillis(0);
+    }
+  }
+
+  private static void deleteDirectory(Path path) throws IOException {
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(path)) {
+      for (var child : stream) {
+        deleteQuietly(child);
+      }
+    }
+    deleteQuietly(path);
+  }
+
+  private static void deleteQuietly(Path path) {
+    if (path == null) {
+      return;
+    }
+    try {
+      Files.deleteIfExists(path);
+    } catch (IOException e) {
+      // запись будет перезаписана или удалена при следующем открытии кэша
+    }
+  }
+
+  private static String key(String content) {
+    return hex(sha256().digest(content.getBytes(StandardCharsets.UTF_8)));
+  }
+
+  private static String computeVersion() {
+    var digest = sha256();
+    digest.update(TurboGherkinLexer._serializedATN.getBytes(StandardCharsets.UTF_8));
+    digest.update(TurboGherkinParser._serializedATN.getBytes(StandardCharsets.UTF_8));
+    digest.update(Integer.toString(ParsedFeatureCodec.FORMAT_VERSION).getBytes(StandardCharsets.UTF_8));
+    return hex(digest.digest()).substring(0, 16);
+  }
+
+  private static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      // SHA-256 обязателен для всех реализаций Java
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static String hex(byte[] bytes) {
+    var builder = new StringBuilder(bytes.length * 2);
+    for (var value : bytes) {
+      builder.append(Character.forDigit((value >> 4) & 0xF, 16)).append(Character.forDigit(value & 0xF, 16));
+    }
+    return builder.toString();
+  }
+}
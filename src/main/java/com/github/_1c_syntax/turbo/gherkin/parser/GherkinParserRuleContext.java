@@ -35,4 +35,11 @@ public class GherkinParserRuleContext extends BSLParserRuleContext {
   public GherkinParserRuleContext(ParserRuleContext parent, int invokingStateNumber) {
     super(parent, invokingStateNumber);
   }
+
+  /**
+   * @return true, если поддерево узла еще не разобрано. Отложенные узлы создает только {@link GherkinLazyParser}
+   */
+  public boolean isDeferred() {
+    return false;
+  }
 }
@@ -0,0 +1,246 @@
+/*
+ * This file is a part of Turbo Gherkin Parser.
+ *
+ * Copyright © 2020-2020
+ * Valery Maximov <maximovvalery@gmail.com>, 1c-syntax team <www.github.com/1c-syntax>, BIA Technologies team <www.bia-tech.ru> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * Turbo Gherkin Parser is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * Turbo Gherkin Parser is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Turbo Gherkin Parser.
+ */
+package com.github._1c_syntax.turbo.gherkin.parser;
+
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Служба разбора открытых документов для языкового сервера.
+ * <p>
+ * Каждый разбор выполняется в отдельном виртуальном потоке, на Java до 21 - в пуле платформенных потоков
+ * по числу процессоров. Документы разбираются параллельно, версии одного документа - по очереди:
+ * <ul>
+ *   <li>новая версия отменяет ожидающую, не начатую версию - быстрые правки объединяются,
+ *   за задержку объединения (по умолчанию 0) разбирается только последняя версия;</li>
+ *   <li>новая версия прерывает уже идущий разбор устаревшей версии на следующем токене, см. {@link ParseBudget}.</li>
+ * </ul>
+ * Результат устаревшей версии завершается {@link CancellationException}.
+ * <pre>
+ * service.parse(uri, version, text).thenAccept(result -&gt; publishDiagnostics(result.getSyntaxErrors()));
+ * </pre>
+ */
+public class GherkinParsingService implements AutoCloseable {
+
+  private final ExecutorService executorService;
+  private final Executor executor;
+  private final ParseStrategy strategy;
+  private final ParseBudget budget;
+  private final ConcurrentHashMap<String, Document> documents = new ConcurrentHashMap<>();
+  private final AtomicLong abortedCount = new AtomicLong();
+
+  public GherkinParsingService() {
+    this(Duration.ZERO, ParseStrategy.SLL_THEN_LL);
+  }
+
+  /**
+   * @param coalesceDelay задержка разбора после первой правки, за которую более поздние правки объединяются
+   * @param strategy      стратегия разбора
+   */
+  public GherkinParsingService(Duration coalesceDelay, ParseStrategy strategy) {
+    this(coalesceDelay, strategy, ParseBudget.unlimited());
+  }
+
+  /**
+   * @param coalesceDelay задержка разбора после первой правки, за которую более поздние правки объединяются
+   * @param strategy      стратегия разбора
+   * @param budget        бюджет разбора одной версии; при исчерпании результат завершается
+   *                      {@link ParseAbortedException}
+   */
+  public GherkinParsingService(Duration coalesceDelay, ParseStrategy strategy, ParseBudget budget) {
+    this.executorService = createExecutor();
+    this.executor = coalesceDelay.isZero()
+      ? executorService
+      : CompletableFuture.delayedExecutor(coalesceDelay.toNanos(), TimeUnit.NANOSECONDS, executorService);
+    this.strategy = strategy;
+    this.budget = budget;
+  }
+
+  /**
+   * Ставит версию документа в разбор
+   *
+   * @param uri     идентификатор документа
+   * @param version версия документа
+   * @param content содержимое документа
+   * @return результат разбора; завершается {@link CancellationException}, если раньше пришла новая версия
+   */
+  public CompletableFuture<DocumentParseResult> parse(String uri, int version, String content) {
+    var request = new Request(version, content);
+    var document = documents.computeIfAbsent(uri, Document::new);
+    synchronized (document) {
+      document.cancel();
+      document.pending = request;
+      if (!document.scheduled) {
+        document.scheduled = true;
+        executor.execute(document::run);
+      }
+    }
+    return request.future;
+  }
+
+  /**
+   * Отменяет разбор закрытого документа
+   *
+   * @param uri идентификатор документа
+   */
+  public void remove(String uri) {
+    var document = documents.remove(uri);
+    if (document != null) {
+      synchronized (document) {
+        document.cancel();
+      }
+    }
+  }
+
+  /**
+   * Отменяет все разборы и останавливает потоки службы
+   */
+  @Override
+  public void close() {
+    documents.values().forEach(document -> {
+      synchronized (document) {
+        document.cancel();
+      }
+    });
+    documents.clear();
+    executorService.shutdownNow();
+  }
+
+  /**
+   * @return число разборов, прерванных {@link ParseAbortedException} до завершения:
+   * новой версией, закрытием документа или исчерпанием бюджета
+   */
+  public long getAbortedCount() {
+    return abortedCount.get();
+  }
+
+  private DocumentParseResult parse(String uri, Request request) {
+    var tokenizer = new GherkinTokenizer(request.content, strategy);
+    var errors = new SyntaxErrorListener();
+    tokenizer.setErrorListener(errors);
+    tokenizer.setBudget(budget.withCancellation(() -> request.cancelled));
+    tokenizer.getAst();
+    return new DocumentParseResult(uri, request.version, tokenizer, errors.getErrors());
+  }
+
+  private static ExecutorService createExecutor() {
+    try {
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (ReflectiveOperationException e) {
+      // виртуальных потоков нет или они доступны только в режиме preview
+      var number = new AtomicInteger();
+      return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+        var thread = new Thread(runnable, "gherkin-parser-" + number.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+  }
+
+  /**
+   * Версия документа, поставленная в разбор
+   */
+  private static final class Request {
+    private final int version;
+    private final String content;
+    private final CompletableFuture<DocumentParseResult> future = new CompletableFuture<>();
+    private volatile boolean cancelled;
+
+    private Request(int version, String content) {
+      this.version = version;
+      this.content = content;
+    }
+
+    private void cancel() {
+      cancelled = true;
+      future.completeExceptionally(new CancellationException("Outdated document version " + version));
+    }
+  }
+
+  /**
+   * Очередь разбора одного документа: не больше одной ожидающей и одной разбираемой версии
+   */
+  private final class Document {
+    private final String uri;
+    // поля ниже защищены монитором документа
+    private Request pending;
+    private Request running;
+    private boolean scheduled;
+
+    private Document(String uri) {
+      this.uri = uri;
+    }
+
+    private void cancel() {
+      if (pending != null) {
+        pending.cancel();
+        pending = null;
+      }
+      if (running != null) {
+        running.cancel();
+      }
+    }
+
+    private void run() {
+      Request request;
+      synchronized (this) {
+        request = pending;
+        pending = null;
+        running = request;
+        if (request == null) {
+          scheduled = false;
+          return;
+        }
+      }
+
+      try {
+        request.future.complete(parse(uri, request));
+      } catch (ParseAbortedException e) {
+        abortedCount.incrementAndGet();
+        request.future.completeExceptionally(e);
+      } catch (RuntimeException e) {
+        request.future.completeExceptionally(e);
+      } catch (Error e) {
+        // не оставляем клиента ждать результат, который никогда не придет
+        request.future.completeExceptionally(e);
+        throw e;
+      } finally {
+        synchronized (this) {
+          running = null;
+          if (pending == null) {
+            scheduled = false;
+          } else {
+            executor.execute(this::run);
+          }
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,187 @@
+/*
+ * This file is a part of Turbo Gherkin Parser.
+ *
+ * Copyright © 2020-2020
+ * Valery Maximov <maximovvalery@gmail.com>, 1c-syntax team <www.github.com/1c-syntax>, BIA Technologies team <www.bia-tech.ru> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * Turbo Gherkin Parser is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * Turbo Gherkin Parser is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Turbo Gherkin Parser.
+ */
+package com.github._1c_syntax.turbo.gherkin.parser;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Пакетный параллельный разбор фиче-файлов каталога.
+ * <p>
+ * Файлы разбираются на переданном исполнителе, например {@link ForkJoinPool} или,
+ * начиная с Java 21, исполнителе виртуальных потоков. Результаты отдаются по мере готовности.
+ * Новые файлы отправляются в разбор только по мере чтения результатов,
+ * поэтому одновременно в памяти находится не более maxInFlight деревьев.
+ * <pre>
+ * try (var results = new GherkinProjectParser().parseAll(root)) {
+ *   results.forEach(result -> ...);
+ * }
+ * </pre>
+ */
+public class GherkinProjectParser {
+
+  private static final String FEATURE_EXTENSION = ".feature";
+
+  private final Executor executor;
+  private final int maxInFlight;
+  private final GherkinTokenizerPool pool;
+
+  public GherkinProjectParser() {
+    this(ForkJoinPool.commonPool(), ForkJoinPool.getCommonPoolParallelism() * 2, ParseStrategy.SLL_THEN_LL);
+  }
+
+  /**
+   * @param executor    исполнитель задач разбора
+   * @param maxInFlight максимальное количество файлов в разборе и непрочитанных результатов
+   * @param strategy    стратегия разбора
+   */
+  public GherkinProjectParser(Executor executor, int maxInFlight, ParseStrategy strategy) {
+    if (maxInFlight < 1) {
+      throw new IllegalArgumentException("maxInFlight must be positive: " + maxInFlight);
+    }
+    this.executor = executor;
+    this.maxInFlight = maxInFlight;
+    this.pool = new GherkinTokenizerPool(maxInFlight, strategy);
+  }
+
+  /**
+   * Разбирает все фиче-файлы каталога и его подкаталогов.
+   * Поток результатов необходимо закрыть после использования
+   *
+   * @param root корневой каталог
+   * @return поток результатов в порядке завершения разбора
+   * @throws IOException ошибка обхода каталога
+   */
+  public Stream<FeatureParseResult> parseAll(Path root) throws IOException {
+    var paths = Files.walk(root);
+    var iterator = new ResultIterator(paths
+      .filter(path -> path.getFileName().toString().endsWith(FEATURE_EXTENSION))
+      .filter(Files::isRegularFile)
+      .iterator());
+    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.NONNULL), false)
+      .onClose(paths::close);
+  }
+
+  /**
+   * Разбирает все фиче-файлы каталога и его подкаталогов, передавая результаты получателю
+   *
+   * @param root     корневой каталог
+   * @param consumer получатель результатов, вызывается в потоке вызова метода
+   * @throws IOException ошибка обхода каталога
+   */
+  public void parseAll(Path root, Consumer<FeatureParseResult> consumer) throws IOException {
+    try (var results = parseAll(root)) {
+      results.forEach(consumer);
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  /**
+   * Разбирает один файл
+   *
+   * @param path путь к фиче-файлу
+   * @return результат разбора
+   */
+  public FeatureParseResult parse(Path path) {
+    try (var lease = pool.acquire()) {
+      var input = GherkinCharStreams.fromPath(path);
+      var errors = new SyntaxErrorListener();
+      var parser = lease.getParser();
+      parser.addErrorListener(errors);
+      try {
+        var feature = lease.parse(input);
+        return new FeatureParseResult(path, feature, errors.getErrors(), null);
+      } finally {
+        parser.removeErrorListener(errors);
+      }
+    } catch (IOException | RuntimeException e) {
+      return new FeatureParseResult(path, null, List.of(), e);
+    }
+  }
+
+  /**
+   * Итератор результатов, отправляющий файлы в разбор по мере чтения
+   */
+  private class ResultIterator implements Iterator<FeatureParseResult> {
+    private final Iterator<Path> paths;
+    private final BlockingQueue<FeatureParseResult> completed = new LinkedBlockingQueue<>();
+    private int inFlight;
+
+    ResultIterator(Iterator<Path> paths) {
+      this.paths = paths;
+    }
+
+    @Override
+    public boolean hasNext() {
+      submit();
+      return inFlight > 0;
+    }
+
+    @Override
+    public FeatureParseResult next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      try {
+        var result = completed.take();
+        inFlight--;
+        return result;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new CancellationException("Interrupted while waiting for parse results");
+      }
+    }
+
+    private void submit() {
+      while (inFlight < maxInFlight && paths.hasNext()) {
+        var path = paths.next();
+        executor.execute(() -> {
+          try {
+            completed.add(parse(path));
+          } catch (Error e) {
+            // не оставляем читателя ждать результат, который никогда не придет
+            completed.add(new FeatureParseResult(path, null, List.of(), new ExecutionException(e)));
+            throw e;
+          }
+        });
+        inFlight++;
+      }
+    }
+  }
+}
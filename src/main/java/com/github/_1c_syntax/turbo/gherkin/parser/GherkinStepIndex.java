@@ -0,0 +1,406 @@
+/*
+ * This file is a part of Turbo Gherkin Parser.
+ *
+ * Copyright © 2020-2020
+ * Valery Maximov <maximovvalery@gmail.com>, 1c-syntax team <www.github.com/1c-syntax>, BIA Technologies team <www.bia-tech.ru> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * Turbo Gherkin Parser is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * Turbo Gherkin Parser is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Turbo Gherkin Parser.
+ */
+package com.github._1c_syntax.turbo.gherkin.parser;
+
+import org.antlr.v4.runtime.tree.ParseTree;
+
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Индекс шагов и тегов проекта.
+ * <p>
+ * Тексты шагов нормализуются: параметры (числа, строки в кавычках, {@code <параметры>}) заменяются на
+ * {@link #PARAMETER}, пробелы схлопываются, регистр не учитывается. Поэтому шаги
+ * {@code И я ввожу "1" в поле "Код"} и {@code Тогда я ввожу 2 в поле <Поле>} попадают в одну запись.
+ * Для каждого текста и тега хранится список вхождений (номер файла, номер строки) в массиве int.
+ * Индекс обновляется пофайлово по дереву разбора: повторное добавление файла заменяет его вхождения.
+ * Класс потокобезопасен.
+ * <pre>
+ * var index = new GherkinStepIndex();
+ * index.update(path, new GherkinTokenizer(content).getAst());
+ * index.findSteps("я открываю форму \"Товары\"");
+ * </pre>
+ */
+public class GherkinStepIndex {
+  /**
+   * Замена параметра в нормализованном тексте шага. В имени шага пустые угловые скобки недопустимы,
+   * поэтому с текстом шага замена не совпадает
+   */
+  public static final String PARAMETER = "<>";
+
+  private final Map<Path, IndexedFile> files = new HashMap<>();
+  private final List<Path> paths = new ArrayList<>();
+  private final Map<String, Postings> steps = new HashMap<>();
+  private final Map<String, Postings> tags = new HashMap<>();
+
+  /**
+   * Добавляет или заменяет вхождения шагов и тегов файла
+   *
+   * @param path    путь к фиче-файлу, ключ индекса
+   * @param feature корень дерева разбора, в том числе с синтаксическими ошибками
+   */
+  public synchronized void update(Path path, TurboGherkinParser.FeatureContext feature) {
+    var file = files.get(path);
+    if (file == null) {
+      file = new IndexedFile(paths.size());
+      paths.add(path);
+      files.put(path, file);
+    } else {
+      removePostings(file);
+    }
+
+    Set<String> stepKeys = new LinkedHashSet<>();
+    Set<String> tagKeys = new LinkedHashSet<>();
+    var stack = new ArrayDeque<ParseTree>();
+    stack.push(feature);
+    while (!stack.isEmpty()) {
+      var node = stack.pop();
+      if (node instanceof TurboGherkinParser.StepContext) {
+        var step = (TurboGherkinParser.StepContext) node;
+        if (step.stepKeyword() != null && step.name() != null) {
+          var key = normalize(step.name());
+          steps.computeIfAbsent(key, k -> new Postings()).add(file.id, step.stepKeyword().getStart().getLine());
+          stepKeys.add(key);
+        }
+      } else if (node instanceof TurboGherkinParser.TagContext) {
+        var tag = (TurboGherkinParser.TagContext) node;
+        var key = tag.getText();
+        tags.computeIfAbsent(key, k -> new Postings()).add(file.id, tag.getStart().getLine());
+        tagKeys.add(key);
+      } else {
+        // обход в обратном порядке, чтобы вхождения файла шли по возрастанию строк
+        for (var i = node.getChildCount() - 1; i >= 0; i--) {
+          stack.push(node.getChild(i));
+        }
+      }
+    }
+    file.steps = stepKeys.toArray(new String[0]);
+    file.tags = tagKeys.toArray(new String[0]);
+  }
+
+  /**
+   * Добавляет вхождения файла из результата пакетного разбора, например
+   * {@code projectParser.parseAll(root, index::update)}. Файл без дерева разбора удаляется из индекса
+   *
+   * @param result результат разбора файла
+   */
+  public void update(FeatureParseResult result) {
+    var feature = result.getFeature();
+    if (feature.isPresent()) {
+      update(result.getPath(), feature.get());
+    } else {
+      remove(result.getPath());
+    }
+  }
+
+  /**
+   * Удаляет вхождения файла
+   *
+   * @param path путь к фиче-файлу
+   */
+  public synchronized void remove(Path path) {
+    var file = files.remove(path);
+    if (file != null) {
+      removePostings(file);
+      // номер файла не переиспользуется, пути удаленных файлов не удерживаются
+      paths.set(file.id, null);
+    }
+  }
+
+  /**
+   * Ищет вхождения шага
+   *
+   * @param stepText текст шага без ключевого слова с любыми значениями параметров
+   * @return вхождения шагов с тем же нормализованным текстом
+   */
+  public synchronized List<Location> findSteps(String stepText) {
+    return locations(steps.get(normalize(stepText)));
+  }
+
+  /**
+   * Ищет вхождения тега
+   *
+   * @param tag тег с символом @ или без него
+   * @return вхождения тега
+   */
+  public synchronized List<Location> findTag(String tag) {
+    return locations(tags.get(tag.startsWith("@") ? tag : "@" + tag));
+  }
+
+  /**
+   * @return число различных нормализованных текстов шагов
+   */
+  public synchronized int getStepCount() {
+    return steps.size();
+  }
+
+  /**
+   * @return число файлов в индексе
+   */
+  public synchronized int getFileCount() {
+    return files.size();
+  }
+
+  /**
+   * Нормализует текст шага без ключевого слова. Текст разбирается так же, как его разбирает лексер
+   *
+   * @param stepText текст шага
+   * @return нормализованный текст
+   */
+  public static String normalize(String stepText) {
+    var text = stepText.toCharArray();
+    var scanner = new TokenScanner(text, text.length);
+    var normalizer = new Normalizer();
+    var i = 0;
+    while (i < text.length) {
+      var end = scanner.scan(i);
+      var type = scanner.type;
+      if (TokenScanner.isHidden(type)) {
+        // комментарий до конца строки в имя шага не входит
+        break;
+      }
+      if (type == TurboGherkinLexer.LABRACKET) {
+        var close = parameterEnd(scanner, text, end);
+        if (close > end) {
+          normalizer.parameter();
+          i = close;
+          continue;
+        }
+      }
+      if (type == TurboGherkinLexer.SPACE || type == TurboGherkinLexer.TAB) {
+        normalizer.space();
+      } else if (type == TurboGherkinLexer.DECIMAL
+        || type == TurboGherkinLexer.FLOAT
+        || type == TurboGherkinLexer.STRING) {
+        normalizer.parameter();
+      } else {
+        normalizer.text(text, i, end);
+      }
+      i = end;
+    }
+    return normalizer.toString();
+  }
+
+  /**
+   * Нормализует имя шага из дерева разбора
+   *
+   * @param name имя шага
+   * @return нормализованный текст
+   */
+  public static String normalize(TurboGherkinParser.NameContext name) {
+    var normalizer = new Normalizer();
+    for (var i = 0; i < name.getChildCount(); i++) {
+      var child = name.getChild(i);
+      if (child instanceof TurboGherkinParser.ParameterContext) {
+        normalizer.parameter();
+      } else if (child instanceof TurboGherkinParser.SpaceContext) {
+        normalizer.space();
+      } else {
+        var text = child.getText().toCharArray();
+        normalizer.text(text, 0, text.length);
+      }
+    }
+    return normalizer.toString();
+  }
+
+  /**
+   * Ищет конец параметра {@code <...>}: непустое содержимое без EOL и угловых скобок
+   *
+   * @return индекс символа за закрывающей скобкой или start, если параметра нет
+   */
+  private static int parameterEnd(TokenScanner scanner, char[] text, int start) {
+    var i = start;
+    while (i < text.length) {
+      var end = scanner.scan(i);
+      var type = scanner.type;
+      if (type == TurboGherkinLexer.RABRACKET) {
+        return i > start ? end : start;
+      }
+      if (type == TurboGherkinLexer.LABRACKET || type == TurboGherkinLexer.EOL || TokenScanner.isHidden(type)) {
+        return start;
+      }
+      i = end;
+    }
+    return start;
+  }
+
+  private void removePostings(IndexedFile file) {
+    removePostings(steps, file.steps, file.id);
+    removePostings(tags, file.tags, file.id);
+  }
+
+  private static void removePostings(Map<String, Postings> index, String[] keys, int fileId) {
+    for (var key : keys) {
+      var postings = index.get(key);
+      postings.remove(fileId);
+      if (postings.size == 0) {
+        index.remove(key);
+      }
+    }
+  }
+
+  private List<Location> locations(Postings postings) {
+    if (postings == null) {
+      return List.of();
+    }
+    List<Location> locations = new ArrayList<>(postings.size);
+    for (var i = 0; i < postings.size; i++) {
+      locations.add(new Location(paths.get(postings.files[i]), postings.lines[i]));
+    }
+    return locations;
+  }
+
+  /**
+   * Вхождение шага или тега
+   */
+  public static final class Location {
+    private final Path path;
+    private final int line;
+
+    private Location(Path path, int line) {
+      this.path = path;
+      this.line = line;
+    }
+
+    public Path getPath() {
+      return path;
+    }
+
+    /**
+     * @return номер строки ключевого слова шага или тега, начиная с 1
+     */
+    public int getLine() {
+      return line;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Location)) {
+        return false;
+      }
+      var location = (Location) o;
+      return line == location.line && path.equals(location.path);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(path, line);
+    }
+
+    @Override
+    public String toString() {
+      return path + ":" + line;
+    }
+  }
+
+  /**
+   * Файл индекса: номер и ключи, по которым записаны его вхождения
+   */
+  private static final class IndexedFile {
+    private final int id;
+    private String[] steps = new String[0];
+    private String[] tags = new String[0];
+
+    private IndexedFile(int id) {
+      this.id = id;
+    }
+  }
+
+  /**
+   * Список вхождений в параллельных массивах номеров файлов и строк.
+   * Вхождения одного файла идут подряд, файлы добавляются в конец
+   */
+  private static final class Postings {
+    private int[] files = new int[2];
+    private int[] lines = new int[2];
+    private int size;
+
+    private void add(int file, int line) {
+      if (size == files.length) {
+        files = Arrays.copyOf(files, size * 2);
+        lines = Arrays.copyOf(lines, size * 2);
+      }
+      files[size] = file;
+      lines[size] = line;
+      size++;
+    }
+
+    private void remove(int file) {
+      var j = 0;
+      for (var i = 0; i < size; i++) {
+        if (files[i] != file) {
+          files[j] = files[i];
+          lines[j] = lines[i];
+          j++;
+        }
+      }
+      size = j;
+    }
+  }
+
+  /**
+   * Собирает нормализованный текст: пробелы схлопываются и отбрасываются по краям
+   */
+  private static final class Normalizer {
+    private final StringBuilder builder = new StringBuilder();
+    private boolean space;
+
+    private void space() {
+      space = builder.length() > 0;
+    }
+
+    private void parameter() {
+      append();
+      builder.append(PARAMETER);
+    }
+
+    private void text(char[] text, int start, int end) {
+      append();
+      builder.append(text, start, end - start);
+    }
+
+    private void append() {
+      if (space) {
+        builder.append(' ');
+        space = false;
+      }
+    }
+
+    @Override
+    public String toString() {
+      return builder.toString().toLowerCase(Locale.ROOT);
+    }
+  }
+}
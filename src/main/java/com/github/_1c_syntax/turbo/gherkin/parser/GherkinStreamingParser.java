@@ -0,0 +1,444 @@
+/*
+ * This file is a part of Turbo Gherkin Parser.
+ *
+ * Copyright © 2020-2020
+ * Valery Maximov <maximovvalery@gmail.com>, 1c-syntax team <www.github.com/1c-syntax>, BIA Technologies team <www.bia-tech.ru> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * Turbo Gherkin Parser is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * Turbo Gherkin Parser is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Turbo Gherkin Parser.
+ */
+package com.github._1c_syntax.turbo.gherkin.parser;
+
+import com.github._1c_syntax.bsl.parser.CaseChangingCharStream;
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CommonTokenFactory;
+import org.antlr.v4.runtime.ConsoleErrorListener;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Recognizer;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenFactory;
+import org.antlr.v4.runtime.TokenSource;
+import org.antlr.v4.runtime.UnbufferedCharStream;
+import org.antlr.v4.runtime.UnbufferedTokenStream;
+import org.antlr.v4.runtime.tree.ErrorNode;
+import org.antlr.v4.runtime.tree.ParseTreeListener;
+import org.antlr.v4.runtime.tree.TerminalNode;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Потоковый разбор фиче-файла с выдачей событий вместо дерева.
+ * <p>
+ * Дерево разбора не строится, символы и токены читаются через небуферизованные потоки,
+ * поэтому потребление памяти ограничено окном предпросмотра парсера и размером отдельного элемента
+ * (строки, таблицы, многострочного аргумента), а не размером файла.
+ * <p>
+ * Разбор выполняется в режиме LL: вернуться по небуферизованному потоку для второго этапа
+ * {@link ParseStrategy#SLL_THEN_LL} нельзя, так как события уже отправлены.
+ * <pre>
+ * new GherkinStreamingParser().parse(path, new GherkinEventHandler() {
+ *   &#64;Override
+ *   public void step(String keyword, String name, int line) {
+ *     index.add(name, line);
+ *   }
+ * });
+ * </pre>
+ */
+public class GherkinStreamingParser {
+
+  private static final char BOM = '\uFEFF';
+  private static final int BUFFER_SIZE = 4096;
+
+  /**
+   * Разбирает фиче-файл в кодировке UTF-8
+   *
+   * @param path    путь к фиче-файлу
+   * @param handler обработчик событий
+   * @throws IOException ошибка чтения файла
+   */
+  public void parse(Path path, GherkinEventHandler handler) throws IOException {
+    try (var reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+      parse(reader, handler);
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  /**
+   * @param content содержимое фиче-файла
+   * @param handler обработчик событий
+   */
+  public void parse(String content, GherkinEventHandler handler) {
+    parse(new StringReader(content), handler);
+  }
+
+  /**
+   * Разбирает содержимое, читая его по мере продвижения разбора. Поток не закрывается
+   *
+   * @param reader  источник содержимого фиче-файла
+   * @param handler обработчик событий
+   */
+  public void parse(Reader reader, GherkinEventHandler handler) {
+    var input = new CaseChangingCharStream(new UnbufferedCharStream(skipBOM(reader), BUFFER_SIZE));
+    var lexer = new TurboGherkinLexer(input, true);
+    // текст токена копируется при создании, так как символы за ним уже не хранятся
+    lexer.setTokenFactory(new CommonTokenFactory(true));
+    var parser = new TurboGherkinParser(new UnbufferedTokenStream(new DefaultChannelTokenSource(lexer), BUFFER_SIZE));
+    parser.setBuildParseTree(false);
+    parser.addParseListener(new EventListener(parser, handler));
+
+    var errors = new EventErrorListener(handler);
+    lexer.removeErrorListener(ConsoleErrorListener.INSTANCE);
+    parser.removeErrorListener(ConsoleErrorListener.INSTANCE);
+    parser.addErrorListener(errors);
+
+    parser.feature();
+  }
+
+  private static Reader skipBOM(Reader reader) {
+    var input = reader.markSupported() ? reader : new BufferedReader(reader);
+    try {
+      input.mark(1);
+      if (input.read() != BOM) {
+        input.reset();
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return input;
+  }
+
+  /**
+   * Переводит события парсера в события {@link GherkinEventHandler}
+   */
+  private static final class EventListener implements ParseTreeListener {
+    private final TurboGherkinParser parser;
+    private final GherkinEventHandler handler;
+    private final StringBuilder text = new StringBuilder();
+    private final List<String> cells = new ArrayList<>();
+    // блоки, для которых отправлено начало
+    private final Deque<ParserRuleContext> open = new ArrayDeque<>();
+    private boolean capturing;
+
+    private ParserRuleContext pendingBlock;
+    private Token pendingKeyword;
+    private Token stepKeyword;
+    private Token rowStart;
+    private Token docStringStart;
+    private String docString = "";
+
+    private EventListener(TurboGherkinParser parser, GherkinEventHandler handler) {
+      this.parser = parser;
+      this.handler = handler;
+    }
+
+    @Override
+    public void enterEveryRule(ParserRuleContext ctx) {
+      switch (ctx.getRuleIndex()) {
+        case TurboGherkinParser.RULE_featureName:
+        case TurboGherkinParser.RULE_name:
+        case TurboGherkinParser.RULE_tag:
+        case TurboGherkinParser.RULE_tableCellValue:
+        case TurboGherkinParser.RULE_docStringsValue:
+          capturing = true;
+          text.setLength(0);
+          break;
+        case TurboGherkinParser.RULE_tableHead:
+        case TurboGherkinParser.RULE_tableRow:
+          cells.clear();
+          rowStart = null;
+          break;
+        case TurboGherkinParser.RULE_docStrings:
+          docStringStart = null;
+          docString = "";
+          break;
+        default:
+          // прочие правила событий не порождают
+      }
+    }
+
+    @Override
+    public void visitTerminal(TerminalNode node) {
+      var token = node.getSymbol();
+      switch (parser.getContext().getRuleIndex()) {
+        case TurboGherkinParser.RULE_feature:
+        case TurboGherkinParser.RULE_businessRule:
+        case TurboGherkinParser.RULE_scenario:
+        case TurboGherkinParser.RULE_scenarioOutline:
+          if (isBlockKeyword(token.getType())) {
+            flush();
+            pendingBlock = parser.getContext();
+            pendingKeyword = token;
+          }
+          break;
+        case TurboGherkinParser.RULE_background:
+          if (token.getType() == TurboGherkinParser.BACKGROUND_KEYWORD) {
+            flush();
+            open.push(parser.getContext());
+            handler.startBackground(token.getText(), token.getLine());
+          }
+          break;
+        case TurboGherkinParser.RULE_examples:
+          if (token.getType() == TurboGherkinParser.EXAMPLES_KEYWORD
+            || token.getType() == TurboGherkinParser.SCENARIOS_KEYWORD) {
+            flush();
+            open.push(parser.getContext());
+            handler.startExamples(token.getText(), token.getLine());
+          }
+          break;
+        case TurboGherkinParser.RULE_stepKeyword:
+          stepKeyword = token;
+          break;
+        case TurboGherkinParser.RULE_tableHead:
+        case TurboGherkinParser.RULE_tableRow:
+          if (rowStart == null && token.getType() == TurboGherkinParser.BAR) {
+            rowStart = token;
+          }
+          break;
+        case TurboGherkinParser.RULE_docStrings:
+          if (docStringStart == null && token.getType() == TurboGherkinParser.DOC_STRINGS) {
+            docStringStart = token;
+          }
+          break;
+        default:
+          // прочие токены учитываются только в тексте
+      }
+      if (capturing) {
+        text.append(token.getText());
+      }
+    }
+
+    @Override
+    public void visitErrorNode(ErrorNode node) {
+      if (capturing) {
+        text.append(node.getSymbol().getText());
+      }
+    }
+
+    @Override
+    public void exitEveryRule(ParserRuleContext ctx) {
+      switch (ctx.getRuleIndex()) {
+        case TurboGherkinParser.RULE_featureName:
+          capturing = false;
+          flush(text.toString());
+          break;
+        case TurboGherkinParser.RULE_name:
+          capturing = false;
+          exitName(ctx);
+          break;
+        case TurboGherkinParser.RULE_tag:
+          capturing = false;
+          flush();
+          handler.tag(text.toString(), ctx.getStart().getLine());
+          break;
+        case TurboGherkinParser.RULE_tableCellValue:
+          capturing = false;
+          cells.add(text.toString().trim());
+          break;
+        case TurboGherkinParser.RULE_docStringsValue:
+          capturing = false;
+          docString = text.toString();
+          break;
+        case TurboGherkinParser.RULE_tableHead:
+        case TurboGherkinParser.RULE_tableRow:
+          flush();
+          handler.tableRow(List.copyOf(cells), lineOf(rowStart, ctx));
+          break;
+        case TurboGherkinParser.RULE_docStrings:
+          flush();
+          handler.docString(docString, lineOf(docStringStart, ctx));
+          break;
+        case TurboGherkinParser.RULE_feature:
+        case TurboGherkinParser.RULE_businessRule:
+        case TurboGherkinParser.RULE_background:
+        case TurboGherkinParser.RULE_scenario:
+        case TurboGherkinParser.RULE_scenarioOutline:
+        case TurboGherkinParser.RULE_examples:
+          flush();
+          if (open.peek() == ctx) {
+            open.pop();
+            end(ctx.getRuleIndex());
+          }
+          break;
+        default:
+          // прочие правила событий не порождают
+      }
+    }
+
+    private void exitName(ParserRuleContext ctx) {
+      var name = text.toString();
+      if (ctx.getParent().getRuleIndex() == TurboGherkinParser.RULE_step) {
+        flush();
+        if (stepKeyword != null) {
+          handler.step(stepKeyword.getText(), name, stepKeyword.getLine());
+          stepKeyword = null;
+        }
+      } else {
+        flush(name);
+      }
+    }
+
+    /**
+     * Отправляет начало блока, для которого уже прочитано ключевое слово, но еще нет имени
+     */
+    private void flush() {
+      flush("");
+    }
+
+    private void flush(String name) {
+      if (pendingBlock == null) {
+        return;
+      }
+      var keyword = pendingKeyword.getText();
+      var line = pendingKeyword.getLine();
+      open.push(pendingBlock);
+      switch (pendingBlock.getRuleIndex()) {
+        case TurboGherkinParser.RULE_feature:
+          handler.startFeature(keyword, name, line);
+          break;
+        case TurboGherkinParser.RULE_businessRule:
+          handler.startRule(keyword, name, line);
+          break;
+        case TurboGherkinParser.RULE_scenario:
+          handler.startScenario(keyword, name, line);
+          break;
+        default:
+          handler.startScenarioOutline(keyword, name, line);
+      }
+      pendingBlock = null;
+      pendingKeyword = null;
+    }
+
+    private void end(int ruleIndex) {
+      switch (ruleIndex) {
+        case TurboGherkinParser.RULE_feature:
+          handler.endFeature();
+          break;
+        case TurboGherkinParser.RULE_businessRule:
+          handler.endRule();
+          break;
+        case TurboGherkinParser.RULE_background:
+          handler.endBackground();
+          break;
+        case TurboGherkinParser.RULE_scenario:
+          handler.endScenario();
+          break;
+        case TurboGherkinParser.RULE_scenarioOutline:
+          handler.endScenarioOutline();
+          break;
+        default:
+          handler.endExamples();
+      }
+    }
+
+    private static boolean isBlockKeyword(int type) {
+      return type == TurboGherkinParser.FEATURE_KEYWORD
+        || type == TurboGherkinParser.RULE_KEYWORD
+        || type == TurboGherkinParser.SCENARIO_KEYWORD
+        || type == TurboGherkinParser.EXAMPLE_KEYWORD
+        || type == TurboGherkinParser.SCENARIO_OUTLINE_KEYWORD;
+    }
+
+    private static int lineOf(Token token, ParserRuleContext ctx) {
+      return token != null ? token.getLine() : ctx.getStart().getLine();
+    }
+  }
+
+  /**
+   * Источник токенов основного канала.
+   * {@link UnbufferedTokenStream}, в отличие от {@link org.antlr.v4.runtime.CommonTokenStream},
+   * не отбрасывает скрытые токены сам
+   */
+  private static final class DefaultChannelTokenSource implements TokenSource {
+    private final TokenSource source;
+
+    private DefaultChannelTokenSource(TokenSource source) {
+      this.source = source;
+    }
+
+    @Override
+    public Token nextToken() {
+      var token = source.nextToken();
+      while (token.getChannel() != Token.DEFAULT_CHANNEL) {
+        token = source.nextToken();
+      }
+      return token;
+    }
+
+    @Override
+    public int getLine() {
+      return source.getLine();
+    }
+
+    @Override
+    public int getCharPositionInLine() {
+      return source.getCharPositionInLine();
+    }
+
+    @Override
+    public CharStream getInputStream() {
+      return source.getInputStream();
+    }
+
+    @Override
+    public String getSourceName() {
+      return source.getSourceName();
+    }
+
+    @Override
+    public void setTokenFactory(TokenFactory factory) {
+      source.setTokenFactory(factory);
+    }
+
+    @Override
+    public TokenFactory getTokenFactory() {
+      return source.getTokenFactory();
+    }
+  }
+
+  /**
+   * Передает синтаксические ошибки обработчику событий
+   */
+  private static final class EventErrorListener extends BaseErrorListener {
+    private final GherkinEventHandler handler;
+
+    private EventErrorListener(GherkinEventHandler handler) {
+      this.handler = handler;
+    }
+
+    @Override
+    public <T extends Token> void syntaxError(Recognizer<T, ?> recognizer,
+                                             T offendingSymbol,
+                                             int line,
+                                             int charPositionInLine,
+                                             String msg,
+                                             RecognitionException e) {
+      handler.syntaxError(new GherkinSyntaxError(line, charPositionInLine, msg));
+    }
+  }
+}
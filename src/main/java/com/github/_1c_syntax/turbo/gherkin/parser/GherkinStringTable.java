@@ -0,0 +1,175 @@
+/*
+ * This file is a part of Turbo Gherkin Parser.
+ *
+ * Copyright © 2020-2020
+ * Valery Maximov <maximovvalery@gmail.com>, 1c-syntax team <www.github.com/1c-syntax>, BIA Technologies team <www.bia-tech.ru> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * Turbo Gherkin Parser is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * Turbo Gherkin Parser is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Turbo Gherkin Parser.
+ */
+package com.github._1c_syntax.turbo.gherkin.parser;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ObjIntConsumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * Таблица строк проекта со счетчиками использования.
+ * <p>
+ * Заменяет {@link String#intern()} при построении моделей всех фиче-файлов проекта: одинаковые тексты шагов,
+ * теги, ключевые слова и значения ячеек (в том числе заголовки таблиц) хранятся в одном экземпляре.
+ * В отличие от {@link String#intern()} строка удаляется из таблицы, когда освобождены все модели,
+ * которые ее используют, а счетчики позволяют строить статистику по проекту.
+ * Класс потокобезопасен, один экземпляр разделяется всеми потоками разбора.
+ * <pre>
+ * var strings = new GherkinStringTable();
+ * var builder = new GherkinModelBuilder(strings);
+ * var feature = builder.build(new GherkinTokenizer(content).getAst());
+ * ...
+ * strings.release(feature); // перед заменой модели после повторного разбора
+ * </pre>
+ */
+public class GherkinStringTable implements UnaryOperator<String> {
+  private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+  /**
+   * Возвращает экземпляр строки из таблицы и увеличивает ее счетчик использования
+   *
+   * @param value строка
+   * @return равная строка из таблицы
+   */
+  @Override
+  public String apply(String value) {
+    return entries.compute(value, (key, entry) -> {
+      var current = entry == null ? new Entry(key) : entry;
+      current.count++;
+      return current;
+    }).value;
+  }
+
+  /**
+   * Уменьшает счетчик использования строки, строка с нулевым счетчиком удаляется из таблицы
+   *
+   * @param value строка, ранее полученная из {@link #apply(String)}
+   */
+  public void release(String value) {
+    entries.computeIfPresent(value, (key, entry) -> --entry.count == 0 ? null : entry);
+  }
+
+  /**
+   * Освобождает строки модели, интернированные {@link GherkinModelBuilder} или {@link GherkinLineScanner}
+   *
+   * @param feature модель, построенная с этой таблицей
+   */
+  public void release(Feature feature) {
+    releaseAll(feature.getTags());
+    release(feature.getKeyword());
+    release(feature.getName());
+    feature.getBackground().ifPresent(this::releaseBackground);
+    for (var rule : feature.getRules()) {
+      release(rule.getKeyword());
+      release(rule.getName());
+      rule.getBackground().ifPresent(this::releaseBackground);
+      releaseScenarios(rule.getScenarios());
+    }
+    releaseScenarios(feature.getScenarios());
+  }
+
+  /**
+   * Освобождает имена столбцов таблицы, построенной {@link ColumnarTable#of(char[], int, int, UnaryOperator)}
+   *
+   * @param table таблица, построенная с этой таблицей строк
+   */
+  public void release(ColumnarTable table) {
+    releaseAll(table.getHeaders());
+  }
+
+  /**
+   * @param value строка
+   * @return число использований строки, 0 для отсутствующей в таблице
+   */
+  public int getUsageCount(String value) {
+    var entry = entries.get(value);
+    return entry == null ? 0 : entry.count;
+  }
+
+  /**
+   * @return число различных строк в таблице
+   */
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * Перебирает строки таблицы с их счетчиками использования
+   *
+   * @param action получатель строки и счетчика
+   */
+  public void forEach(ObjIntConsumer<String> action) {
+    entries.forEach((key, entry) -> action.accept(entry.value, entry.count));
+  }
+
+  private void releaseBackground(Background background) {
+    release(background.getKeyword());
+    releaseSteps(background.getSteps());
+  }
+
+  private void releaseScenarios(List<ScenarioDefinition> scenarios) {
+    for (var scenario : scenarios) {
+      release(scenario.getKeyword());
+      release(scenario.getName());
+      releaseSteps(scenario.getSteps());
+      if (scenario instanceof ScenarioOutline) {
+        ((ScenarioOutline) scenario).getExamples().ifPresent(examples -> {
+          release(examples.getKeyword());
+          releaseTable(examples.getTable());
+        });
+      }
+    }
+  }
+
+  private void releaseSteps(List<Step> steps) {
+    for (var step : steps) {
+      release(step.getKeyword());
+      release(step.getText());
+      step.getTable().ifPresent(this::releaseTable);
+    }
+  }
+
+  private void releaseTable(Table table) {
+    for (var row : table.getRows()) {
+      releaseAll(row.getCells());
+    }
+  }
+
+  private void releaseAll(List<String> values) {
+    for (var value : values) {
+      release(value);
+    }
+  }
+
+  /**
+   * Строка таблицы со счетчиком. Счетчик изменяется только внутри блокировки корзины {@link ConcurrentHashMap}
+   */
+  private static final class Entry {
+    private final String value;
+    private volatile int count;
+
+    private Entry(String value) {
+      this.value = value;
+    }
+  }
+}
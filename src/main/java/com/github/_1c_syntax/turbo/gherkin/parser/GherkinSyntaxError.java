@@ -0,0 +1,60 @@
+/*
+ * This file is a part of Turbo Gherkin Parser.
+ *
+ * Copyright © 2020-2020
+ * Valery Maximov <maximovvalery@gmail.com>, 1c-syntax team <www.github.com/1c-syntax>, BIA Technologies team <www.bia-tech.ru> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * Turbo Gherkin Parser is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * Turbo Gherkin Parser is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Turbo Gherkin Parser.
+ */
+package com.github._1c_syntax.turbo.gherkin.parser;
+
+/**
+ * Синтаксическая ошибка разбора фиче-файла
+ */
+public final class GherkinSyntaxError {
+  private final int line;
+  private final int column;
+  private final String message;
+
+  public GherkinSyntaxError(int line, int column, String message) {
+    this.line = line;
+    this.column = column;
+    this.message = message;
+  }
+
+  /**
+   * @return номер строки, начиная с 1
+   */
+  public int getLine() {
+    return line;
+  }
+
+  /**
+   * @return позиция в строке, начиная с 0
+   */
+  public int getColumn() {
+    return column;
+  }
+
+  public String getMessage() {
+    return message;
+  }
+
+  @Override
+  public String toString() {
+    return "line " + line + ":" + column + " " + message;
+  }
+}
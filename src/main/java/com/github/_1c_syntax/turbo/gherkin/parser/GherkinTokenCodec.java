@@ -0,0 +1,291 @@
+/*
+ * This file is a part of Turbo Gherkin Parser.
+ *
+ * Copyright © 2020-2020
+ * Valery Maximov <maximovvalery@gmail.com>, 1c-syntax team <www.github.com/1c-syntax>, BIA Technologies team <www.bia-tech.ru> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * Turbo Gherkin Parser is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * Turbo Gherkin Parser is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Turbo Gherkin Parser.
+ */
+package com.github._1c_syntax.turbo.gherkin.parser;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CommonToken;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ListTokenSource;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenSource;
+import org.antlr.v4.runtime.misc.Tuple;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Компактный двоичный формат потока токенов {@link TurboGherkinLexer} для передачи между процессами.
+ * <p>
+ * Текст токенов не хранится, он берется из содержимого файла. Для каждого токена записываются числа
+ * переменной длины (varint): тип, канал, смещение начала относительно конца предыдущего токена, длина,
+ * приращение номера строки и позиция в строке (при той же строке - относительно конца предыдущего токена).
+ * Токены лексера идут подряд, поэтому большинство чисел равно нулю или единице и токен занимает 6 байт.
+ * Прочитанный поток передается в {@link TurboGherkinParser} без повторного лексического разбора.
+ * <pre>
+ * var bytes = GherkinTokenCodec.encode(new GherkinTokenizer(content).getTokens());
+ * ...
+ * var parser = new TurboGherkinParser(GherkinTokenCodec.decode(bytes, content));
+ * </pre>
+ */
+public final class GherkinTokenCodec {
+
+  private static final int MAGIC = 0x54474b53;
+  private static final int FORMAT_VERSION = 1;
+
+  private GherkinTokenCodec() {
+    // utils
+  }
+
+  /**
+   * Кодирует токены
+   *
+   * @param tokens токены всех каналов в порядке лексера, EOF необязателен
+   * @return закодированный поток
+   */
+  public static byte[] encode(List<? extends Token> tokens) {
+    var out = new Output(tokens.size() * 6 + 16);
+    encode(out, tokens);
+    return Arrays.copyOf(out.bytes, out.size);
+  }
+
+  /**
+   * Записывает закодированные токены в поток
+   *
+   * @param out    поток записи
+   * @param tokens токены всех каналов в порядке лексера, EOF необязателен
+   * @throws IOException ошибка записи
+   */
+  public static void write(OutputStream out, List<? extends Token> tokens) throws IOException {
+    var output = new Output(tokens.size() * 6 + 16);
+    encode(output, tokens);
+    out.write(output.bytes, 0, output.size);
+  }
+
+  /**
+   * Восстанавливает поток токенов
+   *
+   * @param data    закодированный поток
+   * @param content содержимое файла, из которого получены токены
+   * @return поток токенов для парсера
+   * @throws IOException данные повреждены или не соответствуют содержимому
+   */
+  public static CommonTokenStream decode(byte[] data, String content) throws IOException {
+    return read(new ByteArrayInputStream(data), GherkinCharStreams.fromString(content));
+  }
+
+  /**
+   * Читает закодированные токены из потока. Поток читается побайтно, поэтому должен быть буферизован
+   *
+   * @param in    поток чтения
+   * @param input символы файла, из которого получены токены
+   * @return поток токенов для парсера
+   * @throws IOException ошибка чтения, данные повреждены или не соответствуют содержимому
+   */
+  public static CommonTokenStream read(InputStream in, CharStream input) throws IOException {
+    var tokens = new ArrayList<Token>();
+    // источник хранит ссылку на список и отдает токены по мере заполнения,
+    // он же нужен парсеру для создания недостающих токенов при восстановлении после ошибок
+    var tokenSource = new ListTokenSource(tokens);
+    read(in, input, tokenSource, tokens);
+    return new CommonTokenStream(tokenSource);
+  }
+
+  /**
+   * Читает закодированные токены из потока в список
+   *
+   * @param in    поток чтения
+   * @param input символы файла, из которого получены токены
+   * @return токены в порядке лексера
+   * @throws IOException ошибка чтения, данные повреждены или не соответствуют содержимому
+   */
+  static List<Token> readTokens(InputStream in, CharStream input) throws IOException {
+    var tokens = new ArrayList<Token>();
+    read(in, input, new ListTokenSource(tokens), tokens);
+    return tokens;
+  }
+
+  private static void read(InputStream in, CharStream input, TokenSource tokenSource, ArrayList<Token> tokens)
+    throws IOException {
+    if (readInt(in) != MAGIC || readVarint(in) != FORMAT_VERSION) {
+      throw new IOException("Not a token stream");
+    }
+    var size = input.size();
+    if (readVarint(in) != size) {
+      throw new IOException("Token stream does not match content");
+    }
+    // все токены, кроме EOF, непустые
+    var count = readBounded(in, size + 1);
+    tokens.ensureCapacity(count);
+    var source = Tuple.<TokenSource, CharStream>create(tokenSource, input);
+    var end = 0;
+    var line = 1;
+    var column = 0;
+    for (var i = 0; i < count; i++) {
+      var type = readVarint(in) - 1;
+      var channel = readVarint(in);
+      var start = end + zigzagDecode(readVarint(in));
+      var length = readBounded(in, size);
+      if (start < 0 || start + length > size) {
+        throw new IOException("Corrupted token stream");
+      }
+      var lineDelta = readVarint(in);
+      var columnValue = readVarint(in);
+      if (lineDelta == 0) {
+        column += zigzagDecode(columnValue);
+      } else {
+        line += lineDelta;
+        column = columnValue;
+      }
+
+      var token = new CommonToken(source, type, channel, start, start + length - 1);
+      token.setLine(line);
+      token.setCharPositionInLine(column);
+      token.setTokenIndex(i);
+      tokens.add(token);
+      end = start + length;
+      column += length;
+    }
+  }
+
+  private static void encode(Output out, List<? extends Token> tokens) {
+    out.writeInt(MAGIC);
+    out.writeVarint(FORMAT_VERSION);
+    // длина содержимого: конец последнего токена, у EOF начало совпадает с концом
+    var last = tokens.isEmpty() ? null : tokens.get(tokens.size() - 1);
+    out.writeVarint(last == null ? 0 : Math.max(last.getStartIndex(), last.getStopIndex() + 1));
+    out.writeVarint(tokens.size());
+
+    var end = 0;
+    var line = 1;
+    var column = 0;
+    for (var token : tokens) {
+      var length = token.getStopIndex() - token.getStartIndex() + 1;
+      out.writeVarint(token.getType() + 1);
+      out.writeVarint(token.getChannel());
+      out.writeVarint(zigzagEncode(token.getStartIndex() - end));
+      out.writeVarint(length);
+      if (token.getLine() == line) {
+        out.writeVarint(0);
+        out.writeVarint(zigzagEncode(token.getCharPositionInLine() - column));
+      } else {
+        out.writeVarint(token.getLine() - line);
+        out.writeVarint(token.getCharPositionInLine());
+      }
+      end = token.getStartIndex() + length;
+      line = token.getLine();
+      column = token.getCharPositionInLine() + length;
+    }
+  }
+
+  static int zigzagEncode(int value) {
+    return (value << 1) ^ (value >> 31);
+  }
+
+  static int zigzagDecode(int value) {
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  private static int readBounded(InputStream in, int max) throws IOException {
+    var value = readVarint(in);
+    if (value < 0 || value > max) {
+      throw new IOException("Corrupted token stream");
+    }
+    return value;
+  }
+
+  private static int readInt(InputStream in) throws IOException {
+    var value = 0;
+    for (var i = 0; i < Integer.BYTES; i++) {
+      value = (value << 8) | readByte(in);
+    }
+    return value;
+  }
+
+  /**
+   * Записывает неотрицательное число переменной длины, по 7 бит в байте
+   */
+  static void writeVarint(OutputStream out, int value) throws IOException {
+    while ((value & ~0x7f) != 0) {
+      out.write((value & 0x7f) | 0x80);
+      value >>>= 7;
+    }
+    out.write(value);
+  }
+
+  static int readVarint(InputStream in) throws IOException {
+    var value = 0;
+    for (var shift = 0; shift < 35; shift += 7) {
+      var b = readByte(in);
+      value |= (b & 0x7f) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IOException("Corrupted token stream");
+  }
+
+  private static int readByte(InputStream in) throws IOException {
+    var b = in.read();
+    if (b < 0) {
+      throw new IOException("Truncated token stream");
+    }
+    return b;
+  }
+
+  /**
+   * Растущий буфер записи
+   */
+  private static final class Output {
+    private byte[] bytes;
+    private int size;
+
+    private Output(int capacity) {
+      bytes = new byte[capacity];
+    }
+
+    private void writeInt(int value) {
+      for (var shift = 24; shift >= 0; shift -= 8) {
+        write(value >>> shift);
+      }
+    }
+
+    private void writeVarint(int value) {
+      while ((value & ~0x7f) != 0) {
+        write((value & 0x7f) | 0x80);
+        value >>>= 7;
+      }
+      write(value);
+    }
+
+    private void write(int b) {
+      if (size == bytes.length) {
+        bytes = Arrays.copyOf(bytes, size * 2);
+      }
+      bytes[size++] = (byte) b;
+    }
+  }
+}
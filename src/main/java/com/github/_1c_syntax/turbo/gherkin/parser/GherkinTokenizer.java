@@ -22,19 +22,258 @@
 package com.github._1c_syntax.turbo.gherkin.parser;
 
 import com.github._1c_syntax.bsl.parser.Tokenizer;
+import org.antlr.v4.runtime.ANTLRErrorListener;
+import org.antlr.v4.runtime.ANTLRErrorStrategy;
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.CharStream;
 import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.Parser;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.atn.ATNConfigSet;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.atn.SimulatorState;
+import org.antlr.v4.runtime.dfa.DFA;
+import org.antlr.v4.runtime.tree.ParseTree;
+
+import java.util.ArrayDeque;
+import java.util.BitSet;
 
 /**
  * Токенайзер
  * Расширяет класс Tokenizer из bsl-parser
  */
 public class GherkinTokenizer extends Tokenizer<TurboGherkinParser.FeatureContext, TurboGherkinParser> {
+  private final String content;
+  private final ParseStrategy strategy;
+  private PredictionMode predictionMode;
+  private ParseMetricsListener metricsListener;
+  private ANTLRErrorStrategy errorStrategy;
+  private ANTLRErrorListener<? super Token> errorListener;
+  private final MeasuredLexer lexer;
+  private ParseBudget.Tracker budgetTracker;
+
   public GherkinTokenizer(String content) {
-    super(content, new TurboGherkinLexer(CharStreams.fromString(""), true), TurboGherkinParser.class);
+    this(content, ParseStrategy.LL);
+  }
+
+  public GherkinTokenizer(String content, ParseStrategy strategy) {
+    this(content, strategy, false);
+  }
+
+  /**
+   * @param content    содержимое фиче-файла
+   * @param strategy   стратегия разбора
+   * @param wordTokens true для режима слов лексера, см. {@link TurboGherkinLexer#setWordTokens(boolean)}
+   */
+  public GherkinTokenizer(String content, ParseStrategy strategy, boolean wordTokens) {
+    this(content, strategy, createLexer(wordTokens));
+  }
+
+  private GherkinTokenizer(String content, ParseStrategy strategy, MeasuredLexer lexer) {
+    super(content, lexer, TurboGherkinParser.class);
+    this.content = content;
+    this.strategy = strategy;
+    this.lexer = lexer;
+  }
+
+  /**
+   * Устанавливает получателя метрик разбора. Устанавливается до первого обращения к дереву,
+   * без получателя метрики не собираются
+   *
+   * @param metricsListener получатель метрик или null
+   */
+  public void setMetricsListener(ParseMetricsListener metricsListener) {
+    this.metricsListener = metricsListener;
+  }
+
+  /**
+   * Устанавливает стратегию восстановления после ошибок, например {@link GherkinErrorStrategy}.
+   * Устанавливается до первого обращения к дереву, по умолчанию используется стратегия ANTLR
+   *
+   * @param errorStrategy стратегия восстановления или null
+   */
+  public void setErrorStrategy(ANTLRErrorStrategy errorStrategy) {
+    this.errorStrategy = errorStrategy;
+  }
+
+  /**
+   * Устанавливает слушателя синтаксических ошибок парсера
+   */
+  void setErrorListener(ANTLRErrorListener<? super Token> errorListener) {
+    this.errorListener = errorListener;
+  }
+
+  /**
+   * Устанавливает бюджет разбора. Устанавливается до первого обращения к токенам или дереву.
+   * Бюджет распространяется на лексический и синтаксический разбор: при его исчерпании
+   * {@link #getTokens()} и {@link #getAst()} выбрасывают {@link ParseAbortedException}
+   *
+   * @param budget бюджет разбора или null
+   */
+  public void setBudget(ParseBudget budget) {
+    budgetTracker = budget == null ? null : budget.start();
+    lexer.budgetTracker = budgetTracker;
+  }
+
+  /**
+   * @return стратегия разбора
+   */
+  public ParseStrategy getStrategy() {
+    return strategy;
+  }
+
+  /**
+   * Возвращает режим предсказания, в котором было успешно построено дерево.
+   * При необходимости выполняет разбор
+   *
+   * @return {@link PredictionMode#SLL}, если хватило первого этапа, иначе {@link PredictionMode#LL}
+   */
+  public PredictionMode getPredictionMode() {
+    getAst();
+    return predictionMode;
   }
 
   @Override
   protected TurboGherkinParser.FeatureContext rootAST() {
-    return parser.feature();
+    if (errorStrategy != null) {
+      errorStrategy.reset(parser);
+      parser.setErrorHandler(errorStrategy);
+    }
+    // повторный вызов не должен добавлять слушателей второй раз
+    if (errorListener != null) {
+      parser.removeErrorListener(errorListener);
+      parser.addErrorListener(errorListener);
+    }
+    if (budgetTracker != null) {
+      parser.removeParseListener(budgetTracker);
+      parser.addParseListener(budgetTracker);
+    }
+    if (metricsListener == null) {
+      return strategy.parse(parser, mode -> predictionMode = mode);
+    }
+
+    // без reportAmbiguities симулятор не сообщает слушателям о конфликтах и полном контексте
+    var interpreter = parser.getInterpreter();
+    var reportAmbiguities = interpreter.reportAmbiguities;
+    var reports = new PredictionReportCounter();
+    parser.addErrorListener(reports);
+    interpreter.reportAmbiguities = true;
+    TurboGherkinParser.FeatureContext feature;
+    long parsingNanos;
+    try {
+      var start = System.nanoTime();
+      feature = strategy.parse(parser, mode -> predictionMode = mode);
+      parsingNanos = System.nanoTime() - start;
+    } finally {
+      interpreter.reportAmbiguities = reportAmbiguities;
+      parser.removeErrorListener(reports);
+    }
+
+    var tokenStream = parser.getInputStream();
+    metricsListener.parsed(new ParseMetrics(lexer.lexingNanos, parsingNanos, tokenStream.size(),
+      countNodes(feature), strategy == ParseStrategy.SLL_THEN_LL && predictionMode == PredictionMode.LL ? 1 : 0,
+      reports.ambiguities, reports.fullContextAttempts, reports.contextSensitivities,
+      parser.getNumberOfSyntaxErrors(), utf8Length(content)));
+    return feature;
+  }
+
+  private static int countNodes(ParseTree root) {
+    var count = 0;
+    var stack = new ArrayDeque<ParseTree>();
+    stack.push(root);
+    while (!stack.isEmpty()) {
+      var node = stack.pop();
+      count++;
+      for (var i = 0; i < node.getChildCount(); i++) {
+        stack.push(node.getChild(i));
+      }
+    }
+    return count;
+  }
+
+  private static long utf8Length(String content) {
+    var length = 0L;
+    for (var i = 0; i < content.length(); i++) {
+      var c = content.charAt(i);
+      if (c < 0x80) {
+        length++;
+      } else if (c < 0x800) {
+        length += 2;
+      } else if (Character.isHighSurrogate(c) && i + 1 < content.length()
+        && Character.isLowSurrogate(content.charAt(i + 1))) {
+        length += 4;
+        i++;
+      } else {
+        length += 3;
+      }
+    }
+    return length;
+  }
+
+  private static MeasuredLexer createLexer(boolean wordTokens) {
+    var lexer = new MeasuredLexer(CharStreams.fromString(""));
+    lexer.setWordTokens(wordTokens);
+    return lexer;
+  }
+
+  /**
+   * Лексер, измеряющий время от первого токена до EOF
+   */
+  private static final class MeasuredLexer extends TurboGherkinLexer {
+    private long start = -1;
+    private long lexingNanos;
+    private ParseBudget.Tracker budgetTracker;
+
+    private MeasuredLexer(CharStream input) {
+      super(input, true);
+    }
+
+    @Override
+    public void reset() {
+      super.reset();
+      start = -1;
+    }
+
+    @Override
+    public Token nextToken() {
+      if (start < 0) {
+        start = System.nanoTime();
+      }
+      var token = super.nextToken();
+      if (budgetTracker != null) {
+        budgetTracker.token();
+      }
+      if (token.getType() == Token.EOF) {
+        lexingNanos = System.nanoTime() - start;
+      }
+      return token;
+    }
+  }
+
+  /**
+   * Считает сообщения симулятора ATN о неоднозначностях и переходах к полному контексту
+   */
+  private static final class PredictionReportCounter extends BaseErrorListener {
+    private int ambiguities;
+    private int fullContextAttempts;
+    private int contextSensitivities;
+
+    @Override
+    public void reportAmbiguity(Parser recognizer, DFA dfa, int startIndex, int stopIndex, boolean exact,
+                                BitSet ambigAlts, ATNConfigSet configs) {
+      ambiguities++;
+    }
+
+    @Override
+    public void reportAttemptingFullContext(Parser recognizer, DFA dfa, int startIndex, int stopIndex,
+                                            BitSet conflictingAlts, SimulatorState conflictState) {
+      fullContextAttempts++;
+    }
+
+    @Override
+    public void reportContextSensitivity(Parser recognizer, DFA dfa, int startIndex, int stopIndex,
+                                         int prediction, SimulatorState acceptState) {
+      contextSensitivities++;
+    }
   }
 }
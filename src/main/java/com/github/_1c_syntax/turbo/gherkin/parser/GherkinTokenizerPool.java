@@ -0,0 +1,217 @@
+/*
+ * This file is a part of Turbo Gherkin Parser.
+ *
+ * Copyright © 2020-2020
+ * Valery Maximov <maximovvalery@gmail.com>, 1c-syntax team <www.github.com/1c-syntax>, BIA Technologies team <www.bia-tech.ru> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * Turbo Gherkin Parser is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * Turbo Gherkin Parser is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Turbo Gherkin Parser.
+ */
+package com.github._1c_syntax.turbo.gherkin.parser;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ConsoleErrorListener;
+import org.antlr.v4.runtime.atn.PredictionMode;
+
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Пул пар лексер/парсер для разбора большого количества файлов.
+ * <p>
+ * В отличие от {@link GherkinTokenizer}, который создает лексер и парсер на каждый файл,
+ * пул переиспользует их, перенастраивая на новый вход через setInputStream.
+ * На каждый файл создаются только зависящие от входа объекты: поток символов, токены и дерево.
+ * Пул потокобезопасен, пара выдается в монопольное использование до возврата.
+ * <pre>
+ * var pool = new GherkinTokenizerPool();
+ * var feature = pool.parse(content);
+ * // или
+ * try (var lease = pool.acquire()) {
+ *   var feature = lease.parse(content);
+ * }
+ * </pre>
+ */
+public class GherkinTokenizerPool {
+
+  private final ConcurrentLinkedDeque<Lease> idle = new ConcurrentLinkedDeque<>();
+  private final AtomicInteger idleCount = new AtomicInteger();
+  private final int maxIdle;
+  private final ParseStrategy strategy;
+
+  public GherkinTokenizerPool() {
+    this(Runtime.getRuntime().availableProcessors(), ParseStrategy.LL);
+  }
+
+  /**
+   * @param maxIdle  максимальное количество хранимых свободных пар, лишние пары при возврате отбрасываются
+   * @param strategy стратегия разбора
+   */
+  public GherkinTokenizerPool(int maxIdle, ParseStrategy strategy) {
+    if (maxIdle < 0) {
+      throw new IllegalArgumentException("maxIdle must not be negative: " + maxIdle);
+    }
+    this.maxIdle = maxIdle;
+    this.strategy = strategy;
+  }
+
+  /**
+   * Выдает свободную пару лексер/парсер или создает новую.
+   * Пару необходимо вернуть в пул вызовом {@link Lease#close()}
+   *
+   * @return пара в монопольном использовании
+   */
+  public Lease acquire() {
+    var lease = idle.pollFirst();
+    if (lease == null) {
+      return new Lease();
+    }
+    idleCount.decrementAndGet();
+    lease.released = false;
+    return lease;
+  }
+
+  /**
+   * Разбирает содержимое фиче-файла на пару из пула
+   *
+   * @param content содержимое фиче-файла
+   * @return корень дерева разбора
+   */
+  public TurboGherkinParser.FeatureContext parse(String content) {
+    try (var lease = acquire()) {
+      return lease.parse(content);
+    }
+  }
+
+  /**
+   * @return количество свободных пар в пуле
+   */
+  public int getIdleCount() {
+    return idleCount.get();
+  }
+
+  private void release(Lease lease) {
+    if (idleCount.incrementAndGet() <= maxIdle) {
+      idle.offerFirst(lease);
+    } else {
+      idleCount.decrementAndGet();
+    }
+  }
+
+  /**
+   * Выданная из пула пара лексер/парсер
+   */
+  public final class Lease implements AutoCloseable {
+    private final TurboGherkinLexer lexer;
+    private final TurboGherkinParser parser;
+    private final CharStream emptyInput = CharStreams.fromString("");
+    private final CommonTokenStream emptyTokenStream;
+    private PredictionMode predictionMode;
+    private boolean released;
+
+    private Lease() {
+      lexer = new TurboGherkinLexer(emptyInput, true);
+      lexer.removeErrorListener(ConsoleErrorListener.INSTANCE);
+      emptyTokenStream = new CommonTokenStream(lexer);
+      parser = new TurboGherkinParser(emptyTokenStream);
+      parser.removeErrorListener(ConsoleErrorListener.INSTANCE);
+    }
+
+    public TurboGherkinLexer getLexer() {
+      return lexer;
+    }
+
+    public TurboGherkinParser getParser() {
+      return parser;
+    }
+
+    /**
+     * Перенастраивает лексер на новое содержимое и выполняет лексический анализ
+     *
+     * @param content содержимое фиче-файла
+     * @return заполненный поток токенов
+     */
+    public CommonTokenStream tokenize(String content) {
+      return tokenize(GherkinCharStreams.fromString(content));
+    }
+
+    /**
+     * Перенастраивает лексер на подготовленный поток символов и выполняет лексический анализ
+     *
+     * @param input поток символов, например из {@link GherkinCharStreams#fromPath}
+     * @return заполненный поток токенов
+     */
+    public CommonTokenStream tokenize(CharStream input) {
+      checkNotReleased();
+      lexer.setInputStream(input);
+      var tokenStream = new CommonTokenStream(lexer);
+      tokenStream.fill();
+      return tokenStream;
+    }
+
+    /**
+     * Перенастраивает лексер и парсер на новое содержимое и выполняет разбор
+     *
+     * @param content содержимое фиче-файла
+     * @return корень дерева разбора
+     */
+    public TurboGherkinParser.FeatureContext parse(String content) {
+      return parse(GherkinCharStreams.fromString(content));
+    }
+
+    /**
+     * Перенастраивает лексер и парсер на подготовленный поток символов и выполняет разбор
+     *
+     * @param input поток символов, например из {@link GherkinCharStreams#fromPath}
+     * @return корень дерева разбора
+     */
+    public TurboGherkinParser.FeatureContext parse(CharStream input) {
+      var tokenStream = tokenize(input);
+      parser.setInputStream(tokenStream);
+      return strategy.parse(parser, mode -> predictionMode = mode);
+    }
+
+    /**
+     * @return режим предсказания, в котором построено дерево последнего разбора
+     */
+    public PredictionMode getPredictionMode() {
+      return predictionMode;
+    }
+
+    /**
+     * Возвращает пару в пул
+     */
+    @Override
+    public void close() {
+      if (released) {
+        return;
+      }
+      released = true;
+      // не удерживаем последний вход до следующей выдачи
+      parser.setInputStream(emptyTokenStream);
+      lexer.setInputStream(emptyInput);
+      predictionMode = null;
+      release(this);
+    }
+
+    private void checkNotReleased() {
+      if (released) {
+        throw new IllegalStateException("Lease is already returned to the pool");
+      }
+    }
+  }
+}
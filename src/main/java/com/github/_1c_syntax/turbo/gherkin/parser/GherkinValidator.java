@@ -0,0 +1,120 @@
+/*
+ * This file is a part of Turbo Gherkin Parser.
+ *
+ * Copyright © 2020-2020
+ * Valery Maximov <maximovvalery@gmail.com>, 1c-syntax team <www.github.com/1c-syntax>, BIA Technologies team <www.bia-tech.ru> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * Turbo Gherkin Parser is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * Turbo Gherkin Parser is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Turbo Gherkin Parser.
+ */
+package com.github._1c_syntax.turbo.gherkin.parser;
+
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ConsoleErrorListener;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Recognizer;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.TokenSource;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Проверка синтаксиса фиче-файла без построения дерева разбора.
+ * <p>
+ * Парсер работает с выключенным построением дерева. Сначала выполняется быстрый разбор
+ * {@link ParseStrategy#SLL_THEN_LL} с прерыванием на первой ошибке, для корректных файлов на этом проверка
+ * заканчивается. Иначе разбор в режиме LL останавливается на первой ошибке, о которой сообщил бы
+ * обычный разбор, и возвращается ее позиция. Класс потокобезопасен.
+ * <pre>
+ * new GherkinValidator().validate(path)
+ *   .ifPresent(error -&gt; System.err.println(path + ":" + error));
+ * </pre>
+ */
+public class GherkinValidator {
+
+  /**
+   * Проверяет содержимое фиче-файла
+   *
+   * @param content содержимое фиче-файла
+   * @return первая синтаксическая ошибка или пустое значение для корректного файла
+   */
+  public Optional<GherkinSyntaxError> validate(String content) {
+    return check(new GherkinFastLexer(content));
+  }
+
+  /**
+   * Проверяет фиче-файл
+   *
+   * @param path путь к фиче-файлу
+   * @return первая синтаксическая ошибка или пустое значение для корректного файла
+   * @throws IOException ошибка чтения файла
+   */
+  public Optional<GherkinSyntaxError> validate(Path path) throws IOException {
+    return validate(GherkinCharStreams.fromPath(path));
+  }
+
+  /**
+   * Проверяет подготовленный поток символов
+   *
+   * @param input поток символов, например из {@link GherkinCharStreams#fromByteBuffer}
+   * @return первая синтаксическая ошибка или пустое значение для корректного файла
+   */
+  public Optional<GherkinSyntaxError> validate(CharStream input) {
+    var lexer = new TurboGherkinLexer(input, true);
+    lexer.removeErrorListener(ConsoleErrorListener.INSTANCE);
+    return check(lexer);
+  }
+
+  private static Optional<GherkinSyntaxError> check(TokenSource tokenSource) {
+    var parser = new TurboGherkinParser(new CommonTokenStream(tokenSource));
+    parser.removeErrorListener(ConsoleErrorListener.INSTANCE);
+    parser.setBuildParseTree(false);
+    var firstError = new FirstErrorListener();
+    parser.addErrorListener(firstError);
+    try {
+      ParseStrategy.SLL_THEN_LL.parse(parser, mode -> { });
+      return Optional.empty();
+    } catch (ParseCancellationException e) {
+      if (firstError.error == null) {
+        throw e;
+      }
+      return Optional.of(firstError.error);
+    }
+  }
+
+  /**
+   * Запоминает первую ошибку и прерывает разбор.
+   * На этапе SLL ошибки слушателям не сообщаются, поэтому слушатель срабатывает только на этапе LL
+   */
+  private static class FirstErrorListener extends BaseErrorListener {
+    private GherkinSyntaxError error;
+
+    @Override
+    public <T extends Token> void syntaxError(Recognizer<T, ?> recognizer,
+                                             T offendingSymbol,
+                                             int line,
+                                             int charPositionInLine,
+                                             String msg,
+                                             RecognitionException e) {
+      error = new GherkinSyntaxError(line, charPositionInLine, msg);
+      throw new ParseCancellationException(msg, e);
+    }
+  }
+}
@@ -0,0 +1,180 @@
+/*
+ * This file is a part of Turbo Gherkin Parser.
+ *
+ * Copyright © 2020-2020
+ * Valery Maximov <maximovvalery@gmail.com>, 1c-syntax team <www.github.com/1c-syntax>, BIA Technologies team <www.bia-tech.ru> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * Turbo Gherkin Parser is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * Turbo Gherkin Parser is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Turbo Gherkin Parser.
+ */
+package com.github._1c_syntax.turbo.gherkin.parser;
+
+import org.antlr.v4.runtime.atn.ATNState;
+import org.antlr.v4.runtime.atn.RuleStopState;
+import org.antlr.v4.runtime.atn.RuleTransition;
+import org.antlr.v4.runtime.atn.Transition;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+/**
+ * Префиксное дерево ключевых слов лексера по символам в верхнем регистре.
+ * <p>
+ * Строится из ATN правил *_KEYWORD {@link TurboGherkinLexer}, а не из отдельного списка,
+ * поэтому изменения ключевых слов в грамматике подхватываются автоматически.
+ * Так как {@link com.github._1c_syntax.bsl.parser.CaseChangingCharStream} переводит вход в верхний регистр,
+ * из наборов символов фрагментов берутся только символы верхнего регистра
+ */
+final class KeywordTrie {
+
+  private static final String KEYWORD_SUFFIX = "_KEYWORD";
+  private static final int MAX_KEYWORD_LENGTH = 64;
+
+  static final KeywordTrie INSTANCE = fromLexerATN();
+
+  private final Node root = new Node();
+
+  private KeywordTrie() {
+  }
+
+  /**
+   * Ищет самое длинное ключевое слово, начинающееся с позиции в тексте
+   *
+   * @param text   текст
+   * @param start  индекс символа начала
+   * @param length длина текста
+   * @return длина в символах UTF-16 в младших 32 битах и тип токена в старших, 0 если ключевое слово не найдено
+   */
+  long match(char[] text, int start, int length) {
+    var node = root;
+    var result = 0L;
+    var index = start;
+    while (index < length) {
+      var codePoint = Character.codePointAt(text, index, length);
+      node = node.next(Character.toUpperCase(codePoint));
+      if (node == null) {
+        break;
+      }
+      index += Character.charCount(codePoint);
+      if (node.type != 0) {
+        result = ((long) node.type << 32) | (index - start);
+      }
+    }
+    return result;
+  }
+
+  private void add(int[] keyword, int length, int type) {
+    var node = root;
+    for (var i = 0; i < length; i++) {
+      node = node.child(keyword[i]);
+    }
+    // при совпадении строк выигрывает правило, объявленное раньше, как в лексере ANTLR
+    if (node.type == 0 || type < node.type) {
+      node.type = type;
+    }
+  }
+
+  private static KeywordTrie fromLexerATN() {
+    var trie = new KeywordTrie();
+    var atn = TurboGherkinLexer._ATN;
+    var ruleNames = TurboGherkinLexer.ruleNames;
+    for (var rule = 0; rule < ruleNames.length; rule++) {
+      if (ruleNames[rule].endsWith(KEYWORD_SUFFIX)) {
+        collect(trie, atn.ruleToStartState[rule], new int[MAX_KEYWORD_LENGTH], 0,
+          new ArrayDeque<>(), atn.ruleToTokenType[rule]);
+      }
+    }
+    return trie;
+  }
+
+  /**
+   * Перечисляет все строки конечного языка правила обходом ATN в глубину
+   */
+  private static void collect(KeywordTrie trie, ATNState state, int[] prefix, int length,
+                              Deque<ATNState> returnStates, int type) {
+    if (state instanceof RuleStopState) {
+      if (returnStates.isEmpty()) {
+        trie.add(prefix, length, type);
+        return;
+      }
+      var follow = returnStates.pop();
+      collect(trie, follow, prefix, length, returnStates, type);
+      returnStates.push(follow);
+      return;
+    }
+
+    for (var i = 0; i < state.getNumberOfTransitions(); i++) {
+      var transition = state.transition(i);
+      if (transition instanceof RuleTransition) {
+        returnStates.push(((RuleTransition) transition).followState);
+        collect(trie, transition.target, prefix, length, returnStates, type);
+        returnStates.pop();
+      } else if (transition.isEpsilon()) {
+        collect(trie, transition.target, prefix, length, returnStates, type);
+      } else {
+        if (length == MAX_KEYWORD_LENGTH || transition.getSerializationType() == Transition.NOT_SET
+          || transition.getSerializationType() == Transition.WILDCARD) {
+          throw new IllegalStateException("Keyword rule is not a finite set of strings: "
+            + TurboGherkinLexer.ruleNames[state.ruleIndex]);
+        }
+        for (var symbol : transition.label().toArray()) {
+          if (Character.toUpperCase(symbol) == symbol) {
+            prefix[length] = symbol;
+            collect(trie, transition.target, prefix, length + 1, returnStates, type);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Узел дерева: отсортированные символы переходов и тип токена, если на узле заканчивается ключевое слово
+   */
+  private static final class Node {
+    private int[] symbols = new int[0];
+    private Node[] children = new Node[0];
+    private int type;
+
+    Node next(int symbol) {
+      var index = Arrays.binarySearch(symbols, symbol);
+      return index < 0 ? null : children[index];
+    }
+
+    Node child(int symbol) {
+      var index = Arrays.binarySearch(symbols, symbol);
+      if (index >= 0) {
+        return children[index];
+      }
+      var position = -index - 1;
+      var node = new Node();
+      symbols = insert(symbols, position, symbol);
+      var newChildren = new Node[children.length + 1];
+      System.arraycopy(children, 0, newChildren, 0, position);
+      newChildren[position] = node;
+      System.arraycopy(children, position, newChildren, position + 1, children.length - position);
+      children = newChildren;
+      return node;
+    }
+
+    private static int[] insert(int[] array, int position, int value) {
+      var result = new int[array.length + 1];
+      System.arraycopy(array, 0, result, 0, position);
+      result[position] = value;
+      System.arraycopy(array, position, result, position + 1, array.length - position);
+      return result;
+    }
+  }
+}
@@ -0,0 +1,275 @@
+/*
+ * This file is a part of Turbo Gherkin Parser.
+ *
+ * Copyright © 2020-2020
+ * Valery Maximov <maximovvalery@gmail.com>, 1c-syntax team <www.github.com/1c-syntax>, BIA Technologies team <www.bia-tech.ru> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * Turbo Gherkin Parser is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * Turbo Gherkin Parser is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Turbo Gherkin Parser.
+ */
+package com.github._1c_syntax.turbo.gherkin.parser;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Подготовленная к подстановке структура сценария.
+ * <p>
+ * Тексты шагов, ячейки таблиц и многострочные аргументы один раз разбиваются на неизменяемые части
+ * и номера колонок примеров, на которые ссылаются {@code <параметры>}. Сценарии для строк примеров
+ * создаются по требованию и хранят только ссылку на шаблон и строку примеров, тексты подставляются
+ * при обращении к ним. Поэтому перебор структуры с тысячами примеров не требует памяти на все сценарии.
+ * Параметры, которых нет в заголовке примеров, остаются в тексте как есть. Заголовок колонки записывается
+ * именем параметра с угловыми скобками или без них.
+ * <pre>
+ * outline.expand().forEach(scenario -&gt; run(scenario.getName(), scenario.getSteps()));
+ * </pre>
+ */
+public final class OutlineTemplate implements Iterable<ExpandedScenario> {
+  private final ScenarioOutline outline;
+  private final List<String> headers;
+  private final List<TableRow> rows;
+  private final Text name;
+  private final List<StepTemplate> steps;
+
+  private OutlineTemplate(ScenarioOutline outline) {
+    this.outline = outline;
+    var table = outline.getExamples().map(Examples::getTable).map(Table::getRows).orElse(List.of());
+    headers = table.isEmpty() ? List.of() : table.get(0).getCells();
+    rows = table.isEmpty() ? List.of() : table.subList(1, table.size());
+
+    Map<String, Integer> columns = new HashMap<>();
+    for (var i = 0; i < headers.size(); i++) {
+      var header = headers.get(i);
+      // заголовок колонки может быть записан как сам параметр
+      if (header.length() > 2 && header.startsWith("<") && header.endsWith(">")) {
+        header = header.substring(1, header.length() - 1);
+      }
+      columns.putIfAbsent(header, i);
+    }
+    name = Text.compile(outline.getName(), columns);
+    List<StepTemplate> stepTemplates = new ArrayList<>(outline.getSteps().size());
+    for (var step : outline.getSteps()) {
+      stepTemplates.add(new StepTemplate(step, columns));
+    }
+    steps = List.copyOf(stepTemplates);
+  }
+
+  /**
+   * Подготавливает структуру сценария к подстановке
+   *
+   * @param outline структура сценария
+   * @return шаблон; без разобранных примеров сценариев нет
+   */
+  public static OutlineTemplate of(ScenarioOutline outline) {
+    return new OutlineTemplate(outline);
+  }
+
+  public ScenarioOutline getOutline() {
+    return outline;
+  }
+
+  /**
+   * @return имена колонок примеров
+   */
+  public List<String> getHeaders() {
+    return headers;
+  }
+
+  /**
+   * @return число сценариев, по одному на строку примеров без заголовка
+   */
+  public int size() {
+    return rows.size();
+  }
+
+  /**
+   * @param index номер строки примеров без заголовка, начиная с 0
+   * @return сценарий для строки примеров
+   */
+  public ExpandedScenario get(int index) {
+    return new ExpandedScenario(this, index, rows.get(index));
+  }
+
+  /**
+   * @return сценарии по строкам примеров, создаются по мере перебора
+   */
+  public Stream<ExpandedScenario> stream() {
+    return IntStream.range(0, rows.size()).mapToObj(this::get);
+  }
+
+  @Override
+  public Iterator<ExpandedScenario> iterator() {
+    return new Iterator<>() {
+      private int index;
+
+      @Override
+      public boolean hasNext() {
+        return index < rows.size();
+      }
+
+      @Override
+      public ExpandedScenario next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return get(index++);
+      }
+    };
+  }
+
+  Text getName() {
+    return name;
+  }
+
+  List<StepTemplate> getSteps() {
+    return steps;
+  }
+
+  /**
+   * Шаблон шага: текст, ячейки таблицы и многострочный аргумент
+   */
+  static final class StepTemplate {
+    private final Step step;
+    private final Text text;
+    private final List<List<Text>> table;
+    private final Text docString;
+
+    private StepTemplate(Step step, Map<String, Integer> columns) {
+      this.step = step;
+      text = Text.compile(step.getText(), columns);
+      table = step.getTable().map(value -> compileTable(value, columns)).orElse(null);
+      docString = step.getDocString().map(value -> Text.compile(value.getContent(), columns)).orElse(null);
+    }
+
+    Step getStep() {
+      return step;
+    }
+
+    Text getText() {
+      return text;
+    }
+
+    List<List<Text>> getTable() {
+      return table;
+    }
+
+    Text getDocString() {
+      return docString;
+    }
+
+    private static List<List<Text>> compileTable(Table table, Map<String, Integer> columns) {
+      List<List<Text>> rows = new ArrayList<>(table.getRows().size());
+      for (var row : table.getRows()) {
+        List<Text> cells = new ArrayList<>(row.getCells().size());
+        for (var cell : row.getCells()) {
+          cells.add(Text.compile(cell, columns));
+        }
+        rows.add(List.copyOf(cells));
+      }
+      return List.copyOf(rows);
+    }
+  }
+
+  /**
+   * Текст с параметрами: части между параметрами и номера колонок параметров
+   */
+  static final class Text {
+    private static final int[] NO_COLUMNS = new int[0];
+
+    private final String source;
+    // parts.length == columns.length + 1, names - параметры в исходном виде
+    private final String[] parts;
+    private final int[] columns;
+    private final String[] names;
+
+    private Text(String source, String[] parts, int[] columns, String[] names) {
+      this.source = source;
+      this.parts = parts;
+      this.columns = columns;
+      this.names = names;
+    }
+
+    static Text compile(String source, Map<String, Integer> columns) {
+      List<String> parts = new ArrayList<>();
+      List<Integer> indexes = new ArrayList<>();
+      List<String> names = new ArrayList<>();
+      var partStart = 0;
+      var open = source.indexOf('<');
+      while (open >= 0) {
+        var close = parameterEnd(source, open);
+        var column = close < 0 ? null : columns.get(source.substring(open + 1, close));
+        if (column == null) {
+          open = source.indexOf('<', open + 1);
+          continue;
+        }
+        parts.add(source.substring(partStart, open));
+        indexes.add(column);
+        names.add(source.substring(open, close + 1));
+        partStart = close + 1;
+        open = source.indexOf('<', partStart);
+      }
+      if (indexes.isEmpty()) {
+        return new Text(source, null, NO_COLUMNS, null);
+      }
+      parts.add(source.substring(partStart));
+      return new Text(source, parts.toArray(new String[0]),
+        indexes.stream().mapToInt(Integer::intValue).toArray(), names.toArray(new String[0]));
+    }
+
+    /**
+     * Подставляет значения ячеек строки примеров
+     *
+     * @param cells ячейки строки примеров
+     * @return текст с подставленными значениями
+     */
+    String apply(List<String> cells) {
+      if (columns.length == 0) {
+        return source;
+      }
+      var builder = new StringBuilder(source.length() + 16);
+      for (var i = 0; i < columns.length; i++) {
+        builder.append(parts[i]);
+        // в строке примеров меньше ячеек, чем в заголовке
+        builder.append(columns[i] < cells.size() ? cells.get(columns[i]) : names[i]);
+      }
+      return builder.append(parts[columns.length]).toString();
+    }
+
+    /**
+     * Параметр как в грамматике: непустое имя без угловых скобок и переводов строк
+     *
+     * @return индекс закрывающей скобки или -1
+     */
+    private static int parameterEnd(String source, int open) {
+      for (var i = open + 1; i < source.length(); i++) {
+        var c = source.charAt(i);
+        if (c == '>') {
+          return i > open + 1 ? i : -1;
+        }
+        if (c == '<' || c == '\n' || c == '\r') {
+          return -1;
+        }
+      }
+      return -1;
+    }
+  }
+}
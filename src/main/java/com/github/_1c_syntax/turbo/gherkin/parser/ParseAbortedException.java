@@ -0,0 +1,80 @@
+/*
+ * This file is a part of Turbo Gherkin Parser.
+ *
+ * Copyright © 2020-2020
+ * Valery Maximov <maximovvalery@gmail.com>, 1c-syntax team <www.github.com/1c-syntax>, BIA Technologies team <www.bia-tech.ru> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * Turbo Gherkin Parser is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * Turbo Gherkin Parser is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Turbo Gherkin Parser.
+ */
+package com.github._1c_syntax.turbo.gherkin.parser;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * Разбор прерван по бюджету {@link ParseBudget}.
+ * Наследует {@link CancellationException}, поэтому не перехватывается восстановлением после ошибок ANTLR
+ * и двухэтапной стратегией {@link ParseStrategy#SLL_THEN_LL}
+ */
+public class ParseAbortedException extends CancellationException {
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * Причина прерывания разбора
+   */
+  public enum Reason {
+    /**
+     * Сработал признак отмены
+     */
+    CANCELLED,
+    /**
+     * Истекло время разбора
+     */
+    TIMEOUT,
+    /**
+     * Превышено число токенов
+     */
+    TOKEN_LIMIT
+  }
+
+  private final Reason reason;
+  private final long elapsedNanos;
+  private final int tokenCount;
+
+  ParseAbortedException(Reason reason, long elapsedNanos, int tokenCount) {
+    super("Parsing aborted: " + reason + " after " + elapsedNanos / 1_000_000 + " ms, " + tokenCount + " tokens");
+    this.reason = reason;
+    this.elapsedNanos = elapsedNanos;
+    this.tokenCount = tokenCount;
+  }
+
+  public Reason getReason() {
+    return reason;
+  }
+
+  /**
+   * @return время от начала разбора до прерывания в наносекундах
+   */
+  public long getElapsedNanos() {
+    return elapsedNanos;
+  }
+
+  /**
+   * @return число токенов, обработанных до прерывания
+   */
+  public int getTokenCount() {
+    return tokenCount;
+  }
+}
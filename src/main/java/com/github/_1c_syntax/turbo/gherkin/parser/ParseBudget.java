@@ -0,0 +1,200 @@
+/*
+ * This file is a part of Turbo Gherkin Parser.
+ *
+ * Copyright © 2020-2020
+ * Valery Maximov <maximovvalery@gmail.com>, 1c-syntax team <www.github.com/1c-syntax>, BIA Technologies team <www.bia-tech.ru> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * Turbo Gherkin Parser is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * Turbo Gherkin Parser is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Turbo Gherkin Parser.
+ */
+package com.github._1c_syntax.turbo.gherkin.parser;
+
+import org.antlr.v4.runtime.Parser;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.tree.ErrorNode;
+import org.antlr.v4.runtime.tree.ParseTreeListener;
+import org.antlr.v4.runtime.tree.TerminalNode;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Бюджет разбора: ограничение времени, числа токенов и признак кооперативной отмены.
+ * <p>
+ * Бюджет проверяется лексером на каждом токене и парсером при входе в правило и на каждом токене,
+ * поэтому разбор прерывается быстро даже внутри длинного многострочного текста или таблицы.
+ * При исчерпании бюджета разбор прерывается исключением {@link ParseAbortedException} с причиной.
+ * Время отсчитывается от первой проверки, то есть от начала лексического разбора. Объект неизменяем,
+ * один бюджет можно использовать для любого числа разборов.
+ * <pre>
+ * var tokenizer = new GherkinTokenizer(content);
+ * tokenizer.setBudget(ParseBudget.unlimited().withTimeout(Duration.ofSeconds(2)).withMaxTokens(1_000_000));
+ * </pre>
+ */
+public final class ParseBudget {
+  private static final ParseBudget UNLIMITED = new ParseBudget(0, 0, null);
+
+  // время проверяется не на каждом токене: System.nanoTime заметно дороже проверки признака отмены
+  private static final int TIME_CHECK_INTERVAL = 64;
+
+  private final long maxNanos;
+  private final int maxTokens;
+  private final BooleanSupplier cancelled;
+
+  private ParseBudget(long maxNanos, int maxTokens, BooleanSupplier cancelled) {
+    this.maxNanos = maxNanos;
+    this.maxTokens = maxTokens;
+    this.cancelled = cancelled;
+  }
+
+  /**
+   * @return бюджет без ограничений
+   */
+  public static ParseBudget unlimited() {
+    return UNLIMITED;
+  }
+
+  /**
+   * @param timeout максимальное время разбора
+   * @return бюджет с ограничением времени
+   */
+  public ParseBudget withTimeout(Duration timeout) {
+    if (timeout.isNegative() || timeout.isZero()) {
+      throw new IllegalArgumentException("timeout must be positive: " + timeout);
+    }
+    return new ParseBudget(timeout.toNanos(), maxTokens, cancelled);
+  }
+
+  /**
+   * @param maxTokens максимальное число токенов
+   * @return бюджет с ограничением числа токенов
+   */
+  public ParseBudget withMaxTokens(int maxTokens) {
+    if (maxTokens < 1) {
+      throw new IllegalArgumentException("maxTokens must be positive: " + maxTokens);
+    }
+    return new ParseBudget(maxNanos, maxTokens, cancelled);
+  }
+
+  /**
+   * Добавляет признак отмены. Признаки отмены объединяются: разбор прерывается, если сработал любой из них
+   *
+   * @param cancelled признак отмены, вызывается из потока разбора
+   * @return бюджет с признаком отмены
+   */
+  public ParseBudget withCancellation(BooleanSupplier cancelled) {
+    var current = this.cancelled;
+    return new ParseBudget(maxNanos, maxTokens,
+      current == null ? cancelled : () -> current.getAsBoolean() || cancelled.getAsBoolean());
+  }
+
+  public Optional<Duration> getTimeout() {
+    return maxNanos == 0 ? Optional.empty() : Optional.of(Duration.ofNanos(maxNanos));
+  }
+
+  public OptionalInt getMaxTokens() {
+    return maxTokens == 0 ? OptionalInt.empty() : OptionalInt.of(maxTokens);
+  }
+
+  /**
+   * Подключает бюджет к парсеру, разбирающему готовый поток токенов.
+   * Токены считаются по мере их обработки парсером
+   *
+   * @param parser парсер, например {@link TurboGherkinParser}
+   */
+  public void attach(Parser parser) {
+    parser.addParseListener(new Tracker(this, true));
+  }
+
+  Tracker start() {
+    return new Tracker(this, false);
+  }
+
+  /**
+   * Состояние бюджета одного разбора
+   */
+  static final class Tracker implements ParseTreeListener {
+    private final ParseBudget budget;
+    // токены считает парсер, а не лексер
+    private final boolean parserTokens;
+    private boolean started;
+    private long start;
+    private int tokens;
+    private int ticks;
+
+    private Tracker(ParseBudget budget, boolean parserTokens) {
+      this.budget = budget;
+      this.parserTokens = parserTokens;
+    }
+
+    /**
+     * Учитывает очередной токен
+     */
+    void token() {
+      tokens++;
+      if (budget.maxTokens != 0 && tokens > budget.maxTokens) {
+        abort(ParseAbortedException.Reason.TOKEN_LIMIT);
+      }
+      check();
+    }
+
+    /**
+     * Проверяет признак отмены и время
+     */
+    void check() {
+      if (!started) {
+        started = true;
+        start = System.nanoTime();
+      }
+      if (budget.cancelled != null && budget.cancelled.getAsBoolean()) {
+        abort(ParseAbortedException.Reason.CANCELLED);
+      }
+      if (budget.maxNanos != 0 && ++ticks % TIME_CHECK_INTERVAL == 0
+        && System.nanoTime() - start > budget.maxNanos) {
+        abort(ParseAbortedException.Reason.TIMEOUT);
+      }
+    }
+
+    private void abort(ParseAbortedException.Reason reason) {
+      throw new ParseAbortedException(reason, System.nanoTime() - start, tokens);
+    }
+
+    @Override
+    public void enterEveryRule(ParserRuleContext ctx) {
+      check();
+    }
+
+    @Override
+    public void visitTerminal(TerminalNode node) {
+      if (parserTokens) {
+        token();
+      } else {
+        check();
+      }
+    }
+
+    @Override
+    public void visitErrorNode(ErrorNode node) {
+      visitTerminal(node);
+    }
+
+    @Override
+    public void exitEveryRule(ParserRuleContext ctx) {
+      // no-op
+    }
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * This file is a part of Turbo Gherkin Parser.
+ *
+ * Copyright © 2020-2020
+ * Valery Maximov <maximovvalery@gmail.com>, 1c-syntax team <www.github.com/1c-syntax>, BIA Technologies team <www.bia-tech.ru> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * Turbo Gherkin Parser is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * Turbo Gherkin Parser is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Turbo Gherkin Parser.
+ */
+package com.github._1c_syntax.turbo.gherkin.parser;
+
+/**
+ * Метрики разбора одного фиче-файла, см. {@link GherkinTokenizer#setMetricsListener(ParseMetricsListener)}
+ */
+public final class ParseMetrics {
+  private final long lexingNanos;
+  private final long parsingNanos;
+  private final int tokenCount;
+  private final int treeNodeCount;
+  private final int llFallbackCount;
+  private final int ambiguityCount;
+  private final int fullContextAttemptCount;
+  private final int contextSensitivityCount;
+  private final int syntaxErrorCount;
+  private final long bytes;
+
+  ParseMetrics(long lexingNanos, long parsingNanos, int tokenCount, int treeNodeCount, int llFallbackCount,
+               int ambiguityCount, int fullContextAttemptCount, int contextSensitivityCount,
+               int syntaxErrorCount, long bytes) {
+    this.lexingNanos = lexingNanos;
+    this.parsingNanos = parsingNanos;
+    this.tokenCount = tokenCount;
+    this.treeNodeCount = treeNodeCount;
+    this.llFallbackCount = llFallbackCount;
+    this.ambiguityCount = ambiguityCount;
+    this.fullContextAttemptCount = fullContextAttemptCount;
+    this.contextSensitivityCount = contextSensitivityCount;
+    this.syntaxErrorCount = syntaxErrorCount;
+    this.bytes = bytes;
+  }
+
+  /**
+   * @return время лексического анализа в наносекундах
+   */
+  public long getLexingNanos() {
+    return lexingNanos;
+  }
+
+  /**
+   * @return время построения дерева в наносекундах, включая оба этапа двухэтапного разбора
+   */
+  public long getParsingNanos() {
+    return parsingNanos;
+  }
+
+  /**
+   * @return количество токенов всех каналов, включая EOF
+   */
+  public int getTokenCount() {
+    return tokenCount;
+  }
+
+  /**
+   * @return количество узлов дерева разбора, включая листья
+   */
+  public int getTreeNodeCount() {
+    return treeNodeCount;
+  }
+
+  /**
+   * @return 1, если разбор {@link ParseStrategy#SLL_THEN_LL} перешел ко второму этапу, иначе 0
+   */
+  public int getLlFallbackCount() {
+    return llFallbackCount;
+  }
+
+  /**
+   * @return количество неоднозначностей, о которых сообщил симулятор ATN парсера
+   */
+  public int getAmbiguityCount() {
+    return ambiguityCount;
+  }
+
+  /**
+   * @return количество предсказаний, потребовавших анализа с полным контекстом
+   */
+  public int getFullContextAttemptCount() {
+    return fullContextAttemptCount;
+  }
+
+  /**
+   * @return количество предсказаний, результат которых зависит от контекста
+   */
+  public int getContextSensitivityCount() {
+    return contextSensitivityCount;
+  }
+
+  public int getSyntaxErrorCount() {
+    return syntaxErrorCount;
+  }
+
+  /**
+   * @return размер содержимого в байтах UTF-8
+   */
+  public long getBytes() {
+    return bytes;
+  }
+
+  @Override
+  public String toString() {
+    return "lexing " + lexingNanos + "ns, parsing " + parsingNanos + "ns, " + tokenCount + " tokens, "
+      + treeNodeCount + " nodes, " + llFallbackCount + " LL fallbacks, " + ambiguityCount + " ambiguities, "
+      + fullContextAttemptCount + " full context attempts, " + contextSensitivityCount + " context sensitivities, "
+      + syntaxErrorCount + " syntax errors, " + bytes + " bytes";
+  }
+}
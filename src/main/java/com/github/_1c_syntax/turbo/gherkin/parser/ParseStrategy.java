@@ -0,0 +1,89 @@
+/*
+ * This file is a part of Turbo Gherkin Parser.
+ *
+ * Copyright © 2020-2020
+ * Valery Maximov <maximovvalery@gmail.com>, 1c-syntax team <www.github.com/1c-syntax>, BIA Technologies team <www.bia-tech.ru> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * Turbo Gherkin Parser is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * Turbo Gherkin Parser is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Turbo Gherkin Parser.
+ */
+package com.github._1c_syntax.turbo.gherkin.parser;
+
+import org.antlr.v4.runtime.BailErrorStrategy;
+import org.antlr.v4.runtime.Parser;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+
+import java.util.function.Consumer;
+
+/**
+ * Стратегия предсказания альтернатив при разборе фичи
+ */
+public enum ParseStrategy {
+  /**
+   * Разбор с полным контекстом (режим LL), поведение по умолчанию
+   */
+  LL,
+  /**
+   * Двухэтапный разбор: сначала быстрый режим SLL с прерыванием на первой ошибке,
+   * при неудаче - повторный разбор в режиме LL.
+   * Для корректных файлов, а их большинство, дает значительное ускорение
+   */
+  SLL_THEN_LL;
+
+  /**
+   * Разбирает фичу подготовленным парсером согласно стратегии
+   *
+   * @param parser    парсер, настроенный на поток токенов
+   * @param onSuccess получатель режима предсказания, в котором построено дерево
+   * @return корень дерева разбора
+   */
+  TurboGherkinParser.FeatureContext parse(TurboGherkinParser parser, Consumer<PredictionMode> onSuccess) {
+    if (this == SLL_THEN_LL) {
+      var errorHandler = parser.getErrorHandler();
+      parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+      parser.setErrorHandler(new SilentBailErrorStrategy());
+      try {
+        var feature = parser.feature();
+        onSuccess.accept(PredictionMode.SLL);
+        return feature;
+      } catch (ParseCancellationException e) {
+        // повторный разбор с начала в режиме полного контекста
+        parser.reset();
+      } finally {
+        parser.setErrorHandler(errorHandler);
+        parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+      }
+    }
+
+    // парсер мог быть переключен в другой режим до вызова, например при повторном использовании
+    parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+    var feature = parser.feature();
+    onSuccess.accept(PredictionMode.LL);
+    return feature;
+  }
+
+  /**
+   * Прерывает разбор на первой ошибке, не сообщая о ней слушателям:
+   * ошибка будет сообщена при повторном разборе в режиме LL
+   */
+  private static class SilentBailErrorStrategy extends BailErrorStrategy {
+    @Override
+    public void reportError(Parser recognizer, RecognitionException e) {
+      // no-op
+    }
+  }
+}
@@ -0,0 +1,413 @@
+/*
+ * This file is a part of Turbo Gherkin Parser.
+ *
+ * Copyright © 2020-2020
+ * Valery Maximov <maximovvalery@gmail.com>, 1c-syntax team <www.github.com/1c-syntax>, BIA Technologies team <www.bia-tech.ru> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * Turbo Gherkin Parser is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * Turbo Gherkin Parser is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Turbo Gherkin Parser.
+ */
+package com.github._1c_syntax.turbo.gherkin.parser;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+/**
+ * Двоичный формат {@link ParsedFeature} для дискового кэша.
+ * <p>
+ * Токены записываются форматом {@link GherkinTokenCodec}, их текст берется из содержимого файла,
+ * по которому найдена запись. Строки модели записываются один раз в таблицу строк, элементы ссылаются
+ * на них по номеру. Все числа переменной длины (varint), позиции элементов - приращения
+ * относительно предыдущего элемента, поэтому большинство из них занимает один байт
+ */
+final class ParsedFeatureCodec {
+
+  /**
+   * Версия формата, входит в версию кэша. Увеличивается при любом изменении формата
+   */
+  static final int FORMAT_VERSION = 2;
+
+  private static final int MAGIC = 0x54474643;
+  private static final int NONE = 0;
+  private static final int SCENARIO = 1;
+  private static final int SCENARIO_OUTLINE = 2;
+  private static final int TABLE = 1;
+  private static final int DOC_STRING = 2;
+
+  private ParsedFeatureCodec() {
+    // utils
+  }
+
+  static void write(DataOutputStream out, ParsedFeature parsed) throws IOException {
+    out.writeInt(MAGIC);
+    GherkinTokenCodec.write(out, parsed.getTokens());
+
+    var strings = new StringTable();
+    new ModelWriter(strings).feature(parsed.getFeature());
+    GherkinTokenCodec.writeVarint(out, strings.values.size());
+    for (var value : strings.values) {
+      var bytes = value.getBytes(StandardCharsets.UTF_8);
+      GherkinTokenCodec.writeVarint(out, bytes.length);
+      out.write(bytes);
+    }
+    GherkinTokenCodec.writeVarint(out, strings.refs.size());
+    for (var ref : strings.refs) {
+      GherkinTokenCodec.writeVarint(out, ref);
+    }
+  }
+
+  /**
+   * @param in       поток записи
+   * @param size     размер записи в байтах, ограничивает длины при чтении поврежденной записи
+   * @param content  содержимое файла, по которому найдена запись
+   * @param interner функция интернирования строк модели
+   */
+  static ParsedFeature read(DataInputStream in, int size, String content, UnaryOperator<String> interner)
+    throws IOException {
+    if (in.readInt() != MAGIC) {
+      throw new IOException("Not a cache entry");
+    }
+    var tokens = GherkinTokenCodec.readTokens(in, GherkinCharStreams.fromString(content));
+
+    // каждая строка и каждая ссылка занимает хотя бы один байт
+    var strings = new String[length(in, size)];
+    for (var i = 0; i < strings.length; i++) {
+      var bytes = new byte[length(in, size)];
+      in.readFully(bytes);
+      strings[i] = new String(bytes, StandardCharsets.UTF_8);
+    }
+    var refs = new int[length(in, size)];
+    for (var i = 0; i < refs.length; i++) {
+      refs[i] = GherkinTokenCodec.readVarint(in);
+    }
+    return new ParsedFeature(tokens, new ModelReader(strings, refs, interner).feature());
+  }
+
+  private static int length(DataInputStream in, int max) throws IOException {
+    var length = GherkinTokenCodec.readVarint(in);
+    if (length < 0 || length > max) {
+      throw new IOException("Corrupted cache entry");
+    }
+    return length;
+  }
+
+  /**
+   * Таблица строк и последовательность ссылок на нее, включая числа и приращения позиций элементов
+   */
+  private static final class StringTable {
+    private final List<String> values = new ArrayList<>();
+    private final Map<String, Integer> indexes = new HashMap<>();
+    private final List<Integer> refs = new ArrayList<>();
+
+    void string(String value) {
+      refs.add(indexes.computeIfAbsent(value, key -> {
+        values.add(key);
+        return values.size() - 1;
+      }));
+    }
+
+    void number(int value) {
+      refs.add(value);
+    }
+  }
+
+  private static final class ModelWriter {
+    private final StringTable out;
+    private int line;
+    private int offset;
+
+    private ModelWriter(StringTable out) {
+      this.out = out;
+    }
+
+    void feature(Feature feature) {
+      element(feature);
+      out.number(feature.getTags().size());
+      feature.getTags().forEach(out::string);
+      out.string(feature.getKeyword());
+      out.string(feature.getName());
+      out.string(feature.getDescription());
+      background(feature.getBackground().orElse(null));
+      out.number(feature.getRules().size());
+      for (var rule : feature.getRules()) {
+        element(rule);
+        out.string(rule.getKeyword());
+        out.string(rule.getName());
+        out.string(rule.getDescription());
+        background(rule.getBackground().orElse(null));
+        scenarios(rule.getScenarios());
+      }
+      scenarios(feature.getScenarios());
+    }
+
+    private void background(Background background) {
+      if (background == null) {
+        out.number(NONE);
+        return;
+      }
+      out.number(1);
+      element(background);
+      out.string(background.getKeyword());
+      out.string(background.getDescription());
+      steps(background.getSteps());
+    }
+
+    private void scenarios(List<ScenarioDefinition> scenarios) {
+      out.number(scenarios.size());
+      for (var scenario : scenarios) {
+        out.number(scenario instanceof ScenarioOutline ? SCENARIO_OUTLINE : SCENARIO);
+        element(scenario);
+        out.string(scenario.getKeyword());
+        out.string(scenario.getName());
+        out.string(scenario.getDescription());
+        steps(scenario.getSteps());
+        if (scenario instanceof ScenarioOutline) {
+          var examples = ((ScenarioOutline) scenario).getExamples().orElse(null);
+          if (examples == null) {
+            out.number(NONE);
+          } else {
+            out.number(1);
+            element(examples);
+            out.string(examples.getKeyword());
+            table(examples.getTable());
+          }
+        }
+      }
+    }
+
+    private void steps(List<Step> steps) {
+      out.number(steps.size());
+      for (var step : steps) {
+        element(step);
+        out.string(step.getKeyword());
+        out.string(step.getText());
+        if (step.getTable().isPresent()) {
+          out.number(TABLE);
+          table(step.getTable().get());
+        } else if (step.getDocString().isPresent()) {
+          var docString = step.getDocString().get();
+          out.number(DOC_STRING);
+          element(docString);
+          out.string(docString.getContent());
+        } else {
+          out.number(NONE);
+        }
+      }
+    }
+
+    private void table(Table table) {
+      element(table);
+      out.number(table.getRows().size());
+      for (var row : table.getRows()) {
+        element(row);
+        out.number(row.getCells().size());
+        row.getCells().forEach(out::string);
+      }
+    }
+
+    private void element(GherkinElement element) {
+      out.number(GherkinTokenCodec.zigzagEncode(element.getLine() - line));
+      out.number(GherkinTokenCodec.zigzagEncode(element.getOffset() - offset));
+      out.number(element.getEndOffset() - element.getOffset());
+      line = element.getLine();
+      offset = element.getOffset();
+    }
+  }
+
+  /**
+   * Восстанавливает модель по таблице строк. Строки интернируются при каждом обращении к ним,
+   * как в {@link GherkinModelBuilder}, чтобы счетчики {@link GherkinStringTable} совпадали
+   * с числом освобождений в {@link GherkinStringTable#release(Feature)}
+   */
+  private static final class ModelReader {
+    private final String[] strings;
+    private final int[] refs;
+    private final UnaryOperator<String> interner;
+    private int position;
+    private int line;
+    private int offset;
+    private int endOffset;
+
+    private ModelReader(String[] strings, int[] refs, UnaryOperator<String> interner) {
+      this.strings = strings;
+      this.refs = refs;
+      this.interner = interner;
+    }
+
+    Feature feature() throws IOException {
+      element();
+      var line = this.line;
+      var offset = this.offset;
+      var endOffset = this.endOffset;
+      List<String> tags = new ArrayList<>();
+      for (var i = count(); i > 0; i--) {
+        tags.add(intern());
+      }
+      var keyword = intern();
+      var name = intern();
+      var description = string();
+      var background = background();
+      List<Rule> rules = new ArrayList<>();
+      for (var i = count(); i > 0; i--) {
+        element();
+        var ruleLine = this.line;
+        var ruleOffset = this.offset;
+        var ruleEndOffset = this.endOffset;
+        var ruleKeyword = intern();
+        var ruleName = intern();
+        var ruleDescription = string();
+        var ruleBackground = background();
+        rules.add(new Rule(ruleLine, ruleOffset, ruleEndOffset, ruleKeyword, ruleName, ruleDescription,
+          ruleBackground, scenarios()));
+      }
+      return new Feature(line, offset, endOffset, tags, keyword, name, description, background, rules, scenarios());
+    }
+
+    private Background background() throws IOException {
+      if (number() == NONE) {
+        return null;
+      }
+      element();
+      var line = this.line;
+      var offset = this.offset;
+      var endOffset = this.endOffset;
+      var keyword = intern();
+      var description = string();
+      return new Background(line, offset, endOffset, keyword, description, steps());
+    }
+
+    private List<ScenarioDefinition> scenarios() throws IOException {
+      var count = count();
+      List<ScenarioDefinition> scenarios = new ArrayList<>(count);
+      for (var i = 0; i < count; i++) {
+        var kind = number();
+        element();
+        var line = this.line;
+        var offset = this.offset;
+        var endOffset = this.endOffset;
+        var keyword = intern();
+        var name = intern();
+        var description = string();
+        var steps = steps();
+        if (kind == SCENARIO) {
+          scenarios.add(new Scenario(line, offset, endOffset, keyword, name, description, steps));
+        } else {
+          scenarios.add(new ScenarioOutline(line, offset, endOffset, keyword, name, description, steps, examples()));
+        }
+      }
+      return scenarios;
+    }
+
+    private Examples examples() throws IOException {
+      if (number() == NONE) {
+        return null;
+      }
+      element();
+      var line = this.line;
+      var offset = this.offset;
+      var endOffset = this.endOffset;
+      var keyword = intern();
+      return new Examples(line, offset, endOffset, keyword, table());
+    }
+
+    private List<Step> steps() throws IOException {
+      var count = count();
+      List<Step> steps = new ArrayList<>(count);
+      for (var i = 0; i < count; i++) {
+        element();
+        var line = this.line;
+        var offset = this.offset;
+        var endOffset = this.endOffset;
+        var keyword = intern();
+        var text = intern();
+        GherkinElement argument = null;
+        var kind = number();
+        if (kind == TABLE) {
+          argument = table();
+        } else if (kind == DOC_STRING) {
+          element();
+          argument = new DocString(this.line, this.offset, this.endOffset, string());
+        }
+        steps.add(new Step(line, offset, endOffset, keyword, text, argument));
+      }
+      return steps;
+    }
+
+    private Table table() throws IOException {
+      element();
+      var line = this.line;
+      var offset = this.offset;
+      var endOffset = this.endOffset;
+      var count = count();
+      List<TableRow> rows = new ArrayList<>(count);
+      for (var i = 0; i < count; i++) {
+        element();
+        var rowLine = this.line;
+        var rowOffset = this.offset;
+        var rowEndOffset = this.endOffset;
+        List<String> cells = new ArrayList<>();
+        for (var j = count(); j > 0; j--) {
+          cells.add(intern());
+        }
+        rows.add(new TableRow(rowLine, rowOffset, rowEndOffset, cells));
+      }
+      return new Table(line, offset, endOffset, rows);
+    }
+
+    private void element() throws IOException {
+      line += GherkinTokenCodec.zigzagDecode(number());
+      offset += GherkinTokenCodec.zigzagDecode(number());
+      endOffset = offset + number();
+    }
+
+    private String string() throws IOException {
+      var index = number();
+      if (index < 0 || index >= strings.length) {
+        throw new IOException("Corrupted cache entry");
+      }
+      return strings[index];
+    }
+
+    private String intern() throws IOException {
+      return interner.apply(string());
+    }
+
+    /**
+     * Число элементов списка. Каждый элемент занимает хотя бы одну ссылку, поэтому число больше
+     * оставшихся ссылок означает поврежденную запись, а не повод выделить под список лишнюю память
+     */
+    private int count() throws IOException {
+      var count = number();
+      if (count < 0 || count > refs.length - position) {
+        throw new IOException("Corrupted cache entry");
+      }
+      return count;
+    }
+
+    private int number() throws IOException {
+      if (position >= refs.length) {
+        throw new IOException("Corrupted cache entry");
+      }
+      return refs[position++];
+    }
+  }
+}
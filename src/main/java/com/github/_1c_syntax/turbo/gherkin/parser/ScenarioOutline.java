@@ -0,0 +1,55 @@
+/*
+ * This file is a part of Turbo Gherkin Parser.
+ *
+ * Copyright © 2020-2020
+ * Valery Maximov <maximovvalery@gmail.com>, 1c-syntax team <www.github.com/1c-syntax>, BIA Technologies team <www.bia-tech.ru> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * Turbo Gherkin Parser is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * Turbo Gherkin Parser is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Turbo Gherkin Parser.
+ */
+package com.github._1c_syntax.turbo.gherkin.parser;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Структура сценария с примерами
+ */
+public final class ScenarioOutline extends ScenarioDefinition {
+  private final Examples examples;
+
+  ScenarioOutline(int line, int offset, int endOffset,
+                  String keyword, String name, String description, List<Step> steps, Examples examples) {
+    super(line, offset, endOffset, keyword, name, description, steps);
+    this.examples = examples;
+  }
+
+  /**
+   * @return примеры, пусто если они не разобраны из-за синтаксической ошибки
+   */
+  public Optional<Examples> getExamples() {
+    return Optional.ofNullable(examples);
+  }
+
+  /**
+   * Подставляет строки примеров в шаги, см. {@link OutlineTemplate}
+   *
+   * @return сценарии по строкам примеров, создаются по мере перебора
+   */
+  public Stream<ExpandedScenario> expand() {
+    return OutlineTemplate.of(this).stream();
+  }
+}
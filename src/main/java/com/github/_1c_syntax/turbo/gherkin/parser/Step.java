@@ -0,0 +1,62 @@
+/*
+ * This file is a part of Turbo Gherkin Parser.
+ *
+ * Copyright © 2020-2020
+ * Valery Maximov <maximovvalery@gmail.com>, 1c-syntax team <www.github.com/1c-syntax>, BIA Technologies team <www.bia-tech.ru> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * Turbo Gherkin Parser is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * Turbo Gherkin Parser is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Turbo Gherkin Parser.
+ */
+package com.github._1c_syntax.turbo.gherkin.parser;
+
+import java.util.Optional;
+
+/**
+ * Шаг сценария с необязательным аргументом: таблицей или многострочным текстом
+ */
+public final class Step extends GherkinElement {
+  private final String keyword;
+  private final String text;
+  private final GherkinElement argument;
+
+  Step(int line, int offset, int endOffset, String keyword, String text, GherkinElement argument) {
+    super(line, offset, endOffset);
+    this.keyword = keyword;
+    this.text = text;
+    this.argument = argument;
+  }
+
+  /**
+   * @return ключевое слово шага в том виде, как оно записано в файле
+   */
+  public String getKeyword() {
+    return keyword;
+  }
+
+  /**
+   * @return текст шага после ключевого слова
+   */
+  public String getText() {
+    return text;
+  }
+
+  public Optional<Table> getTable() {
+    return argument instanceof Table ? Optional.of((Table) argument) : Optional.empty();
+  }
+
+  public Optional<DocString> getDocString() {
+    return argument instanceof DocString ? Optional.of((DocString) argument) : Optional.empty();
+  }
+}
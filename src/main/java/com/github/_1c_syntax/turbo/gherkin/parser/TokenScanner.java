@@ -0,0 +1,211 @@
+/*
+ * This file is a part of Turbo Gherkin Parser.
+ *
+ * Copyright © 2020-2020
+ * Valery Maximov <maximovvalery@gmail.com>, 1c-syntax team <www.github.com/1c-syntax>, BIA Technologies team <www.bia-tech.ru> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * Turbo Gherkin Parser is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * Turbo Gherkin Parser is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Turbo Gherkin Parser.
+ */
+package com.github._1c_syntax.turbo.gherkin.parser;
+
+/**
+ * Распознавание одного токена {@link TurboGherkinLexer} в массиве символов.
+ * <p>
+ * Общая часть {@link GherkinFastLexer} и {@link GherkinLineScanner}: правила грамматики разбираются вручную,
+ * ключевые слова ищутся в {@link KeywordTrie}. Выбирается самое длинное совпадение,
+ * при равной длине - правило, объявленное раньше. Сканер не создает объектов,
+ * тип найденного токена сохраняется в поле {@link #type}
+ */
+final class TokenScanner {
+
+  private final char[] text;
+  private final int length;
+
+  /**
+   * Тип токена, найденного последним вызовом {@link #scan(int)}
+   */
+  int type;
+
+  TokenScanner(char[] text, int length) {
+    this.text = text;
+    this.length = length;
+  }
+
+  /**
+   * Распознает токен, начинающийся с позиции
+   *
+   * @param position индекс символа начала токена, меньше длины текста
+   * @return индекс символа, следующего за токеном
+   */
+  int scan(int position) {
+    var end = matchRule(position);
+    var length = end - position;
+
+    var keyword = KeywordTrie.INSTANCE.match(text, position, this.length);
+    var keywordLength = (int) keyword;
+    if (keywordLength > length || (keywordLength == length && keywordLength > 0 && (int) (keyword >>> 32) < type)) {
+      type = (int) (keyword >>> 32);
+      end = position + keywordLength;
+    }
+    return end;
+  }
+
+  /**
+   * @param type тип токена
+   * @return true для токенов скрытого канала
+   */
+  static boolean isHidden(int type) {
+    return type == TurboGherkinLexer.HASH || type == TurboGherkinLexer.COMMENT_LINE;
+  }
+
+  /**
+   * Разбирает правила грамматики, кроме ключевых слов
+   */
+  private int matchRule(int position) {
+    var next = position + 1;
+    var c = text[position];
+    switch (c) {
+      case '\n':
+        return match(TurboGherkinLexer.EOL, next);
+      case '\r':
+        return charAt(next) == '\n'
+          ? match(TurboGherkinLexer.EOL, next + 1)
+          : match(TurboGherkinLexer.ANYSYMBOL, next);
+      case ' ':
+        return match(TurboGherkinLexer.SPACE, next);
+      case '\t':
+        return match(TurboGherkinLexer.TAB, next);
+      case '#':
+        return match(TurboGherkinLexer.HASH, lineEnd(next));
+      case '@':
+        return match(TurboGherkinLexer.AT, next);
+      case '|':
+        return match(TurboGherkinLexer.BAR, next);
+      case '<':
+        return match(TurboGherkinLexer.LABRACKET, next);
+      case '>':
+        return match(TurboGherkinLexer.RABRACKET, next);
+      case '$':
+        return dollars(next);
+      case '"':
+        return doubleQuoted(next);
+      case '\'':
+        return singleQuoted(next);
+      case '/':
+        return charAt(next) == '/'
+          ? match(TurboGherkinLexer.COMMENT_LINE, lineEnd(next + 1))
+          : match(TurboGherkinLexer.ANYSYMBOL, next);
+      default:
+        if (isDigit(c)) {
+          return number(next);
+        }
+        if (Character.isHighSurrogate(c) && next < length && Character.isLowSurrogate(text[next])) {
+          return match(TurboGherkinLexer.ANYSYMBOL, next + 1);
+        }
+        return match(TurboGherkinLexer.ANYSYMBOL, next);
+    }
+  }
+
+  private int dollars(int next) {
+    if (charAt(next) != '$') {
+      return match(TurboGherkinLexer.DOLLAR, next);
+    }
+    if (charAt(next + 1) != '$') {
+      return match(TurboGherkinLexer.DDOLLAR, next + 1);
+    }
+    return match(TurboGherkinLexer.TDOLLAR, next + 2);
+  }
+
+  /**
+   * STRING: '"' (~[\r\n"] | '""')* '"' против DOC_STRINGS: '"""', побеждает более длинное совпадение
+   */
+  private int doubleQuoted(int next) {
+    var stringEnd = -1;
+    var i = next;
+    while (i < length) {
+      var c = text[i];
+      if (c == '\r' || c == '\n') {
+        break;
+      }
+      i++;
+      if (c == '"') {
+        // кавычка может закрывать строку или начинать удвоенную кавычку
+        stringEnd = i;
+        if (charAt(i) != '"') {
+          break;
+        }
+        i++;
+      }
+    }
+    var docStrings = charAt(next) == '"' && charAt(next + 1) == '"' ? next + 2 : -1;
+    if (stringEnd > docStrings) {
+      return match(TurboGherkinLexer.STRING, stringEnd);
+    }
+    if (docStrings > 0) {
+      return match(TurboGherkinLexer.DOC_STRINGS, docStrings);
+    }
+    return match(TurboGherkinLexer.ANYSYMBOL, next);
+  }
+
+  private int singleQuoted(int next) {
+    for (var i = next; i < length; i++) {
+      var c = text[i];
+      if (c == '\'') {
+        return match(TurboGherkinLexer.STRING, i + 1);
+      }
+      if (c == '\r' || c == '\n') {
+        break;
+      }
+    }
+    return match(TurboGherkinLexer.ANYSYMBOL, next);
+  }
+
+  private int number(int next) {
+    var i = next;
+    while (isDigit(charAt(i))) {
+      i++;
+    }
+    if (charAt(i) != '.') {
+      return match(TurboGherkinLexer.DECIMAL, i);
+    }
+    i++;
+    while (isDigit(charAt(i))) {
+      i++;
+    }
+    return match(TurboGherkinLexer.FLOAT, i);
+  }
+
+  private int lineEnd(int from) {
+    var i = from;
+    while (i < length && text[i] != '\r' && text[i] != '\n') {
+      i++;
+    }
+    return i;
+  }
+
+  private int match(int type, int end) {
+    this.type = type;
+    return end;
+  }
+
+  private int charAt(int i) {
+    return i < length ? text[i] : -1;
+  }
+
+  private static boolean isDigit(int c) {
+    return c >= '0' && c <= '9';
+  }
+}
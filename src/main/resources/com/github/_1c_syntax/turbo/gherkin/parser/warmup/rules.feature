@@ -0,0 +1,30 @@
+# language: en
+@smoke
+Feature: Rules warm up
+  Business rules with their own background
+
+  Background:
+    Given a global administrator named "Greg"
+
+  Rule: There can be only One
+    Example: Only One -- More than one alive
+      Given there are 3 ninjas
+      And there are more than one ninja alive
+      When 2 ninjas meet, they will fight
+      Then one ninja dies (but not me)
+
+  Правило: Бизнес правило
+    Предыстория:
+      Допустим в базе есть справочник "Номенклатура"
+
+    Пример: Проверка правила
+      Пусть открыта форма списка
+      Тогда я закрываю форму
+      Также форма закрылась
+      То всё хорошо
+
+    Сценарий: Таблица шага
+      Когда я заполняю таблицу:
+        | Колонка1 | Колонка2 |
+        | 1        | "текст"  |
+      Затем таблица заполнена
@@ -0,0 +1,54 @@
+# language: ru
+#parent uf:
+@UF2_прогрев
+@tree
+
+Функционал: Прогрев кэша парсера
+  Как разработчик
+  Я хочу чтобы первый разбор файла был таким же быстрым, как и последующие
+
+  Контекст:
+    Дано Я открыл новый сеанс TestClient или подключил уже существующий
+    И я закрываю все окна клиентского приложения
+
+  Сценарий: Заполнение формы "Контрагенты"
+    Когда открылось окно 'Контрагенты'
+    И в поле с именем "Наименование" я ввожу текст "ООО Ромашка"
+  //комментарий в теле сценария
+    И я нажимаю на кнопку с именем 'ФормаЗаписатьИЗакрыть'
+    Тогда таблица "Список" содержит строки:
+      | 'Наименование' | 'Код'       |
+      | 'ООО Ромашка'  | '000000001' |
+    И значение поля равно 1.25 или 7
+    Но окно "Ошибка" не открылось
+
+  Scenario: Breaker joins a game
+    Given the Maker has started a game with the word "silky"
+    When the Breaker joins the Maker's game
+    Then the Breaker must guess a word with 5 characters
+    And a blog post named "Random" with Markdown body
+      """
+      Some Title, Eh?
+      ===============
+      Here is the first paragraph of my blog post.
+      """
+    But nothing else happens
+
+  Структура сценария: Проверка остатков
+    Дано есть <Начало> единиц товара
+    Когда я списываю <Списание> единиц
+    Тогда остаток равен <Остаток>
+
+    Примеры:
+      | Начало | Списание | Остаток |
+      |     12 |        5 |       7 |
+      |     20 |        5 |      15 |
+
+  Scenario Outline: eating
+    Given there are <start> cucumbers
+    When I eat <eat> cucumbers
+    Then I should have <left> cucumbers
+
+    Examples:
+      | start | eat | left |
+      |    12 |   5 |    7 |
@@ -0,0 +1,117 @@
+/*
+ * This file is a part of Turbo Gherkin Parser.
+ *
+ * Copyright © 2020-2020
+ * Valery Maximov <maximovvalery@gmail.com>, 1c-syntax team <www.github.com/1c-syntax>, BIA Technologies team <www.bia-tech.ru> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * Turbo Gherkin Parser is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * Turbo Gherkin Parser is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Turbo Gherkin Parser.
+ */
+import com.github._1c_syntax.bsl.parser.UnicodeBOMInputStream;
+import com.github._1c_syntax.turbo.gherkin.parser.GherkinCharStreams;
+import com.github._1c_syntax.turbo.gherkin.parser.GherkinTokenizer;
+import com.github._1c_syntax.turbo.gherkin.parser.GherkinTokenizerPool;
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.misc.Interval;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TGCharStreamsTest {
+
+  @Test
+  void testBOM() throws IOException {
+    var text = "Функционал: Фича с эмодзи 😀\n";
+    var content = text.getBytes(StandardCharsets.UTF_8);
+    var utf8 = concat(new byte[]{(byte) 0xEF, (byte) 0xBB, (byte) 0xBF}, content);
+    assertThat(text(GherkinCharStreams.fromByteBuffer(ByteBuffer.wrap(content)))).isEqualTo(readWithBOMStream(content));
+    assertThat(text(GherkinCharStreams.fromByteBuffer(ByteBuffer.wrap(utf8)))).isEqualTo(readWithBOMStream(utf8));
+
+    byte[][] boms = {
+      {(byte) 0xFE, (byte) 0xFF},
+      {(byte) 0xFF, (byte) 0xFE},
+      {(byte) 0xFF, (byte) 0xFE, 0x00, 0x00},
+      {0x00, 0x00, (byte) 0xFE, (byte) 0xFF}
+    };
+    for (var bom : boms) {
+      var buffer = ByteBuffer.wrap(concat(bom, content));
+      assertThat(text(GherkinCharStreams.fromByteBuffer(buffer))).isEqualTo(text);
+      assertThat(buffer.position()).isZero();
+    }
+  }
+
+  @Test
+  void testMalformedInput() throws IOException {
+    var bytes = concat("Функционал: ".getBytes(StandardCharsets.UTF_8), new byte[]{(byte) 0xC3, 0x28});
+    assertThat(text(GherkinCharStreams.fromByteBuffer(ByteBuffer.wrap(bytes)))).isEqualTo(readWithBOMStream(bytes));
+  }
+
+  @Test
+  void testFromPath(@TempDir Path root) throws IOException {
+    var example = Path.of("./src/test/resources/correct/example8.feature");
+    var content = Files.readString(example, StandardCharsets.UTF_8);
+    assertThat(text(GherkinCharStreams.fromPath(example))).isEqualTo(content.replaceFirst("^\uFEFF", ""));
+
+    // файл больше порога отображается в память
+    var large = root.resolve("large.feature");
+    var builder = new StringBuilder("\uFEFF").append(content);
+    while (builder.length() < 1_100_000) {
+      builder.append(content, content.indexOf("Сценарий"), content.length());
+    }
+    Files.writeString(large, builder, StandardCharsets.UTF_8);
+    assertThat(Files.size(large)).isGreaterThan(1L << 20);
+    assertThat(text(GherkinCharStreams.fromPath(large))).isEqualTo(builder.substring(1));
+  }
+
+  @Test
+  void testParse() throws IOException {
+    var example = Path.of("./src/test/resources/correct/example1.feature");
+    var expected = new GherkinTokenizer(Files.readString(example, StandardCharsets.UTF_8)).getAst().toStringTree();
+    try (var lease = new GherkinTokenizerPool().acquire()) {
+      assertThat(lease.parse(GherkinCharStreams.fromPath(example)).toStringTree()).isEqualTo(expected);
+    }
+  }
+
+  private static String text(CharStream stream) {
+    return stream.getText(Interval.of(0, stream.size() - 1));
+  }
+
+  private static String readWithBOMStream(byte[] bytes) throws IOException {
+    try (
+      var ubis = new UnicodeBOMInputStream(new ByteArrayInputStream(bytes));
+      var reader = new InputStreamReader(ubis, StandardCharsets.UTF_8)
+    ) {
+      ubis.skipBOM();
+      return CharStreams.fromReader(reader).toString();
+    }
+  }
+
+  private static byte[] concat(byte[] left, byte[] right) {
+    var result = new byte[left.length + right.length];
+    System.arraycopy(left, 0, result, 0, left.length);
+    System.arraycopy(right, 0, result, left.length, right.length);
+    return result;
+  }
+}
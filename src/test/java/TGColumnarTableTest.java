@@ -0,0 +1,154 @@
+/*
+ * This file is a part of Turbo Gherkin Parser.
+ *
+ * Copyright © 2020-2020
+ * Valery Maximov <maximovvalery@gmail.com>, 1c-syntax team <www.github.com/1c-syntax>, BIA Technologies team <www.bia-tech.ru> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * Turbo Gherkin Parser is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * Turbo Gherkin Parser is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Turbo Gherkin Parser.
+ */
+import com.github._1c_syntax.turbo.gherkin.parser.ColumnarTable;
+import com.github._1c_syntax.turbo.gherkin.parser.Feature;
+import com.github._1c_syntax.turbo.gherkin.parser.GherkinFastLexer;
+import com.github._1c_syntax.turbo.gherkin.parser.GherkinLazyParser;
+import com.github._1c_syntax.turbo.gherkin.parser.GherkinModelBuilder;
+import com.github._1c_syntax.turbo.gherkin.parser.GherkinParserRuleContext;
+import com.github._1c_syntax.turbo.gherkin.parser.GherkinTokenizer;
+import com.github._1c_syntax.turbo.gherkin.parser.ScenarioOutline;
+import com.github._1c_syntax.turbo.gherkin.parser.Step;
+import com.github._1c_syntax.turbo.gherkin.parser.Table;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ConsoleErrorListener;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TGColumnarTableTest {
+
+  @Test
+  void testCorpus() throws IOException {
+    var checked = 0;
+    for (var content : TestUtils.readFeatures("./src/test/resources/correct")) {
+      var source = new ColumnarTable.Source(content.toCharArray());
+      for (var table : tables(new GherkinModelBuilder().build(new GherkinTokenizer(content).getAst()))) {
+        var columnar = source.of(table);
+        var rows = table.getRows();
+        assertThat(columnar.getHeaders()).isEqualTo(rows.get(0).getCells());
+        assertThat(columnar.getRowCount()).isEqualTo(rows.size() - 1);
+        for (var row = 1; row < rows.size(); row++) {
+          var cells = rows.get(row).getCells();
+          for (var column = 0; column < cells.size(); column++) {
+            assertThat(columnar.getString(row - 1, column)).isEqualTo(cells.get(column));
+          }
+        }
+        checked++;
+      }
+    }
+    assertThat(checked).isPositive();
+  }
+
+  @Test
+  void testCells() {
+    var content = "\uFEFF  | Имя | Значение |   # комментарий\n"
+      + "\n"
+      + "  | 😀 | \"a | b\" |\n"
+      + "  # комментарий\n"
+      + "  | x |\n"
+      + "  Дано шаг\n";
+    var text = content.toCharArray();
+    var table = ColumnarTable.of(text, 1, text.length, String::intern);
+
+    assertThat(table.getHeaders()).containsExactly("Имя", "Значение");
+    assertThat(table.getHeaders().get(0)).isSameAs("Имя".intern());
+    assertThat(table.getColumnIndex("Значение")).isEqualTo(1);
+    assertThat(table.getRowCount()).isEqualTo(2);
+    assertThat(table.getString(0, 0)).isEqualTo("😀");
+    assertThat(table.getValue(0, 1).toString()).isEqualTo("\"a | b\"");
+    assertThat(table.getOffset(0, 1)).isEqualTo(content.indexOf("\"a"));
+    assertThat(table.getString(1, 0)).isEqualTo("x");
+    assertThat(table.getValue(1, 1)).isNull();
+    assertThat(table.getLength(1, 1)).isEqualTo(-1);
+
+    List<String> values = new ArrayList<>();
+    var cursor = table.cursor();
+    while (cursor.next()) {
+      values.add(cursor.getRow() + ":" + cursor.getString(0));
+      assertThat(cursor.contentEquals(0, cursor.getValue(0))).isTrue();
+    }
+    assertThat(values).containsExactly("0:😀", "1:x");
+  }
+
+  @Test
+  void testSource() {
+    var content = "\uFEFFФункционал: ф 😀\n"
+      + "  Сценарий: с\n"
+      + "    Дано шаг 😀\n"
+      + "      | 😀 | a |\n"
+      + "      | 1  | 2 |\n"
+      + "    И шаг\n"
+      + "      | b | 😀😀 |\n"
+      + "      | 3 | 4    |\n";
+    var text = content.toCharArray();
+    var tables = tables(new GherkinModelBuilder().build(new GherkinTokenizer(content).getAst()));
+    assertThat(tables).hasSize(2);
+
+    // таблицы в обратном порядке: позиция источника пересчитывается назад
+    var source = new ColumnarTable.Source(text);
+    for (var i = tables.size() - 1; i >= 0; i--) {
+      var expected = ColumnarTable.of(text, tables.get(i));
+      var actual = source.of(tables.get(i));
+      assertThat(actual.getHeaders()).isEqualTo(expected.getHeaders());
+      assertThat(actual.getOffset(0, 1)).isEqualTo(expected.getOffset(0, 1));
+    }
+    assertThat(source.of(tables.get(1)).getHeaders()).containsExactly("b", "😀😀");
+    assertThat(source.of(tables.get(0)).getString(0, 1)).isEqualTo("2");
+  }
+
+  @Test
+  void testDeferredContext() {
+    var content = "Функционал: ф\n"
+      + "  Структура сценария: с\n"
+      + "    Дано шаг <a>\n"
+      + "    Примеры:\n"
+      + "      | a | b |\n"
+      + "      | 1 | 2 |\n"
+      + "      | 3 | 4 |\n";
+    var parser = new GherkinLazyParser(new CommonTokenStream(new GherkinFastLexer(content)));
+    parser.removeErrorListener(ConsoleErrorListener.INSTANCE);
+    var context = parser.feature().featureBody().scenarios().scenarioOutline(0).examples().table();
+    var table = ColumnarTable.of(content.toCharArray(), context);
+
+    assertThat(((GherkinParserRuleContext) context).isDeferred()).isTrue();
+    assertThat(table.getHeaders()).containsExactly("a", "b");
+    assertThat(table.getString(1, 1)).isEqualTo("4");
+  }
+
+  private static List<Table> tables(Feature feature) {
+    List<Table> tables = new ArrayList<>();
+    var scenarios = new ArrayList<>(feature.getScenarios());
+    feature.getRules().forEach(rule -> scenarios.addAll(rule.getScenarios()));
+    for (var scenario : scenarios) {
+      scenario.getSteps().stream().map(Step::getTable).forEach(table -> table.ifPresent(tables::add));
+      if (scenario instanceof ScenarioOutline) {
+        ((ScenarioOutline) scenario).getExamples().ifPresent(examples -> tables.add(examples.getTable()));
+      }
+    }
+    return tables;
+  }
+}
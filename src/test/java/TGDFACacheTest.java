@@ -0,0 +1,68 @@
+/*
+ * This file is a part of Turbo Gherkin Parser.
+ *
+ * Copyright © 2020-2020
+ * Valery Maximov <maximovvalery@gmail.com>, 1c-syntax team <www.github.com/1c-syntax>, BIA Technologies team <www.bia-tech.ru> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * Turbo Gherkin Parser is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * Turbo Gherkin Parser is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Turbo Gherkin Parser.
+ */
+
+import com.github._1c_syntax.turbo.gherkin.parser.GherkinDFACache;
+import com.github._1c_syntax.turbo.gherkin.parser.GherkinTokenizer;
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Isolated;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// тесты очищают общий для процесса кэш DFA, поэтому не выполняются параллельно с другими
+// и после себя снова прогревают кэш
+@Isolated
+class TGDFACacheTest {
+
+  @AfterEach
+  void restoreWarmState() {
+    GherkinDFACache.warmUp();
+  }
+
+  @Test
+  void testWarmUp() {
+    GherkinDFACache.clear();
+    assertThat(GherkinDFACache.isWarmedUp()).isFalse();
+    assertThat(GherkinDFACache.size()).isZero();
+
+    GherkinDFACache.warmUp();
+    assertThat(GherkinDFACache.isWarmedUp()).isTrue();
+    var size = GherkinDFACache.size();
+    assertThat(size).isPositive();
+
+    GherkinDFACache.warmUp();
+    assertThat(GherkinDFACache.size()).isEqualTo(size);
+  }
+
+  @Test
+  void testWarmUpCorpusIsCorrect() throws IOException {
+    for (var name : new String[]{"warmup/scenarios.feature", "warmup/rules.feature"}) {
+      var content = IOUtils.toString(GherkinDFACache.class.getResourceAsStream(name), StandardCharsets.UTF_8);
+      var feature = new GherkinTokenizer(content).getAst();
+      assertThat(TestUtils.treeContainsErrors(feature)).isFalse();
+    }
+  }
+}
@@ -0,0 +1,187 @@
+/*
+ * This file is a part of Turbo Gherkin Parser.
+ *
+ * Copyright © 2020-2020
+ * Valery Maximov <maximovvalery@gmail.com>, 1c-syntax team <www.github.com/1c-syntax>, BIA Technologies team <www.bia-tech.ru> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * Turbo Gherkin Parser is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * Turbo Gherkin Parser is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Turbo Gherkin Parser.
+ */
+
+import com.github._1c_syntax.turbo.gherkin.parser.GherkinDocument;
+import com.github._1c_syntax.turbo.gherkin.parser.TurboGherkinParser;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TGDocumentTest {
+
+  @Test
+  void testEditStep() throws IOException {
+    var document = new GherkinDocument(read("example8.feature"));
+    var root = document.getAst();
+
+    replace(document, "я очищаю каталог", "я очищаю папку");
+    assertThat(document.getAst()).isSameAs(root);
+    assertThat(document.getLastReparsed().getRuleIndex()).isEqualTo(TurboGherkinParser.RULE_scenario);
+    assertSameAsFresh(document);
+
+    var offset = document.getText().indexOf("    И я закрываю сеанс TESTCLIENT");
+    document.applyEdit(offset, 0, "    И я добавляю новый шаг с параметром \"1\"\r\n");
+    assertThat(document.getLastReparsed().getRuleIndex()).isEqualTo(TurboGherkinParser.RULE_scenario);
+    assertSameAsFresh(document);
+
+    replace(document, "    И я добавляю новый шаг с параметром \"1\"\r\n", "");
+    assertThat(document.getLastReparsed().getRuleIndex()).isEqualTo(TurboGherkinParser.RULE_scenario);
+    assertThat(document.getText()).isEqualTo(read("example8.feature").replaceFirst("я очищаю каталог", "я очищаю папку"));
+    assertSameAsFresh(document);
+  }
+
+  @Test
+  void testEditsBackAndForth() throws IOException {
+    var content = read("example8.feature");
+    var document = new GherkinDocument(content);
+    var expected = new StringBuilder(content);
+
+    // правки в разных местах текста, в том числе длиннее свободного участка буфера
+    var step = "    И я добавляю шаг с длинным текстом " + "параметр ".repeat(20) + "\r\n";
+    var offset = content.indexOf("    И я закрываю сеанс TESTCLIENT");
+    document.applyEdit(offset, 0, step);
+    expected.insert(offset, step);
+    assertSameAsFresh(document);
+
+    replace(document, "я очищаю каталог", "я очищаю папку");
+    var target = expected.indexOf("я очищаю каталог");
+    expected.replace(target, target + "я очищаю каталог".length(), "я очищаю папку");
+    assertSameAsFresh(document);
+
+    replace(document, step, "");
+    assertThat(document.getText()).isEqualTo(expected.toString().replace(step, ""));
+    assertSameAsFresh(document);
+  }
+
+  @Test
+  void testEditOutlineAndRule() throws IOException {
+    var document = new GherkinDocument(read("example5.feature"));
+    replace(document, "|    20 |   5 |   15 |", "|    21 |   6 |   15 |");
+    assertThat(document.getLastReparsed().getRuleIndex()).isEqualTo(TurboGherkinParser.RULE_scenarioOutline);
+    assertSameAsFresh(document);
+
+    document = new GherkinDocument(read("example2.feature"));
+    replace(document, "There can be Two", "There can be Three");
+    assertThat(document.getLastReparsed().getRuleIndex()).isEqualTo(TurboGherkinParser.RULE_businessRule);
+    assertSameAsFresh(document);
+  }
+
+  @Test
+  void testRandomEdits() throws IOException {
+    // правки затрагивают разные сегменты токенов, в том числе несколько раз подряд
+    var inserts = new String[]{"", "x", " ", "\n", "| a |", "\"\"\"", "#", "  And step\n", "Scenario: s\n"};
+    var random = new Random(20201018);
+    for (var name : List.of("example2.feature", "example5.feature", "example8.feature")) {
+      var document = new GherkinDocument(read(name));
+      for (var i = 0; i < 100; i++) {
+        var length = document.getText().length();
+        var offset = random.nextInt(length);
+        document.applyEdit(offset, Math.min(random.nextInt(4), length - offset),
+          inserts[random.nextInt(inserts.length)]);
+        assertSameAsFresh(document);
+      }
+    }
+  }
+
+  @Test
+  void testAppendToEnd() throws IOException {
+    var document = new GherkinDocument(read("example1.feature"));
+    var length = document.getText().length();
+    document.applyEdit(length, 0, "s");
+    assertThat(document.getLastReparsed().getRuleIndex()).isEqualTo(TurboGherkinParser.RULE_scenario);
+    assertSameAsFresh(document);
+
+    document.applyEdit(length + 1, 0, "\n    And one more step\n");
+    assertThat(document.getLastReparsed().getRuleIndex()).isEqualTo(TurboGherkinParser.RULE_scenario);
+    assertSameAsFresh(document);
+  }
+
+  @Test
+  void testFullReparse() throws IOException {
+    var document = new GherkinDocument(read("example8.feature"));
+
+    replace(document, "Функционал: Детали ошибки", "Функционал: Детали ошибок");
+    assertThat(document.getLastReparsed()).isSameAs(document.getAst());
+    assertSameAsFresh(document);
+
+    var offset = document.getText().indexOf("    И я закрываю сеанс TESTCLIENT");
+    document.applyEdit(offset, 0, "  Сценарий: новый сценарий\r\n");
+    assertThat(document.getLastReparsed()).isSameAs(document.getAst());
+    assertSameAsFresh(document);
+
+    assertThatThrownBy(() -> document.applyEdit(-1, 0, ""))
+      .isInstanceOf(IndexOutOfBoundsException.class);
+  }
+
+  private static void replace(GherkinDocument document, String target, String replacement) {
+    var offset = document.getText().indexOf(target);
+    assertThat(offset).isNotNegative();
+    document.applyEdit(offset, target.length(), replacement);
+  }
+
+  private static void assertSameAsFresh(GherkinDocument document) {
+    var fresh = new GherkinDocument(document.getText());
+    assertThat(document.getAst().toStringTree()).isEqualTo(fresh.getAst().toStringTree());
+    assertThat(document.getTokens()).hasSameSizeAs(fresh.getTokens());
+    for (var i = 0; i < fresh.getTokens().size(); i++) {
+      assertThat(describe(document.getTokens().get(i))).isEqualTo(describe(fresh.getTokens().get(i)));
+    }
+    assertSameBounds(document.getAst(), fresh.getAst());
+  }
+
+  private static void assertSameBounds(ParseTree actual, ParseTree expected) {
+    if (!(expected instanceof ParserRuleContext)) {
+      return;
+    }
+    var actualContext = (ParserRuleContext) actual;
+    var expectedContext = (ParserRuleContext) expected;
+    assertThat(actualContext.getSourceInterval()).isEqualTo(expectedContext.getSourceInterval());
+    if (actualContext.getParent() != null) {
+      assertThat(actualContext.getParent().children).contains(actualContext);
+    }
+    for (var i = 0; i < expected.getChildCount(); i++) {
+      assertSameBounds(actual.getChild(i), expected.getChild(i));
+    }
+  }
+
+  private static String describe(Token token) {
+    return token.getTokenIndex() + ":" + token.getType() + ":" + token.getChannel()
+      + "[" + token.getStartIndex() + "," + token.getStopIndex() + "]"
+      + token.getLine() + ":" + token.getCharPositionInLine() + "=" + token.getText();
+  }
+
+  private static String read(String name) throws IOException {
+    return FileUtils.readFileToString(
+      Paths.get("./src/test/resources/correct", name).toFile(), StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,120 @@
+/*
+ * This file is a part of Turbo Gherkin Parser.
+ *
+ * Copyright © 2020-2020
+ * Valery Maximov <maximovvalery@gmail.com>, 1c-syntax team <www.github.com/1c-syntax>, BIA Technologies team <www.bia-tech.ru> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * Turbo Gherkin Parser is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * Turbo Gherkin Parser is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Turbo Gherkin Parser.
+ */
+import com.github._1c_syntax.turbo.gherkin.parser.GherkinErrorStrategy;
+import com.github._1c_syntax.turbo.gherkin.parser.GherkinTokenizer;
+import com.github._1c_syntax.turbo.gherkin.parser.ParseStrategy;
+import com.github._1c_syntax.turbo.gherkin.parser.TurboGherkinParser;
+import org.antlr.v4.runtime.tree.ErrorNode;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.Trees;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TGErrorStrategyTest {
+
+  private static final String CONTENT = "Функционал: ф\n"
+    + "  Сценарий: первый\n"
+    + "    Дано шаг\n"
+    + "    Если что-то не так\n"
+    + "    Тогда шаг\n"
+    + "  Сценарий: второй\n"
+    + "    Дано шаг\n"
+    + "    Если снова не так\n"
+    + "  Сценарий: третий\n"
+    + "    Дано шаг\n";
+
+  @Test
+  void testConfinedErrors() {
+    var tokenizer = new GherkinTokenizer(CONTENT);
+    var errorStrategy = new GherkinErrorStrategy();
+    tokenizer.setErrorStrategy(errorStrategy);
+    var scenarios = tokenizer.getAst().featureBody().scenarios().scenario();
+
+    assertThat(errorStrategy.getErrorCount()).isEqualTo(2);
+    assertThat(scenarios).hasSize(3);
+    assertThat(scenarios.get(0).steps().step()).hasSize(2);
+    assertThat(scenarios.get(1).steps().step()).hasSize(1);
+    assertThat(scenarios.get(2).steps().step()).hasSize(1);
+    assertThat(errorNodes(scenarios.get(0))).isNotEmpty();
+    assertThat(errorNodes(scenarios.get(1))).isNotEmpty();
+    assertThat(errorNodes(scenarios.get(2))).isEmpty();
+    assertThat(errorNodes(tokenizer.getAst()))
+      .allMatch(node -> node.getParent() instanceof TurboGherkinParser.StepsContext);
+  }
+
+  @Test
+  void testMaxErrors() {
+    var tokenizer = new GherkinTokenizer(CONTENT, ParseStrategy.SLL_THEN_LL);
+    tokenizer.setErrorStrategy(new GherkinErrorStrategy(1));
+    var feature = tokenizer.getAst();
+
+    // после второй ошибки остаток файла пропущен
+    assertThat(feature.featureBody().scenarios().scenario()).hasSize(2);
+    assertThat(feature.getStop().getType()).isEqualTo(TurboGherkinParser.EOF);
+  }
+
+  @Test
+  void testUncorrect() throws IOException {
+    var content = Files.readString(Paths.get("./src/test/resources/uncorrect/example7.feature"),
+      StandardCharsets.UTF_8);
+    var tokenizer = new GherkinTokenizer(content, ParseStrategy.SLL_THEN_LL);
+    tokenizer.setErrorStrategy(new GherkinErrorStrategy());
+    var feature = tokenizer.getAst();
+
+    var scenarioCount = Pattern.compile("^\\s*Сценарий:", Pattern.MULTILINE).matcher(content).results().count();
+    assertThat(feature.featureBody().scenarios().scenario()).hasSize((int) scenarioCount);
+    assertThat(errorNodes(feature))
+      .isNotEmpty()
+      .allMatch(node -> Trees.getAncestors(node).stream()
+        .anyMatch(TurboGherkinParser.ScenarioContext.class::isInstance));
+  }
+
+  @Test
+  void testCorrect() throws IOException {
+    for (var content : TestUtils.readFeatures("./src/test/resources/correct")) {
+      var expected = new GherkinTokenizer(content);
+      var tokenizer = new GherkinTokenizer(content);
+      tokenizer.setErrorStrategy(new GherkinErrorStrategy());
+
+      assertThat(tokenizer.getAst().toStringTree()).isEqualTo(expected.getAst().toStringTree());
+    }
+  }
+
+  private static List<ErrorNode> errorNodes(ParseTree tree) {
+    List<ErrorNode> nodes = new ArrayList<>();
+    for (var node : Trees.descendants(tree)) {
+      if (node instanceof ErrorNode) {
+        nodes.add((ErrorNode) node);
+      }
+    }
+    return nodes;
+  }
+}
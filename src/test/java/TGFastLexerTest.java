@@ -0,0 +1,139 @@
+/*
+ * This file is a part of Turbo Gherkin Parser.
+ *
+ * Copyright © 2020-2020
+ * Valery Maximov <maximovvalery@gmail.com>, 1c-syntax team <www.github.com/1c-syntax>, BIA Technologies team <www.bia-tech.ru> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * Turbo Gherkin Parser is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * Turbo Gherkin Parser is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Turbo Gherkin Parser.
+ */
+import com.github._1c_syntax.turbo.gherkin.parser.GherkinCharStreams;
+import com.github._1c_syntax.turbo.gherkin.parser.GherkinFastLexer;
+import com.github._1c_syntax.turbo.gherkin.parser.GherkinTokenizer;
+import com.github._1c_syntax.turbo.gherkin.parser.TurboGherkinLexer;
+import com.github._1c_syntax.turbo.gherkin.parser.TurboGherkinParser;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ConsoleErrorListener;
+import org.antlr.v4.runtime.Token;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TGFastLexerTest {
+
+  private static final String[] FRAGMENTS = {
+    "Функционал:", "функция:", "Сценарий:", "Сценарии:", "Структура сценария:", "Пример:", "Примеры:",
+    "Контекст:", "Предыстория:", "Правило:", "Scenario Outline:", "Scenario Template:", "Scenarios:",
+    "Feature:", "Background:", "Examples:", "Rule:",
+    "Дано", "Допустим", "Пусть", "Когда", "Тогда", "То", "Затем", "И", "К тому же", "Также", "Но", "А", "Иначе",
+    "Если", "Given", "When", "Then", "And", "But", "If", "Иван", "Книга", "Ананас", "Scenari",
+    " ", "\t", "\n", "\r", "\r\n", "#", "//", "/", "@", "|", "<", ">", "$", "$$", "\"", "\"\"", "\"\"\"", "'",
+    "1", "12", "3.", "4.5", ".", ":", "x", "ß", "ё", "😀", "\uFEFF", "é"
+  };
+
+  @Test
+  void testCorpus() throws IOException {
+    var contents = TestUtils.readFeatures("./src/test/resources");
+    contents.add("\uFEFFФункционал: с BOM\n");
+    for (var content : contents) {
+      assertSameTokens(content);
+    }
+  }
+
+  @Test
+  void testRandom() {
+    var random = new Random(20201018);
+    for (var i = 0; i < 3000; i++) {
+      var builder = new StringBuilder();
+      var length = random.nextInt(40);
+      for (var j = 0; j < length; j++) {
+        var fragment = FRAGMENTS[random.nextInt(FRAGMENTS.length)];
+        builder.append(random.nextBoolean() ? fragment : fragment.toUpperCase());
+      }
+      assertSameTokens(builder.toString());
+    }
+  }
+
+  @Test
+  void testWordTokens() throws IOException {
+    var contents = TestUtils.readFeatures("./src/test/resources");
+    var random = new Random(20201018);
+    for (var i = 0; i < 3000; i++) {
+      var builder = new StringBuilder();
+      var length = random.nextInt(40);
+      for (var j = 0; j < length; j++) {
+        builder.append(FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+      }
+      contents.add(builder.toString());
+    }
+    for (var content : contents) {
+      assertThat(describe(fastTokens(content, true)))
+        .as(content)
+        .isEqualTo(describe(antlrTokens(content, true)));
+    }
+  }
+
+  @Test
+  void testParse() throws IOException {
+    for (var content : TestUtils.readFeatures("./src/test/resources/correct")) {
+      var parser = new TurboGherkinParser(new CommonTokenStream(new GherkinFastLexer(content)));
+      parser.removeErrorListener(ConsoleErrorListener.INSTANCE);
+      assertThat(parser.feature().toStringTree(parser))
+        .isEqualTo(new GherkinTokenizer(content).getAst().toStringTree(parser));
+    }
+  }
+
+  private static void assertSameTokens(String content) {
+    assertThat(describe(fastTokens(content, false)))
+      .as(content)
+      .isEqualTo(describe(antlrTokens(content, false)));
+  }
+
+  private static List<Token> fastTokens(String content, boolean wordTokens) {
+    var lexer = new GherkinFastLexer(content, wordTokens);
+    List<Token> tokens = new ArrayList<>();
+    Token token;
+    do {
+      token = lexer.nextToken();
+      tokens.add(token);
+    } while (token.getType() != Token.EOF);
+    return tokens;
+  }
+
+  private static List<Token> antlrTokens(String content, boolean wordTokens) {
+    var lexer = new TurboGherkinLexer(
+      GherkinCharStreams.fromString(content), true);
+    lexer.setWordTokens(wordTokens);
+    lexer.removeErrorListener(ConsoleErrorListener.INSTANCE);
+    var tokenStream = new CommonTokenStream(lexer);
+    tokenStream.fill();
+    return tokenStream.getTokens();
+  }
+
+  private static List<String> describe(List<? extends Token> tokens) {
+    return tokens.stream()
+      .map(token -> TurboGherkinLexer.VOCABULARY.getSymbolicName(token.getType())
+        + ":" + token.getChannel() + ":" + token.getText()
+        + ":" + token.getStartIndex() + ":" + token.getStopIndex()
+        + ":" + token.getLine() + ":" + token.getCharPositionInLine())
+      .collect(Collectors.toList());
+  }
+}
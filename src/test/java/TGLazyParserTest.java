@@ -0,0 +1,127 @@
+/*
+ * This file is a part of Turbo Gherkin Parser.
+ *
+ * Copyright © 2020-2020
+ * Valery Maximov <maximovvalery@gmail.com>, 1c-syntax team <www.github.com/1c-syntax>, BIA Technologies team <www.bia-tech.ru> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * Turbo Gherkin Parser is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * Turbo Gherkin Parser is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Turbo Gherkin Parser.
+ */
+import com.github._1c_syntax.turbo.gherkin.parser.GherkinCharStreams;
+import com.github._1c_syntax.turbo.gherkin.parser.GherkinLazyParser;
+import com.github._1c_syntax.turbo.gherkin.parser.GherkinModelBuilder;
+import com.github._1c_syntax.turbo.gherkin.parser.GherkinParserRuleContext;
+import com.github._1c_syntax.turbo.gherkin.parser.TurboGherkinLexer;
+import com.github._1c_syntax.turbo.gherkin.parser.TurboGherkinParser;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ConsoleErrorListener;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TGLazyParserTest {
+
+  @Test
+  void testCorpus() throws IOException {
+    for (var content : TestUtils.readFeatures("./src/test/resources/correct")) {
+      var parser = parser(content);
+      var lazy = parser(content, true).feature();
+
+      assertThat(lazy.toStringTree(parser)).isEqualTo(parser.feature().toStringTree(parser));
+    }
+  }
+
+  @Test
+  void testDeferred() {
+    var content = "Функционал: ф\n"
+      + "  Сценарий: с\n"
+      + "    Дано шаг <параметр>\n"
+      + "      | a | b |\n"
+      + "      | 1 | 2 |\n"
+      + "    И шаг\n"
+      + "      \"\"\"\n"
+      + "      текст\n"
+      + "      \"\"\"\n"
+      + "  Структура сценария: с\n"
+      + "    Дано шаг\n"
+      + "    Примеры:\n"
+      + "      | a |\n"
+      + "      | 1 |\n";
+    var feature = parser(content, true).feature();
+    var scenarios = feature.featureBody().scenarios();
+    var steps = scenarios.scenario(0).steps();
+    var examplesTable = scenarios.scenarioOutline(0).examples().table();
+
+    assertThat(((GherkinParserRuleContext) steps).isDeferred()).isTrue();
+    assertThat(((GherkinParserRuleContext) examplesTable).isDeferred()).isTrue();
+    assertThat(steps.getStart().getType()).isEqualTo(TurboGherkinParser.GIVEN_KEYWORD);
+    assertThat(steps.getStop().getType()).isEqualTo(TurboGherkinParser.EOL);
+
+    assertThat(steps.step()).hasSize(2);
+    assertThat(((GherkinParserRuleContext) steps).isDeferred()).isFalse();
+    var table = steps.step(0).table();
+    var docStrings = steps.step(1).docStrings();
+    assertThat(((GherkinParserRuleContext) table).isDeferred()).isTrue();
+    assertThat(((GherkinParserRuleContext) docStrings).isDeferred()).isTrue();
+    assertThat(table.tableRows().tableRow()).hasSize(1);
+    assertThat(docStrings.docStringsValue().getText()).contains("текст");
+    assertThat(examplesTable.tableHead().tableCell()).hasSize(1);
+    assertThat(steps.step(0).getParent()).isSameAs(steps);
+  }
+
+  @Test
+  void testFallback() {
+    var content = "Функционал: ф\n"
+      + "  Сценарий: с\n"
+      + "    Дано шаг\n"
+      + "      | a | b |\n"
+      + "    Тогда шаг <\n";
+    var expected = parser(content);
+    var lazy = parser(content, true).feature();
+
+    assertThat(lazy.toStringTree(expected)).isEqualTo(expected.feature().toStringTree(expected));
+  }
+
+  @Test
+  void testModel() throws IOException {
+    for (var content : TestUtils.readFeatures("./src/test/resources/correct")) {
+      var expected = new GherkinModelBuilder().build(parser(content).feature());
+      var feature = new GherkinModelBuilder().build(parser(content, true).feature());
+
+      assertThat(feature.getScenarios()).hasSameSizeAs(expected.getScenarios());
+      for (var i = 0; i < feature.getScenarios().size(); i++) {
+        var scenario = feature.getScenarios().get(i);
+        var expectedScenario = expected.getScenarios().get(i);
+        assertThat(scenario.getEndOffset()).isEqualTo(expectedScenario.getEndOffset());
+        assertThat(scenario.getSteps()).hasSameSizeAs(expectedScenario.getSteps());
+      }
+    }
+  }
+
+  private static TurboGherkinParser parser(String content) {
+    return parser(content, false);
+  }
+
+  private static TurboGherkinParser parser(String content, boolean lazy) {
+    var lexer = new TurboGherkinLexer(GherkinCharStreams.fromString(content), true);
+    lexer.removeErrorListener(ConsoleErrorListener.INSTANCE);
+    var tokenStream = new CommonTokenStream(lexer);
+    var parser = lazy ? new GherkinLazyParser(tokenStream) : new TurboGherkinParser(tokenStream);
+    parser.removeErrorListener(ConsoleErrorListener.INSTANCE);
+    return parser;
+  }
+}
@@ -0,0 +1,238 @@
+/*
+ * This file is a part of Turbo Gherkin Parser.
+ *
+ * Copyright © 2020-2020
+ * Valery Maximov <maximovvalery@gmail.com>, 1c-syntax team <www.github.com/1c-syntax>, BIA Technologies team <www.bia-tech.ru> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * Turbo Gherkin Parser is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * Turbo Gherkin Parser is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Turbo Gherkin Parser.
+ */
+import com.github._1c_syntax.turbo.gherkin.parser.Feature;
+import com.github._1c_syntax.turbo.gherkin.parser.GherkinElement;
+import com.github._1c_syntax.turbo.gherkin.parser.GherkinFastLexer;
+import com.github._1c_syntax.turbo.gherkin.parser.GherkinLineScanner;
+import com.github._1c_syntax.turbo.gherkin.parser.GherkinModelBuilder;
+import com.github._1c_syntax.turbo.gherkin.parser.GherkinTokenizer;
+import com.github._1c_syntax.turbo.gherkin.parser.ScenarioDefinition;
+import com.github._1c_syntax.turbo.gherkin.parser.ScenarioOutline;
+import com.github._1c_syntax.turbo.gherkin.parser.Step;
+import com.github._1c_syntax.turbo.gherkin.parser.Table;
+import com.github._1c_syntax.turbo.gherkin.parser.TurboGherkinParser;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ConsoleErrorListener;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TGLineScannerTest {
+
+  private static final String[] LINES = {
+    "", "   ", "\t", "# комментарий", "  # комментарий", "// комментарий", "@tag", "@tag1 @tag2", "@a@b",
+    "Функционал: ещё", "  Описание функционала", "  Контекст:", "  Предыстория: с описанием", "Правило: правило",
+    "  Сценарий: новый", "  Сценарий:", "  Пример: пример", "  Структура сценария: <имя>", "    Примеры:",
+    "    Дано шаг", "    И шаг с \"строкой # не комментарий\"", "    Когда шаг <параметр>", "    Тогда шаг <",
+    "    И шаг // комментарий", "    Но  шаг", "    Если условие", "    Иначе", "    Затем 'строка' 12 3.5",
+    "      | a | b |", "      | 1 | 2 |", "      | x |", "      | \"a | b\" |", "      | c | # d |", "      | e",
+    "      \"\"\"", "      текст", "      \"\"\" лишнее", "  Сценарии:", "\r", "😀 текст", "\uFEFF"
+  };
+
+  @Test
+  void testCorpus() throws IOException {
+    var scanner = new GherkinLineScanner();
+    var scanned = 0;
+    for (var content : TestUtils.readFeatures("./src/test/resources/correct")) {
+      var feature = scanner.scan(content.toCharArray(), content.length());
+      if (feature.isPresent()) {
+        scanned++;
+        assertThat(describe(feature.get())).isEqualTo(describe(build(content)));
+      }
+      assertThat(describe(scanner.parse(content))).isEqualTo(describe(build(content)));
+    }
+    assertThat(scanned).isPositive();
+  }
+
+  @Test
+  void testBufferAndBOM() {
+    var content = "\uFEFF# language: ru\r\n@tag\r\nФункционал: 😀 функционал\r\n  Сценарий: 😀\r\n"
+      + "    Дано 😀 шаг\r\n      \"\"\"\r\n      😀\r\n      \"\"\"\r\n    И шаг\r\n      | 😀 | б |\r\n      | 1 | 2 |\r\n";
+    var buffer = Arrays.copyOf(content.toCharArray(), content.length() + 16);
+    var feature = new GherkinLineScanner().scan(buffer, content.length());
+
+    assertThat(feature).isPresent();
+    assertThat(describe(feature.get())).isEqualTo(describe(build(content)));
+  }
+
+  @Test
+  void testFallback() {
+    var content = "Функционал: ф\n  Сценарий: без шагов\n  Сценарий: с шагом\n    Дано шаг\n";
+    var scanner = new GherkinLineScanner();
+
+    assertThat(scanner.scan(content.toCharArray(), content.length())).isEmpty();
+    assertThat(describe(scanner.parse(content))).isEqualTo(describe(build(content)));
+  }
+
+  @Test
+  void testBlockFallback() {
+    var content = "Функционал: ф\n"
+      + "  Сценарий: с описанием\n"
+      + "    Описание сценария\n"
+      + "    Дано шаг\n"
+      + "  Сценарий: построчно\n"
+      + "    Дано шаг\n"
+      + "  Структура сценария: с описанием\n"
+      + "    Описание структуры\n"
+      + "    Дано шаг <a>\n"
+      + "    Примеры:\n"
+      + "      | a |\n"
+      + "      | 1 |\n"
+      + "\n"
+      + "  Сценарий: последний\n"
+      + "    Описание\n"
+      + "    Дано шаг\n";
+    var feature = new GherkinLineScanner().scan(content.toCharArray(), content.length());
+
+    assertThat(feature).isPresent();
+    assertThat(feature.get().getScenarios()).hasSize(4);
+    assertThat(describe(feature.get())).isEqualTo(describe(build(content)));
+
+    var rules = "Функционал: ф\n"
+      + "  Правило: п\n"
+      + "    Пример: с описанием\n"
+      + "      Описание примера\n"
+      + "      Дано шаг\n"
+      + "  Правило: второе\n"
+      + "    Пример: построчно\n"
+      + "      Дано шаг\n";
+    feature = new GherkinLineScanner().scan(rules.toCharArray(), rules.length());
+
+    assertThat(feature).isPresent();
+    assertThat(describe(feature.get())).isEqualTo(describe(build(rules)));
+  }
+
+  /**
+   * Построчный разбор изменённых примеров либо отказывается от файла,
+   * либо строит ту же модель, что и дерево разбора без ошибок
+   */
+  @Test
+  void testMutations() throws IOException {
+    var corpus = TestUtils.readFeatures("./src/test/resources/correct");
+    var scanner = new GherkinLineScanner();
+    var random = new Random(20201018);
+    var scanned = 0;
+    for (var i = 0; i < 300; i++) {
+      var content = mutate(corpus.get(random.nextInt(corpus.size())), random);
+      var feature = scanner.scan(content.toCharArray(), content.length());
+      if (feature.isEmpty()) {
+        continue;
+      }
+      scanned++;
+      assertThat(syntaxErrors(content)).as(content).isZero();
+      assertThat(describe(feature.get())).as(content).isEqualTo(describe(build(content)));
+    }
+    assertThat(scanned).isGreaterThan(100);
+  }
+
+  private static String mutate(String content, Random random) {
+    var lines = new ArrayList<>(Arrays.asList(content.split("\n", -1)));
+    var changes = 1 + random.nextInt(3);
+    for (var i = 0; i < changes; i++) {
+      var index = random.nextInt(lines.size());
+      switch (random.nextInt(4)) {
+        case 0:
+          lines.remove(index);
+          if (lines.isEmpty()) {
+            lines.add("");
+          }
+          break;
+        case 1:
+          lines.add(index, lines.get(index));
+          break;
+        case 2:
+          lines.add(index, LINES[random.nextInt(LINES.length)]);
+          break;
+        default:
+          var line = lines.get(index);
+          var position = random.nextInt(line.length() + 1);
+          var fragment = LINES[random.nextInt(LINES.length)].trim();
+          lines.set(index, line.substring(0, position) + fragment + line.substring(position));
+      }
+    }
+    return String.join("\n", lines);
+  }
+
+  private static Feature build(String content) {
+    return new GherkinModelBuilder().build(new GherkinTokenizer(content).getAst());
+  }
+
+  private static int syntaxErrors(String content) {
+    var parser = new TurboGherkinParser(new CommonTokenStream(new GherkinFastLexer(content)));
+    parser.removeErrorListener(ConsoleErrorListener.INSTANCE);
+    parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+    parser.feature();
+    return parser.getNumberOfSyntaxErrors();
+  }
+
+  private static List<String> describe(Feature feature) {
+    List<String> result = new ArrayList<>();
+    result.add(position(feature) + feature.getTags() + feature.getKeyword() + "|" + feature.getName()
+      + "|" + feature.getDescription());
+    feature.getBackground().ifPresent(background -> describe(background, result));
+    feature.getScenarios().forEach(scenario -> describe(scenario, result));
+    for (var rule : feature.getRules()) {
+      result.add(position(rule) + rule.getKeyword() + "|" + rule.getName() + "|" + rule.getDescription());
+      rule.getBackground().ifPresent(background -> describe(background, result));
+      rule.getScenarios().forEach(scenario -> describe(scenario, result));
+    }
+    return result;
+  }
+
+  private static void describe(ScenarioDefinition scenario, List<String> result) {
+    result.add(position(scenario) + scenario.getKeyword() + "|" + scenario.getName()
+      + "|" + scenario.getDescription());
+    for (var step : scenario.getSteps()) {
+      describe(step, result);
+    }
+    if (scenario instanceof ScenarioOutline) {
+      ((ScenarioOutline) scenario).getExamples().ifPresent(examples -> {
+        result.add(position(examples) + examples.getKeyword());
+        describe(examples.getTable(), result);
+      });
+    }
+  }
+
+  private static void describe(Step step, List<String> result) {
+    result.add(position(step) + step.getKeyword() + "|" + step.getText());
+    step.getTable().ifPresent(table -> describe(table, result));
+    step.getDocString().ifPresent(docString -> result.add(position(docString) + docString.getContent()));
+  }
+
+  private static void describe(Table table, List<String> result) {
+    result.add(position(table));
+    table.getRows().forEach(row -> result.add(position(row) + row.getCells()));
+  }
+
+  private static String position(GherkinElement element) {
+    return element.getClass().getSimpleName() + element.getLine() + ":" + element.getOffset()
+      + ":" + element.getEndOffset() + " ";
+  }
+}
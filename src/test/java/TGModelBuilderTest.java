@@ -0,0 +1,162 @@
+/*
+ * This file is a part of Turbo Gherkin Parser.
+ *
+ * Copyright © 2020-2020
+ * Valery Maximov <maximovvalery@gmail.com>, 1c-syntax team <www.github.com/1c-syntax>, BIA Technologies team <www.bia-tech.ru> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * Turbo Gherkin Parser is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * Turbo Gherkin Parser is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Turbo Gherkin Parser.
+ */
+import com.github._1c_syntax.turbo.gherkin.parser.Feature;
+import com.github._1c_syntax.turbo.gherkin.parser.GherkinModelBuilder;
+import com.github._1c_syntax.turbo.gherkin.parser.GherkinTokenizer;
+import com.github._1c_syntax.turbo.gherkin.parser.ScenarioDefinition;
+import com.github._1c_syntax.turbo.gherkin.parser.ScenarioOutline;
+import com.github._1c_syntax.turbo.gherkin.parser.Step;
+import com.github._1c_syntax.turbo.gherkin.parser.TableRow;
+import com.github._1c_syntax.turbo.gherkin.parser.TurboGherkinParser;
+import org.antlr.v4.runtime.tree.xpath.XPath;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TGModelBuilderTest {
+
+  @Test
+  void testModel() {
+    var content = "@tag1 @tag2\n"
+      + "Функционал: Фича\n"
+      + "  Описание фичи\n"
+      + "\n"
+      + "Правило: Правило\n"
+      + "Контекст:\n"
+      + "  Дано шаг контекста\n"
+      + "Структура сценария: Структура\n"
+      + "  Когда шаг с таблицей\n"
+      + "    | a | b |\n"
+      + "    | 1 | 2 |\n"
+      + "  Тогда шаг с текстом\n"
+      + "    \"\"\"\n"
+      + "    # не комментарий\n"
+      + "    \"\"\"\n"
+      + "  Примеры:\n"
+      + "    | <c> |\n"
+      + "    | 3 |\n";
+    var feature = new GherkinModelBuilder().build(new GherkinTokenizer(content).getAst());
+
+    assertThat(feature.getTags()).containsExactly("@tag1", "@tag2");
+    assertThat(feature.getKeyword()).isEqualTo("Функционал:");
+    assertThat(feature.getName()).isEqualTo("Фича");
+    assertThat(feature.getDescription()).isEqualTo("Описание фичи");
+    assertThat(feature.getLine()).isEqualTo(2);
+    assertThat(feature.getOffset()).isEqualTo(content.indexOf("Функционал"));
+    assertThat(feature.getEndOffset()).isEqualTo(content.length() - 1);
+    assertThat(feature.getScenarios()).isEmpty();
+
+    assertThat(feature.getRules()).hasSize(1);
+    var rule = feature.getRules().get(0);
+    assertThat(rule.getName()).isEqualTo("Правило");
+    assertThat(rule.getBackground()).hasValueSatisfying(background -> {
+      assertThat(background.getKeyword()).isEqualTo("Контекст:");
+      assertThat(background.getSteps()).extracting(Step::getText).containsExactly("шаг контекста");
+    });
+
+    assertThat(rule.getScenarios()).hasSize(1).first().isInstanceOf(ScenarioOutline.class);
+    var outline = (ScenarioOutline) rule.getScenarios().get(0);
+    assertThat(outline.getName()).isEqualTo("Структура");
+    assertThat(outline.getLine()).isEqualTo(8);
+
+    var steps = outline.getSteps();
+    assertThat(steps).extracting(Step::getKeyword).containsExactly("Когда", "Тогда");
+    assertThat(steps.get(0).getTable()).hasValueSatisfying(table ->
+      assertThat(table.getRows()).extracting(TableRow::getCells)
+        .containsExactlyElementsOf(List.of(List.of("a", "b"), List.of("1", "2"))));
+    assertThat(steps.get(0).getDocString()).isEmpty();
+    assertThat(steps.get(1).getDocString()).hasValueSatisfying(docString -> {
+      assertThat(docString.getContent()).isEqualTo("    # не комментарий");
+      assertThat(docString.getLine()).isEqualTo(13);
+    });
+    var step = steps.get(0);
+    assertThat(content.substring(step.getOffset(), step.getEndOffset()))
+      .isEqualTo("Когда шаг с таблицей\n    | a | b |\n    | 1 | 2 |");
+
+    assertThat(outline.getExamples()).hasValueSatisfying(examples -> {
+      assertThat(examples.getKeyword()).isEqualTo("Примеры:");
+      assertThat(examples.getTable().getRows()).extracting(TableRow::getLine).containsExactly(17, 18);
+    });
+  }
+
+  @Test
+  void testCorpus() throws IOException {
+    for (var content : TestUtils.readFeatures("./src/test/resources/correct")) {
+      var ast = new GherkinTokenizer(content).getAst();
+      var feature = new GherkinModelBuilder().build(ast);
+      var parser = new TurboGherkinParser(null);
+
+      assertThat(allSteps(feature).map(step -> step.getKeyword() + " " + step.getText()))
+        .containsExactlyElementsOf(XPath.findAll(ast, "//step", parser).stream()
+          .map(tree -> (TurboGherkinParser.StepContext) tree)
+          .map(step -> step.stepKeyword().getText() + " " + step.name().getText().trim())
+          .collect(Collectors.toList()));
+      assertThat(allScenarios(feature))
+        .hasSize(XPath.findAll(ast, "//scenario", parser).size()
+          + XPath.findAll(ast, "//scenarioOutline", parser).size())
+        .allMatch(scenario -> content.startsWith(scenario.getKeyword(), scenario.getOffset()));
+    }
+  }
+
+  @Test
+  void testUncorrect() throws IOException {
+    for (var content : TestUtils.readFeatures("./src/test/resources/uncorrect")) {
+      var feature = new GherkinModelBuilder().build(new GherkinTokenizer(content).getAst());
+      assertThat(feature).isNotNull();
+    }
+  }
+
+  @Test
+  void testInterner() throws IOException {
+    Map<String, String> pool = new HashMap<>();
+    var builder = new GherkinModelBuilder(value -> pool.computeIfAbsent(value, key -> key));
+    var content = TestUtils.readFeatures("./src/test/resources/correct").get(0);
+    var first = builder.build(new GherkinTokenizer(content).getAst());
+    var second = builder.build(new GherkinTokenizer(content).getAst());
+
+    assertThat(first.getName()).isSameAs(second.getName());
+    assertThat(allSteps(first).map(Step::getText).collect(Collectors.toList()))
+      .zipSatisfy(allSteps(second).map(Step::getText).collect(Collectors.toList()),
+        (left, right) -> assertThat(left).isSameAs(right));
+  }
+
+  private static Stream<ScenarioDefinition> allScenarios(Feature feature) {
+    return Stream.concat(
+      feature.getScenarios().stream(),
+      feature.getRules().stream().flatMap(rule -> rule.getScenarios().stream()));
+  }
+
+  private static Stream<Step> allSteps(Feature feature) {
+    var backgrounds = Stream.concat(
+      feature.getBackground().stream(),
+      feature.getRules().stream().flatMap(rule -> rule.getBackground().stream()));
+    return Stream.concat(backgrounds, allScenarios(feature))
+      .flatMap(scenario -> scenario.getSteps().stream());
+  }
+}
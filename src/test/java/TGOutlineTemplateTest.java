@@ -0,0 +1,113 @@
+/*
+ * This file is a part of Turbo Gherkin Parser.
+ *
+ * Copyright © 2020-2020
+ * Valery Maximov <maximovvalery@gmail.com>, 1c-syntax team <www.github.com/1c-syntax>, BIA Technologies team <www.bia-tech.ru> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * Turbo Gherkin Parser is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * Turbo Gherkin Parser is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Turbo Gherkin Parser.
+ */
+import com.github._1c_syntax.turbo.gherkin.parser.ExpandedScenario;
+import com.github._1c_syntax.turbo.gherkin.parser.ExpandedStep;
+import com.github._1c_syntax.turbo.gherkin.parser.GherkinModelBuilder;
+import com.github._1c_syntax.turbo.gherkin.parser.GherkinTokenizer;
+import com.github._1c_syntax.turbo.gherkin.parser.OutlineTemplate;
+import com.github._1c_syntax.turbo.gherkin.parser.ScenarioOutline;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TGOutlineTemplateTest {
+
+  @Test
+  void testExpand() {
+    var outline = outline("Функционал: Фича\n"
+      + "Структура сценария: Вход <пользователь>\n"
+      + "  Дано я вхожу как <пользователь> с паролем \"<пароль>\"\n"
+      + "  И я заполняю таблицу\n"
+      + "    | Поле  | Значение  |\n"
+      + "    | Логин | <пользователь> |\n"
+      + "  Тогда я вижу текст\n"
+      + "    \"\"\"\n"
+      + "    Привет, <пользователь>! <нет такого>\n"
+      + "    \"\"\"\n"
+      + "  Примеры:\n"
+      + "    | пользователь | пароль |\n"
+      + "    | Иванов       | 123    |\n"
+      + "    | Петров       |        |\n");
+    List<ExpandedScenario> scenarios = outline.expand().collect(Collectors.toList());
+
+    assertThat(scenarios).hasSize(2);
+    var first = scenarios.get(0);
+    assertThat(first.getName()).isEqualTo("Вход Иванов");
+    assertThat(first.getLine()).isEqualTo(13);
+    assertThat(first.getSteps()).extracting(ExpandedStep::getText)
+      .containsExactly("я вхожу как Иванов с паролем \"123\"", "я заполняю таблицу", "я вижу текст");
+    assertThat(first.getSteps().get(1).getTable()).hasValue(
+      List.of(List.of("Поле", "Значение"), List.of("Логин", "Иванов")));
+    assertThat(first.getSteps().get(2).getDocString()).hasValueSatisfying(
+      docString -> assertThat(docString).contains("Привет, Иванов! <нет такого>"));
+
+    var second = scenarios.get(1);
+    assertThat(second.getIndex()).isEqualTo(1);
+    assertThat(second.getSteps().get(0).getText()).isEqualTo("я вхожу как Петров с паролем \"\"");
+    assertThat(second.getSteps().get(0).getStep()).isSameAs(first.getSteps().get(0).getStep());
+  }
+
+  @Test
+  void testBracketHeaders() {
+    var outline = outline("Функционал: Фича\n"
+      + "Структура сценария: С\n"
+      + "  Когда шаг <c>\n"
+      + "  Примеры:\n"
+      + "    | <c> |\n"
+      + "    | 3 |\n");
+
+    assertThat(outline.expand().map(scenario -> scenario.getSteps().get(0).getText()))
+      .containsExactly("шаг 3");
+  }
+
+  @Test
+  void testManyRows() {
+    var content = new StringBuilder("Функционал: Фича\n"
+      + "Структура сценария: С\n"
+      + "  Дано значение <a> и <b>\n"
+      + "  Примеры:\n"
+      + "    | a | b |\n");
+    var rowCount = 5000;
+    for (var i = 0; i < rowCount; i++) {
+      content.append("    | ").append(i).append(" | ").append(i * 2).append(" |\n");
+    }
+    var template = OutlineTemplate.of(outline(content.toString()));
+
+    assertThat(template.getHeaders()).containsExactly("a", "b");
+    assertThat(template.size()).isEqualTo(rowCount);
+    var count = 0;
+    for (var scenario : template) {
+      assertThat(scenario.getSteps().get(0).getText())
+        .isEqualTo("значение " + count + " и " + count * 2);
+      count++;
+    }
+    assertThat(count).isEqualTo(rowCount);
+  }
+
+  private static ScenarioOutline outline(String content) {
+    var feature = new GherkinModelBuilder().build(new GherkinTokenizer(content).getAst());
+    return (ScenarioOutline) feature.getScenarios().get(0);
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * This file is a part of Turbo Gherkin Parser.
+ *
+ * Copyright © 2020-2020
+ * Valery Maximov <maximovvalery@gmail.com>, 1c-syntax team <www.github.com/1c-syntax>, BIA Technologies team <www.bia-tech.ru> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * Turbo Gherkin Parser is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * Turbo Gherkin Parser is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Turbo Gherkin Parser.
+ */
+import com.github._1c_syntax.turbo.gherkin.parser.GherkinParallelParser;
+import com.github._1c_syntax.turbo.gherkin.parser.GherkinTokenizer;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TGParallelParserTest {
+
+  @Test
+  void testCorpus() throws IOException {
+    var parser = new GherkinParallelParser();
+    for (var content : TestUtils.readFeatures("./src/test/resources/correct")) {
+      var expected = new GherkinTokenizer(content).getAst();
+      assertThat(parser.parse(content).toStringTree()).isEqualTo(expected.toStringTree());
+    }
+  }
+
+  @Test
+  void testLargeFile() {
+    var builder = new StringBuilder("Функционал: большой файл\n\n");
+    builder.append("Контекст:\n  Дано общий шаг\n\n");
+    for (var i = 0; i < 500; i++) {
+      if (i % 50 == 0) {
+        builder.append("Правило: правило ").append(i).append('\n');
+      }
+      builder.append("  Структура сценария: сценарий ").append(i).append('\n')
+        .append("    Дано шаг с параметром <a>\n")
+        .append("      | колонка | значение |\n")
+        .append("      | ").append(i).append(" | \"строка\" |\n")
+        .append("    Тогда шаг с текстом\n")
+        .append("      \"\"\"\n      текст ").append(i).append("\n      \"\"\"\n")
+        .append("    Примеры:\n      | a |\n      | ").append(i).append(" |\n\n");
+    }
+    var content = builder.toString();
+    var executor = Executors.newFixedThreadPool(4);
+    try {
+      var feature = new GherkinParallelParser(executor, 4).parse(content);
+      var expected = new GherkinTokenizer(content).getAst();
+
+      assertThat(TestUtils.treeContainsErrors(feature)).isFalse();
+      assertThat(feature.toStringTree()).isEqualTo(expected.toStringTree());
+    } finally {
+      executor.shutdown();
+    }
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * This file is a part of Turbo Gherkin Parser.
+ *
+ * Copyright © 2020-2020
+ * Valery Maximov <maximovvalery@gmail.com>, 1c-syntax team <www.github.com/1c-syntax>, BIA Technologies team <www.bia-tech.ru> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * Turbo Gherkin Parser is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * Turbo Gherkin Parser is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Turbo Gherkin Parser.
+ */
+import com.github._1c_syntax.turbo.gherkin.parser.GherkinCharStreams;
+import com.github._1c_syntax.turbo.gherkin.parser.GherkinTokenizer;
+import com.github._1c_syntax.turbo.gherkin.parser.ParseAbortedException;
+import com.github._1c_syntax.turbo.gherkin.parser.ParseBudget;
+import com.github._1c_syntax.turbo.gherkin.parser.ParseStrategy;
+import com.github._1c_syntax.turbo.gherkin.parser.TurboGherkinLexer;
+import com.github._1c_syntax.turbo.gherkin.parser.TurboGherkinParser;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ConsoleErrorListener;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TGParseBudgetTest {
+
+  @Test
+  void testUnlimited() throws IOException {
+    for (var content : TestUtils.readFeatures("./src/test/resources/correct")) {
+      var expected = new GherkinTokenizer(content);
+      var tokenizer = new GherkinTokenizer(content);
+      tokenizer.setBudget(ParseBudget.unlimited().withTimeout(Duration.ofMinutes(1)).withMaxTokens(1_000_000));
+
+      assertThat(tokenizer.getAst().toStringTree()).isEqualTo(expected.getAst().toStringTree());
+    }
+  }
+
+  @Test
+  void testTokenLimit() {
+    var tokenizer = new GherkinTokenizer(steps(1000), ParseStrategy.SLL_THEN_LL);
+    tokenizer.setBudget(ParseBudget.unlimited().withMaxTokens(100));
+
+    assertThatThrownBy(tokenizer::getAst)
+      .isInstanceOfSatisfying(ParseAbortedException.class, e -> {
+        assertThat(e.getReason()).isEqualTo(ParseAbortedException.Reason.TOKEN_LIMIT);
+        assertThat(e.getTokenCount()).isEqualTo(101);
+      });
+  }
+
+  @Test
+  void testTimeout() {
+    var content = new StringBuilder("Функционал: ф\n  Сценарий: с\n    Дано шаг\n    \"\"\"\n");
+    for (var i = 0; i < 100_000; i++) {
+      content.append("    строка многострочного текста ").append(i).append('\n');
+    }
+    content.append("    \"\"\"\n");
+    var tokenizer = new GherkinTokenizer(content.toString());
+    tokenizer.setBudget(ParseBudget.unlimited().withTimeout(Duration.ofNanos(1)));
+
+    assertThatThrownBy(tokenizer::getAst)
+      .isInstanceOfSatisfying(ParseAbortedException.class,
+        e -> assertThat(e.getReason()).isEqualTo(ParseAbortedException.Reason.TIMEOUT));
+  }
+
+  @Test
+  void testCancellation() {
+    var cancelled = new AtomicBoolean();
+    var tokenizer = new GherkinTokenizer(steps(1000));
+    tokenizer.setBudget(ParseBudget.unlimited().withCancellation(cancelled::get));
+    cancelled.set(true);
+
+    assertThatThrownBy(tokenizer::getAst)
+      .isInstanceOfSatisfying(ParseAbortedException.class,
+        e -> assertThat(e.getReason()).isEqualTo(ParseAbortedException.Reason.CANCELLED));
+  }
+
+  @Test
+  void testParser() {
+    var lexer = new TurboGherkinLexer(GherkinCharStreams.fromString(steps(1000)), true);
+    lexer.removeErrorListener(ConsoleErrorListener.INSTANCE);
+    var parser = new TurboGherkinParser(new CommonTokenStream(lexer));
+    parser.removeErrorListener(ConsoleErrorListener.INSTANCE);
+    ParseBudget.unlimited().withMaxTokens(50).attach(parser);
+
+    assertThatThrownBy(parser::feature)
+      .isInstanceOfSatisfying(ParseAbortedException.class,
+        e -> assertThat(e.getReason()).isEqualTo(ParseAbortedException.Reason.TOKEN_LIMIT));
+  }
+
+  private static String steps(int count) {
+    var content = new StringBuilder("Функционал: ф\n  Сценарий: с\n");
+    for (var i = 0; i < count; i++) {
+      content.append("    Дано шаг ").append(i).append('\n');
+    }
+    return content.toString();
+  }
+}
@@ -0,0 +1,213 @@
+/*
+ * This file is a part of Turbo Gherkin Parser.
+ *
+ * Copyright © 2020-2020
+ * Valery Maximov <maximovvalery@gmail.com>, 1c-syntax team <www.github.com/1c-syntax>, BIA Technologies team <www.bia-tech.ru> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * Turbo Gherkin Parser is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * Turbo Gherkin Parser is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Turbo Gherkin Parser.
+ */
+import com.github._1c_syntax.turbo.gherkin.parser.Feature;
+import com.github._1c_syntax.turbo.gherkin.parser.GherkinCharStreams;
+import com.github._1c_syntax.turbo.gherkin.parser.GherkinModelBuilder;
+import com.github._1c_syntax.turbo.gherkin.parser.GherkinParseCache;
+import com.github._1c_syntax.turbo.gherkin.parser.GherkinTokenCodec;
+import com.github._1c_syntax.turbo.gherkin.parser.GherkinTokenizer;
+import com.github._1c_syntax.turbo.gherkin.parser.ScenarioDefinition;
+import com.github._1c_syntax.turbo.gherkin.parser.Step;
+import org.antlr.v4.runtime.Token;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TGParseCacheTest {
+
+  @Test
+  void testHit(@TempDir Path root) throws IOException {
+    var cache = new GherkinParseCache(root, Long.MAX_VALUE);
+    for (var content : TestUtils.readFeatures("./src/test/resources")) {
+      var tokenizer = new GherkinTokenizer(content);
+      var expectedTokens = describe(tokenizer.getTokens());
+      var expectedModel = describe(new GherkinModelBuilder().build(tokenizer.getAst()));
+
+      var parsed = cache.parse(content);
+      assertThat(describe(parsed.getTokens())).isEqualTo(expectedTokens);
+      assertThat(describe(parsed.getFeature())).isEqualTo(expectedModel);
+
+      var cached = cache.get(content).orElseThrow();
+      assertThat(describe(cached.getTokens())).isEqualTo(expectedTokens);
+      assertThat(describe(cached.getFeature())).isEqualTo(expectedModel);
+    }
+    assertThat(cache.getMissCount()).isEqualTo(cache.getEntryCount());
+
+    // записи переживают пересоздание кэша
+    var reopened = new GherkinParseCache(root, Long.MAX_VALUE);
+    assertThat(reopened.getEntryCount()).isEqualTo(cache.getEntryCount());
+    assertThat(reopened.getSize()).isEqualTo(cache.getSize());
+    for (var content : TestUtils.readFeatures("./src/test/resources")) {
+      reopened.parse(content);
+    }
+    assertThat(reopened.getMissCount()).isZero();
+  }
+
+  @Test
+  void testEviction(@TempDir Path root) throws IOException {
+    var contents = TestUtils.readFeatures("./src/test/resources/correct");
+    var first = contents.get(0);
+    var second = contents.get(1);
+    var third = second + "\n";
+    var probe = new GherkinParseCache(root.resolve("probe"), Long.MAX_VALUE);
+    probe.parse(first);
+    probe.parse(second);
+    probe.parse(third);
+    // места на три записи не хватает
+    var maxBytes = probe.getSize() - 1;
+
+    var cache = new GherkinParseCache(root.resolve("cache"), maxBytes);
+    cache.parse(first);
+    cache.parse(second);
+    // первая запись использована последней и переживает вытеснение
+    cache.parse(first);
+    cache.parse(third);
+
+    assertThat(cache.getSize()).isLessThanOrEqualTo(maxBytes);
+    assertThat(cache.getEntryCount()).isEqualTo(2);
+    assertThat(cache.get(second)).isEmpty();
+    assertThat(cache.get(first)).isPresent();
+    assertThat(cache.get(third)).isPresent();
+  }
+
+  @Test
+  void testOutdatedVersion(@TempDir Path root) throws IOException {
+    var outdated = Files.createDirectories(root.resolve("0123456789abcdef"));
+    Files.writeString(outdated.resolve("entry.bin"), "outdated");
+    Files.createFile(outdated.resolve("turbo-gherkin-parse-cache"));
+    var foreign = Files.createDirectories(root.resolve("foreign"));
+    // каталог с подходящим именем, но без метки кэша
+    var unmarked = Files.createDirectories(root.resolve("fedcba9876543210"));
+    Files.writeString(unmarked.resolve("entry.bin"), "foreign");
+
+    new GherkinParseCache(root, Long.MAX_VALUE);
+
+    assertThat(outdated).doesNotExist();
+    assertThat(foreign).exists();
+    assertThat(unmarked.resolve("entry.bin")).exists();
+    assertThat(root.resolve(GherkinParseCache.getVersion())).isDirectory();
+    assertThat(root.resolve(GherkinParseCache.getVersion()).resolve("turbo-gherkin-parse-cache")).exists();
+  }
+
+  @Test
+  void testCorruptedEntry(@TempDir Path root) throws IOException {
+    var content = TestUtils.readFeatures("./src/test/resources/correct").get(0);
+    var cache = new GherkinParseCache(root, Long.MAX_VALUE);
+    var expected = describe(cache.parse(content).getFeature());
+
+    try (var files = Files.list(root.resolve(GherkinParseCache.getVersion()))) {
+      for (var file : files.collect(Collectors.toList())) {
+        Files.write(file, new byte[]{1, 2, 3});
+      }
+    }
+
+    assertThat(cache.get(content)).isEmpty();
+    assertThat(describe(cache.parse(content).getFeature())).isEqualTo(expected);
+    assertThat(cache.getMissCount()).isEqualTo(2);
+  }
+
+  @Test
+  void testCorruptedCount(@TempDir Path root) throws IOException {
+    var content = "Функционал: ф\n  Сценарий: с\n    Дано шаг\n";
+    var cache = new GherkinParseCache(root, Long.MAX_VALUE);
+    cache.parse(content);
+
+    Path entry;
+    try (var files = Files.list(root.resolve(GherkinParseCache.getVersion()))) {
+      entry = files.filter(path -> path.toString().endsWith(".bin")).findFirst().orElseThrow();
+    }
+    var bytes = Files.readAllBytes(entry);
+
+    // заголовок, токены и таблица строк, за ними ссылки модели
+    var in = new ByteArrayInputStream(bytes);
+    in.skip(Integer.BYTES);
+    GherkinTokenCodec.read(in, GherkinCharStreams.fromString(content));
+    for (var i = readVarint(in); i > 0; i--) {
+      in.skip(readVarint(in));
+    }
+    readVarint(in);
+    var refs = bytes.length - in.available();
+
+    // позиция фичи, теги, ключевое слово, имя, описание, контекст, правила и число сценариев,
+    // все ссылки небольшого файла занимают по байту
+    var scenarioCount = refs + 9;
+    assertThat(bytes[scenarioCount]).isEqualTo((byte) 1);
+    bytes[scenarioCount] = 0x7f;
+    Files.write(entry, bytes);
+
+    assertThat(cache.get(content)).isEmpty();
+    assertThat(cache.getEntryCount()).isZero();
+  }
+
+  private static int readVarint(ByteArrayInputStream in) {
+    var value = 0;
+    for (var shift = 0; ; shift += 7) {
+      var b = in.read();
+      value |= (b & 0x7f) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+  }
+
+  private static List<String> describe(List<Token> tokens) {
+    return tokens.stream()
+      .map(token -> token.getType() + ":" + token.getChannel() + ":" + token.getText()
+        + ":" + token.getStartIndex() + ":" + token.getStopIndex()
+        + ":" + token.getLine() + ":" + token.getCharPositionInLine() + ":" + token.getTokenIndex())
+      .collect(Collectors.toList());
+  }
+
+  private static List<String> describe(Feature feature) {
+    var scenarios = Stream.concat(
+      feature.getScenarios().stream(),
+      feature.getRules().stream().flatMap(rule -> rule.getScenarios().stream()));
+    return Stream.concat(
+      Stream.of(feature.getTags() + feature.getKeyword() + feature.getName() + feature.getDescription()
+        + feature.getLine() + ":" + feature.getOffset() + ":" + feature.getEndOffset()),
+      scenarios.flatMap(TGParseCacheTest::describe))
+      .collect(Collectors.toList());
+  }
+
+  private static Stream<String> describe(ScenarioDefinition scenario) {
+    return Stream.concat(
+      Stream.of(scenario.getClass().getSimpleName() + scenario.getKeyword() + scenario.getName()
+        + scenario.getOffset() + ":" + scenario.getEndOffset()),
+      scenario.getSteps().stream().map(TGParseCacheTest::describe));
+  }
+
+  private static String describe(Step step) {
+    return step.getKeyword() + step.getText() + step.getLine() + ":" + step.getOffset() + ":" + step.getEndOffset()
+      + step.getTable().map(table -> table.getRows().stream()
+        .map(row -> row.getCells() + ":" + row.getOffset()).collect(Collectors.joining())).orElse("")
+      + step.getDocString().map(docString -> docString.getContent() + docString.getLine()).orElse("");
+  }
+}
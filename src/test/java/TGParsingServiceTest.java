@@ -0,0 +1,120 @@
+/*
+ * This file is a part of Turbo Gherkin Parser.
+ *
+ * Copyright © 2020-2020
+ * Valery Maximov <maximovvalery@gmail.com>, 1c-syntax team <www.github.com/1c-syntax>, BIA Technologies team <www.bia-tech.ru> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * Turbo Gherkin Parser is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * Turbo Gherkin Parser is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Turbo Gherkin Parser.
+ */
+import com.github._1c_syntax.turbo.gherkin.parser.DocumentParseResult;
+import com.github._1c_syntax.turbo.gherkin.parser.GherkinParsingService;
+import com.github._1c_syntax.turbo.gherkin.parser.ParseBudget;
+import com.github._1c_syntax.turbo.gherkin.parser.ParseStrategy;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TGParsingServiceTest {
+
+  private static final String URI = "file:///test.feature";
+
+  @Test
+  void testParse() throws Exception {
+    try (var service = new GherkinParsingService()) {
+      List<CompletableFuture<DocumentParseResult>> results = new ArrayList<>();
+      var contents = TestUtils.readFeatures("./src/test/resources/correct");
+      for (var i = 0; i < contents.size(); i++) {
+        results.add(service.parse("file:///" + i + ".feature", 1, contents.get(i)));
+      }
+      for (var future : results) {
+        var result = future.get(30, TimeUnit.SECONDS);
+        assertThat(result.getVersion()).isEqualTo(1);
+        assertThat(result.getSyntaxErrors()).isEmpty();
+        assertThat(TestUtils.treeContainsErrors(result.getFeature())).isFalse();
+      }
+    }
+  }
+
+  @Test
+  void testSyntaxErrors() throws Exception {
+    try (var service = new GherkinParsingService()) {
+      for (var content : TestUtils.readFeatures("./src/test/resources/uncorrect")) {
+        var result = service.parse(URI, 1, content).get(30, TimeUnit.SECONDS);
+        assertThat(result.getSyntaxErrors()).isNotEmpty();
+      }
+    }
+  }
+
+  @Test
+  void testCoalescing() throws Exception {
+    try (var service = new GherkinParsingService(Duration.ofMillis(200), ParseStrategy.SLL_THEN_LL)) {
+      List<CompletableFuture<DocumentParseResult>> results = new ArrayList<>();
+      var content = "Функционал: ф\n  Сценарий: с\n    Дано шаг";
+      for (var version = 1; version <= 5; version++) {
+        results.add(service.parse(URI, version, content + version + "\n"));
+      }
+
+      assertThat(results.get(4).get(30, TimeUnit.SECONDS).getVersion()).isEqualTo(5);
+      for (var future : results.subList(0, 4)) {
+        assertThatThrownBy(future::join).isInstanceOf(CancellationException.class);
+      }
+    }
+  }
+
+  @Test
+  void testOutdatedParse() throws Exception {
+    var content = new StringBuilder("Функционал: ф\n");
+    for (var i = 0; i < 20000; i++) {
+      content.append("  Сценарий: с").append(i).append("\n    Дано шаг ").append(i).append('\n');
+    }
+    // признак отмены опрашивается на каждом токене, первый опрос означает, что разбор начат
+    var started = new CountDownLatch(1);
+    var budget = ParseBudget.unlimited().withCancellation(() -> {
+      started.countDown();
+      return false;
+    });
+    try (var service = new GherkinParsingService(Duration.ZERO, ParseStrategy.SLL_THEN_LL, budget)) {
+      var outdated = service.parse(URI, 1, content.toString());
+      assertThat(started.await(30, TimeUnit.SECONDS)).isTrue();
+      var latest = service.parse(URI, 2, "Функционал: ф\n  Сценарий: с\n    Дано шаг\n");
+
+      assertThat(latest.get(30, TimeUnit.SECONDS).getVersion()).isEqualTo(2);
+      assertThatThrownBy(outdated::join).isInstanceOf(CancellationException.class);
+      // разбор устаревшей версии прерван, а не доведен до конца
+      assertThat(service.getAbortedCount()).isEqualTo(1);
+    }
+  }
+
+  @Test
+  void testRemove() {
+    try (var service = new GherkinParsingService(Duration.ofMillis(200), ParseStrategy.LL)) {
+      var future = service.parse(URI, 1, "Функционал: ф\n");
+      service.remove(URI);
+
+      assertThatThrownBy(future::join).isInstanceOf(CancellationException.class);
+    }
+  }
+}
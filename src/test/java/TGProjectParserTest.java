@@ -0,0 +1,119 @@
+/*
+ * This file is a part of Turbo Gherkin Parser.
+ *
+ * Copyright © 2020-2020
+ * Valery Maximov <maximovvalery@gmail.com>, 1c-syntax team <www.github.com/1c-syntax>, BIA Technologies team <www.bia-tech.ru> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * Turbo Gherkin Parser is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * Turbo Gherkin Parser is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Turbo Gherkin Parser.
+ */
+
+import com.github._1c_syntax.turbo.gherkin.parser.FeatureParseResult;
+import com.github._1c_syntax.turbo.gherkin.parser.GherkinProjectParser;
+import com.github._1c_syntax.turbo.gherkin.parser.GherkinTokenizer;
+import com.github._1c_syntax.turbo.gherkin.parser.ParseStrategy;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TGProjectParserTest {
+
+  @Test
+  void testParseAll(@TempDir Path root) throws IOException {
+    FileUtils.copyDirectory(Paths.get("./src/test/resources").toFile(), root.toFile());
+    Files.writeString(root.resolve("readme.md"), "not a feature");
+
+    var executor = Executors.newFixedThreadPool(3);
+    List<FeatureParseResult> results = new ArrayList<>();
+    try {
+      new GherkinProjectParser(executor, 2, ParseStrategy.SLL_THEN_LL).parseAll(root, results::add);
+    } finally {
+      executor.shutdown();
+    }
+
+    assertThat(results)
+      .hasSize(TestUtils.listFeatures("./src/test/resources").size())
+      .allMatch(result -> result.getPath().toString().endsWith(".feature"))
+      .allMatch(result -> result.getException().isEmpty());
+
+    assertThat(results)
+      .filteredOn(result -> result.getPath().getParent().endsWith("correct"))
+      .isNotEmpty()
+      .allMatch(FeatureParseResult::isSuccessful)
+      .allMatch(result -> {
+        var content = readString(result.getPath());
+        return result.getFeature().orElseThrow().toStringTree()
+          .equals(new GherkinTokenizer(content).getAst().toStringTree());
+      });
+
+    assertThat(results)
+      .filteredOn(result -> result.getPath().getParent().endsWith("uncorrect"))
+      .isNotEmpty()
+      .allMatch(result -> !result.isSuccessful())
+      .allMatch(result -> !result.getSyntaxErrors().isEmpty());
+  }
+
+  @Test
+  void testBackpressure(@TempDir Path root) throws IOException {
+    FileUtils.copyDirectory(Paths.get("./src/test/resources/correct").toFile(), root.toFile());
+    var submitted = new AtomicInteger();
+    var direct = Executors.newSingleThreadExecutor();
+    Executor counting = task -> {
+      submitted.incrementAndGet();
+      direct.execute(task);
+    };
+
+    try (var results = new GherkinProjectParser(counting, 2, ParseStrategy.LL).parseAll(root)) {
+      var iterator = results.iterator();
+      assertThat(iterator.hasNext()).isTrue();
+      assertThat(submitted.get()).isEqualTo(2);
+
+      iterator.next();
+      assertThat(iterator.hasNext()).isTrue();
+      assertThat(submitted.get()).isEqualTo(3);
+    } finally {
+      direct.shutdown();
+    }
+  }
+
+  @Test
+  void testMissingFile() {
+    var result = new GherkinProjectParser().parse(Paths.get("./src/test/resources/missing.feature"));
+    assertThat(result.isSuccessful()).isFalse();
+    assertThat(result.getFeature()).isEmpty();
+    assertThat(result.getException()).containsInstanceOf(java.nio.file.NoSuchFileException.class);
+  }
+
+  private static String readString(Path path) {
+    try {
+      return Files.readString(path, StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
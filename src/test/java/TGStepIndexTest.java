@@ -0,0 +1,105 @@
+/*
+ * This file is a part of Turbo Gherkin Parser.
+ *
+ * Copyright © 2020-2020
+ * Valery Maximov <maximovvalery@gmail.com>, 1c-syntax team <www.github.com/1c-syntax>, BIA Technologies team <www.bia-tech.ru> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * Turbo Gherkin Parser is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * Turbo Gherkin Parser is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Turbo Gherkin Parser.
+ */
+import com.github._1c_syntax.turbo.gherkin.parser.GherkinProjectParser;
+import com.github._1c_syntax.turbo.gherkin.parser.GherkinStepIndex;
+import com.github._1c_syntax.turbo.gherkin.parser.GherkinTokenizer;
+import com.github._1c_syntax.turbo.gherkin.parser.TurboGherkinParser;
+import org.antlr.v4.runtime.tree.xpath.XPath;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TGStepIndexTest {
+
+  private static final Path FIRST = Paths.get("first.feature");
+  private static final Path SECOND = Paths.get("second.feature");
+
+  @Test
+  void testNormalize() {
+    assertThat(GherkinStepIndex.normalize("я ввожу \"1\" в поле <Поле>"))
+      .isEqualTo("я ввожу <> в поле <>");
+    assertThat(GherkinStepIndex.normalize("  Я  ввожу 2.5\tв поле \"Код\"  "))
+      .isEqualTo("я ввожу <> в поле <>");
+    assertThat(GherkinStepIndex.normalize("значение < 5 > 3"))
+      .isEqualTo("значение <> <>");
+  }
+
+  @Test
+  void testNormalizeTree() throws IOException {
+    for (var content : TestUtils.readFeatures("./src/test/resources/correct")) {
+      var feature = new GherkinTokenizer(content).getAst();
+      for (var tree : XPath.findAll(feature, "//step/name", new TurboGherkinParser(null))) {
+        var name = (TurboGherkinParser.NameContext) tree;
+        assertThat(GherkinStepIndex.normalize(name.getText())).isEqualTo(GherkinStepIndex.normalize(name));
+      }
+    }
+  }
+
+  @Test
+  void testUpdate() {
+    var index = new GherkinStepIndex();
+    index.update(FIRST, new GherkinTokenizer("@smoke @ui\n"
+      + "Функционал: Первая\n"
+      + "Сценарий: Первый\n"
+      + "  Дано я открываю форму \"Товары\"\n"
+      + "  И я ввожу 10 в поле <Поле>\n"
+      + "  И я открываю форму \"Заказы\"\n").getAst());
+    index.update(SECOND, new GherkinTokenizer("@smoke\n"
+      + "Функционал: Вторая\n"
+      + "Сценарий: Второй\n"
+      + "  Когда я открываю форму 'Клиенты'\n").getAst());
+
+    assertThat(index.getFileCount()).isEqualTo(2);
+    assertThat(index.findSteps("Я открываю форму \"Номенклатура\""))
+      .extracting(GherkinStepIndex.Location::toString)
+      .containsExactly("first.feature:4", "first.feature:6", "second.feature:4");
+    assertThat(index.findSteps("я ввожу 1 в поле \"Код\"")).hasSize(1);
+    assertThat(index.findTag("smoke")).hasSize(2);
+    assertThat(index.findTag("@ui")).extracting(GherkinStepIndex.Location::getPath).containsExactly(FIRST);
+
+    index.update(FIRST, new GherkinTokenizer("Функционал: Первая\n"
+      + "Сценарий: Первый\n"
+      + "  Дано я закрываю форму\n").getAst());
+    assertThat(index.findSteps("я открываю форму \"Товары\"")).extracting(GherkinStepIndex.Location::getPath)
+      .containsExactly(SECOND);
+    assertThat(index.findSteps("я ввожу 1 в поле \"Код\"")).isEmpty();
+    assertThat(index.findTag("@ui")).isEmpty();
+    assertThat(index.findSteps("я закрываю форму")).hasSize(1);
+
+    index.remove(SECOND);
+    assertThat(index.findTag("@smoke")).isEmpty();
+    assertThat(index.getStepCount()).isEqualTo(1);
+  }
+
+  @Test
+  void testProject() throws IOException {
+    var index = new GherkinStepIndex();
+    new GherkinProjectParser().parseAll(Paths.get("./src/test/resources/correct"), index::update);
+
+    assertThat(index.getFileCount()).isPositive();
+    assertThat(index.getStepCount()).isPositive();
+  }
+}
@@ -0,0 +1,284 @@
+/*
+ * This file is a part of Turbo Gherkin Parser.
+ *
+ * Copyright © 2020-2020
+ * Valery Maximov <maximovvalery@gmail.com>, 1c-syntax team <www.github.com/1c-syntax>, BIA Technologies team <www.bia-tech.ru> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * Turbo Gherkin Parser is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * Turbo Gherkin Parser is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Turbo Gherkin Parser.
+ */
+import com.github._1c_syntax.turbo.gherkin.parser.GherkinEventHandler;
+import com.github._1c_syntax.turbo.gherkin.parser.GherkinStreamingParser;
+import com.github._1c_syntax.turbo.gherkin.parser.GherkinSyntaxError;
+import com.github._1c_syntax.turbo.gherkin.parser.GherkinTokenizer;
+import com.github._1c_syntax.turbo.gherkin.parser.TurboGherkinParser;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.xpath.XPath;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TGStreamingParserTest {
+
+  @Test
+  void testEventsMatchTree() throws IOException {
+    for (var content : TestUtils.readFeatures("./src/test/resources/correct")) {
+      var recorder = new Recorder();
+      new GherkinStreamingParser().parse(content, recorder);
+
+      var ast = new GherkinTokenizer(content).getAst();
+      assertThat(recorder.errors).isEmpty();
+      assertThat(recorder.steps).isEqualTo(find(ast, "//step").stream()
+        .map(step -> (TurboGherkinParser.StepContext) step)
+        .map(step -> step.stepKeyword().getText() + "|" + step.name().getText())
+        .collect(Collectors.toList()));
+      assertThat(recorder.scenarios).isEqualTo(find(ast, "//scenario/name").stream()
+        .map(ParseTree::getText)
+        .collect(Collectors.toList()));
+      assertThat(recorder.rows).isEqualTo(find(ast, "//tableHead").size() + find(ast, "//tableRow").size());
+      assertThat(recorder.depth).isZero();
+      assertThat(recorder.events).filteredOn(event -> event.startsWith("feature ")).hasSize(1);
+      assertThat(recorder.events).endsWith("/feature");
+    }
+  }
+
+  @Test
+  void testEvents() {
+    var content = "\uFEFF@tag1 @tag2\n"
+      + "Функционал: Фича\n"
+      + "\n"
+      + "Правило: Правило\n"
+      + "Контекст:\n"
+      + "  Дано шаг контекста\n"
+      + "Структура сценария: Структура\n"
+      + "  Когда шаг с таблицей\n"
+      + "    | a | b |\n"
+      + "    | 1 | 2 |\n"
+      + "  Тогда шаг с текстом\n"
+      + "    \"\"\"\n"
+      + "    текст\n"
+      + "    \"\"\"\n"
+      + "  Примеры:\n"
+      + "    | <c> |\n"
+      + "    | 3 |\n";
+    var recorder = new Recorder();
+    new GherkinStreamingParser().parse(content, recorder);
+
+    assertThat(recorder.errors).isEmpty();
+    assertThat(recorder.events).containsExactly(
+      "tag @tag1:1", "tag @tag2:1",
+      "feature Функционал:|Фича:2",
+      "rule Правило:|Правило:4",
+      "background Контекст::5", "step Дано|шаг контекста:6", "/background",
+      "outline Структура сценария:|Структура:7",
+      "step Когда|шаг с таблицей:8", "row [a, b]:9", "row [1, 2]:10",
+      "step Тогда|шаг с текстом:11", "docString     текст\n    :12",
+      "examples Примеры::15", "row [<c>]:16", "row [3]:17", "/examples",
+      "/outline", "/rule", "/feature");
+  }
+
+  @Test
+  void testSyntaxErrors() throws IOException {
+    for (var content : TestUtils.readFeatures("./src/test/resources/uncorrect")) {
+      var recorder = new Recorder();
+      new GherkinStreamingParser().parse(content, recorder);
+      assertThat(recorder.errors).isNotEmpty();
+      assertThat(recorder.depth).isZero();
+    }
+  }
+
+  @Test
+  void testPath() throws IOException {
+    var path = Paths.get("./src/test/resources/correct/example1.feature");
+    var recorder = new Recorder();
+    new GherkinStreamingParser().parse(path, recorder);
+    assertThat(recorder.errors).isEmpty();
+    assertThat(recorder.steps).isNotEmpty();
+  }
+
+  @Test
+  void testLargeInput() {
+    var scenarios = 5_000;
+    var recorder = new Recorder();
+    new GherkinStreamingParser().parse(new GeneratedFeature(scenarios), recorder);
+
+    assertThat(recorder.errors).isEmpty();
+    assertThat(recorder.scenarios).hasSize(scenarios).endsWith("Сценарий " + (scenarios - 1));
+    assertThat(recorder.steps).hasSize(scenarios * 3);
+    assertThat(recorder.rows).isEqualTo(scenarios * 2);
+  }
+
+  private static List<ParseTree> find(ParseTree tree, String xpath) {
+    var parser = new TurboGherkinParser(null);
+    return new ArrayList<>(XPath.findAll(tree, xpath, parser));
+  }
+
+  /**
+   * Записывает события в виде строк
+   */
+  private static class Recorder implements GherkinEventHandler {
+    private final List<String> events = new ArrayList<>();
+    private final List<String> steps = new ArrayList<>();
+    private final List<String> scenarios = new ArrayList<>();
+    private final List<GherkinSyntaxError> errors = new ArrayList<>();
+    private int rows;
+    private int depth;
+
+    @Override
+    public void tag(String tag, int line) {
+      events.add("tag " + tag + ":" + line);
+    }
+
+    @Override
+    public void startFeature(String keyword, String name, int line) {
+      start("feature " + keyword + "|" + name + ":" + line);
+    }
+
+    @Override
+    public void endFeature() {
+      end("/feature");
+    }
+
+    @Override
+    public void startRule(String keyword, String name, int line) {
+      start("rule " + keyword + "|" + name + ":" + line);
+    }
+
+    @Override
+    public void endRule() {
+      end("/rule");
+    }
+
+    @Override
+    public void startBackground(String keyword, int line) {
+      start("background " + keyword + ":" + line);
+    }
+
+    @Override
+    public void endBackground() {
+      end("/background");
+    }
+
+    @Override
+    public void startScenario(String keyword, String name, int line) {
+      scenarios.add(name);
+      start("scenario " + keyword + "|" + name + ":" + line);
+    }
+
+    @Override
+    public void endScenario() {
+      end("/scenario");
+    }
+
+    @Override
+    public void startScenarioOutline(String keyword, String name, int line) {
+      start("outline " + keyword + "|" + name + ":" + line);
+    }
+
+    @Override
+    public void endScenarioOutline() {
+      end("/outline");
+    }
+
+    @Override
+    public void startExamples(String keyword, int line) {
+      start("examples " + keyword + ":" + line);
+    }
+
+    @Override
+    public void endExamples() {
+      end("/examples");
+    }
+
+    @Override
+    public void step(String keyword, String name, int line) {
+      steps.add(keyword + "|" + name);
+      events.add("step " + keyword + "|" + name + ":" + line);
+    }
+
+    @Override
+    public void tableRow(List<String> cells, int line) {
+      rows++;
+      events.add("row " + cells + ":" + line);
+    }
+
+    @Override
+    public void docString(String content, int line) {
+      events.add("docString " + content + ":" + line);
+    }
+
+    @Override
+    public void syntaxError(GherkinSyntaxError error) {
+      errors.add(error);
+    }
+
+    private void start(String event) {
+      depth++;
+      events.add(event);
+    }
+
+    private void end(String event) {
+      depth--;
+      events.add(event);
+    }
+  }
+
+  /**
+   * Генерирует фиче-файл по мере чтения, не держа его в памяти целиком
+   */
+  private static class GeneratedFeature extends Reader {
+    private final int scenarios;
+    private int scenario = -1;
+    private String chunk = "Функционал: Большая фича\n\n";
+    private int position;
+
+    GeneratedFeature(int scenarios) {
+      this.scenarios = scenarios;
+    }
+
+    @Override
+    public int read(char[] buffer, int offset, int length) {
+      if (position == chunk.length()) {
+        if (++scenario == scenarios) {
+          return -1;
+        }
+        chunk = "Сценарий: Сценарий " + scenario + "\n"
+          + "  Дано открыта форма \"Документы\"\n"
+          + "  Когда в таблице нажата кнопка 'Создать'\n"
+          + "    | Поле | Значение |\n"
+          + "    | Номер | " + scenario + " |\n"
+          + "  Тогда открыта форма документа\n\n";
+        position = 0;
+      }
+      var count = Math.min(length, chunk.length() - position);
+      chunk.getChars(position, position + count, buffer, offset);
+      position += count;
+      return count;
+    }
+
+    @Override
+    public void close() {
+      // нечего закрывать
+    }
+  }
+}
@@ -0,0 +1,142 @@
+/*
+ * This file is a part of Turbo Gherkin Parser.
+ *
+ * Copyright © 2020-2020
+ * Valery Maximov <maximovvalery@gmail.com>, 1c-syntax team <www.github.com/1c-syntax>, BIA Technologies team <www.bia-tech.ru> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * Turbo Gherkin Parser is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * Turbo Gherkin Parser is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Turbo Gherkin Parser.
+ */
+import com.github._1c_syntax.turbo.gherkin.parser.ColumnarTable;
+import com.github._1c_syntax.turbo.gherkin.parser.Feature;
+import com.github._1c_syntax.turbo.gherkin.parser.GherkinLineScanner;
+import com.github._1c_syntax.turbo.gherkin.parser.GherkinModelBuilder;
+import com.github._1c_syntax.turbo.gherkin.parser.GherkinParseCache;
+import com.github._1c_syntax.turbo.gherkin.parser.GherkinStringTable;
+import com.github._1c_syntax.turbo.gherkin.parser.GherkinTokenizer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TGStringTableTest {
+
+  @Test
+  void testDeduplication() {
+    var strings = new GherkinStringTable();
+    var builder = new GherkinModelBuilder(strings);
+    var content = "@tag\n"
+      + "Функционал: Фича\n"
+      + "Сценарий: Первый\n"
+      + "  Дано я открываю форму\n"
+      + "    | Имя | Значение |\n"
+      + "    | a   | 1        |\n"
+      + "Сценарий: Второй\n"
+      + "  Дано я открываю форму\n"
+      + "    | Имя | Значение |\n"
+      + "    | b   | 2        |\n";
+    var first = builder.build(new GherkinTokenizer(content).getAst());
+    var second = builder.build(new GherkinTokenizer(new String(content.toCharArray())).getAst());
+
+    var firstStep = first.getScenarios().get(0).getSteps().get(0);
+    var secondStep = second.getScenarios().get(1).getSteps().get(0);
+    assertThat(secondStep.getText()).isSameAs(firstStep.getText());
+    assertThat(second.getTags().get(0)).isSameAs(first.getTags().get(0));
+    assertThat(secondStep.getTable().orElseThrow().getRows().get(0).getCells().get(0))
+      .isSameAs(firstStep.getTable().orElseThrow().getRows().get(0).getCells().get(0));
+
+    assertThat(strings.getUsageCount("я открываю форму")).isEqualTo(4);
+    assertThat(strings.getUsageCount("Имя")).isEqualTo(4);
+    assertThat(strings.getUsageCount("@tag")).isEqualTo(2);
+    assertThat(strings.getUsageCount("a")).isEqualTo(2);
+    assertThat(strings.getUsageCount("нет такой строки")).isZero();
+
+    strings.release(first);
+    assertThat(strings.getUsageCount("я открываю форму")).isEqualTo(2);
+    assertThat(strings.getUsageCount("@tag")).isEqualTo(1);
+
+    strings.release(second);
+    assertThat(strings.size()).isZero();
+
+    var table = ColumnarTable.of(content.toCharArray(), content.indexOf('|'), content.length(), strings);
+    assertThat(table.getHeaders()).containsExactly("Имя", "Значение");
+    assertThat(strings.getUsageCount("Имя")).isEqualTo(1);
+    strings.release(table);
+    assertThat(strings.size()).isZero();
+  }
+
+  @Test
+  void testCache(@TempDir Path root) throws IOException {
+    var strings = new GherkinStringTable();
+    var cache = new GherkinParseCache(root, Long.MAX_VALUE, strings);
+    var content = "@tag\n"
+      + "Функционал: Фича\n"
+      + "Сценарий: Первый\n"
+      + "  Дано я открываю форму\n"
+      + "    | Имя | Значение |\n"
+      + "    | a   | 1        |\n"
+      + "  И я открываю форму\n";
+
+    var parsed = cache.parse(content).getFeature();
+    assertThat(cache.getMissCount()).isEqualTo(1);
+    assertThat(strings.getUsageCount("я открываю форму")).isEqualTo(2);
+    assertThat(strings.getUsageCount("Имя")).isEqualTo(1);
+
+    // при попадании строка интернируется при каждом использовании в модели, как при разборе
+    var cached = cache.parse(content).getFeature();
+    assertThat(cache.getHitCount()).isEqualTo(1);
+    assertThat(strings.getUsageCount("я открываю форму")).isEqualTo(4);
+    assertThat(strings.getUsageCount("Имя")).isEqualTo(2);
+    assertThat(strings.getUsageCount("@tag")).isEqualTo(2);
+    assertThat(cached.getScenarios().get(0).getSteps().get(1).getText())
+      .isSameAs(parsed.getScenarios().get(0).getSteps().get(0).getText());
+
+    strings.release(cached);
+    assertThat(strings.getUsageCount("я открываю форму")).isEqualTo(2);
+    assertThat(strings.getUsageCount("Имя")).isEqualTo(1);
+
+    strings.release(parsed);
+    assertThat(strings.size()).isZero();
+  }
+
+  @Test
+  void testProject() throws IOException {
+    var strings = new GherkinStringTable();
+    var builder = new GherkinModelBuilder(strings);
+    var scanner = new GherkinLineScanner(strings);
+    List<Feature> features = new ArrayList<>();
+    for (var content : TestUtils.readFeatures("./src/test/resources/correct")) {
+      features.add(builder.build(new GherkinTokenizer(content).getAst()));
+      features.add(scanner.parse(content));
+    }
+
+    Map<String, Integer> counts = new HashMap<>();
+    strings.forEach(counts::put);
+    assertThat(counts).hasSize(strings.size());
+    assertThat(counts.values()).allMatch(count -> count > 0);
+
+    for (var feature : features) {
+      strings.release(feature);
+    }
+    assertThat(strings.size()).isZero();
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * This file is a part of Turbo Gherkin Parser.
+ *
+ * Copyright © 2020-2020
+ * Valery Maximov <maximovvalery@gmail.com>, 1c-syntax team <www.github.com/1c-syntax>, BIA Technologies team <www.bia-tech.ru> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * Turbo Gherkin Parser is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * Turbo Gherkin Parser is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Turbo Gherkin Parser.
+ */
+import com.github._1c_syntax.turbo.gherkin.parser.GherkinCharStreams;
+import com.github._1c_syntax.turbo.gherkin.parser.GherkinTokenCodec;
+import com.github._1c_syntax.turbo.gherkin.parser.GherkinTokenizer;
+import com.github._1c_syntax.turbo.gherkin.parser.TurboGherkinParser;
+import org.antlr.v4.runtime.ConsoleErrorListener;
+import org.antlr.v4.runtime.Token;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TGTokenCodecTest {
+
+  @Test
+  void testRoundTrip() throws IOException {
+    List<String> contents = new ArrayList<>(TestUtils.readFeatures("./src/test/resources/correct"));
+    contents.addAll(TestUtils.readFeatures("./src/test/resources/uncorrect"));
+    for (var content : contents) {
+      var tokenizer = new GherkinTokenizer(content);
+      var tokens = tokenizer.getTokens();
+      var bytes = GherkinTokenCodec.encode(tokens);
+
+      assertThat(bytes.length).isLessThan(tokens.size() * 8 + 16);
+
+      var tokenStream = GherkinTokenCodec.decode(bytes, content);
+      tokenStream.fill();
+      assertThat(describe(tokenStream.getTokens().subList(0, tokens.size()))).isEqualTo(describe(tokens));
+
+      tokenStream.seek(0);
+      var parser = new TurboGherkinParser(tokenStream);
+      parser.removeErrorListener(ConsoleErrorListener.INSTANCE);
+      assertThat(parser.feature().toStringTree()).isEqualTo(tokenizer.getAst().toStringTree());
+    }
+  }
+
+  @Test
+  void testStream() throws IOException {
+    var content = "Функционал: ф\n  Сценарий: с\n    Дано шаг \"1\"\n";
+    var tokens = new GherkinTokenizer(content).getTokens();
+    var out = new ByteArrayOutputStream();
+    GherkinTokenCodec.write(out, tokens);
+
+    var in = new BufferedInputStream(new ByteArrayInputStream(out.toByteArray()));
+    var tokenStream = GherkinTokenCodec.read(in, GherkinCharStreams.fromString(content));
+    tokenStream.fill();
+
+    assertThat(tokenStream.get(tokenStream.size() - 1).getType()).isEqualTo(Token.EOF);
+    assertThat(describe(tokenStream.getTokens().subList(0, tokens.size()))).isEqualTo(describe(tokens));
+  }
+
+  @Test
+  void testMismatch() {
+    var content = "Функционал: ф\n";
+    var bytes = GherkinTokenCodec.encode(new GherkinTokenizer(content).getTokens());
+
+    assertThatThrownBy(() -> GherkinTokenCodec.decode(bytes, content + " "))
+      .isInstanceOf(IOException.class);
+    assertThatThrownBy(() -> GherkinTokenCodec.decode(new byte[]{1, 2, 3}, content))
+      .isInstanceOf(IOException.class);
+  }
+
+  private static List<String> describe(List<Token> tokens) {
+    return tokens.stream()
+      .map(token -> token.getType() + ":" + token.getChannel() + ":" + token.getText()
+        + ":" + token.getStartIndex() + ":" + token.getStopIndex()
+        + ":" + token.getLine() + ":" + token.getCharPositionInLine() + ":" + token.getTokenIndex())
+      .collect(Collectors.toList());
+  }
+}
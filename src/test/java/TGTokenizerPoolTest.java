@@ -0,0 +1,109 @@
+/*
+ * This file is a part of Turbo Gherkin Parser.
+ *
+ * Copyright © 2020-2020
+ * Valery Maximov <maximovvalery@gmail.com>, 1c-syntax team <www.github.com/1c-syntax>, BIA Technologies team <www.bia-tech.ru> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * Turbo Gherkin Parser is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * Turbo Gherkin Parser is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Turbo Gherkin Parser.
+ */
+
+import com.github._1c_syntax.turbo.gherkin.parser.GherkinTokenizer;
+import com.github._1c_syntax.turbo.gherkin.parser.GherkinTokenizerPool;
+import com.github._1c_syntax.turbo.gherkin.parser.ParseStrategy;
+import org.antlr.v4.runtime.Token;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TGTokenizerPoolTest {
+
+  @Test
+  void testParse() throws IOException {
+    var pool = new GherkinTokenizerPool();
+    for (var content : TestUtils.readFeatures("./src/test/resources/correct")) {
+      var expected = new GherkinTokenizer(content);
+      var feature = pool.parse(content);
+      assertThat(feature.toStringTree()).isEqualTo(expected.getAst().toStringTree());
+    }
+    assertThat(pool.getIdleCount()).isEqualTo(1);
+  }
+
+  @Test
+  void testTokenize() {
+    var content = "\uFEFFФункционал: тестовый пример\nСценарий: тестовый сценарий";
+    var pool = new GherkinTokenizerPool();
+    try (var lease = pool.acquire()) {
+      assertThat(lease.tokenize(content).getTokens())
+        .extracting(Token::getType)
+        .containsExactlyElementsOf(new GherkinTokenizer(content).getTokens().stream()
+          .map(Token::getType)
+          .collect(Collectors.toList()));
+    }
+  }
+
+  @Test
+  void testLeaseReuse() {
+    var pool = new GherkinTokenizerPool(1, ParseStrategy.SLL_THEN_LL);
+    var first = pool.acquire();
+    var second = pool.acquire();
+    assertThat(first).isNotSameAs(second);
+    first.parse("Функционал: тестовый пример\nСценарий: тестовый сценарий");
+    assertThat(first.getPredictionMode()).isNotNull();
+
+    first.close();
+    second.close();
+    assertThat(pool.getIdleCount()).isEqualTo(1);
+
+    try (var lease = pool.acquire()) {
+      assertThat(lease).isSameAs(first);
+      assertThat(lease.getPredictionMode()).isNull();
+    }
+    assertThatThrownBy(() -> first.parse("Функционал: тестовый пример"))
+      .isInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  void testConcurrentParse() throws IOException, InterruptedException, ExecutionException {
+    var corpus = TestUtils.readFeatures("./src/test/resources/correct");
+    var expected = corpus.stream()
+      .map(content -> new GherkinTokenizer(content).getAst().toStringTree())
+      .collect(Collectors.toList());
+
+    var pool = new GherkinTokenizerPool(4, ParseStrategy.SLL_THEN_LL);
+    var executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<String>> results = new ArrayList<>();
+      for (var i = 0; i < 10; i++) {
+        corpus.forEach(content -> results.add(executor.submit(() -> pool.parse(content).toStringTree())));
+      }
+      for (var i = 0; i < results.size(); i++) {
+        assertThat(results.get(i).get()).isEqualTo(expected.get(i % corpus.size()));
+      }
+    } finally {
+      executor.shutdown();
+    }
+    assertThat(pool.getIdleCount()).isBetween(1, 4);
+  }
+}
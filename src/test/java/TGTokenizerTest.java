@@ -0,0 +1,161 @@
+/*
+ * This file is a part of Turbo Gherkin Parser.
+ *
+ * Copyright © 2020-2020
+ * Valery Maximov <maximovvalery@gmail.com>, 1c-syntax team <www.github.com/1c-syntax>, BIA Technologies team <www.bia-tech.ru> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * Turbo Gherkin Parser is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * Turbo Gherkin Parser is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Turbo Gherkin Parser.
+ */
+
+import com.github._1c_syntax.turbo.gherkin.parser.GherkinDFACache;
+import com.github._1c_syntax.turbo.gherkin.parser.GherkinTokenizer;
+import com.github._1c_syntax.turbo.gherkin.parser.ParseMetrics;
+import com.github._1c_syntax.turbo.gherkin.parser.ParseStrategy;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.parallel.Isolated;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// testMetricsPredictionReports очищает общий для процесса кэш DFA
+@Isolated
+class TGTokenizerTest {
+
+  @Test
+  void testSLLThenLL() throws IOException {
+    for (var content : TestUtils.readFeatures("./src/test/resources/correct")) {
+      var expected = new GherkinTokenizer(content);
+      var tokenizer = new GherkinTokenizer(content, ParseStrategy.SLL_THEN_LL);
+
+      assertThat(tokenizer.getStrategy()).isEqualTo(ParseStrategy.SLL_THEN_LL);
+      assertThat(tokenizer.getPredictionMode()).isIn(PredictionMode.SLL, PredictionMode.LL);
+      assertThat(TestUtils.treeContainsErrors(tokenizer.getAst())).isFalse();
+      assertThat(tokenizer.getAst().toStringTree()).isEqualTo(expected.getAst().toStringTree());
+    }
+  }
+
+  @Test
+  void testSLLSuccess() throws IOException {
+    var content = FileUtils.readFileToString(
+      Paths.get("./src/test/resources/correct/example8.feature").toFile(), StandardCharsets.UTF_8);
+    var tokenizer = new GherkinTokenizer(content, ParseStrategy.SLL_THEN_LL);
+    assertThat(tokenizer.getPredictionMode()).isEqualTo(PredictionMode.SLL);
+    assertThat(TestUtils.treeContainsErrors(tokenizer.getAst())).isFalse();
+  }
+
+  @Test
+  void testSLLThenLLFallback() throws IOException {
+    for (var content : TestUtils.readFeatures("./src/test/resources/uncorrect")) {
+      var tokenizer = new GherkinTokenizer(content, ParseStrategy.SLL_THEN_LL);
+
+      assertThat(tokenizer.getPredictionMode()).isEqualTo(PredictionMode.LL);
+      assertThat(TestUtils.treeContainsErrors(tokenizer.getAst())).isTrue();
+    }
+  }
+
+  @Test
+  void testWordTokens() throws IOException {
+    for (var content : TestUtils.readFeatures("./src/test/resources/correct")) {
+      var expected = new GherkinTokenizer(content);
+      var tokenizer = new GherkinTokenizer(content, ParseStrategy.LL, true);
+
+      assertThat(TestUtils.treeContainsErrors(tokenizer.getAst())).isFalse();
+      assertThat(tokenizer.getAst().getText()).isEqualTo(expected.getAst().getText());
+      assertThat(tokenizer.getTokens()).hasSizeLessThan(expected.getTokens().size());
+    }
+  }
+
+  @Test
+  void testWordTokensDescription() {
+    var content = "Функционал: ф\n  Сценарий: с\n    Описание\n    Дано шаг\n";
+    var tokenizer = new GherkinTokenizer(content, ParseStrategy.LL, true);
+
+    assertThat(TestUtils.treeContainsErrors(tokenizer.getAst())).isFalse();
+    assertThat(tokenizer.getAst().featureBody().scenarios().scenario(0).description().getText().trim())
+      .isEqualTo("Описание");
+  }
+
+  @Test
+  void testMetrics() throws IOException {
+    var content = FileUtils.readFileToString(
+      Paths.get("./src/test/resources/correct/example8.feature").toFile(), StandardCharsets.UTF_8);
+    List<ParseMetrics> metrics = new ArrayList<>();
+    var tokenizer = new GherkinTokenizer(content, ParseStrategy.SLL_THEN_LL);
+    tokenizer.setMetricsListener(metrics::add);
+    tokenizer.getAst();
+    tokenizer.getAst();
+
+    assertThat(metrics).hasSize(1);
+    var parseMetrics = metrics.get(0);
+    assertThat(parseMetrics.getLexingNanos()).isPositive();
+    assertThat(parseMetrics.getParsingNanos()).isPositive();
+    assertThat(parseMetrics.getTokenCount()).isEqualTo(tokenizer.getTokens().size());
+    assertThat(parseMetrics.getTreeNodeCount()).isGreaterThan(parseMetrics.getTokenCount() / 2);
+    assertThat(parseMetrics.getLlFallbackCount()).isZero();
+    assertThat(parseMetrics.getSyntaxErrorCount()).isZero();
+    assertThat(parseMetrics.getBytes()).isEqualTo(content.getBytes(StandardCharsets.UTF_8).length);
+  }
+
+  @Test
+  void testMetricsPredictionReports() throws IOException {
+    // конфликты SLL сообщаются только при построении DFA, поэтому кэш DFA очищается
+    GherkinDFACache.clear();
+    var fullContextAttempts = 0;
+    var ambiguities = 0;
+    try {
+      for (var content : TestUtils.readFeatures("./src/test/resources/correct")) {
+        List<ParseMetrics> metrics = new ArrayList<>();
+        var tokenizer = new GherkinTokenizer(content, ParseStrategy.LL);
+        tokenizer.setMetricsListener(metrics::add);
+        tokenizer.getAst();
+
+        fullContextAttempts += metrics.get(0).getFullContextAttemptCount();
+        ambiguities += metrics.get(0).getAmbiguityCount();
+      }
+    } finally {
+      GherkinDFACache.warmUp();
+    }
+    assertThat(fullContextAttempts + ambiguities).isPositive();
+  }
+
+  @Test
+  void testMetricsFallback() throws IOException {
+    for (var content : TestUtils.readFeatures("./src/test/resources/uncorrect")) {
+      List<ParseMetrics> metrics = new ArrayList<>();
+      var tokenizer = new GherkinTokenizer(content, ParseStrategy.SLL_THEN_LL);
+      tokenizer.setMetricsListener(metrics::add);
+      tokenizer.getAst();
+
+      assertThat(metrics).hasSize(1);
+      assertThat(metrics.get(0).getLlFallbackCount()).isEqualTo(1);
+      assertThat(metrics.get(0).getSyntaxErrorCount()).isPositive();
+    }
+  }
+
+  @Test
+  void testDefaultStrategy() {
+    var tokenizer = new GherkinTokenizer("Функционал: тестовый пример\nСценарий: тестовый сценарий");
+    assertThat(tokenizer.getStrategy()).isEqualTo(ParseStrategy.LL);
+    assertThat(tokenizer.getPredictionMode()).isEqualTo(PredictionMode.LL);
+  }
+}
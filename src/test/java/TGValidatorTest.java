@@ -0,0 +1,80 @@
+/*
+ * This file is a part of Turbo Gherkin Parser.
+ *
+ * Copyright © 2020-2020
+ * Valery Maximov <maximovvalery@gmail.com>, 1c-syntax team <www.github.com/1c-syntax>, BIA Technologies team <www.bia-tech.ru> and contributors
+ *
+ * SPDX-License-Identifier: LGPL-3.0-or-later
+ *
+ * Turbo Gherkin Parser is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ *
+ * Turbo Gherkin Parser is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Turbo Gherkin Parser.
+ */
+import com.github._1c_syntax.turbo.gherkin.parser.GherkinCharStreams;
+import com.github._1c_syntax.turbo.gherkin.parser.GherkinValidator;
+import com.github._1c_syntax.turbo.gherkin.parser.TurboGherkinLexer;
+import com.github._1c_syntax.turbo.gherkin.parser.TurboGherkinParser;
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ConsoleErrorListener;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Recognizer;
+import org.antlr.v4.runtime.Token;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TGValidatorTest {
+
+  @Test
+  void testCorrect() throws IOException {
+    var validator = new GherkinValidator();
+    for (var content : TestUtils.readFeatures("./src/test/resources/correct")) {
+      assertThat(validator.validate(content)).isEmpty();
+    }
+    assertThat(validator.validate(Paths.get("./src/test/resources/correct/example1.feature"))).isEmpty();
+  }
+
+  @Test
+  void testFirstError() throws IOException {
+    var validator = new GherkinValidator();
+    for (var content : TestUtils.readFeatures("./src/test/resources/uncorrect")) {
+      var errors = errors(content);
+      var error = validator.validate(content);
+
+      assertThat(error).isPresent();
+      assertThat(error.get().toString()).isEqualTo(errors.get(0));
+    }
+  }
+
+  private static List<String> errors(String content) {
+    var lexer = new TurboGherkinLexer(GherkinCharStreams.fromString(content), true);
+    lexer.removeErrorListener(ConsoleErrorListener.INSTANCE);
+    var parser = new TurboGherkinParser(new CommonTokenStream(lexer));
+    parser.removeErrorListener(ConsoleErrorListener.INSTANCE);
+    List<String> errors = new ArrayList<>();
+    parser.addErrorListener(new BaseErrorListener() {
+      @Override
+      public <T extends Token> void syntaxError(Recognizer<T, ?> recognizer, T offendingSymbol, int line,
+                                               int charPositionInLine, String msg, RecognitionException e) {
+        errors.add("line " + line + ":" + charPositionInLine + " " + msg);
+      }
+    });
+    parser.feature();
+    return errors;
+  }
+}
@@ -30,17 +30,22 @@ import org.antlr.v4.runtime.ConsoleErrorListener;
 import org.antlr.v4.runtime.Token;
 import org.antlr.v4.runtime.tree.ParseTree;
 import org.antlr.v4.runtime.tree.Tree;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import com.github._1c_syntax.turbo.gherkin.parser.GherkinParserRuleContext;
 import com.github._1c_syntax.turbo.gherkin.parser.TurboGherkinLexer;
 import com.github._1c_syntax.turbo.gherkin.parser.TurboGherkinParser;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -167,6 +172,30 @@ public final class TestUtils {
       && ruleContext.children.stream().anyMatch(TestUtils::treeContainsErrors);
   }
 
+  /**
+   * Возвращает фиче-файлы каталога
+   *
+   * @param srcDir каталог с примерами
+   * @return найденные файлы
+   */
+  public static Collection<File> listFeatures(String srcDir) {
+    return FileUtils.listFiles(Paths.get(srcDir).toAbsolutePath().toFile(), new String[]{"feature"}, true);
+  }
+
+  /**
+   * Читает содержимое фиче-файлов каталога
+   *
+   * @param srcDir каталог с примерами
+   * @return содержимое найденных файлов
+   */
+  public static List<String> readFeatures(String srcDir) throws IOException {
+    List<String> result = new ArrayList<>();
+    for (var file : listFeatures(srcDir)) {
+      result.add(FileUtils.readFileToString(file, StandardCharsets.UTF_8));
+    }
+    return result;
+  }
+
   protected static TurboGherkinParser createParser(String inputString) {
     CharStream input;
 